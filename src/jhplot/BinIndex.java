@@ -0,0 +1,118 @@
+/**
+*    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+*    All rights reserved.
+*
+*    This program is free software; you can redistribute it and/or modify it under the terms
+*    of the GNU General Public License as published by the Free Software Foundation; either
+*    version 3 of the License, or any later version.
+*
+*    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+*    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*    See the GNU General Public License for more details.
+*
+*    You should have received a copy of the GNU General Public License along with this program;
+*    if not, see <http://www.gnu.org/licenses>.
+*
+*    Additional permission under GNU GPL version 3 section 7:
+*    If you have received this program as a library with written permission from the DataMelt team,
+*    you can link or combine this library with your non-GPL project to convey the resulting work.
+*    In this case, this library should be considered as released under the terms of
+*    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+*    provided you include this license notice and a URL through which recipients can access the
+*    Corresponding Source.
+**/
+package jhplot;
+
+import hep.aida.IAxis;
+
+/**
+ * Finds bins of an AIDA axis with plain arithmetic: direct computation for
+ * fixed bins and a binary search over the edges for variable bins. Values
+ * are assigned to bins as in AIDA: a value is in the underflow bin if it is
+ * below the lower edge and in the overflow bin if it is at or above the upper
+ * edge. The returned indices are those of the arrays used by setContents():
+ * 0 is the underflow bin, 1..bins are the bins and bins+1 is the overflow
+ * bin.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+final class BinIndex {
+
+	final int bins;
+	private final boolean fixed;
+	private final double min;
+	private final double max;
+	private final double width;
+	private final double[] edges;
+
+	/**
+	 * Create an index for an axis.
+	 * 
+	 * @param axis
+	 *            axis
+	 */
+	BinIndex(IAxis axis) {
+
+		bins = axis.bins();
+		fixed = axis.isFixedBinning();
+		min = axis.lowerEdge();
+		max = axis.upperEdge();
+		width = (max - min) / bins;
+		if (fixed) {
+			edges = null;
+		} else {
+			edges = new double[bins + 1];
+			for (int i = 0; i < bins; i++)
+				edges[i] = axis.binLowerEdge(i);
+			edges[bins] = max;
+		}
+	}
+
+	/**
+	 * Find the index of a value: 0 for underflow, bins+1 for overflow.
+	 * 
+	 * @param x
+	 *            value
+	 * @return index
+	 */
+	int index(double x) {
+
+		if (x < min)
+			return 0;
+		if (fixed) {
+			int i = (int) Math.floor((x - min) / width);
+			return i >= bins ? bins + 1 : i + 1;
+		}
+		if (x >= max)
+			return bins + 1;
+		int lo = 0;
+		int hi = bins;
+		// edges[lo] <= x < edges[hi]
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if (x < edges[mid])
+				hi = mid;
+			else
+				lo = mid;
+		}
+		return lo + 1;
+	}
+
+	/**
+	 * Convert an array index to the AIDA bin index.
+	 * 
+	 * @param i
+	 *            array index
+	 * @return AIDA index, including IAxis.UNDERFLOW_BIN and
+	 *         IAxis.OVERFLOW_BIN
+	 */
+	int aida(int i) {
+
+		if (i == 0)
+			return IAxis.UNDERFLOW_BIN;
+		if (i == bins + 1)
+			return IAxis.OVERFLOW_BIN;
+		return i - 1;
+	}
+}
@@ -27,6 +27,7 @@ import jplot.LinePars;
 import hep.aida.*;
 import jhplot.gui.HelpBrowser;
 import jhplot.math.exp4j.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Create a function in one dimension using "x" as a variable. The function name
@@ -93,6 +94,10 @@ public class F1D extends DrawOptions {
 
 	private ExpressionBuilder function = null;
 
+	private transient CompiledExpression compiled = null;
+
+	private transient Expression compiledFrom = null;
+
 	private String lastException = "";
 
 	final int maxpoints = 500;
@@ -736,8 +741,7 @@ public class F1D extends DrawOptions {
 		// evaluate function
 		if (iname == null && calc != null && proxy.isParsed() == true) {
 			try {
-				calc.setVariable("x", x);
-				y = calc.evaluate();
+				y = evaluate(getCompiled(), new double[1], x);
 			} catch (Exception e) {
 				lastException = e.getMessage().toString();
 				String ss1 = Double.toString(x);
@@ -795,12 +799,20 @@ public class F1D extends DrawOptions {
 		// evaluate function
 		if (iname == null && calc != null && proxy.isParsed() == true) {
 
+			try {
+				calc.evaluate("x", x, y);
+				return y;
+			} catch (Exception e) {
+				// evaluate point by point below to locate the failure
+			}
+
+			CompiledExpression c = getCompiled();
+			double[] arg = new double[1];
 			for (int i = 0; i < x.length; i++) {
 
 				try {
 
-					calc.setVariable("x", x[i]);
-					y[i] = calc.evaluate();
+					y[i] = evaluate(c, arg, x[i]);
 
 				} catch (Exception e) {
 
@@ -842,6 +854,37 @@ public class F1D extends DrawOptions {
 		return y;
 	}
 
+	/**
+	 * Evaluate a function for an array of x-values in the same way as
+	 * {@link #eval(double)}: a point which cannot be evaluated is reported to
+	 * System.err and gives 0. Unlike {@link #eval(double[])}, no dialog is
+	 * shown, so this can be used in numeric routines and batch jobs.
+	 * 
+	 * @param x
+	 *            array of values in x for evaluation
+	 * @return array of function values
+	 */
+	public double[] evalPoints(double[] x) {
+
+		double[] y = new double[x.length];
+		if (proxy.getIFunction() == null) {
+			if (calc == null || proxy.isParsed() == false) {
+				System.err.println("Function was not parsed correctly: "
+						+ proxy.getName());
+				return y;
+			}
+			try {
+				calc.evaluate("x", x, y);
+				return y;
+			} catch (Exception e) {
+				// evaluate point by point below
+			}
+		}
+		for (int i = 0; i < x.length; i++)
+			y[i] = eval(x[i]);
+		return y;
+	}
+
 	/**
 	 * Evaluate a function for graphic representation. Number of points for
 	 * evaluations is 500.
@@ -894,21 +937,20 @@ public class F1D extends DrawOptions {
 			x = new double[points];
 			y = new double[points];
 			double d = (max - min) / (points - 1);
-			for (int i = 0; i < points; i++) {
+			for (int i = 0; i < points; i++)
 				x[i] = min + i * d;
-				try {
-
-					calc.setVariable("x", x[i]);
-					y[i] = calc.evaluate();
-					// System.out.println(x[i]);
-					// System.out.println(y[i]);
-				} catch (Exception e) {
-					String ss = Double.toString(x[i]);
-					System.err.println("Failed to evaluate:" + proxy.getName()
-							+ " at position=" + ss);
-					return;
-				}
-
+			try {
+				calc.evaluate("x", x, y);
+			} catch (EvaluationException e) {
+				int i = e.getRow();
+				System.err.println("Failed to evaluate:" + proxy.getName()
+						+ " at x=" + x[i] + " (point " + i + " in range ["
+						+ min + "," + max + "]): " + e.getCause());
+				return;
+			} catch (Exception e) {
+				System.err.println("Failed to evaluate:" + proxy.getName()
+						+ " in range [" + min + "," + max + "]");
+				return;
 			}
 		} // end of the standard jPlot function
 
@@ -937,6 +979,137 @@ public class F1D extends DrawOptions {
 
 	}
 
+	/**
+	 * Evaluate a function for an array of x-values in parallel using the
+	 * default pool. The results are identical to {@link #eval(double[])}.
+	 * 
+	 * @param x
+	 *            array of values in x for evaluation
+	 * @return array of function values
+	 */
+	public double[] evalParallel(double[] x) {
+		return evalParallel(x, null);
+	}
+
+	/**
+	 * Evaluate a function for an array of x-values in parallel. The array is
+	 * split into chunks evaluated by the workers of the pool. Functions
+	 * defined by a JAIDA IFunction are evaluated serially.
+	 * 
+	 * @param x
+	 *            array of values in x for evaluation
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 * @return array of function values
+	 */
+	public double[] evalParallel(double[] x, ForkJoinPool pool) {
+
+		if (proxy.getIFunction() != null || calc == null
+				|| proxy.isParsed() == false)
+			return eval(x);
+
+		double[] y = new double[x.length];
+		try {
+			ParallelEvaluator.evaluate(pool, calc, new String[] { "x" },
+					new double[][] { x }, y);
+		} catch (Exception e) {
+			// the serial evaluation reports the failing position
+			return eval(x);
+		}
+		return y;
+	}
+
+	/**
+	 * Evaluate a function for graphic representation in parallel using the
+	 * default pool.
+	 * 
+	 * @param min
+	 *            Min value in x
+	 * @param max
+	 *            Max value in x
+	 * @param Npoints
+	 *            Number of evaluation points
+	 */
+	public void evalParallel(double min, double max, int Npoints) {
+		evalParallel(min, max, Npoints, null);
+	}
+
+	/**
+	 * Evaluate a function for graphic representation in parallel. The results
+	 * are identical to {@link #eval(double, double, int)}.
+	 * 
+	 * @param min
+	 *            Min value in x
+	 * @param max
+	 *            Max value in x
+	 * @param Npoints
+	 *            Number of evaluation points
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 */
+	public void evalParallel(double min, double max, int Npoints,
+			ForkJoinPool pool) {
+
+		if (proxy.getIFunction() != null || calc == null
+				|| proxy.isParsed() == false) {
+			eval(min, max, Npoints);
+			return;
+		}
+
+		double[] xx = new double[Npoints];
+		double d = (max - min) / (Npoints - 1);
+		for (int i = 0; i < Npoints; i++)
+			xx[i] = min + i * d;
+		double[] yy = evalParallel(xx, pool);
+		if (yy == null)
+			return;
+		x = xx;
+		y = yy;
+	}
+
+	/**
+	 * Get the parsed function compiled to bytecode. The compiled form is
+	 * rebuilt when the parsed expression changes.
+	 * 
+	 * @return compiled function or null if the expression cannot be compiled
+	 *         with the single variable x.
+	 */
+	private CompiledExpression getCompiled() {
+		if (calc != compiledFrom) {
+			compiledFrom = calc;
+			compiled = null;
+			if (calc != null) {
+				try {
+					compiled = calc.compile("x");
+				} catch (IllegalArgumentException e) {
+					compiled = null;
+				}
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Evaluate the parsed function at x. Uses the compiled form if available,
+	 * the interpreter otherwise.
+	 * 
+	 * @param c
+	 *            compiled function or null
+	 * @param arg
+	 *            buffer of length 1 for the argument
+	 * @param x
+	 *            value in x
+	 * @return function value
+	 */
+	private double evaluate(CompiledExpression c, double[] arg, double x) {
+		if (c == null) {
+			calc.setVariable("x", x);
+			return calc.evaluate();
+		}
+		arg[0] = x;
+		return c.applyAsDouble(arg);
+	}
+
 	/**
 	 * Show online documentation.
 	 */
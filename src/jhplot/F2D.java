@@ -24,6 +24,7 @@
 package jhplot;
 
 import jhplot.math.exp4j.*;
+import java.util.concurrent.ForkJoinPool;
 import hep.aida.IFunction;
 import jhplot.gui.HelpBrowser;
 
@@ -85,6 +86,8 @@ public class F2D extends DrawOptions {
 
 	private Expression calc = null;
 	private ExpressionBuilder function = null;
+	private transient CompiledExpression compiled = null;
+	private transient Expression compiledFrom = null;
 
 	final int maxpoints = 200;
 	private FProxy proxy;
@@ -401,9 +404,7 @@ public class F2D extends DrawOptions {
 		if (iname == null && calc != null && isParsed == true) {
 			try {
 
-				calc.setVariable("x", x);
-				calc.setVariable("y", y);
-				z = calc.evaluate();
+				z = evaluate(getCompiled(), new double[2], x, y);
 
 			} catch (Exception e) {
 				String ss1 = Double.toString(x);
@@ -436,6 +437,95 @@ public class F2D extends DrawOptions {
 	}
 
 
+	/**
+	 * Evaluate a function on the grid x times y in parallel using the default
+	 * pool.
+	 * 
+	 * @param x
+	 *            array of values in x for evaluation
+	 * @param y
+	 *            array of values in y for evaluation
+	 * 
+	 * @return array of function values
+	 */
+	public double[][] evalParallel(double[] x, double[] y) {
+		return evalParallel(x, y, null);
+	}
+
+	/**
+	 * Evaluate a function on the grid x times y in parallel. The grid is split
+	 * into tiles evaluated by the workers of the pool. The results are
+	 * identical to {@link #eval(double[], double[])}. Functions defined by a
+	 * JAIDA IFunction are evaluated serially.
+	 * 
+	 * @param x
+	 *            array of values in x for evaluation
+	 * @param y
+	 *            array of values in y for evaluation
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 * 
+	 * @return array of function values
+	 */
+	public double[][] evalParallel(double[] x, double[] y, ForkJoinPool pool) {
+
+		if (proxy.getIFunction() != null || calc == null
+				|| proxy.isParsed() == false)
+			return eval(x, y);
+
+		double[][] z = new double[x.length][y.length];
+		try {
+			ParallelEvaluator.evaluateGrid(pool, calc, "x", x, "y", y, z);
+		} catch (Exception e) {
+			// the serial evaluation reports the failing position
+			return eval(x, y);
+		}
+		return z;
+	}
+
+	/**
+	 * Get the parsed function compiled to bytecode. The compiled form is
+	 * rebuilt when the parsed expression changes.
+	 * 
+	 * @return compiled function or null if the expression cannot be compiled
+	 *         with the variables x,y.
+	 */
+	private CompiledExpression getCompiled() {
+		if (calc != compiledFrom) {
+			compiledFrom = calc;
+			compiled = null;
+			if (calc != null) {
+				try {
+					compiled = calc.compile("x", "y");
+				} catch (IllegalArgumentException e) {
+					compiled = null;
+				}
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Evaluate the parsed function at (x, y). Uses the compiled form if
+	 * available, the interpreter otherwise.
+	 * 
+	 * @param c
+	 *            compiled function or null
+	 * @param arg
+	 *            buffer of length 2 for the arguments
+	 * @return function value
+	 */
+	private double evaluate(CompiledExpression c, double[] arg, double x, double y) {
+		if (c == null) {
+			calc.setVariable("x", x);
+			calc.setVariable("y", y);
+			return calc.evaluate();
+		}
+		arg[0] = x;
+		arg[1] = y;
+		return c.applyAsDouble(arg);
+	}
+
          /**
          * Get Jaida function
          * 
@@ -474,14 +564,24 @@ public class F2D extends DrawOptions {
 		// evaluate function
 		if (iname == null && calc != null && isParsed == true) {
 
-			for (int i = 0; i < x.length; i++)
+			CompiledExpression c = getCompiled();
+			double[] arg = new double[2];
+			for (int i = 0; i < x.length; i++) {
+
+				// x is fixed along a row, so evaluate all y values at once
+				try {
+					calc.setVariable("x", x[i]);
+					calc.evaluate("y", y, z[i]);
+					continue;
+				} catch (Exception e) {
+					// evaluate point by point below to locate the failure
+				}
+
 				for (int j = 0; j < y.length; j++) {
 
 					try {
 
-						calc.setVariable("x", x[i]);
-						calc.setVariable("y", y[i]);
-						z[i][j] = calc.evaluate();
+						z[i][j] = evaluate(c, arg, x[i], y[j]);
 
 					} catch (Exception e) {
 						String ss1 = Double.toString(x[i]);
@@ -493,6 +593,7 @@ public class F2D extends DrawOptions {
 
 					}
 				}
+			}
 
 		} // end of the standard jPlot function
 
@@ -93,6 +93,9 @@ public class F3D extends DrawOptions  {
 
 	private ExpressionBuilder function = null;
 
+	private transient CompiledExpression compiled = null;
+	private transient Expression compiledFrom = null;
+
 
 	/**
 	 * Create a function in 3D for evaluation.
@@ -351,10 +354,7 @@ public class F3D extends DrawOptions  {
 		if (iname == null && function != null && isParsed == true) {
 			try {
 				
-				calc.setVariable("x", x);
-				calc.setVariable("y", y);
-				calc.setVariable("z", z);
-				h = calc.evaluate();
+				h = evaluate(getCompiled(), new double[3], x, y, z);
 				
 				
 			} catch (Exception e) {
@@ -598,6 +598,51 @@ public class F3D extends DrawOptions  {
 
 	}
 
+	/**
+	 * Get the parsed function compiled to bytecode. The compiled form is
+	 * rebuilt when the parsed expression changes.
+	 * 
+	 * @return compiled function or null if the expression cannot be compiled
+	 *         with the variables x,y,z.
+	 */
+	private CompiledExpression getCompiled() {
+		if (calc != compiledFrom) {
+			compiledFrom = calc;
+			compiled = null;
+			if (calc != null) {
+				try {
+					compiled = calc.compile("x", "y", "z");
+				} catch (IllegalArgumentException e) {
+					compiled = null;
+				}
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Evaluate the parsed function at (x, y, z). Uses the compiled form if
+	 * available, the interpreter otherwise.
+	 * 
+	 * @param c
+	 *            compiled function or null
+	 * @param arg
+	 *            buffer of length 3 for the arguments
+	 * @return function value
+	 */
+	private double evaluate(CompiledExpression c, double[] arg, double x, double y, double z) {
+		if (c == null) {
+			calc.setVariable("x", x);
+			calc.setVariable("y", y);
+			calc.setVariable("z", z);
+			return calc.evaluate();
+		}
+		arg[0] = x;
+		arg[1] = y;
+		arg[2] = z;
+		return c.applyAsDouble(arg);
+	}
+
 	/**
 	 * Return parsed functional expression.
 	 * 
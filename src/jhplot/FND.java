@@ -25,9 +25,12 @@ package jhplot;
 
 import jplot.LinePars;
 import org.nfunk.jep.*;
+import org.nfunk.jep.function.PostfixMathCommandI;
 import org.lsmp.djep.xjep.*;
 import org.lsmp.djep.djep.*;
 import javax.swing.JOptionPane;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import jhplot.gui.HelpBrowser;
 
 /**
@@ -63,6 +66,8 @@ public class FND extends DrawOptions {
 
 	private String fixedVars = "";
 
+	private boolean isComplex = false;
+
 	/**
 	 * Create a function in any dimension evaluation.
 	 * 
@@ -192,6 +197,7 @@ public class FND extends DrawOptions {
 	 * Treat the function as complex.
 	 **/
 	public void setComplex() {
+		isComplex = true;
 		jep.addComplex();
 	}
 
@@ -419,6 +425,212 @@ public class FND extends DrawOptions {
 
 	} // end 1-D evaluation
 
+	/**
+	 * Evaluate a function for one single variable between xmin and xmax in
+	 * parallel using the default pool of
+	 * {@link jhplot.math.exp4j.ParallelEvaluator}.
+	 * 
+	 * @param indvars
+	 *            Define independent variable, like 'x' Only one variable is
+	 *            allowed
+	 * @param xmin
+	 *            xmin value for independent varible
+	 * @param xmax
+	 *            xmax value for independent varible
+	 * @param vars
+	 *            define values for other variables, like 'y=1,z=3'
+	 * @return true if no errors
+	 */
+	public boolean evalParallel(String indvars, double xmin, double xmax,
+			String vars) {
+		return evalParallel(indvars, xmin, xmax, vars, null);
+	}
+
+	/**
+	 * Evaluate a function for one single variable between xmin and xmax in
+	 * parallel. The function parsed when this object was built is copied once
+	 * for every worker of the pool, which evaluates a part of the points with
+	 * its own parser, so the results are the same as for
+	 * {@link #eval(String, double, double, String)}.
+	 * 
+	 * @param indvars
+	 *            Define independent variable, like 'x' Only one variable is
+	 *            allowed
+	 * @param xmin
+	 *            xmin value for independent varible
+	 * @param xmax
+	 *            xmax value for independent varible
+	 * @param vars
+	 *            define values for other variables, like 'y=1,z=3'
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 * @return true if no errors
+	 */
+	public boolean evalParallel(String indvars, double xmin, double xmax,
+			String vars, ForkJoinPool pool) {
+		int points = proxy.getPoints();
+		boolean suc = true;
+		fixedVars = vars;
+
+		String[] tmp = vars.split(",");
+		String[] names = new String[tmp.length];
+		double[] values = new double[tmp.length];
+		for (int i = 0; i < tmp.length; i++) {
+			String[] vv = tmp[i].split("=");
+
+			if (vv.length != 2) {
+				ErrorMessage("Error in parsing list of input variablse. Did you use val=number? ");
+				continue;
+			}
+
+			try {
+				names[i] = vv[0].trim();
+				values[i] = Double.valueOf(vv[1].trim()).doubleValue();
+				jep.addVariable(names[i], values[i]);
+			} catch (NumberFormatException nfe) {
+				System.out
+						.println("NumberFormatException: " + nfe.getMessage());
+				names[i] = null;
+				suc = false;
+			}
+		}
+
+		double min = xmin;
+		double max = xmax;
+		double[] xx = new double[points];
+		double[] yy = new double[points];
+		for (int i = 0; i < points; i++)
+			xx[i] = min + i * (max - min) / (points - 1);
+
+		if (node == null) {
+			jhplot.utils.Util.ErrorMessage("Failed to parse function "
+					+ proxy.getName());
+			return false;
+		}
+		if (pool == null)
+			pool = jhplot.math.exp4j.ParallelEvaluator.getDefaultPool();
+		// one part per worker, since a parser is costly to set up
+		int threshold = Math.max(Chunk.MIN_POINTS, points / pool.getParallelism());
+		Chunk all = new Chunk(indvars.trim(), names, values, xx, yy, 0,
+				points, threshold);
+		pool.invoke(all);
+		if (all.failed != null) {
+			jhplot.utils.Util.ErrorMessage("Failed to parse function "
+					+ proxy.getName() + " Error:" + all.failed);
+			suc = false;
+		}
+
+		x = xx;
+		y = yy;
+		if (suc)
+			isEvaluated = true;
+
+		return suc;
+	}
+
+	/**
+	 * Part of the points evaluated by one worker with its own parser and copy
+	 * of the parsed function.
+	 */
+	private final class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int MIN_POINTS = 1024;
+
+		private final String var;
+		private final String[] names;
+		private final double[] values;
+		private final double[] xx;
+		private final double[] yy;
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private volatile String failed = null;
+
+		Chunk(String var, String[] names, double[] values, double[] xx,
+				double[] yy, int from, int to, int threshold) {
+			this.var = var;
+			this.names = names;
+			this.values = values;
+			this.xx = xx;
+			this.yy = yy;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > threshold) {
+				int mid = (from + to) >>> 1;
+				Chunk left = new Chunk(var, names, values, xx, yy, from, mid,
+						threshold);
+				Chunk right = new Chunk(var, names, values, xx, yy, mid, to,
+						threshold);
+				invokeAll(left, right);
+				failed = left.failed != null ? left.failed : right.failed;
+				return;
+			}
+
+			XJep j = newParser();
+			for (int i = 0; i < names.length; i++) {
+				if (names[i] != null)
+					j.addVariable(names[i], values[i]);
+			}
+			j.addVariable(var, 0);
+			try {
+				// the copy refers to the variables of this parser
+				Node n = j.deepCopy(node);
+				bindFunctions(n, j);
+				for (int i = from; i < to; i++) {
+					j.addVariable(var, xx[i]);
+					Object result = j.evaluate(n);
+					if (result instanceof Double)
+						yy[i] = ((Double) result).doubleValue();
+				}
+			} catch (ParseException e) {
+				failed = e.toString();
+			}
+		}
+	}
+
+	/**
+	 * Let the functions of a copied tree use the function objects of its own
+	 * parser. Functions with a variable number of arguments keep this number
+	 * in the function object, so it cannot be shared between threads.
+	 */
+	private static void bindFunctions(Node n, XJep j) {
+		if (n instanceof ASTFunNode && !((ASTFunNode) n).isOperator()) {
+			ASTFunNode f = (ASTFunNode) n;
+			PostfixMathCommandI own = j.getFunctionTable().get(f.getName());
+			if (own != null)
+				f.setFunction(f.getName(), own);
+		}
+		for (int i = 0; i < n.jjtGetNumChildren(); i++)
+			bindFunctions(n.jjtGetChild(i), j);
+	}
+
+	/**
+	 * Create a parser configured in the same way as the parser of this
+	 * function.
+	 * 
+	 * @return new parser
+	 */
+	private XJep newParser() {
+		XJep j = new XJep();
+		j.addStandardConstants();
+		j.addStandardFunctions();
+		if (isComplex)
+			j.addComplex();
+		j.setAllowUndeclared(true);
+		j.setImplicitMul(true);
+		j.setAllowAssignment(true);
+		for (int i = 0; i < avars.length; i++) {
+			j.addVariable(avars[i].trim(), 0);
+		}
+		j.addVariable("x", 0);
+		return j;
+	}
+
 	/**
 	 * Is the function was evaluated?
 	 * */
@@ -47,6 +47,9 @@ public class H1D extends DrawOptions implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	// values generated at once by the random fills
+	private static final int BULK_BUFFER = 1 << 14;
+
 	private Histogram1D h1;
 
 	private IAxis axis;
@@ -296,8 +299,7 @@ public class H1D extends DrawOptions implements Serializable {
 
 	public void fill(P0D p0d) {
 
-		for (int i = 0; i < p0d.size(); i++)
-			h1.fill(p0d.getQuick(i));
+		fillBulk(p0d.elements(), null, p0d.size());
 
 	}
 
@@ -315,8 +317,15 @@ public class H1D extends DrawOptions implements Serializable {
 
     public void fill(int TotNumber, AbstractDistribution random) {
 
-            for (int i = 0; i < TotNumber; i++)
-                    h1.fill(random.nextDouble());
+            H1DSums s = new H1DSums(h1.axis());
+            double[] buf = new double[Math.max(1, Math.min(TotNumber, BULK_BUFFER))];
+            for (int i = 0; i < TotNumber; i += buf.length) {
+                    int n = Math.min(buf.length, TotNumber - i);
+                    for (int k = 0; k < n; k++)
+                            buf[k] = random.nextDouble();
+                    s.fill(buf, null, 0, n);
+            }
+            s.addTo(this);
 
     }
 
@@ -328,8 +337,15 @@ public class H1D extends DrawOptions implements Serializable {
      */
        public void fillGauss(int TotNumber, double mean, double sd) {
             java.util.Random random = new  java.util.Random();
-            for (int i = 0; i < TotNumber; i++)
-                    h1.fill(sd*random.nextGaussian()+mean);
+            H1DSums s = new H1DSums(h1.axis());
+            double[] buf = new double[Math.max(1, Math.min(TotNumber, BULK_BUFFER))];
+            for (int i = 0; i < TotNumber; i += buf.length) {
+                    int n = Math.min(buf.length, TotNumber - i);
+                    for (int k = 0; k < n; k++)
+                            buf[k] = sd*random.nextGaussian()+mean;
+                    s.fill(buf, null, 0, n);
+            }
+            s.addTo(this);
 
     }
 
@@ -342,8 +358,15 @@ public class H1D extends DrawOptions implements Serializable {
      */
        public void fillRnd(int TotNumber, double mean, double width) {
              java.util.Random random = new  java.util.Random(); 
-            for (int i = 0; i < TotNumber; i++)
-                    h1.fill(width*random.nextDouble()+mean);
+            H1DSums s = new H1DSums(h1.axis());
+            double[] buf = new double[Math.max(1, Math.min(TotNumber, BULK_BUFFER))];
+            for (int i = 0; i < TotNumber; i += buf.length) {
+                    int n = Math.min(buf.length, TotNumber - i);
+                    for (int k = 0; k < n; k++)
+                            buf[k] = width*random.nextDouble()+mean;
+                    s.fill(buf, null, 0, n);
+            }
+            s.addTo(this);
 
     }
 	
@@ -357,8 +380,9 @@ public class H1D extends DrawOptions implements Serializable {
 
         public void fill(P0I p0i) {
 
-                for (int i = 0; i < p0i.size(); i++)
-                        h1.fill((double)p0i.get(i));
+                H1DSums s = new H1DSums(h1.axis());
+                s.fill(p0i.elements(), 0, p0i.size());
+                s.addTo(this);
 
         }
 
@@ -852,11 +876,12 @@ public class H1D extends DrawOptions implements Serializable {
 
 	public void fill(PND pnd) {
 
+		H1DSums s = new H1DSums(h1.axis());
 		for (int i = 0; i < pnd.size(); i++) {
 			double[] tt = (double[]) pnd.get(i);
-			for (int j = 0; j < tt.length; j++)
-				h1.fill(tt[j]);
+			s.fill(tt, null, 0, tt.length);
 		}
+		s.addTo(this);
 
 	}
 
@@ -877,12 +902,13 @@ public class H1D extends DrawOptions implements Serializable {
 			return;
 		}
 
+		H1DSums s = new H1DSums(h1.axis());
 		for (int i = 0; i < pnd.size(); i++) {
 			double[] tt = (double[]) pnd.get(i);
 			double[] ww = (double[]) weigths.get(i);
-			for (int j = 0; j < tt.length; j++)
-				h1.fill(tt[j], ww[j]);
+			s.fill(tt, ww, 0, tt.length);
 		}
+		s.addTo(this);
 
 	}
 
@@ -895,8 +921,7 @@ public class H1D extends DrawOptions implements Serializable {
 
 	public void fill(double[] values) {
 
-		for (int i = 0; i < values.length; i++)
-			h1.fill(values[i]);
+		fillBulk(values, null, values.length);
 
 	}
 
@@ -926,8 +951,10 @@ public class H1D extends DrawOptions implements Serializable {
 
 	public void fill(double[] values, double[] weights) {
 
-		for (int i = 0; i < values.length; i++)
-			h1.fill(values[i], weights[i]);
+		if (weights.length < values.length)
+			throw new IllegalArgumentException(
+					"Sizes of input and weight arrays are different!");
+		fillBulk(values, weights, values.length);
 
 	}
 
@@ -940,8 +967,9 @@ public class H1D extends DrawOptions implements Serializable {
 
 	public void fill(int[] values) {
 
-		for (int i = 0; i < values.length; i++)
-			h1.fill((double) values[i]);
+		H1DSums s = new H1DSums(h1.axis());
+		s.fill(values, 0, values.length);
+		s.addTo(this);
 
 	}
 
@@ -959,6 +987,16 @@ public class H1D extends DrawOptions implements Serializable {
 
 	}
 
+	/**
+	 * Bin the first n values in one pass over the array and add them to the
+	 * histogram at once. Large arrays are binned in parallel.
+	 */
+	private void fillBulk(double[] values, double[] weights, int n) {
+
+		H1DSums.fill(new BinIndex(h1.axis()), values, weights, n, null)
+				.addTo(this);
+	}
+
 	/**
 	 * Get mean of the histogram
 	 * 
@@ -0,0 +1,303 @@
+/**
+*    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+*    All rights reserved.
+*
+*    This program is free software; you can redistribute it and/or modify it under the terms
+*    of the GNU General Public License as published by the Free Software Foundation; either
+*    version 3 of the License, or any later version.
+*
+*    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+*    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*    See the GNU General Public License for more details.
+*
+*    You should have received a copy of the GNU General Public License along with this program;
+*    if not, see <http://www.gnu.org/licenses>.
+*
+*    Additional permission under GNU GPL version 3 section 7:
+*    If you have received this program as a library with written permission from the DataMelt team,
+*    you can link or combine this library with your non-GPL project to convey the resulting work.
+*    In this case, this library should be considered as released under the terms of
+*    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+*    provided you include this license notice and a URL through which recipients can access the
+*    Corresponding Source.
+**/
+package jhplot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A 1D histogram which can be filled from many threads at once. Every thread
+ * fills its own copy of the bin sums (weights, squared weights and moments),
+ * so threads never wait for each other and the filling scales with the
+ * number of threads. The copies are merged into an {@link H1D} only when the
+ * histogram is read: by {@link #get()}, the bin queries or {@link #getStat()}.
+ * The copy of a thread which has ended is added to common sums and dropped
+ * when the histogram is read or another thread starts filling, so executors
+ * which replace their threads do not make the histogram grow.
+ * <p>
+ * A read sees a consistent state: every fill is either fully included or not
+ * at all. The H1D returned by {@link #get()} is not changed by later fills
+ * until the histogram is read again, so it can be plotted or written to a
+ * file while other threads continue filling.
+ * <p>
+ * Example:
+ * 
+ * <pre>
+ * H1DConcurrent h = new H1DConcurrent(&quot;x&quot;, 100, 0, 1);
+ * // in each thread
+ * h.fill(x, w);
+ * // when done
+ * HPlot c = new HPlot();
+ * c.draw(h.get());
+ * </pre>
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class H1DConcurrent {
+
+	private final H1D h;
+	private final BinIndex axis;
+	private final List<Stripe<H1DSums>> stripes = new CopyOnWriteArrayList<Stripe<H1DSums>>();
+	// sums of the threads which have ended
+	private final H1DSums retired;
+	private final ThreadLocal<Stripe<H1DSums>> local = new ThreadLocal<Stripe<H1DSums>>() {
+		@Override
+		protected Stripe<H1DSums> initialValue() {
+			Stripe<H1DSums> s = new Stripe<H1DSums>(new H1DSums(axis),
+					new H1DSums(axis));
+			// a new thread often replaces one which has ended
+			retire();
+			stripes.add(s);
+			return s;
+		}
+	};
+
+	/**
+	 * Fill an existing histogram from many threads. The histogram should not
+	 * be filled directly while it is used by this class.
+	 * 
+	 * @param h
+	 *            histogram
+	 */
+	public H1DConcurrent(H1D h) {
+
+		this.h = h;
+		this.axis = new BinIndex(h.get().axis());
+		this.retired = new H1DSums(axis);
+	}
+
+	/**
+	 * Build a 1D histogram with fixed bins.
+	 * 
+	 * @param title
+	 *            Title
+	 * @param bins
+	 *            Number of bins
+	 * @param min
+	 *            Minimum value
+	 * @param max
+	 *            Maximum value
+	 */
+	public H1DConcurrent(String title, int bins, double min, double max) {
+
+		this(new H1D(title, bins, min, max));
+	}
+
+	/**
+	 * Build a 1D histogram with variable bin size.
+	 * 
+	 * @param title
+	 *            Title
+	 * @param edges
+	 *            edges
+	 */
+	public H1DConcurrent(String title, double[] edges) {
+
+		this(new H1D(title, edges));
+	}
+
+	/**
+	 * Fill histogram with a value. Can be called from any thread.
+	 * 
+	 * @param value
+	 *            Value to be filled
+	 */
+	public void fill(double value) {
+
+		fill(value, 1.0);
+	}
+
+	/**
+	 * Fill histogram with a value and a weight. Can be called from any
+	 * thread.
+	 * 
+	 * @param value
+	 *            Value to be filled
+	 * @param weight
+	 *            Weight of the value
+	 */
+	public void fill(double value, double weight) {
+
+		Stripe<H1DSums> s = local.get();
+		// only a merge waits, for the end of the fill
+		H1DSums sums = s.begin();
+		try {
+			sums.fill(value, weight);
+		} finally {
+			s.end();
+		}
+	}
+
+	/**
+	 * Fill histogram with an array of values. Can be called from any thread.
+	 * 
+	 * @param values
+	 *            values to be filled
+	 */
+	public void fill(double[] values) {
+
+		Stripe<H1DSums> s = local.get();
+		// only a merge waits, for the end of the fill
+		H1DSums sums = s.begin();
+		try {
+			for (int i = 0; i < values.length; i++)
+				sums.fill(values[i], 1.0);
+		} finally {
+			s.end();
+		}
+	}
+
+	/**
+	 * Merge the values filled by all threads and get the histogram.
+	 * 
+	 * @return histogram with all values filled so far
+	 */
+	public synchronized H1D get() {
+
+		retire();
+		for (Stripe<H1DSums> s : stripes) {
+			H1DSums sums = s.swap();
+			retired.add(sums);
+			sums.reset();
+		}
+		retired.addTo(h);
+		retired.reset();
+		return h;
+	}
+
+	/**
+	 * Move the sums of the threads which have ended to the retired sums and
+	 * drop their stripes, so that the stripes do not grow with the number of
+	 * threads which ever filled the histogram.
+	 */
+	private synchronized void retire() {
+
+		for (Stripe<H1DSums> s : stripes) {
+			if (!s.isOwnerAlive()) {
+				retired.add(s.swap());
+				stripes.remove(s);
+			}
+		}
+	}
+
+	/**
+	 * Height of a bin.
+	 * 
+	 * @param index
+	 *            Bin index
+	 * @return height
+	 */
+	public synchronized double binHeight(int index) {
+
+		return get().binHeight(index);
+	}
+
+	/**
+	 * Error of a bin.
+	 * 
+	 * @param index
+	 *            Bin index
+	 * @return error
+	 */
+	public synchronized double binError(int index) {
+
+		return get().binError(index);
+	}
+
+	/**
+	 * Number of entries in a bin.
+	 * 
+	 * @param index
+	 *            Bin index
+	 * @return Number of entries
+	 */
+	public synchronized int binEntries(int index) {
+
+		return get().binEntries(index);
+	}
+
+	/**
+	 * Number of entries in the range of the axis.
+	 * 
+	 * @return entries
+	 */
+	public synchronized int entries() {
+
+		return get().entries();
+	}
+
+	/**
+	 * Number of all entries, including underflow and overflow.
+	 * 
+	 * @return entries
+	 */
+	public synchronized int allEntries() {
+
+		return get().allEntries();
+	}
+
+	/**
+	 * Mean of the histogram.
+	 * 
+	 * @return mean
+	 */
+	public synchronized double mean() {
+
+		return get().mean();
+	}
+
+	/**
+	 * RMS of the histogram.
+	 * 
+	 * @return RMS
+	 */
+	public synchronized double rms() {
+
+		return get().rms();
+	}
+
+	/**
+	 * Get statistics of the histogram, as H1D.getStat().
+	 * 
+	 * @return statistics
+	 */
+	public synchronized Map<String, Double> getStat() {
+
+		return get().getStat();
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public synchronized void clear() {
+
+		retire();
+		retired.reset();
+		for (Stripe<H1DSums> s : stripes)
+			s.swap().reset();
+		h.clear();
+	}
+}
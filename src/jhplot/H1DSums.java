@@ -0,0 +1,363 @@
+/**
+*    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+*    All rights reserved.
+*
+*    This program is free software; you can redistribute it and/or modify it under the terms
+*    of the GNU General Public License as published by the Free Software Foundation; either
+*    version 3 of the License, or any later version.
+*
+*    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+*    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*    See the GNU General Public License for more details.
+*
+*    You should have received a copy of the GNU General Public License along with this program;
+*    if not, see <http://www.gnu.org/licenses>.
+*
+*    Additional permission under GNU GPL version 3 section 7:
+*    If you have received this program as a library with written permission from the DataMelt team,
+*    you can link or combine this library with your non-GPL project to convey the resulting work.
+*    In this case, this library should be considered as released under the terms of
+*    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+*    provided you include this license notice and a URL through which recipients can access the
+*    Corresponding Source.
+**/
+package jhplot;
+
+import hep.aida.IAxis;
+import hep.aida.ref.histogram.Histogram1D;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import jhplot.math.exp4j.ParallelEvaluator;
+
+/**
+ * Sums of weights, squared weights and moments for each bin of a 1D
+ * histogram, including the underflow (index 0) and the overflow (index
+ * bins+1) bins. It is filled with plain array arithmetic, without calls to
+ * AIDA, and added to an H1D at once with {@link #addTo(H1D)}. Several sums
+ * for the same axis can be merged with {@link #add(H1DSums)}. Large arrays
+ * are binned in parallel with {@link #fill(BinIndex, double[], double[], int,
+ * ForkJoinPool)}. This class is not thread-safe.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+final class H1DSums {
+
+	/**
+	 * Minimum number of values binned in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 20;
+
+	private static final int MIN_CHUNK = 1 << 17;
+
+	final BinIndex axis;
+	final int bins;
+
+	final double[] sumw;
+	final double[] sumw2;
+	final double[] sumwx;
+	final double[] sumwx2;
+	final int[] entries;
+	private boolean empty = true;
+
+	/**
+	 * Create empty sums for the axis of a histogram.
+	 * 
+	 * @param axis
+	 *            axis
+	 */
+	H1DSums(IAxis axis) {
+
+		this(new BinIndex(axis));
+	}
+
+	/**
+	 * Create empty sums for a bin index.
+	 * 
+	 * @param axis
+	 *            bin index of the axis
+	 */
+	H1DSums(BinIndex axis) {
+
+		this.axis = axis;
+		bins = axis.bins;
+		sumw = new double[bins + 2];
+		sumw2 = new double[bins + 2];
+		sumwx = new double[bins + 2];
+		sumwx2 = new double[bins + 2];
+		entries = new int[bins + 2];
+	}
+
+	/**
+	 * Add a value with a weight.
+	 * 
+	 * @param x
+	 *            value
+	 * @param w
+	 *            weight
+	 */
+	void fill(double x, double w) {
+
+		int i = axis.index(x);
+		double wx = w * x;
+		sumw[i] += w;
+		sumw2[i] += w * w;
+		sumwx[i] += wx;
+		sumwx2[i] += wx * x;
+		entries[i]++;
+		empty = false;
+	}
+
+	/**
+	 * Add values from an array.
+	 * 
+	 * @param x
+	 *            values
+	 * @param w
+	 *            weights, or null for weights of 1
+	 * @param from
+	 *            first value
+	 * @param to
+	 *            end of the values (exclusive)
+	 */
+	void fill(double[] x, double[] w, int from, int to) {
+
+		if (from >= to)
+			return;
+		if (w == null) {
+			for (int k = from; k < to; k++) {
+				double v = x[k];
+				int i = axis.index(v);
+				sumw[i] += 1;
+				sumw2[i] += 1;
+				sumwx[i] += v;
+				sumwx2[i] += v * v;
+				entries[i]++;
+			}
+		} else {
+			for (int k = from; k < to; k++) {
+				double v = x[k];
+				double wk = w[k];
+				double wx = wk * v;
+				int i = axis.index(v);
+				sumw[i] += wk;
+				sumw2[i] += wk * wk;
+				sumwx[i] += wx;
+				sumwx2[i] += wx * v;
+				entries[i]++;
+			}
+		}
+		empty = false;
+	}
+
+	/**
+	 * Add integer values from an array, all with weight 1.
+	 * 
+	 * @param x
+	 *            values
+	 * @param from
+	 *            first value
+	 * @param to
+	 *            end of the values (exclusive)
+	 */
+	void fill(int[] x, int from, int to) {
+
+		for (int k = from; k < to; k++) {
+			double v = x[k];
+			int i = axis.index(v);
+			sumw[i] += 1;
+			sumw2[i] += 1;
+			sumwx[i] += v;
+			sumwx2[i] += v * v;
+			entries[i]++;
+		}
+		if (from < to)
+			empty = false;
+	}
+
+	/**
+	 * Bin the first n values of an array. Arrays with at least
+	 * {@link #PARALLEL_THRESHOLD} values are split into chunks which are
+	 * binned in parallel and merged.
+	 * 
+	 * @param axis
+	 *            bin index of the axis
+	 * @param x
+	 *            values
+	 * @param w
+	 *            weights, or null for weights of 1
+	 * @param n
+	 *            number of values
+	 * @param pool
+	 *            pool for large arrays, or null for the default pool
+	 * @return sums of the values
+	 */
+	static H1DSums fill(BinIndex axis, double[] x, double[] w, int n,
+			ForkJoinPool pool) {
+
+		if (n >= PARALLEL_THRESHOLD && pool == null)
+			pool = ParallelEvaluator.getDefaultPool();
+		if (n < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+			H1DSums s = new H1DSums(axis);
+			s.fill(x, w, 0, n);
+			return s;
+		}
+		// a few chunks per worker, each chunk allocates its own sums
+		int chunk = Math.max(MIN_CHUNK, n / (4 * pool.getParallelism()));
+		return pool.invoke(new Fill(axis, x, w, 0, n, chunk));
+	}
+
+	private static final class Fill extends RecursiveTask<H1DSums> {
+		private static final long serialVersionUID = 1L;
+
+		private final BinIndex axis;
+		private final double[] x;
+		private final double[] w;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Fill(BinIndex axis, double[] x, double[] w, int from, int to,
+				int chunk) {
+			this.axis = axis;
+			this.x = x;
+			this.w = w;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected H1DSums compute() {
+			if (to - from <= chunk) {
+				H1DSums s = new H1DSums(axis);
+				s.fill(x, w, from, to);
+				return s;
+			}
+			int mid = (from + to) >>> 1;
+			Fill right = new Fill(axis, x, w, mid, to, chunk);
+			right.fork();
+			H1DSums s = new Fill(axis, x, w, from, mid, chunk).compute();
+			s.add(right.join());
+			return s;
+		}
+	}
+
+	/**
+	 * Add other sums for the same axis.
+	 * 
+	 * @param s
+	 *            sums to add
+	 */
+	void add(H1DSums s) {
+
+		if (s.empty)
+			return;
+		for (int i = 0; i < bins + 2; i++) {
+			sumw[i] += s.sumw[i];
+			sumw2[i] += s.sumw2[i];
+			sumwx[i] += s.sumwx[i];
+			sumwx2[i] += s.sumwx2[i];
+			entries[i] += s.entries[i];
+		}
+		empty = false;
+	}
+
+	/**
+	 * Check if nothing was filled since the last reset.
+	 * 
+	 * @return true if empty
+	 */
+	boolean isEmpty() {
+
+		return empty;
+	}
+
+	/**
+	 * Set all sums to zero.
+	 */
+	void reset() {
+
+		if (empty)
+			return;
+		for (int i = 0; i < bins + 2; i++) {
+			sumw[i] = 0;
+			sumw2[i] = 0;
+			sumwx[i] = 0;
+			sumwx2[i] = 0;
+			entries[i] = 0;
+		}
+		empty = true;
+	}
+
+	/**
+	 * Add the sums to the contents of a histogram with the same axis. The
+	 * bin heights, errors, entries, means and RMS as well as the mean, RMS
+	 * and the number of entries of the histogram are updated at once.
+	 * 
+	 * @param h
+	 *            histogram
+	 */
+	void addTo(H1D h) {
+
+		if (empty)
+			return;
+		Histogram1D h1 = h.get();
+		int nb = bins + 2;
+		double[] heights = new double[nb];
+		double[] errors = new double[nb];
+		int[] n = new int[nb];
+		double[] means = new double[nb];
+		double[] rmss = new double[nb];
+		int all = h1.allEntries();
+		int valid = h1.entries();
+		double sw = h1.sumBinHeights();
+		double swx = h1.mean() * sw;
+		double swx2 = (h1.rms() * h1.rms() + h1.mean() * h1.mean()) * sw;
+		if (valid == 0) {
+			sw = 0;
+			swx = 0;
+			swx2 = 0;
+		}
+
+		for (int i = 0; i < nb; i++) {
+			int k = axis.aida(i);
+			double w = h1.binHeight(k);
+			double e = h1.binError(k);
+			double m = h1.binMean(k);
+			double r = h1.binRms(k);
+			double bw = w + sumw[i];
+			double bwx = m * w + sumwx[i];
+			double bwx2 = (r * r + m * m) * w + sumwx2[i];
+			heights[i] = w + sumw[i];
+			errors[i] = Math.sqrt(e * e + sumw2[i]);
+			n[i] = h1.binEntries(k) + entries[i];
+			if (bw != 0) {
+				means[i] = bwx / bw;
+				rmss[i] = Math.sqrt(Math.max(0, bwx2 / bw - means[i]
+						* means[i]));
+			} else {
+				means[i] = m;
+				rmss[i] = r;
+			}
+			all += entries[i];
+			if (i > 0 && i < nb - 1) {
+				valid += entries[i];
+				sw += sumw[i];
+				swx += sumwx[i];
+				swx2 += sumwx2[i];
+			}
+		}
+
+		h.setContents(heights, errors, n, means, rmss);
+		h.setNEntries(all);
+		h.setValidEntries(valid);
+		if (sw != 0) {
+			double mean = swx / sw;
+			h.setMeanAndRms(mean, Math.sqrt(Math.max(0, swx2 / sw - mean
+					* mean)));
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/**
+*    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+*    All rights reserved.
+*
+*    This program is free software; you can redistribute it and/or modify it under the terms
+*    of the GNU General Public License as published by the Free Software Foundation; either
+*    version 3 of the License, or any later version.
+*
+*    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+*    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*    See the GNU General Public License for more details.
+*
+*    You should have received a copy of the GNU General Public License along with this program;
+*    if not, see <http://www.gnu.org/licenses>.
+*
+*    Additional permission under GNU GPL version 3 section 7:
+*    If you have received this program as a library with written permission from the DataMelt team,
+*    you can link or combine this library with your non-GPL project to convey the resulting work.
+*    In this case, this library should be considered as released under the terms of
+*    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+*    provided you include this license notice and a URL through which recipients can access the
+*    Corresponding Source.
+**/
+package jhplot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A 2D histogram which can be filled from many threads at once. Every thread
+ * fills its own copy of the bin sums, so threads never wait for each other.
+ * The copies are merged into an {@link H2D} only when the histogram is read,
+ * by {@link #get()}, the bin queries or {@link #getStat()}. See
+ * {@link H1DConcurrent} for details.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class H2DConcurrent {
+
+	private final H2D h;
+	private final BinIndex xaxis;
+	private final BinIndex yaxis;
+	private final List<Stripe<H2DSums>> stripes = new CopyOnWriteArrayList<Stripe<H2DSums>>();
+	// sums of the threads which have ended
+	private final H2DSums retired;
+	private final ThreadLocal<Stripe<H2DSums>> local = new ThreadLocal<Stripe<H2DSums>>() {
+		@Override
+		protected Stripe<H2DSums> initialValue() {
+			Stripe<H2DSums> s = new Stripe<H2DSums>(new H2DSums(xaxis, yaxis),
+					new H2DSums(xaxis, yaxis));
+			// a new thread often replaces one which has ended
+			retire();
+			stripes.add(s);
+			return s;
+		}
+	};
+
+	/**
+	 * Fill an existing histogram from many threads. The histogram should not
+	 * be filled directly while it is used by this class.
+	 * 
+	 * @param h
+	 *            histogram
+	 */
+	public H2DConcurrent(H2D h) {
+
+		this.h = h;
+		this.xaxis = new BinIndex(h.get().xAxis());
+		this.yaxis = new BinIndex(h.get().yAxis());
+		this.retired = new H2DSums(xaxis, yaxis);
+	}
+
+	/**
+	 * Build a 2D histogram with fixed bins.
+	 * 
+	 * @param title
+	 *            Title
+	 * @param binsX
+	 *            Number of bins in X
+	 * @param minX
+	 *            Min value in X
+	 * @param maxX
+	 *            Max value in X
+	 * @param binsY
+	 *            Number of bins in Y
+	 * @param minY
+	 *            Min value in Y
+	 * @param maxY
+	 *            Max value in Y
+	 */
+	public H2DConcurrent(String title, int binsX, double minX, double maxX,
+			int binsY, double minY, double maxY) {
+
+		this(new H2D(title, binsX, minX, maxX, binsY, minY, maxY));
+	}
+
+	/**
+	 * Build a 2D histogram with variable bin size.
+	 * 
+	 * @param title
+	 *            Title
+	 * @param edgesX
+	 *            array with bin edges in X
+	 * @param edgesY
+	 *            array with bin edges in Y
+	 */
+	public H2DConcurrent(String title, double[] edgesX, double[] edgesY) {
+
+		this(new H2D(title, edgesX, edgesY));
+	}
+
+	/**
+	 * Fill histogram with a point. Can be called from any thread.
+	 * 
+	 * @param x
+	 *            value in X
+	 * @param y
+	 *            value in Y
+	 */
+	public void fill(double x, double y) {
+
+		fill(x, y, 1.0);
+	}
+
+	/**
+	 * Fill histogram with a point and a weight. Can be called from any
+	 * thread.
+	 * 
+	 * @param x
+	 *            value in X
+	 * @param y
+	 *            value in Y
+	 * @param weight
+	 *            weight
+	 */
+	public void fill(double x, double y, double weight) {
+
+		Stripe<H2DSums> s = local.get();
+		// only a merge waits, for the end of the fill
+		H2DSums sums = s.begin();
+		try {
+			sums.fill(x, y, weight);
+		} finally {
+			s.end();
+		}
+	}
+
+	/**
+	 * Merge the values filled by all threads and get the histogram.
+	 * 
+	 * @return histogram with all values filled so far
+	 */
+	public synchronized H2D get() {
+
+		retire();
+		for (Stripe<H2DSums> s : stripes) {
+			H2DSums sums = s.swap();
+			retired.add(sums);
+			sums.reset();
+		}
+		retired.addTo(h);
+		retired.reset();
+		return h;
+	}
+
+	/**
+	 * Move the sums of the threads which have ended to the retired sums and
+	 * drop their stripes, so that the stripes do not grow with the number of
+	 * threads which ever filled the histogram.
+	 */
+	private synchronized void retire() {
+
+		for (Stripe<H2DSums> s : stripes) {
+			if (!s.isOwnerAlive()) {
+				retired.add(s.swap());
+				stripes.remove(s);
+			}
+		}
+	}
+
+	/**
+	 * Height of a bin.
+	 * 
+	 * @param indexX
+	 *            bin index in X
+	 * @param indexY
+	 *            bin index in Y
+	 * @return height
+	 */
+	public synchronized double binHeight(int indexX, int indexY) {
+
+		return get().binHeight(indexX, indexY);
+	}
+
+	/**
+	 * Error of a bin.
+	 * 
+	 * @param indexX
+	 *            bin index in X
+	 * @param indexY
+	 *            bin index in Y
+	 * @return error
+	 */
+	public synchronized double binError(int indexX, int indexY) {
+
+		return get().binError(indexX, indexY);
+	}
+
+	/**
+	 * Number of entries in a bin.
+	 * 
+	 * @param indexX
+	 *            bin index in X
+	 * @param indexY
+	 *            bin index in Y
+	 * @return entries
+	 */
+	public synchronized int binEntries(int indexX, int indexY) {
+
+		return get().binEntries(indexX, indexY);
+	}
+
+	/**
+	 * Number of entries in the range of both axes.
+	 * 
+	 * @return entries
+	 */
+	public synchronized int entries() {
+
+		return get().entries();
+	}
+
+	/**
+	 * Number of all entries, including underflow and overflow.
+	 * 
+	 * @return entries
+	 */
+	public synchronized int allEntries() {
+
+		return get().allEntries();
+	}
+
+	/**
+	 * Get statistics of the histogram, as H2D.getStat().
+	 * 
+	 * @return statistics
+	 */
+	public synchronized Map<String, Double> getStat() {
+
+		return get().getStat();
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public synchronized void clear() {
+
+		retire();
+		retired.reset();
+		for (Stripe<H2DSums> s : stripes)
+			s.swap().reset();
+		h.clear();
+	}
+}
@@ -0,0 +1,253 @@
+/**
+*    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+*    All rights reserved.
+*
+*    This program is free software; you can redistribute it and/or modify it under the terms
+*    of the GNU General Public License as published by the Free Software Foundation; either
+*    version 3 of the License, or any later version.
+*
+*    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+*    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*    See the GNU General Public License for more details.
+*
+*    You should have received a copy of the GNU General Public License along with this program;
+*    if not, see <http://www.gnu.org/licenses>.
+*
+*    Additional permission under GNU GPL version 3 section 7:
+*    If you have received this program as a library with written permission from the DataMelt team,
+*    you can link or combine this library with your non-GPL project to convey the resulting work.
+*    In this case, this library should be considered as released under the terms of
+*    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+*    provided you include this license notice and a URL through which recipients can access the
+*    Corresponding Source.
+**/
+package jhplot;
+
+import hep.aida.IAxis;
+import hep.aida.ref.histogram.Histogram2D;
+
+/**
+ * Sums of weights, squared weights and moments for each bin of a 2D
+ * histogram, including the underflow and overflow bins of both axes. The
+ * bins are stored row by row: the bin (i,j) has the index i*(binsY+2)+j,
+ * where 0 is the underflow and bins+1 the overflow bin of an axis. It is
+ * filled with plain array arithmetic, without calls to AIDA, and added to an
+ * H2D at once with {@link #addTo(H2D)}. This class is not thread-safe.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+final class H2DSums {
+
+	final BinIndex xaxis;
+	final BinIndex yaxis;
+	private final int ny;
+
+	final double[] sumw;
+	final double[] sumw2;
+	final double[] sumwx;
+	final double[] sumwx2;
+	final double[] sumwy;
+	final double[] sumwy2;
+	final int[] entries;
+	private boolean empty = true;
+
+	/**
+	 * Create empty sums for the axes of a histogram.
+	 * 
+	 * @param xaxis
+	 *            axis in X
+	 * @param yaxis
+	 *            axis in Y
+	 */
+	H2DSums(IAxis xaxis, IAxis yaxis) {
+
+		this(new BinIndex(xaxis), new BinIndex(yaxis));
+	}
+
+	/**
+	 * Create empty sums for bin indices of the axes.
+	 * 
+	 * @param xaxis
+	 *            bin index in X
+	 * @param yaxis
+	 *            bin index in Y
+	 */
+	H2DSums(BinIndex xaxis, BinIndex yaxis) {
+
+		this.xaxis = xaxis;
+		this.yaxis = yaxis;
+		ny = yaxis.bins + 2;
+		int n = (xaxis.bins + 2) * ny;
+		sumw = new double[n];
+		sumw2 = new double[n];
+		sumwx = new double[n];
+		sumwx2 = new double[n];
+		sumwy = new double[n];
+		sumwy2 = new double[n];
+		entries = new int[n];
+	}
+
+	/**
+	 * Add a point with a weight.
+	 * 
+	 * @param x
+	 *            value in X
+	 * @param y
+	 *            value in Y
+	 * @param w
+	 *            weight
+	 */
+	void fill(double x, double y, double w) {
+
+		int i = xaxis.index(x) * ny + yaxis.index(y);
+		double wx = w * x;
+		double wy = w * y;
+		sumw[i] += w;
+		sumw2[i] += w * w;
+		sumwx[i] += wx;
+		sumwx2[i] += wx * x;
+		sumwy[i] += wy;
+		sumwy2[i] += wy * y;
+		entries[i]++;
+		empty = false;
+	}
+
+	/**
+	 * Add other sums for the same axes.
+	 * 
+	 * @param s
+	 *            sums to add
+	 */
+	void add(H2DSums s) {
+
+		if (s.empty)
+			return;
+		for (int i = 0; i < sumw.length; i++) {
+			sumw[i] += s.sumw[i];
+			sumw2[i] += s.sumw2[i];
+			sumwx[i] += s.sumwx[i];
+			sumwx2[i] += s.sumwx2[i];
+			sumwy[i] += s.sumwy[i];
+			sumwy2[i] += s.sumwy2[i];
+			entries[i] += s.entries[i];
+		}
+		empty = false;
+	}
+
+	/**
+	 * Check if nothing was filled since the last reset.
+	 * 
+	 * @return true if empty
+	 */
+	boolean isEmpty() {
+
+		return empty;
+	}
+
+	/**
+	 * Set all sums to zero.
+	 */
+	void reset() {
+
+		if (empty)
+			return;
+		java.util.Arrays.fill(sumw, 0);
+		java.util.Arrays.fill(sumw2, 0);
+		java.util.Arrays.fill(sumwx, 0);
+		java.util.Arrays.fill(sumwx2, 0);
+		java.util.Arrays.fill(sumwy, 0);
+		java.util.Arrays.fill(sumwy2, 0);
+		java.util.Arrays.fill(entries, 0);
+		empty = true;
+	}
+
+	/**
+	 * Add the sums to the contents of a histogram with the same axes. The bin
+	 * contents as well as the means, RMS and the number of entries of the
+	 * histogram are updated at once.
+	 * 
+	 * @param h
+	 *            histogram
+	 */
+	void addTo(H2D h) {
+
+		if (empty)
+			return;
+		Histogram2D h2 = h.get();
+		int nx = xaxis.bins + 2;
+		double[][] heights = new double[nx][ny];
+		double[][] errors = new double[nx][ny];
+		int[][] n = new int[nx][ny];
+		double[][] meanXs = new double[nx][ny];
+		double[][] rmsXs = new double[nx][ny];
+		double[][] meanYs = new double[nx][ny];
+		double[][] rmsYs = new double[nx][ny];
+		int all = h2.allEntries();
+		int valid = h2.entries();
+		double sw = 0, swx = 0, swx2 = 0, swy = 0, swy2 = 0;
+		if (valid != 0) {
+			sw = h2.sumBinHeights();
+			double mx = h2.meanX(), rx = h2.rmsX();
+			double my = h2.meanY(), ry = h2.rmsY();
+			swx = mx * sw;
+			swx2 = (rx * rx + mx * mx) * sw;
+			swy = my * sw;
+			swy2 = (ry * ry + my * my) * sw;
+		}
+
+		for (int i = 0; i < nx; i++) {
+			int kx = xaxis.aida(i);
+			for (int j = 0; j < ny; j++) {
+				int ky = yaxis.aida(j);
+				int k = i * ny + j;
+				double w = h2.binHeight(kx, ky);
+				double e = h2.binError(kx, ky);
+				double mx = h2.binMeanX(kx, ky);
+				double rx = h2.binRmsX(kx, ky);
+				double my = h2.binMeanY(kx, ky);
+				double ry = h2.binRmsY(kx, ky);
+				double bw = w + sumw[k];
+				heights[i][j] = bw;
+				errors[i][j] = Math.sqrt(e * e + sumw2[k]);
+				n[i][j] = h2.binEntries(kx, ky) + entries[k];
+				if (bw != 0) {
+					meanXs[i][j] = (mx * w + sumwx[k]) / bw;
+					rmsXs[i][j] = Math.sqrt(Math.max(0, ((rx * rx + mx * mx)
+							* w + sumwx2[k])
+							/ bw - meanXs[i][j] * meanXs[i][j]));
+					meanYs[i][j] = (my * w + sumwy[k]) / bw;
+					rmsYs[i][j] = Math.sqrt(Math.max(0, ((ry * ry + my * my)
+							* w + sumwy2[k])
+							/ bw - meanYs[i][j] * meanYs[i][j]));
+				} else {
+					meanXs[i][j] = mx;
+					rmsXs[i][j] = rx;
+					meanYs[i][j] = my;
+					rmsYs[i][j] = ry;
+				}
+				all += entries[k];
+				if (i > 0 && i < nx - 1 && j > 0 && j < ny - 1) {
+					valid += entries[k];
+					sw += sumw[k];
+					swx += sumwx[k];
+					swx2 += sumwx2[k];
+					swy += sumwy[k];
+					swy2 += sumwy2[k];
+				}
+			}
+		}
+
+		h.setContents(heights, errors, n, meanXs, rmsXs, meanYs, rmsYs);
+		h.setNEntries(all);
+		h.setValidEntries(valid);
+		if (sw != 0) {
+			double mx = swx / sw;
+			double my = swy / sw;
+			h.setMeanX(mx);
+			h.setRmsX(Math.sqrt(Math.max(0, swx2 / sw - mx * mx)));
+			h.setMeanY(my);
+			h.setRmsY(Math.sqrt(Math.max(0, swy2 / sw - my * my)));
+		}
+	}
+}
@@ -35,6 +35,9 @@ import java.io.*;
  * Fit data (H1D or P1D). Some details can be found in
  * http://confluence.slac.stanford
  * .edu/display/JAS3/Functions+and+Fitting+Users+Guide
+ * <p>
+ * For many fits of H1D or P1D with chi2, least squares or binned likelihood,
+ * {@link HFitterLM} is faster since it works directly on the data arrays.
  * 
  * @author S.Chekanov
  * 
@@ -0,0 +1,480 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot;
+
+import hep.aida.IFunction;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import jhplot.math.exp4j.ParallelEvaluator;
+
+/**
+ * Fits many H1D, P1D or H2D objects with the same function in parallel. The
+ * objects are split into chunks which are fitted on a fork/join pool, so idle
+ * workers take over the chunks of busy ones. Every chunk is fitted by one
+ * {@link HFitterLM} with its own copy of the function, so the memory does not
+ * grow with the number of objects, apart from the result table.
+ * <p>
+ * Neighbouring objects often have similar shapes, e.g. histograms of the same
+ * quantity in different bins of another variable. A fit therefore starts from
+ * the result of the previous fit in the chunk if the mean and the RMS of the
+ * data differ by less than {@link #setSimilarity(double)} times the RMS. If
+ * that fit fails, the object is fitted again from the start values.
+ * <p>
+ * The function template is copied with its no-argument constructor, which
+ * exists for all functions of the jhplot.fit package (Gauss, BreitWigner,
+ * Landau, P0 - P6 ...). Its current parameters are the start values.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class HFitterBatch {
+
+	private final IFunction template;
+
+	private final String method;
+
+	private final List<String> fixed = new ArrayList<String>();
+
+	private final List<Object[]> ranges = new ArrayList<Object[]>();
+
+	private double rmin = -99;
+
+	private double rmax = -99;
+
+	private boolean seeding = true;
+
+	private double similarity = 0.2;
+
+	private ForkJoinPool pool;
+
+	/**
+	 * Create a batch fitter.
+	 * 
+	 * @param template
+	 *            fit function; its parameters are the start values
+	 * @param method
+	 *            the fit method (chi2, leastsquares or bml)
+	 */
+	public HFitterBatch(IFunction template, String method) {
+
+		this.template = template;
+		this.method = method;
+		// check that the method and the function can be used
+		newFitter();
+	}
+
+	/**
+	 * Create a batch fitter with the Chi2 method.
+	 * 
+	 * @param template
+	 *            fit function; its parameters are the start values
+	 */
+	public HFitterBatch(IFunction template) {
+		this(template, "chi2");
+	}
+
+	/**
+	 * Set the start value of a parameter.
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @param value
+	 *            value
+	 */
+	public void setPar(String name, double value) {
+		template.setParameter(name, value);
+	}
+
+	/**
+	 * Fix a given parameter to its start value.
+	 * 
+	 * @param name
+	 *            parameter name
+	 */
+	public void setParFixed(String name) {
+		fixed.add(name);
+	}
+
+	/**
+	 * Set range for parameter during the fit
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @param min
+	 *            min value
+	 * @param max
+	 *            max value
+	 */
+	public void setParRange(String name, double min, double max) {
+		ranges.add(new Object[] { name, min, max });
+	}
+
+	/**
+	 * Set range for fitting in X. By default, the full range of every object
+	 * is used.
+	 * 
+	 * @param rmin
+	 *            Min X value
+	 * @param rmax
+	 *            Max X value
+	 */
+	public void setRange(double rmin, double rmax) {
+		this.rmin = rmin;
+		this.rmax = rmax;
+	}
+
+	/**
+	 * Start the fits from the previous result for similar shapes (default
+	 * true).
+	 * 
+	 * @param seeding
+	 *            false to start all fits from the start values
+	 */
+	public void setSeeding(boolean seeding) {
+		this.seeding = seeding;
+	}
+
+	/**
+	 * Set the maximum difference of the mean and of the RMS, in units of the
+	 * RMS, for which two shapes are similar (default 0.2).
+	 * 
+	 * @param similarity
+	 *            relative difference
+	 */
+	public void setSimilarity(double similarity) {
+		this.similarity = similarity;
+	}
+
+	/**
+	 * Set the pool for the fits.
+	 * 
+	 * @param pool
+	 *            pool, or null for the default pool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Fit all objects.
+	 * 
+	 * @param objects
+	 *            H1D, P1D or H2D objects
+	 * @return table with one row for each object, in the same order
+	 */
+	public Table fit(Collection<?> objects) {
+		return fit(objects.toArray());
+	}
+
+	/**
+	 * Fit all objects.
+	 * 
+	 * @param objects
+	 *            H1D, P1D or H2D objects
+	 * @return table with one row for each object, in the same order
+	 */
+	public Table fit(Object[] objects) {
+
+		for (Object o : objects)
+			if (!(o instanceof H1D || o instanceof P1D || o instanceof H2D))
+				throw new IllegalArgumentException("Cannot fit "
+						+ (o == null ? "null" : o.getClass().getName())
+						+ ": only H1D, P1D and H2D are supported");
+
+		ForkJoinPool p = pool != null ? pool : ParallelEvaluator
+				.getDefaultPool();
+		Table table = new Table(template.parameterNames().clone(),
+				objects.length);
+		if (objects.length == 0)
+			return table;
+		int chunk = Math.max(1, objects.length / (8 * p.getParallelism()));
+		p.invoke(new Fits(objects, table, 0, objects.length, chunk));
+		return table;
+	}
+
+	/**
+	 * Create a fitter with a copy of the function.
+	 */
+	private HFitterLM newFitter() {
+
+		IFunction f;
+		try {
+			f = template.getClass().getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException e) {
+			throw new IllegalArgumentException(
+					"The constructor of the fit function failed: "
+							+ template.getClass().getName(), e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException(
+					"The fit function needs a public constructor without arguments: "
+							+ template.getClass().getName(), e);
+		}
+		f.setParameters(template.parameters().clone());
+		HFitterLM lm = new HFitterLM(method);
+		lm.setFunc(f);
+		lm.setRange(rmin, rmax);
+		for (String name : fixed)
+			lm.setParFixed(name);
+		for (Object[] r : ranges)
+			lm.setParRange((String) r[0], (Double) r[1], (Double) r[2]);
+		return lm;
+	}
+
+	private static void load(HFitterLM lm, Object o) {
+		if (o instanceof H1D)
+			lm.load((H1D) o);
+		else if (o instanceof P1D)
+			lm.load((P1D) o);
+		else
+			lm.load((H2D) o);
+	}
+
+	private boolean similar(double[] a, double[] b) {
+		double rms = Math.max(a[2], b[2]);
+		return Math.abs(a[1] - b[1]) <= similarity * rms
+				&& Math.abs(a[2] - b[2]) <= similarity * rms;
+	}
+
+	/**
+	 * Fits of a part of the objects.
+	 */
+	private final class Fits extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Object[] objects;
+		private final Table table;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Fits(Object[] objects, Table table, int from, int to, int chunk) {
+			this.objects = objects;
+			this.table = table;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunk) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Fits(objects, table, from, mid, chunk), new Fits(
+						objects, table, mid, to, chunk));
+				return;
+			}
+			HFitterLM lm = newFitter();
+			double[] start = lm.getPars();
+			HFitterLM.Result last = null;
+			double[] lastShape = null;
+			for (int i = from; i < to; i++) {
+				load(lm, objects[i]);
+				double[] shape = lm.shape();
+				boolean seeded = seeding && last != null && last.isValid()
+						&& similar(lastShape, shape);
+				lm.setPars(seeded ? last.fittedParameters() : start);
+				HFitterLM.Result r = lm.minimize();
+				if (seeded && !r.isValid()) {
+					lm.setPars(start);
+					r = lm.minimize();
+				}
+				table.set(i, r);
+				last = r;
+				lastShape = shape;
+			}
+		}
+	}
+
+	/**
+	 * Results of the fits stored in columns: one array for each parameter,
+	 * error and quantity, with one entry for each fitted object.
+	 */
+	public static class Table implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] names;
+		private final double[][] parameters;
+		private final double[][] errors;
+		private final double[] value;
+		private final double[] quality;
+		private final int[] ndf;
+		private final int[] status;
+
+		Table(String[] names, int rows) {
+			this.names = names;
+			parameters = new double[names.length][rows];
+			errors = new double[names.length][rows];
+			value = new double[rows];
+			quality = new double[rows];
+			ndf = new int[rows];
+			status = new int[rows];
+		}
+
+		void set(int row, HFitterLM.Result r) {
+			double[] p = r.fittedParameters();
+			double[] e = r.errors();
+			for (int k = 0; k < names.length; k++) {
+				parameters[k][row] = p[k];
+				errors[k][row] = e[k];
+			}
+			value[row] = r.getValue();
+			quality[row] = r.quality();
+			ndf[row] = r.ndf();
+			status[row] = r.fitStatus();
+		}
+
+		/**
+		 * Get the number of fitted objects.
+		 * 
+		 * @return number of rows
+		 */
+		public int size() {
+			return value.length;
+		}
+
+		/**
+		 * Get the names of the parameters.
+		 * 
+		 * @return names
+		 */
+		public String[] getParameterNames() {
+			return names.clone();
+		}
+
+		/**
+		 * Get the fitted values of a parameter.
+		 * 
+		 * @param k
+		 *            index of the parameter
+		 * @return one value for each object
+		 */
+		public double[] getParameter(int k) {
+			return parameters[k];
+		}
+
+		/**
+		 * Get the fitted values of a parameter.
+		 * 
+		 * @param name
+		 *            parameter name
+		 * @return one value for each object
+		 */
+		public double[] getParameter(String name) {
+			return parameters[index(name)];
+		}
+
+		/**
+		 * Get the errors of a parameter.
+		 * 
+		 * @param k
+		 *            index of the parameter
+		 * @return one error for each object
+		 */
+		public double[] getError(int k) {
+			return errors[k];
+		}
+
+		/**
+		 * Get the errors of a parameter.
+		 * 
+		 * @param name
+		 *            parameter name
+		 * @return one error for each object
+		 */
+		public double[] getError(String name) {
+			return errors[index(name)];
+		}
+
+		/**
+		 * Get chi2 (or the sum of squares, or the likelihood-ratio chi2 for
+		 * bml) at the minimum.
+		 * 
+		 * @return one value for each object
+		 */
+		public double[] getChi2() {
+			return value;
+		}
+
+		/**
+		 * Get the quality of the fits, chi2/ndf.
+		 * 
+		 * @return one value for each object
+		 */
+		public double[] getQuality() {
+			return quality;
+		}
+
+		/**
+		 * Get the number of degrees of freedom.
+		 * 
+		 * @return one value for each object
+		 */
+		public int[] getNdf() {
+			return ndf;
+		}
+
+		/**
+		 * Get the status of the fits: 0 if the fit is valid.
+		 * 
+		 * @return one status for each object
+		 */
+		public int[] getStatus() {
+			return status;
+		}
+
+		/**
+		 * Get a parameter with its errors as P1D. X is the index of the
+		 * object.
+		 * 
+		 * @param name
+		 *            parameter name
+		 * @return P1D with the values and errors of the parameter
+		 */
+		public P1D getP1D(String name) {
+			int k = index(name);
+			P1D p = new P1D(name, 3);
+			for (int i = 0; i < value.length; i++)
+				p.add(i, parameters[k][i], errors[k][i]);
+			return p;
+		}
+
+		private int index(String name) {
+			for (int k = 0; k < names.length; k++)
+				if (names[k].equals(name))
+					return k;
+			throw new IllegalArgumentException("No parameter with the name: "
+					+ name);
+		}
+	}
+}
@@ -0,0 +1,973 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot;
+
+import hep.aida.IAxis;
+import hep.aida.IFunction;
+import hep.aida.IModelFunction;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import jhplot.gui.HelpBrowser;
+
+/**
+ * Fast fitter of H1D, P1D and H2D. The data are read directly from the bins
+ * of the histograms or the columns of the P1D, without conversion to an AIDA
+ * data point set, and the fit is done with the Levenberg-Marquardt method. The
+ * derivatives are taken from the function if it provides a parameter gradient
+ * (IModelFunction), otherwise they are evaluated with finite differences. All
+ * work arrays are kept between the fits, so many objects can be fitted with
+ * one fitter without allocating memory for every fit.
+ * <p>
+ * The supported methods are: <br>
+ * chi2 - Chi2 (default). Points with zero error are not used. For asymmetric
+ * errors the upper error is used if the function is above the point. <br>
+ * leastsquares - least squares <br>
+ * bml - binned maximum likelihood with Poisson statistics <br>
+ * <p>
+ * The errors of the parameters are the square roots of the diagonal of the
+ * covariance matrix, the inverse of the curvature matrix at the minimum. This
+ * corresponds to the parabolic errors of {@link HFitter}. The quality of the
+ * fit is chi2/ndf, or the likelihood-ratio chi2 divided by ndf for bml.
+ * <p>
+ * The fit starts from the parameters of the function when it was set, or from
+ * the values given with setPar(), so subsequent fits do not depend on each
+ * other. After the fit, the function holds the fitted parameters. This class
+ * is not thread-safe: use one fitter for each thread.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class HFitterLM {
+
+	private static final int CHI2 = 0;
+	private static final int LEASTSQUARES = 1;
+	private static final int BML = 2;
+
+	private static final double SQRT_EPS = 1.5e-8;
+
+	private String method;
+
+	private int type;
+
+	private IFunction iFunc = null;
+
+	private double[] start;
+
+	private boolean[] fixed;
+
+	private double[] lower;
+
+	private double[] upper;
+
+	private int maxIterations = 200;
+
+	private double tolerance = 1e-10;
+
+	double rmin = -99;
+
+	double rmax = -99;
+
+	private Result result;
+
+	// points in the fit range
+	private int n;
+	private double[] x = new double[0];
+	private double[] x2 = new double[0];
+	private double[] y = new double[0];
+	private double[] errPlus = new double[0];
+	private double[] errMinus = new double[0];
+	private double[] fval = new double[0];
+	private double[] ftrial = new double[0];
+	private double[] jac = new double[0];
+
+	// parameters
+	private int np;
+	private int nfree;
+	private int[] free = new int[0];
+	private double[] par = new double[0];
+	private double[] trial = new double[0];
+	private double[] alpha = new double[0];
+	private double[] grad = new double[0];
+	private double[] work = new double[0];
+	private double[] delta = new double[0];
+	private double[] point = new double[1];
+
+	/**
+	 * Create a fitter using some method.
+	 * 
+	 * @param method
+	 *            the fit method (chi2, leastsquares or bml)
+	 */
+	public HFitterLM(String method) {
+		setFitMethod(method);
+	}
+
+	/**
+	 * Create a fitter with the Chi2 method.
+	 */
+	public HFitterLM() {
+		this("chi2");
+	}
+
+	/**
+	 * Sets the fit method. Available methods are: <b>chi2, leastsquares,
+	 * bml</b>.
+	 * 
+	 * @param method
+	 *            the fit method.
+	 */
+	public void setFitMethod(String method) {
+		String m = method.toLowerCase();
+		if (m.equals("chi2"))
+			type = CHI2;
+		else if (m.equals("leastsquares"))
+			type = LEASTSQUARES;
+		else if (m.equals("bml"))
+			type = BML;
+		else
+			throw new IllegalArgumentException("Unsupported fit method: "
+					+ method + ". Use chi2, leastsquares or bml");
+		this.method = m;
+	}
+
+	/**
+	 * Returns the current fit method.
+	 * 
+	 * @return fit method
+	 */
+	public String getFitMethod() {
+		return method;
+	}
+
+	/**
+	 * Set the fit function. Its current parameters are the start values of
+	 * the fits. All parameters are free.
+	 * 
+	 * @param func
+	 *            function of one variable
+	 */
+	public void setFunc(IFunction func) {
+		this.iFunc = func;
+		np = func.numberOfParameters();
+		start = func.parameters().clone();
+		fixed = new boolean[np];
+		lower = new double[np];
+		upper = new double[np];
+		Arrays.fill(lower, Double.NEGATIVE_INFINITY);
+		Arrays.fill(upper, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Return the function. After a fit, it holds the fitted parameters.
+	 * 
+	 * @return function
+	 */
+	public IFunction getFunc() {
+		return iFunc;
+	}
+
+	/**
+	 * Set the start value of a parameter.
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @param value
+	 *            value to be set.
+	 */
+	public void setPar(String name, double value) {
+		start[index(name)] = value;
+		iFunc.setParameter(name, value);
+	}
+
+	/**
+	 * Set the start values of all parameters.
+	 * 
+	 * @param values
+	 *            start values
+	 */
+	public void setPars(double[] values) {
+		if (values.length != np)
+			throw new IllegalArgumentException("Expected " + np
+					+ " parameters, but got " + values.length);
+		System.arraycopy(values, 0, start, 0, np);
+		iFunc.setParameters(values.clone());
+	}
+
+	/**
+	 * Get the start values of the parameters.
+	 * 
+	 * @return start values
+	 */
+	public double[] getPars() {
+		return start.clone();
+	}
+
+	/**
+	 * Get parameter value
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @return value
+	 */
+	public double getPar(String name) {
+		return iFunc.parameter(name);
+	}
+
+	/**
+	 * Fix a given parameter to its start value or release it.
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @param fix
+	 *            true if the parameter should be fixed.
+	 */
+	public void setParFixed(String name, boolean fix) {
+		fixed[index(name)] = fix;
+	}
+
+	/**
+	 * Fix a given parameter to its start value.
+	 * 
+	 * @param name
+	 *            parameter name to be fixed
+	 */
+	public void setParFixed(String name) {
+		setParFixed(name, true);
+	}
+
+	/**
+	 * Set range for parameter during the fit
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @param min
+	 *            min value
+	 * @param max
+	 *            max value
+	 */
+	public void setParRange(String name, double min, double max) {
+		int i = index(name);
+		lower[i] = min;
+		upper[i] = max;
+	}
+
+	/**
+	 * Set range for fitting. By default, the full range of the data is used.
+	 * 
+	 * @param rmin
+	 *            Min X value
+	 * @param rmax
+	 *            Max X value
+	 */
+	public void setRange(double rmin, double rmax) {
+		this.rmin = rmin;
+		this.rmax = rmax;
+	}
+
+	/**
+	 * Set the maximum number of iterations (default 200).
+	 * 
+	 * @param max
+	 *            maximum number of iterations
+	 */
+	public void setMaxIterations(int max) {
+		this.maxIterations = max;
+	}
+
+	/**
+	 * Set the convergence tolerance (default 1e-10). The fit stops when the
+	 * relative decrease of chi2 is below the tolerance.
+	 * 
+	 * @param tolerance
+	 *            relative tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Fit histogram. The bin centers, heights and errors are used.
+	 * 
+	 * @param h1d
+	 *            input H1D
+	 * @return result of the fit
+	 */
+	public Result fit(H1D h1d) {
+		load(h1d);
+		return minimize();
+	}
+
+	/**
+	 * Fit P1D. The errors on Y are used for the chi2 method; systematical
+	 * errors are added in quadrature.
+	 * 
+	 * @param p1d
+	 *            input P1D
+	 * @return result of the fit
+	 */
+	public Result fit(P1D p1d) {
+		load(p1d);
+		return minimize();
+	}
+
+	/**
+	 * Fit H2D histogram with a function of two variables. The bin centers,
+	 * heights and errors are used.
+	 * 
+	 * @param h2d
+	 *            input H2D
+	 * @return result of the fit
+	 */
+	public Result fit(H2D h2d) {
+		load(h2d);
+		return minimize();
+	}
+
+	void load(H1D h1d) {
+
+		double min = rmin, max = rmax;
+		if (rmin == rmax) {
+			min = h1d.getMin();
+			max = h1d.getMax();
+		}
+		int bins = h1d.getBins();
+		ensurePoints(bins);
+		n = 0;
+		for (int i = 0; i < bins; i++) {
+			double c = h1d.binCenter(i);
+			if (!(c >= min && c <= max))
+				continue;
+			double e = h1d.binError(i);
+			if (type == CHI2 && !(e > 0))
+				continue;
+			x[n] = c;
+			y[n] = h1d.binHeight(i);
+			errPlus[n] = e;
+			errMinus[n] = e;
+			n++;
+		}
+		setDimension(1);
+	}
+
+	void load(P1D p1d) {
+
+		int dim = p1d.getDimension();
+		if (dim == 2 && type == CHI2) {
+			jhplot.utils.Util
+					.ErrorMessage("The dimension of input data is 2, but you require to use \"chi2\" method. For such containers, you can only use \"leastsquares\" method. For the \"chi2\" method, you should specify errors on Y-values");
+		}
+		double min = rmin, max = rmax;
+		if (rmin == rmax) {
+			min = p1d.getMin(0);
+			max = p1d.getMax(0);
+		}
+		int size = p1d.size();
+		ensurePoints(size);
+		n = 0;
+		for (int i = 0; i < size; i++) {
+			double c = p1d.getQuickX(i);
+			if (!(c >= min && c <= max))
+				continue;
+			double up = 0, down = 0;
+			if (dim == 10) {
+				up = Math.hypot(p1d.getYupper(i), p1d.getYupperSys(i));
+				down = Math.hypot(p1d.getYlower(i), p1d.getYlowerSys(i));
+			} else if (dim == 3) {
+				up = p1d.getYupper(i);
+				down = up;
+			} else if (dim > 3) {
+				up = p1d.getYupper(i);
+				down = p1d.getYlower(i);
+			}
+			if (type == CHI2 && !(up > 0 && down > 0))
+				continue;
+			x[n] = c;
+			y[n] = p1d.getQuickY(i);
+			errPlus[n] = up;
+			errMinus[n] = down;
+			n++;
+		}
+		setDimension(1);
+	}
+
+	void load(H2D h2d) {
+
+		IAxis ax = h2d.get().xAxis();
+		IAxis ay = h2d.get().yAxis();
+		int nx = ax.bins();
+		int ny = ay.bins();
+		ensurePoints(nx * ny);
+		n = 0;
+		for (int i = 0; i < nx; i++) {
+			double cx = ax.binCenter(i);
+			if (rmin != rmax && !(cx >= rmin && cx <= rmax))
+				continue;
+			for (int j = 0; j < ny; j++) {
+				double e = h2d.binError(i, j);
+				if (type == CHI2 && !(e > 0))
+					continue;
+				x[n] = cx;
+				x2[n] = ay.binCenter(j);
+				y[n] = h2d.binHeight(i, j);
+				errPlus[n] = e;
+				errMinus[n] = e;
+				n++;
+			}
+		}
+		setDimension(2);
+	}
+
+	/**
+	 * Fit arrays of points. The points are copied to the work arrays.
+	 * 
+	 * @param xv
+	 *            X values
+	 * @param yv
+	 *            Y values
+	 * @param ev
+	 *            errors on Y (can be null for leastsquares and bml)
+	 * @param size
+	 *            number of points
+	 * @return result of the fit
+	 */
+	public Result fit(double[] xv, double[] yv, double[] ev, int size) {
+
+		load(xv, yv, ev, size);
+		return minimize();
+	}
+
+	void load(double[] xv, double[] yv, double[] ev, int size) {
+
+		ensurePoints(size);
+		n = 0;
+		for (int i = 0; i < size; i++) {
+			double c = xv[i];
+			if (rmin != rmax && !(c >= rmin && c <= rmax))
+				continue;
+			double e = ev == null ? 0 : ev[i];
+			if (type == CHI2 && !(e > 0))
+				continue;
+			x[n] = c;
+			y[n] = yv[i];
+			errPlus[n] = e;
+			errMinus[n] = e;
+			n++;
+		}
+		setDimension(1);
+	}
+
+	/**
+	 * Get result of the last fit.
+	 * 
+	 * @return result of the fit.
+	 */
+	public Result getResult() {
+		return result;
+	}
+
+	/**
+	 * Get the fitted function. This is the function of the fitter.
+	 * 
+	 * @return function with the fitted parameters.
+	 */
+	public IFunction getFittedFunc() {
+		return iFunc;
+	}
+
+	private void setDimension(int dim) {
+		if (point.length != dim)
+			point = new double[dim];
+	}
+
+	/**
+	 * Get the sum of |y| and the mean and RMS of the first coordinate
+	 * weighted with |y| for the loaded points.
+	 */
+	double[] shape() {
+
+		double sw = 0, sx = 0, sxx = 0;
+		for (int i = 0; i < n; i++) {
+			double w = Math.abs(y[i]);
+			sw += w;
+			sx += w * x[i];
+			sxx += w * x[i] * x[i];
+		}
+		double mean = sw > 0 ? sx / sw : 0;
+		double rms = sw > 0 ? Math.sqrt(Math.max(0, sxx / sw - mean * mean)) : 0;
+		return new double[] { sw, mean, rms };
+	}
+
+	/**
+	 * Minimize the objective for the loaded points.
+	 */
+	Result minimize() {
+
+		if (iFunc == null)
+			throw new IllegalStateException("No fit function was set");
+		nfree = 0;
+		ensureParameters();
+		for (int k = 0; k < np; k++)
+			if (!fixed[k])
+				free[nfree++] = k;
+		System.arraycopy(start, 0, par, 0, np);
+
+		double q = objective(par, fval);
+		int iter = 0;
+		boolean converged = false;
+		if (!isFinite(q) || nfree == 0) {
+			converged = nfree == 0 && isFinite(q);
+		} else {
+			double lambda = 1e-3;
+			while (iter < maxIterations) {
+				iter++;
+				derivatives(par, fval);
+				normal(fval);
+				boolean improved = false;
+				double dq = 0;
+				while (lambda < 1e12) {
+					for (int k = 0; k < nfree * nfree; k++)
+						work[k] = alpha[k];
+					for (int k = 0; k < nfree; k++) {
+						double d = alpha[k * nfree + k];
+						work[k * nfree + k] = d + lambda * (d > 0 ? d : 1);
+					}
+					if (!cholesky(work, nfree)) {
+						lambda *= 10;
+						continue;
+					}
+					solve(work, nfree, grad, delta);
+					System.arraycopy(par, 0, trial, 0, np);
+					for (int k = 0; k < nfree; k++) {
+						int j = free[k];
+						trial[j] = Math.min(upper[j],
+								Math.max(lower[j], par[j] + delta[k]));
+					}
+					double qt = objective(trial, ftrial);
+					if (qt <= q) {
+						double[] t = par;
+						par = trial;
+						trial = t;
+						t = fval;
+						fval = ftrial;
+						ftrial = t;
+						dq = q - qt;
+						q = qt;
+						lambda = Math.max(lambda / 10, 1e-12);
+						improved = true;
+						break;
+					}
+					lambda *= 10;
+				}
+				if (!improved || dq <= tolerance * (q + tolerance)) {
+					converged = true;
+					break;
+				}
+			}
+		}
+
+		// covariance at the minimum
+		double[] cov = new double[np * np];
+		boolean posdef = false;
+		if (isFinite(q) && nfree > 0) {
+			derivatives(par, fval);
+			normal(fval);
+			System.arraycopy(alpha, 0, work, 0, nfree * nfree);
+			posdef = cholesky(work, nfree);
+			if (posdef) {
+				for (int k = 0; k < nfree; k++) {
+					Arrays.fill(grad, 0, nfree, 0);
+					grad[k] = 1;
+					solve(work, nfree, grad, delta);
+					for (int l = 0; l < nfree; l++)
+						cov[free[l] * np + free[k]] = delta[l];
+				}
+			}
+		}
+
+		double[] fitted = Arrays.copyOf(par, np);
+		iFunc.setParameters(fitted);
+		int ndf = n - nfree;
+		result = new Result(method, iFunc.parameterNames().clone(), fitted,
+				cov, np, q, ndf, iter, converged && (posdef || nfree == 0));
+		return result;
+	}
+
+	/**
+	 * Evaluate the function at all points and return chi2, the sum of
+	 * squares or twice the negative log-likelihood ratio.
+	 */
+	private double objective(double[] p, double[] f) {
+
+		iFunc.setParameters(p);
+		double q = 0;
+		for (int i = 0; i < n; i++) {
+			setPoint(i);
+			double v = iFunc.value(point);
+			f[i] = v;
+			double r = y[i] - v;
+			switch (type) {
+			case CHI2:
+				double e = r < 0 ? errPlus[i] : errMinus[i];
+				q += (r * r) / (e * e);
+				break;
+			case LEASTSQUARES:
+				q += r * r;
+				break;
+			default:
+				if (v < 0 || (v == 0 && y[i] != 0))
+					return Double.POSITIVE_INFINITY;
+				q += 2 * (v - y[i]);
+				if (y[i] > 0)
+					q += 2 * y[i] * Math.log(y[i] / v);
+			}
+		}
+		return q;
+	}
+
+	/**
+	 * Derivatives of the function with respect to the free parameters at all
+	 * points, stored row by row.
+	 */
+	private void derivatives(double[] p, double[] f) {
+
+		if (iFunc instanceof IModelFunction
+				&& ((IModelFunction) iFunc).providesParameterGradient()) {
+			IModelFunction m = (IModelFunction) iFunc;
+			iFunc.setParameters(p);
+			for (int i = 0; i < n; i++) {
+				setPoint(i);
+				double[] g = m.parameterGradient(point);
+				for (int k = 0; k < nfree; k++)
+					jac[i * nfree + k] = g[free[k]];
+			}
+			return;
+		}
+		// forward differences
+		System.arraycopy(p, 0, trial, 0, np);
+		for (int k = 0; k < nfree; k++) {
+			int j = free[k];
+			double h = SQRT_EPS * Math.max(Math.abs(p[j]), 1.0);
+			trial[j] = p[j] + h;
+			h = trial[j] - p[j];
+			iFunc.setParameters(trial);
+			for (int i = 0; i < n; i++) {
+				setPoint(i);
+				jac[i * nfree + k] = (iFunc.value(point) - f[i]) / h;
+			}
+			trial[j] = p[j];
+		}
+		iFunc.setParameters(p);
+	}
+
+	/**
+	 * Curvature matrix and gradient of the weighted residuals.
+	 */
+	private void normal(double[] f) {
+
+		Arrays.fill(alpha, 0, nfree * nfree, 0);
+		Arrays.fill(grad, 0, nfree, 0);
+		for (int i = 0; i < n; i++) {
+			double r = y[i] - f[i];
+			double w;
+			if (type == CHI2) {
+				double e = r < 0 ? errPlus[i] : errMinus[i];
+				w = 1 / (e * e);
+			} else if (type == LEASTSQUARES)
+				w = 1;
+			else
+				w = f[i] > 0 ? 1 / f[i] : 0;
+			int row = i * nfree;
+			for (int k = 0; k < nfree; k++) {
+				double wj = w * jac[row + k];
+				grad[k] += wj * r;
+				for (int l = 0; l <= k; l++)
+					alpha[k * nfree + l] += wj * jac[row + l];
+			}
+		}
+		for (int k = 0; k < nfree; k++)
+			for (int l = 0; l < k; l++)
+				alpha[l * nfree + k] = alpha[k * nfree + l];
+	}
+
+	/**
+	 * Cholesky decomposition in place, the lower triangle holds the factor.
+	 */
+	private static boolean cholesky(double[] a, int m) {
+
+		for (int j = 0; j < m; j++) {
+			double d = a[j * m + j];
+			for (int k = 0; k < j; k++)
+				d -= a[j * m + k] * a[j * m + k];
+			if (!(d > 0))
+				return false;
+			d = Math.sqrt(d);
+			a[j * m + j] = d;
+			for (int i = j + 1; i < m; i++) {
+				double s = a[i * m + j];
+				for (int k = 0; k < j; k++)
+					s -= a[i * m + k] * a[j * m + k];
+				a[i * m + j] = s / d;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Solve L L^T x = b with the Cholesky factor L.
+	 */
+	private static void solve(double[] l, int m, double[] b, double[] out) {
+
+		for (int i = 0; i < m; i++) {
+			double s = b[i];
+			for (int k = 0; k < i; k++)
+				s -= l[i * m + k] * out[k];
+			out[i] = s / l[i * m + i];
+		}
+		for (int i = m - 1; i >= 0; i--) {
+			double s = out[i];
+			for (int k = i + 1; k < m; k++)
+				s -= l[k * m + i] * out[k];
+			out[i] = s / l[i * m + i];
+		}
+	}
+
+	private void setPoint(int i) {
+		point[0] = x[i];
+		if (point.length > 1)
+			point[1] = x2[i];
+	}
+
+	private static boolean isFinite(double v) {
+		return !Double.isNaN(v) && !Double.isInfinite(v);
+	}
+
+	private int index(String name) {
+		String[] names = iFunc.parameterNames();
+		for (int i = 0; i < names.length; i++)
+			if (names[i].equals(name))
+				return i;
+		throw new IllegalArgumentException("No parameter with the name: "
+				+ name);
+	}
+
+	private void ensurePoints(int size) {
+		if (x.length >= size)
+			return;
+		x = new double[size];
+		x2 = new double[size];
+		y = new double[size];
+		errPlus = new double[size];
+		errMinus = new double[size];
+		fval = new double[size];
+		ftrial = new double[size];
+		jac = new double[size * Math.max(np, 1)];
+	}
+
+	private void ensureParameters() {
+		if (par.length < np) {
+			free = new int[np];
+			par = new double[np];
+			trial = new double[np];
+			alpha = new double[np * np];
+			grad = new double[np];
+			work = new double[np * np];
+			delta = new double[np];
+		}
+		if (jac.length < x.length * np)
+			jac = new double[x.length * np];
+	}
+
+	/**
+	 * Show online documentation.
+	 */
+	public void doc() {
+
+		String a = this.getClass().getName();
+		a = a.replace(".", "/") + ".html";
+		new HelpBrowser(HelpBrowser.JHPLOT_HTTP + a);
+
+	}
+
+	/**
+	 * Result of a fit. The accessors have the same names and meaning as those
+	 * of the AIDA IFitResult returned by {@link HFitter#getResult()}.
+	 */
+	public static class Result implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String method;
+		private final String[] names;
+		private final double[] parameters;
+		private final double[] covariance;
+		private final int np;
+		private final double value;
+		private final int ndf;
+		private final int iterations;
+		private final boolean valid;
+
+		Result(String method, String[] names, double[] parameters,
+				double[] covariance, int np, double value, int ndf,
+				int iterations, boolean valid) {
+			this.method = method;
+			this.names = names;
+			this.parameters = parameters;
+			this.covariance = covariance;
+			this.np = np;
+			this.value = value;
+			this.ndf = ndf;
+			this.iterations = iterations;
+			this.valid = valid;
+		}
+
+		/**
+		 * Get the fitted parameters.
+		 * 
+		 * @return parameters
+		 */
+		public double[] fittedParameters() {
+			return parameters.clone();
+		}
+
+		/**
+		 * Get a fitted parameter.
+		 * 
+		 * @param name
+		 *            parameter name
+		 * @return value
+		 */
+		public double fittedParameter(String name) {
+			for (int i = 0; i < np; i++)
+				if (names[i].equals(name))
+					return parameters[i];
+			throw new IllegalArgumentException("No parameter with the name: "
+					+ name);
+		}
+
+		/**
+		 * Get the names of the parameters.
+		 * 
+		 * @return names
+		 */
+		public String[] fittedParameterNames() {
+			return names.clone();
+		}
+
+		/**
+		 * Get the parabolic errors of the parameters, zero for fixed
+		 * parameters.
+		 * 
+		 * @return errors
+		 */
+		public double[] errors() {
+			double[] e = new double[np];
+			for (int i = 0; i < np; i++)
+				e[i] = Math.sqrt(covariance[i * np + i]);
+			return e;
+		}
+
+		/**
+		 * Get an element of the covariance matrix.
+		 * 
+		 * @param i
+		 *            index of the first parameter
+		 * @param j
+		 *            index of the second parameter
+		 * @return covariance
+		 */
+		public double covMatrixElement(int i, int j) {
+			return covariance[i * np + j];
+		}
+
+		/**
+		 * Get the quality of the fit, chi2/ndf.
+		 * 
+		 * @return quality
+		 */
+		public double quality() {
+			return ndf > 0 ? value / ndf : value;
+		}
+
+		/**
+		 * Get the minimum of chi2, of the sum of squares or of the
+		 * likelihood-ratio chi2 (bml).
+		 * 
+		 * @return value at the minimum
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * Get the number of degrees of freedom, the number of points minus the
+		 * number of free parameters.
+		 * 
+		 * @return ndf
+		 */
+		public int ndf() {
+			return ndf;
+		}
+
+		/**
+		 * Get the number of iterations.
+		 * 
+		 * @return iterations
+		 */
+		public int getIterations() {
+			return iterations;
+		}
+
+		/**
+		 * Check if the fit converged and the covariance matrix is positive
+		 * definite.
+		 * 
+		 * @return true if the fit is valid
+		 */
+		public boolean isValid() {
+			return valid;
+		}
+
+		/**
+		 * Get the status of the fit: 0 if it is valid, 1 otherwise.
+		 * 
+		 * @return status
+		 */
+		public int fitStatus() {
+			return valid ? 0 : 1;
+		}
+
+		/**
+		 * Get the fit method.
+		 * 
+		 * @return method name
+		 */
+		public String fitMethodName() {
+			return method;
+		}
+	}
+}
@@ -78,6 +78,9 @@ public class HPlot extends GHFrame implements Serializable {
 
 	protected Vector<DataArray>[][] data;
 
+	// ring buffers drawn by the data arrays
+	private transient Map<DataArray, Ring> rings;
+
 	private IAnalysisFactory m_IAnalysisFactory = null;
 
 	private IHistogramFactory m_IHistogramFactory = null;
@@ -290,6 +293,8 @@ public class HPlot extends GHFrame implements Serializable {
 
 	public void visible(boolean vs) {
 		updateAll();
+		if (mainFrame == null)
+			return;
 		mainFrame.setVisible(vs);
 		if (vs == false)
 			mainFrame.validate();
@@ -303,7 +308,8 @@ public class HPlot extends GHFrame implements Serializable {
 
 	public void visible() {
 		updateAll();
-		mainFrame.setVisible(true);
+		if (mainFrame != null)
+			mainFrame.setVisible(true);
 
 	}
 
@@ -319,6 +325,8 @@ public class HPlot extends GHFrame implements Serializable {
 	 */
 	public void visible(int posX, int posY) {
 		updateAll();
+		if (mainFrame == null)
+			return;
 		mainFrame.setLocation(posX, posY);
 		mainFrame.setVisible(true);
 
@@ -328,7 +336,7 @@ public class HPlot extends GHFrame implements Serializable {
 	 * Remove the canvas frame
 	 */
 	public void distroy() {
-		mainFrame.setVisible(false);
+		doNotShowFrame();
 		close();
 		removeFrame();
 	}
@@ -440,28 +448,35 @@ public class HPlot extends GHFrame implements Serializable {
 		// System.out.println(N1final);
 		// System.out.println(N2final);
 
+		// without a display there are no editor frames
+		boolean headless = GraphicsEnvironment.isHeadless();
+
 		// this order necessary for grid layout
 		for (int i2 = 0; i2 < N2final; i2++) {
 			for (int i1 = 0; i1 < N1final; i1++) {
 
-				frames[i1][i2] = new JFrame();
-				jp[i1][i2] = new JPlot(frames[i1][i2], null, null, false);
-				frames[i1][i2].getContentPane().add(jp[i1][i2]);
-				frames[i1][i2].setTitle("Editor for Canvas ("
-						+ Integer.toString(i1 + 1) + ","
-						+ Integer.toString(i2 + 1) + ")");
-				frames[i1][i2].setSize(400, 400);
-				frames[i1][i2].setVisible(false);
 				hkeyCounter[i1][i2] = 0;
-				JMenuBar bar1 = new JMenuBar();
-				JMenu menu1 = new JMenu("Exit");
-				JMenuItem item1 = new JMenuItem(new NotShowAction());
-				menu1.add(item1);
-				JMenuItem item2 = new JMenuItem(new RefreshAction());
-				menu1.add(item2);
-
-				bar1.add(menu1);
-				frames[i1][i2].setJMenuBar(bar1);
+				if (headless) {
+					jp[i1][i2] = new JPlot(null, null, null, false);
+				} else {
+					frames[i1][i2] = new JFrame();
+					jp[i1][i2] = new JPlot(frames[i1][i2], null, null, false);
+					frames[i1][i2].getContentPane().add(jp[i1][i2]);
+					frames[i1][i2].setTitle("Editor for Canvas ("
+							+ Integer.toString(i1 + 1) + ","
+							+ Integer.toString(i2 + 1) + ")");
+					frames[i1][i2].setSize(400, 400);
+					frames[i1][i2].setVisible(false);
+					JMenuBar bar1 = new JMenuBar();
+					JMenu menu1 = new JMenu("Exit");
+					JMenuItem item1 = new JMenuItem(new NotShowAction());
+					menu1.add(item1);
+					JMenuItem item2 = new JMenuItem(new RefreshAction());
+					menu1.add(item2);
+
+					bar1.add(menu1);
+					frames[i1][i2].setJMenuBar(bar1);
+				}
 
 				sc[i1][i2] = jp[i1][i2].getStyleChooser();
 				gs[i1][i2] = jp[i1][i2].getGraphSettings();
@@ -620,6 +635,7 @@ public class HPlot extends GHFrame implements Serializable {
 		for (int i1 = 0; i1 < N1final; i1++) {
 			for (int i2 = 0; i2 < N2final; i2++) {
 
+				readRings(i1, i2);
 				graph[i1][i2].show(data[i1][i2]);
 				jp[i1][i2].updateGraphIfShowing();
 
@@ -638,6 +654,7 @@ public class HPlot extends GHFrame implements Serializable {
 	 */
 	public void update(int n1, int n2) {
 
+		readRings(n1, n2);
 		graph[n1][n2].show(data[n1][n2]);
 		jp[n1][n2].updateGraphIfShowing();
 	}
@@ -660,6 +677,68 @@ public class HPlot extends GHFrame implements Serializable {
 		jp[N1][N2].updateGraphIfShowing();
 	}
 
+	/**
+	 * Refresh only the pads with data which changed since they were shown.
+	 * This is useful for plots which are updated often, with points added to
+	 * the data arrays (see {@link #getData()}) or to ring buffers drawn with
+	 * {@link #draw(P1DRing)}. With incremental drawing, the
+	 * added points are drawn over the kept picture if the axes do not change.
+	 *
+	 */
+	public void updateChanged() {
+
+		if (N1final == 0 && N2final == 0)
+			return;
+		if (jp == null)
+			return;
+
+		for (int i1 = 0; i1 < N1final; i1++) {
+			for (int i2 = 0; i2 < N2final; i2++) {
+				if (graph[i1][i2] instanceof GraphXY) {
+					readRings(i1, i2);
+					GraphXY g = (GraphXY) graph[i1][i2];
+					if (g.isChanged(data[i1][i2]))
+						g.refresh(data[i1][i2]);
+				} else
+					update(i1, i2);
+			}
+		}
+	}
+
+	/**
+	 * Sets incremental drawing for all pads. The axes, the labels, the legend
+	 * and the data are then kept in images, and only drawn again when they
+	 * change. Repainting the canvas only copies the images, and points added
+	 * to the data are drawn over them by {@link #updateChanged()}. Export to
+	 * vector formats is not affected.
+	 *
+	 * @param b
+	 *            true for incremental drawing
+	 */
+	public void setIncremental(boolean b) {
+
+		for (int i1 = 0; i1 < N1final; i1++)
+			for (int i2 = 0; i2 < N2final; i2++)
+				if (graph[i1][i2] instanceof GraphXY)
+					((GraphXY) graph[i1][i2]).setIncremental(b);
+	}
+
+	/**
+	 * Returns the time taken by the last painting of all pads. This is the
+	 * cost of a frame of an animated canvas.
+	 *
+	 * @return time in nanoseconds
+	 */
+	public long getFrameTime() {
+
+		long t = 0;
+		for (int i1 = 0; i1 < N1final; i1++)
+			for (int i2 = 0; i2 < N2final; i2++)
+				if (graph[i1][i2] instanceof GraphXY)
+					t += ((GraphXY) graph[i1][i2]).getFrameTime();
+		return t;
+	}
+
 	/**
 	 * If true, then this suppresses all negative values in Y, i.e. the plot
 	 * starts with 0 in Y. This is useful if you want to show histograms
@@ -3512,15 +3591,20 @@ public class HPlot extends GHFrame implements Serializable {
 
 		// h1.getDrawOption().print();
 
+		double[] x = new double[Bin];
+		double[] y = new double[Bin];
+		double[] left = new double[Bin];
+		double[] right = new double[Bin];
+		double[] err = new double[Bin];
 		for (int i = 0; i < Bin; i++) {
 			double dd = ax.binCenter(i);
-			double hh = h1.binHeight(i);
-			double errX1 = dd - ax.binLowerEdge(i);
-			double errX2 = ax.binUpperEdge(i) - dd;
-			double errY = h.binError(i); // FastMath.sqrt(hh);
-			data1.addPoint(dd, hh, errX1, errX2, errY, errY);
-
+			x[i] = dd;
+			y[i] = h1.binHeight(i);
+			left[i] = dd - ax.binLowerEdge(i);
+			right[i] = ax.binUpperEdge(i) - dd;
+			err[i] = h.binError(i); // FastMath.sqrt(hh);
 		}
+		data1.setColumns(Bin, x, y, left, right, err, err);
 
 		data1.setDimension(6);
 		data1.setLinePars(h1.getDrawOption());
@@ -3691,9 +3775,7 @@ public class HPlot extends GHFrame implements Serializable {
 		f1.setDrawLine(true);
 		DataArray data1 = new DataArray(IndexPlot, 1, Bin, f1.getDrawOption());
 
-		for (int i = 0; i < Bin; i++) {
-			data1.addPoint(f1.getX(i), f1.getY(i));
-		}
+		data1.setColumns(Bin, f1.getArrayX(), f1.getArrayY());
 
 		data1.setDimension(2);
 		data1.setName(f1.getTitle());
@@ -3766,9 +3848,7 @@ public class HPlot extends GHFrame implements Serializable {
 		f1.setDrawLine(true);
 		DataArray data1 = new DataArray(IndexPlot, 1, Bin, f1.getDrawOption());
 
-		for (int i = 0; i < Bin; i++) {
-			data1.addPoint(f1.getX(i), f1.getY(i));
-		}
+		data1.setColumns(Bin, f1.getArrayX(), f1.getArrayY());
 
 		data1.setDimension(2);
 		data1.setName(f1.getTitle());
@@ -3850,7 +3930,7 @@ public class HPlot extends GHFrame implements Serializable {
 	public void close() {
 
 		isOpen = 0;
-		mainFrame.setVisible(false);
+		doNotShowFrame();
 		m_Close = new Thread1("Closing softly");
 		if (!m_Close.Alive())
 			m_Close.Start();
@@ -3891,7 +3971,8 @@ public class HPlot extends GHFrame implements Serializable {
 				jp[i1][i2].quit();
 				jp[i1][i2] = null;
 
-				frames[i1][i2].dispose();
+				if (frames[i1][i2] != null)
+					frames[i1][i2].dispose();
 				frames[i1][i2] = null;
 
 			}
@@ -3934,7 +4015,8 @@ public class HPlot extends GHFrame implements Serializable {
 		for (int i2 = 0; i2 < N2final; i2++) {
 			for (int i1 = 0; i1 < N1final; i1++) {
 
-				frames[i1][i2].dispose();
+				if (frames[i1][i2] != null)
+					frames[i1][i2].dispose();
 				frames[i1][i2] = null;
 				graph[i1][i2] = null;
 
@@ -4004,6 +4086,92 @@ public class HPlot extends GHFrame implements Serializable {
 
 	}
 
+	/**
+	 * Draw the points of a ring buffer, which keeps the last points of a
+	 * stream. The points in the buffer are read again at each update of the
+	 * pad, e.g. with {@link #updateChanged()} called from a timer, while
+	 * another thread adds points. Memory and drawing time do not depend on the
+	 * number of points received so far.
+	 * 
+	 * @param d
+	 *            ring buffer
+	 */
+	public void draw(P1DRing d) {
+
+		IndexPlot++;
+		JHPlot.ReadFile = false;
+		if (d.getLabelX() != null)
+			if (d.getLabelX().length() > 0)
+				setNameX(d.getLabelX());
+		if (d.getLabelY() != null)
+			if (d.getLabelY().length() > 0)
+				setNameY(d.getLabelY());
+
+		d.setType(LinePars.P1D);
+		d.setGraphStyle(LinePars.LINES);
+
+		DataArray tmp = new DataArray();
+		tmp.setDimension(2);
+		tmp.setLinePars(d.getDrawOption());
+		tmp.setName(d.getTitle());
+		Ring r = new Ring(d);
+		r.read(tmp);
+		if (rings == null)
+			rings = new WeakHashMap<DataArray, Ring>();
+		rings.put(tmp, r);
+
+		data[N1][N2].add(tmp);
+		jp[N1][N2].insertData(IndexPlot, tmp);
+	}
+
+	// copies the points of the ring buffers of a pad to their data arrays
+	private void readRings(int i1, int i2) {
+		if (rings == null)
+			return;
+		for (DataArray da : data[i1][i2]) {
+			Ring r = rings.get(da);
+			if (r != null)
+				r.read(da);
+		}
+	}
+
+	/**
+	 * A ring buffer drawn by a data array.
+	 */
+	private static final class Ring {
+
+		private final P1DRing points;
+		private long count = -1;
+		private int size = -1;
+		// two pairs of columns: one is drawn while the other one is filled
+		private final double[][] columns = new double[4][];
+		private int next;
+
+		Ring(P1DRing points) {
+			this.points = points;
+		}
+
+		void read(DataArray da) {
+			long c = points.getCount();
+			int n = points.size();
+			if (c == count && n == size)
+				return;
+			// the buckets can be changed by another thread
+			int buckets = points.getBuckets();
+			int len = points.getSnapshotLength(buckets);
+			int k = 2 * next;
+			if (columns[k] == null || columns[k].length != len) {
+				columns[k] = new double[len];
+				columns[k + 1] = new double[len];
+			}
+			da.setColumns(points.snapshot(columns[k], columns[k + 1], buckets),
+					columns[k], columns[k + 1]);
+			next = 1 - next;
+			count = c;
+			size = n;
+		}
+	}
+
 	private class RefreshAction extends AbstractAction {
 		private static final long serialVersionUID = 1L;
 
@@ -27,8 +27,11 @@ package jhplot;
 import java.awt.*;
 import javax.swing.*;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.ArrayList;
 
 import jhplot.gui.HelpBrowser;
 
@@ -36,6 +39,7 @@ import info.monitorenter.gui.chart.*;
 import info.monitorenter.gui.chart.IAxis.AxisTitle;
 import info.monitorenter.gui.chart.views.*;
 import info.monitorenter.gui.chart.controls.LayoutFactory;
+import info.monitorenter.gui.chart.traces.Trace2DLtd;
 
 
 
@@ -58,6 +62,7 @@ public class HPlotRT {
 
         private ZoomableChart chart;
         private JFrame frame;
+        private ArrayList<Timer> timers = new ArrayList<Timer>();
 
 	/**
 	 * Create the real-tyme dynamic canvas.
@@ -98,6 +103,7 @@ public class HPlotRT {
     frame.addWindowListener(
         new WindowAdapter(){
           public void windowClosing(WindowEvent e){
+              stopTimers();
               frame.setVisible(false);
               frame.dispose();
               chart=null;
@@ -174,6 +180,66 @@ public class HPlotRT {
         }
 
 
+        /**
+         * Add a ring buffer of points, which keeps the last points of a
+         * stream. It is shown as a trace of fixed size, which is filled again
+         * from the buffer on the event thread when points were added. Another
+         * thread can add points to the buffer at any time. The number of
+         * buckets (see {@link P1DRing#setBuckets(int)}) is taken when the
+         * buffer is added; later changes do not affect the trace.
+         * @param points ring buffer
+         * @param period time between two updates of the trace in milliseconds
+         * @return the trace showing the points
+         */
+        public ITrace2D add(final P1DRing points, int period) {
+                final int buckets = points.getBuckets();
+                final int len = points.getSnapshotLength(buckets);
+                final ITrace2D trace = new Trace2DLtd(len, points.getTitle());
+                trace.setColor(points.getColor());
+                chart.addTrace(trace);
+
+                final double[] x = new double[len];
+                final double[] y = new double[len];
+                Timer timer = new Timer(period, new ActionListener() {
+                        private long count = -1;
+                        private int size = -1;
+
+                        public void actionPerformed(ActionEvent e) {
+                                long c = points.getCount();
+                                int s = points.size();
+                                if (c == count && s == size)
+                                        return;
+                                count = c;
+                                size = s;
+                                int n = points.snapshot(x, y, buckets);
+                                trace.removeAllPoints();
+                                for (int i = 0; i < n; i++)
+                                        trace.addPoint(x[i], y[i]);
+                        }
+                });
+                timers.add(timer);
+                timer.start();
+                return trace;
+        }
+
+
+        /**
+         * Add a ring buffer of points, which is shown 25 times per second.
+         * @param points ring buffer
+         * @return the trace showing the points
+         */
+        public ITrace2D add(P1DRing points) {
+                return add(points, 40);
+        }
+
+
+        private void stopTimers() {
+                for (Timer t : timers)
+                        t.stop();
+                timers.clear();
+        }
+
+
  
         /**
          * Returns the current chart.
@@ -205,6 +271,7 @@ public class HPlotRT {
          * Close the canvas (and dispose all components). 
          */
         public void close() {
+                stopTimers();
                 frame.setVisible(false);
                 frame.dispose();
                 chart=null;
@@ -27,15 +27,16 @@ import cern.jet.random.*;
 import cern.jet.stat.Descriptive;
 import cern.colt.list.DoubleArrayList;
 import cern.hep.aida.bin.DynamicBin1D;
+import jhplot.stat.Moments;
 import java.io.*;
 import java.net.URL;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
 import jhplot.gui.HelpBrowser;
+import jhplot.io.NumberReader;
 import jhplot.io.PReader;
 import jhplot.math.*;
 import jhplot.math.io.*;
@@ -66,7 +67,9 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 */
 	private static final long serialVersionUID = 1L;
 
-	private DynamicBin1D bin = null;
+	private Moments stat = null;
+
+	private double median;
 
 	private String title = "title undefined";
 
@@ -192,31 +195,11 @@ public class P0D extends DoubleArrayList implements Serializable {
 		clear();
 		try {
 
-			String line;
-			long mm = 0;
-			while ((line = br.readLine()) != null) {
-
-				line = line.trim();
-				if (!line.startsWith("#") && !line.startsWith("*")) {
-
-					// read double
-					double dd = 0;
-					try {
-						dd = Double.parseDouble(line);
-					} catch (NumberFormatException e) {
-						jhplot.utils.Util.ErrorMessage("Error in reading the line "
-								+ Long.toString(mm + 1));
-						return 3;
-					}
-					mm++;
-					add(dd);
-
-				} // skip #
-
-			}
+			int status = readRows(br);
 
 			// dispose all the resources after using them.
 			br.close();
+			return status;
 
 		} catch (FileNotFoundException e) {
 			jhplot.utils.Util.ErrorMessage(e.toString());
@@ -226,7 +209,72 @@ public class P0D extends DoubleArrayList implements Serializable {
 			return 2;
 		}
 
-		return 0;
+	}
+
+	/**
+	 * Read one dimensional data from a large uncompressed ASCII file using
+	 * several threads. The file is split at line boundaries and the parts are
+	 * converted in parallel. The result is the same as for read(String). Use
+	 * "#" or "*" for comments. Each number should be written on a separate
+	 * line.
+	 * 
+	 * @param sfile
+	 *            File name with input
+	 * @return error: 0 in case of success. 3: parse error. 1-2: file not found.
+	 */
+	public int readParallel(String sfile) {
+
+		clear();
+		Rows rows = new Rows();
+		try {
+			NumberReader.read(new File(sfile), rows, null);
+		} catch (NumberFormatException e) {
+			jhplot.utils.Util.ErrorMessage(e.getMessage());
+			return 3;
+		} catch (FileNotFoundException e) {
+			jhplot.utils.Util.ErrorMessage(e.toString());
+			return 1;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 2;
+		}
+		return rows.status;
+	}
+
+	/**
+	 * Add the numbers of a text to this container.
+	 * 
+	 * @return 0 in case of success, 3: parse error
+	 */
+	private int readRows(Reader in) throws IOException {
+
+		Rows rows = new Rows();
+		try {
+			NumberReader.read(in, rows);
+		} catch (NumberFormatException e) {
+			jhplot.utils.Util.ErrorMessage(e.getMessage());
+			return 3;
+		}
+		return rows.status;
+	}
+
+	/**
+	 * Adds rows with one number each.
+	 */
+	private class Rows implements NumberReader.Handler {
+
+		int status = 0;
+
+		public boolean row(long line, double[] values, int n) {
+			if (n != 1) {
+				jhplot.utils.Util.ErrorMessage("Error in reading the line "
+						+ Long.toString(line));
+				status = 3;
+				return false;
+			}
+			add(values[0]);
+			return true;
+		}
 	}
 
 	/**
@@ -361,25 +409,10 @@ public class P0D extends DoubleArrayList implements Serializable {
 						// System.out.println("Length is " + size);
 						BufferedReader br = new BufferedReader(
 								new InputStreamReader(zf.getInputStream(ze)));
-						String line;
-						while ((line = br.readLine()) != null) {
-
-							line = line.trim();
-							if (!line.startsWith("#") && !line.startsWith("*")) {
-								double dd = 0;
-								long mm = 0;
-								try {
-									dd = Double.parseDouble(line);
-								} catch (NumberFormatException e) {
-									jhplot.utils.Util.ErrorMessage("Error in reading the line "
-											+ Long.toString(mm + 1));
-									return 3;
-								}
-								mm++;
-								add(new Double(dd));
-
-							} // skip #
-
+						int status = readRows(br);
+						if (status != 0) {
+							br.close();
+							return status;
 						}
 						br.close();
 					}
@@ -1029,7 +1062,7 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 * @return the minimum value.
 	 */
 	public double getMin() {
-                if (this.size()>0) Descriptive.min(this);
+                if (this.size()>0) return Descriptive.min(this);
 		return 0;
 
 	}
@@ -1202,11 +1235,11 @@ public class P0D extends DoubleArrayList implements Serializable {
 
 	public double kurtosis() {
 
-		if (bin == null) {
+		if (stat == null) {
 			System.out.println("Run first getStat() to evaluate sampling!");
 			return -9999.0;
 		}
-		return bin.kurtosis();
+		return stat.getKurtosis();
 
 	}
 
@@ -1217,11 +1250,11 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 */
 
 	public double median() {
-		if (bin == null) {
+		if (stat == null) {
 			System.out.println("Run first getStat() to evaluate sampling!");
 			return -9999.0;
 		}
-		return bin.median();
+		return median;
 
 	}
 
@@ -1234,9 +1267,8 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 */
 
 	public String getStatString() {
-		bin = new DynamicBin1D();
-		cern.colt.list.DoubleArrayList a= new cern.colt.list.DoubleArrayList(elements() );
-		bin.addAllOf(a);
+		DynamicBin1D bin = new DynamicBin1D();
+		bin.addAllOfFromTo(this, 0, size() - 1);
 		return bin.toString();
 
 	}
@@ -1248,43 +1280,62 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 * The key for the output <b>map are: mean, error, rms, variance, stddev
 	 * </b>. Print the key to find out what is inside.
 	 * 
+	 * <p>
+	 * The moments are accumulated in one pass with {@link Moments}, large
+	 * containers are processed in parallel. The median is exact and needs a
+	 * sorted copy of the data. Use {@link #getMoments()} to merge the
+	 * statistics of several containers.
+	 * 
 	 * @return map representing statistical characteristics of this data
 	 */
 
 	public Map<String, Double> getStat() {
-		bin = new DynamicBin1D();
-		cern.colt.list.DoubleArrayList a= new cern.colt.list.DoubleArrayList(elements() );
-		bin.addAllOf(a);
+		stat = Moments.compute(elements(), 0, size(), null, null);
+		double[] sorted = java.util.Arrays.copyOf(elements(), size());
+		java.util.Arrays.sort(sorted);
+		median = sorted.length == 0 ? Double.NaN : Descriptive
+				.median(new DoubleArrayList(sorted));
 		Map<String, Double> tmp = new HashMap<String, Double>();
 
-		double m = bin.mean();
+		double m = stat.getMean();
 		tmp.put("size", (double) size());
-		tmp.put("sum", bin.sum());
+		tmp.put("sum", stat.getSum());
 		tmp.put("mean", m);
-		tmp.put("kurtosis", bin.kurtosis());
-		tmp.put("median", bin.median());
-		tmp.put("rms", bin.rms());
-		tmp.put("skew", bin.skew());
-		tmp.put("standardDeviation", bin.standardDeviation());
-		tmp.put("mean_error", bin.standardError());
-		tmp.put("sumOfInversions", bin.sumOfInversions());
-		tmp.put("variance", bin.variance());
-		tmp.put("geometricMean", bin.geometricMean());
-		tmp.put("harmonicMean", bin.harmonicMean());
-		tmp.put("moment_1", bin.moment(0, 0));
-		tmp.put("moment_2", bin.moment(2, 0));
-		tmp.put("moment_3", bin.moment(3, 0));
-		tmp.put("moment_4", bin.moment(4, 0));
-		tmp.put("moment_5", bin.moment(5, 0));
-		tmp.put("moment_1_mean", bin.moment(0, m));
-		tmp.put("moment_2_mean", bin.moment(2, m));
-		tmp.put("moment_3_mean", bin.moment(3, m));
-		tmp.put("moment_4_mean", bin.moment(4, m));
-		tmp.put("moment_5_mean", bin.moment(5, m));
+		tmp.put("kurtosis", stat.getKurtosis());
+		tmp.put("median", median);
+		tmp.put("rms", stat.getRms());
+		tmp.put("skew", stat.getSkewness());
+		tmp.put("standardDeviation", stat.getStandardDeviation());
+		tmp.put("mean_error", stat.getStandardError());
+		tmp.put("sumOfInversions", stat.getSumOfInversions());
+		tmp.put("variance", stat.getVariance());
+		tmp.put("geometricMean", stat.getGeometricMean());
+		tmp.put("harmonicMean", stat.getHarmonicMean());
+		tmp.put("moment_1", stat.moment(0, 0));
+		tmp.put("moment_2", stat.moment(2, 0));
+		tmp.put("moment_3", stat.moment(3, 0));
+		tmp.put("moment_4", stat.moment(4, 0));
+		tmp.put("moment_5", stat.moment(5, 0));
+		tmp.put("moment_1_mean", stat.moment(0, m));
+		tmp.put("moment_2_mean", stat.moment(2, m));
+		tmp.put("moment_3_mean", stat.moment(3, m));
+		tmp.put("moment_4_mean", stat.moment(4, m));
+		tmp.put("moment_5_mean", stat.moment(5, m));
 
 		return tmp;
 	}
 
+	/**
+	 * Get one-pass statistics of this container. The result is not cached and
+	 * can be merged with the statistics of other containers, e.g. filled by
+	 * other threads or read from other files.
+	 * 
+	 * @return moments of the data
+	 */
+	public Moments getMoments() {
+		return Moments.compute(elements(), 0, size(), null, null);
+	}
+
 	/**
 	 * Returns the moment of k-th order with value c, which is Sum( (x[i]-c)k )
 	 * / size(). First run getStat() for evaluation
@@ -1298,11 +1349,13 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 */
 
 	public double moment(int k, double c) {
-		if (bin == null) {
+		if (stat == null) {
 			System.out.println("Run first getStat() to evaluate sampling!");
 			return -9999.0;
 		}
-		return bin.moment(k, c);
+		if (k <= Moments.ORDER)
+			return stat.moment(k, c);
+		return Descriptive.moment(this, k, c);
 
 	}
 
@@ -1313,11 +1366,11 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 * @return sample standard error
 	 */
 	public double standardError() {
-		if (bin == null) {
+		if (stat == null) {
 			System.out.println("Run first getStat() to evaluate sampling!");
 			return -9999.0;
 		}
-		return bin.standardError();
+		return stat.getStandardError();
 
 	}
 
@@ -1328,11 +1381,11 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 * @return skewness
 	 */
 	public double skew() {
-		if (bin == null) {
+		if (stat == null) {
 			System.out.println("Run first getStat() to evaluate sampling!");
 			return -9999.0;
 		}
-		return bin.skew();
+		return stat.getSkewness();
 
 	}
 
@@ -1343,12 +1396,12 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 */
 
 	public double variance() {
-		if (bin == null) {
+		if (stat == null) {
 			System.out.println("Run first getStat() to evaluate sampling!");
 			return -9999.0;
 		}
 
-		return bin.variance();
+		return stat.getVariance();
 
 	}
 
@@ -1359,12 +1412,12 @@ public class P0D extends DoubleArrayList implements Serializable {
 	 */
 
 	public double stddeviation() {
-		if (bin == null) {
+		if (stat == null) {
 			System.out.println("Run first getStat() to evaluate sampling!");
 			return -9999.0;
 		}
 
-		return bin.standardDeviation();
+		return stat.getStandardDeviation();
 
 	}
 
@@ -1463,27 +1516,27 @@ public class P0D extends DoubleArrayList implements Serializable {
 	}
 
 	
-	transient private Comparator cmp = new Comparator() {
-		public int compare(Object o1, Object o2) {
-			return ((Comparable) o1).compareTo(o2);
-		}
-	};
-
 	/**
 	 * Return indexes of sorted array in increasing order. The array itself will
-	 * not be changed, since it acts on a clone. Used quicksort stable
-	 * algorithm.
+	 * not be changed. Uses a stable radix sort on the primitive values.
 	 * 
 	 * @return indexes of sorted array.
 	 */
 	public int[] sortIndex() {
-		// make a clone and sort in increasing order
-		Double[] clone = new Double[size()];
-		for (int i = 0; i < size(); i++)
-			clone[i] = getQuick(i);
-		int[] indeces = SortUtils.identity(size());
-		SortUtils.sort(indeces, clone, cmp, true);
-		return indeces;
+		return IndexSort.sort(elements(), size(), false);
+
+	}
+
+	/**
+	 * Return indexes of sorted array. The array itself will not be changed.
+	 * The sort is stable, also in decreasing order.
+	 * 
+	 * @param descending
+	 *            sort in decreasing order if true
+	 * @return indexes of sorted array.
+	 */
+	public int[] sortIndex(boolean descending) {
+		return IndexSort.sort(elements(), size(), descending);
 
 	}
 
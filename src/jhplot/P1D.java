@@ -30,6 +30,9 @@ import jminhep.cluster.DataHolder;
 import jminhep.cluster.DataPoint;
 import jplot.*;
 import jhplot.gui.HelpBrowser;
+import jhplot.io.MappedColumns;
+import jhplot.io.MappedDoubleArrayList;
+import jhplot.io.NumberReader;
 import jhplot.io.PReader;
 import jhplot.math.*;
 import jhplot.utils.SHisto;
@@ -43,6 +46,7 @@ import hep.aida.ref.histogram.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import cern.colt.list.DoubleArrayList;
+import cern.colt.function.IntComparator;
 import cern.jet.stat.Descriptive;
 import org.apache.commons.math3.util.FastMath;
 
@@ -78,6 +82,7 @@ public class P1D extends DrawOptions implements Serializable {
 	private DoubleArrayList YE2upper;  // 2nd level on Y
 	private DoubleArrayList YE2down;
 	private int dimen; // dimension of this holder
+	private transient MappedColumns mapped; // file with the columns, or null
 
 
     /**
@@ -367,47 +372,53 @@ public class P1D extends DrawOptions implements Serializable {
 		
 
 		if (dimension==2){
+			dimen = 2;
 		    return;
 		}
 		if (dimension==3){
-			YE1upper= new DoubleArrayList();
+			dimen = 3;
+			YE1upper= newColumn(2);
 			return;
 		}
 		
 		if (dimension==4){
-			YE1upper= new DoubleArrayList();
-			YE1down= new DoubleArrayList();
+			dimen = 4;
+			YE1upper= newColumn(2);
+			YE1down= newColumn(3);
 			return;
 		}
 		
 		if (dimension==6){
-			YE1upper= new DoubleArrayList();
-			YE1down= new DoubleArrayList();
-			XE1left= new DoubleArrayList();
-			XE1right= new DoubleArrayList();
+			dimen = 6;
+			YE1upper= newColumn(2);
+			YE1down= newColumn(3);
+			XE1left= newColumn(4);
+			XE1right= newColumn(5);
 			return;
 		}
 		
 		if (dimension==8){
-			YE1upper= new DoubleArrayList();
-			YE1down= new DoubleArrayList();
-			XE1left= new DoubleArrayList();
-			XE1right= new DoubleArrayList();
-			YE2upper= new DoubleArrayList();
-			YE2down= new DoubleArrayList();
+			dimen = 8;
+			YE1upper= newColumn(2);
+			YE1down= newColumn(3);
+			XE1left= newColumn(4);
+			XE1right= newColumn(5);
+			YE2upper= newColumn(6);
+			YE2down= newColumn(7);
 			return;
 		}
 		
 
 		if (dimension==10){
-			YE1upper= new DoubleArrayList();
-			YE1down= new DoubleArrayList();
-			XE1left= new DoubleArrayList();
-			XE1right= new DoubleArrayList();
-			XE2left= new DoubleArrayList();
-			XE2right= new DoubleArrayList();
-			YE2upper= new DoubleArrayList();
-			YE2down= new DoubleArrayList();
+			dimen = 10;
+			YE1upper= newColumn(2);
+			YE1down= newColumn(3);
+			XE1left= newColumn(4);
+			XE1right= newColumn(5);
+			XE2left= newColumn(8);
+			XE2right= newColumn(9);
+			YE2upper= newColumn(6);
+			YE2down= newColumn(7);
 			return;
 		}
 		
@@ -3131,36 +3142,40 @@ public class P1D extends DrawOptions implements Serializable {
 	}
 
 	/**
-	 * Return a DataArray container from JPlot
+	 * Return a DataArray container from JPlot with a copy of the data. Later
+	 * changes of this P1D do not change the container.
 	 * 
 	 * @return Container of type DataArray
 	 */
 	public DataArray getDataArray() {
 
 		DataArray data = new DataArray();
-		data.allocate(X.size());
+		int n = X.size();
 		
 		if ( dimen == 2)
-		   for (int i = 0; i < X.size(); i++)
-               data.addPoint(X.getQuick(i), Y.getQuick(i), 0, 0, 0,0, 0, 0, 0, 0);
-		else if ( dimen == 3)
-			   for (int i = 0; i < X.size(); i++)
-	               data.addPoint(X.getQuick(i), Y.getQuick(i), 0, 0, YE1upper.getQuick(i),YE1upper.getQuick(i), 0, 0, 0, 0);
-		else if ( dimen == 4)
-			   for (int i = 0; i < X.size(); i++)
-	               data.addPoint(X.getQuick(i), Y.getQuick(i), 0, 0, YE1upper.getQuick(i),YE1down.getQuick(i), 0, 0, 0, 0);
+			data.setColumns(n, column(X, n), column(Y, n));
+		else if ( dimen == 3) {
+			double[] ye = column(YE1upper, n);
+			data.setColumns(n, column(X, n), column(Y, n), null, null, ye, ye);
+		} else if ( dimen == 4)
+			data.setColumns(n, column(X, n), column(Y, n), null, null, column(YE1upper, n), column(YE1down, n));
 		else if ( dimen == 6)
-			   for (int i = 0; i < X.size(); i++)
-	               data.addPoint(X.getQuick(i), Y.getQuick(i), XE1left.getQuick(i), XE1right.getQuick(i), YE1upper.getQuick(i),YE1down.getQuick(i), 0, 0, 0, 0);
+			data.setColumns(n, column(X, n), column(Y, n), column(XE1left, n), column(XE1right, n), column(YE1upper, n), column(YE1down, n));
 		else if ( dimen == 10)
-			   for (int i = 0; i < X.size(); i++)
-	               data.addPoint(X.getQuick(i), Y.getQuick(i), XE1left.getQuick(i), XE1right.getQuick(i), YE1upper.getQuick(i),YE1down.getQuick(i),
-	            		   XE2left.getQuick(i), XE2right.getQuick(i), YE2upper.getQuick(i),YE2down.getQuick(i));	
+			data.setColumns(n, column(X, n), column(Y, n), column(XE1left, n), column(XE1right, n), column(YE1upper, n), column(YE1down, n),
+					column(XE2left, n), column(XE2right, n), column(YE2upper, n), column(YE2down, n));
 		
 		return data;
 
 	}
 
+	// copy of the first n values of a column
+	private static double[] column(DoubleArrayList list, int n) {
+		if (list instanceof MappedDoubleArrayList)
+			return list.elements(); // already a copy
+		return Arrays.copyOf(list.elements(), n);
+	}
+
 	
 	
 	
@@ -3226,7 +3241,7 @@ public class P1D extends DrawOptions implements Serializable {
 	 */
 	public void add(double x, double y, double err) {
 
-		if (X.size()==0 && YE1upper==null)  {YE1upper=new DoubleArrayList(); dimen=3;}
+		if (X.size()==0 && YE1upper==null)  {YE1upper=newColumn(2); dimen=3;}
 		X.add(x);
 		Y.add(y);
 		YE1upper.add(err);
@@ -3293,7 +3308,7 @@ public class P1D extends DrawOptions implements Serializable {
 	 */
 	public void add(double x, double y, double upper, double lower) {
 		
-		if (X.size()==0)  {YE1upper=new DoubleArrayList(); YE1down=new DoubleArrayList(); dimen=4;}
+		if (X.size()==0)  {YE1upper=newColumn(2); YE1down=newColumn(3); dimen=4;}
 		X.add(x);
 		Y.add(y);
 		YE1upper.add(upper);
@@ -3326,10 +3341,10 @@ public class P1D extends DrawOptions implements Serializable {
 	public void add(double x, double y, double left, double right,
 			double upper, double lower) {
 
-		if (X.size()==0)  {YE1upper=new DoubleArrayList(); 
-		                   YE1down=new DoubleArrayList(); 
-		                   XE1left=new DoubleArrayList();
-		                   XE1right=new DoubleArrayList();
+		if (X.size()==0)  {YE1upper=newColumn(2); 
+		                   YE1down=newColumn(3); 
+		                   XE1left=newColumn(4);
+		                   XE1right=newColumn(5);
 		                   dimen=6;}
 		X.add(x);
 		Y.add(y);
@@ -3425,14 +3440,14 @@ public class P1D extends DrawOptions implements Serializable {
 		
 		
 	if (X.size()==0)  {
-	 YE1upper=new DoubleArrayList(); 
-         YE1down=new DoubleArrayList(); 
-         XE1left=new DoubleArrayList();
-         XE1right=new DoubleArrayList();
-         YE2upper=new DoubleArrayList(); 
-         YE2down=new DoubleArrayList(); 
-         XE2left=new DoubleArrayList();
-         XE2right=new DoubleArrayList();
+	 YE1upper=newColumn(2); 
+         YE1down=newColumn(3); 
+         XE1left=newColumn(4);
+         XE1right=newColumn(5);
+         YE2upper=newColumn(6); 
+         YE2down=newColumn(7); 
+         XE2left=newColumn(8);
+         XE2right=newColumn(9);
          dimen=10;}
 		
 		X.add(x);
@@ -4197,6 +4212,146 @@ public class P1D extends DrawOptions implements Serializable {
 
 	}
 
+	/**
+	 * Create an empty container whose columns are stored in a memory-mapped
+	 * file instead of the Java heap. The data are written to the file while
+	 * they are added, and only the columns needed for the dimension take space.
+	 * The file can be opened later with {@link #openMapped(String)}. Note
+	 * that getArrayX() and similar methods return copies of the data for such
+	 * containers.
+	 * 
+	 * @param path
+	 *            file name. An existing file is overwritten.
+	 * @param title
+	 *            title
+	 * @param dimension
+	 *            dimension (2, 3, 4, 6, 8 or 10)
+	 * @return new container backed by the file
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public static P1D createMapped(String path, String title, int dimension)
+			throws IOException {
+		MappedColumns mc = MappedColumns.create(path, 10);
+		mc.setTitle(title);
+		return fromMapped(mc, title, dimension);
+	}
+
+	/**
+	 * Open a container written by {@link #createMapped(String, String, int)}
+	 * or {@link #writeMapped(String)}. The file is mapped into memory, so the
+	 * data are available at once without reading or parsing. New points can
+	 * be added.
+	 * 
+	 * @param path
+	 *            file name
+	 * @return container backed by the file
+	 * @throws IOException
+	 *             if the file cannot be opened or has a wrong format
+	 */
+	public static P1D openMapped(String path) throws IOException {
+		MappedColumns mc = MappedColumns.open(path);
+		if (mc.getColumnCount() != 10) {
+			mc.close();
+			throw new IOException("Not a P1D file: " + path);
+		}
+		return fromMapped(mc, mc.getTitle(), mc.getDimension());
+	}
+
+	private static P1D fromMapped(MappedColumns mc, String title, int dimension) {
+		P1D p = new P1D(title);
+		p.mapped = mc;
+		p.X = mc.getColumn(0);
+		p.Y = mc.getColumn(1);
+		p.setDimension(dimension);
+		mc.setDimension(p.dimen);
+		return p;
+	}
+
+	/**
+	 * Write this container to a file which can be opened with
+	 * {@link #openMapped(String)}.
+	 * 
+	 * @param path
+	 *            file name. An existing file is overwritten.
+	 * @return 0 if no errors
+	 */
+	public int writeMapped(String path) {
+		try {
+			P1D p = createMapped(path, title, dimen);
+			DoubleArrayList[] from = columns();
+			DoubleArrayList[] to = p.columns();
+			for (int i = 0; i < from.length; i++) {
+				if (from[i] != null && to[i] != null)
+					to[i].addAllOf(from[i]);
+			}
+			p.closeMapped();
+		} catch (IOException e) {
+			ErrorMessage("Cannot write the file " + path + ": "
+					+ e.getMessage());
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Check if the data are stored in a memory-mapped file.
+	 * 
+	 * @return true if the container was created with createMapped() or
+	 *         openMapped()
+	 */
+	public boolean isMapped() {
+		return mapped != null;
+	}
+
+	/**
+	 * Store the title and dimension in the mapped file and write all changes
+	 * to the disk. Does nothing if the data are on the heap.
+	 */
+	public void flushMapped() {
+		if (mapped == null)
+			return;
+		mapped.setTitle(title);
+		mapped.setDimension(dimen);
+		mapped.force();
+	}
+
+	/**
+	 * Write all changes to the mapped file and close it. The data can still
+	 * be accessed, but no new points can be added once the allocated space
+	 * is used. Does nothing if the data are on the heap.
+	 */
+	public void closeMapped() {
+		if (mapped == null)
+			return;
+		flushMapped();
+		try {
+			mapped.close();
+		} catch (IOException e) {
+			ErrorMessage("Cannot close the file " + mapped.getFile() + ": "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Create a new column, in the mapped file if there is one. The index
+	 * defines the position of the column in the file: X, Y, YE1upper,
+	 * YE1down, XE1left, XE1right, YE2upper, YE2down, XE2left, XE2right.
+	 */
+	private DoubleArrayList newColumn(int index) {
+		if (mapped == null)
+			return new DoubleArrayList();
+		return mapped.getColumn(index);
+	}
+
+	/**
+	 * All columns in the order used by {@link #newColumn(int)}.
+	 */
+	private DoubleArrayList[] columns() {
+		return new DoubleArrayList[] { X, Y, YE1upper, YE1down, XE1left,
+				XE1right, YE2upper, YE2down, XE2left, XE2right };
+	}
+
 	/**
 	 * Read data using 10-column format. Each line corresponds to a new data
 	 * point.
@@ -4207,71 +4362,102 @@ public class P1D extends DrawOptions implements Serializable {
 	 */
 	public int read(BufferedReader br) {
 
-		String line;
 		clear();
 
-                int ncount=0;
-                boolean first=true;	
 		try {
-			while ((line = br.readLine()) != null) {
-
-				line = line.trim();
-				if (!line.startsWith("#") && !line.startsWith("*") && line.length()>1) {
-                                       
-                                        String[] currentLine = line.split("\\s+"); 
-                                        if (first) {
-                                                  setDimension(ncount); first=false; ncount = currentLine.length;};
- 
-					double[] snum = new double[ncount];
-
-					if (ncount != 2 && ncount != 4 && ncount != 6
-							&& ncount != 10) {
-						ErrorMessage("Error in reading the file:\n"
-								+ Integer.toString(ncount)
-								+ " entries per line is found!");
-					}
-
-					// split this line
-                                        for (int k=0; k<ncount; k++) {
-						// read double
-						double dd = 0;
-						try {
-							dd = Double.parseDouble(currentLine[k]);
-						} catch (NumberFormatException e) {
-							ErrorMessage("Error in reading the line "
-									+ Integer.toString(k + 1));
-							return 3;
-						}
-						snum[k] = dd;
-					} // end loop over each line
-
-					if (ncount == 2)
-						add(snum[0], snum[1]);
-					if (ncount == 3)
-					     add(snum[0], snum[1], snum[2], snum[2]);
-					if (ncount == 4)
-						 add(snum[0], snum[1], snum[2], snum[3]);
-					if (ncount == 6)
-						  add(snum[0], snum[1], snum[2], snum[3],
-								snum[4], snum[5]);
-					if (ncount == 10)
-						   add(snum[0], snum[1], snum[2], snum[3],
-								snum[4], snum[5], snum[6], snum[7], snum[8],
-								snum[9]);
+			return readRows(br);
+		} catch (IOException e) {
+			return -1;
+		}
 
-				} // skip #
+	}
 
-			}
+	/**
+	 * Read data from a large uncompressed file using several threads. The
+	 * file is split at line boundaries and the parts are converted in
+	 * parallel. The result is the same as for read(String). The file should
+	 * contain 2, or 4, or 6, or 10 columns. Comment lines starting with "#"
+	 * and "*" are ignored.
+	 * 
+	 * @param sfile
+	 *            File name with input
+	 * @return 0 if no errors
+	 */
+	public int readParallel(String sfile) {
 
+		clear();
+		Rows rows = new Rows();
+		try {
+			NumberReader.read(new File(sfile), rows, null);
+		} catch (NumberFormatException e) {
+			ErrorMessage(e.getMessage());
+			return 3;
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
+			ErrorMessage(e.toString());
 			return -1;
-			// e.printStackTrace();
 		}
+		return rows.status;
+	}
 
-        
-		return 0;
+	/**
+	 * Add the rows of a text to this container.
+	 * 
+	 * @return 0 if no errors, 3 for wrong input
+	 */
+	private int readRows(Reader in) throws IOException {
+
+		Rows rows = new Rows();
+		try {
+			NumberReader.read(in, rows);
+		} catch (NumberFormatException e) {
+			ErrorMessage(e.getMessage());
+			return 3;
+		}
+		return rows.status;
+	}
+
+	/**
+	 * Adds rows with 2, 3, 4, 6 or 10 columns. The number of columns is
+	 * taken from the first row.
+	 */
+	private class Rows implements NumberReader.Handler {
+
+		int status = 0;
+		int ncount = 0;
+
+		public boolean row(long line, double[] snum, int n) {
 
+			if (ncount == 0) {
+				ncount = n;
+				setDimension(ncount);
+				if (ncount != 2 && ncount != 3 && ncount != 4 && ncount != 6
+						&& ncount != 10) {
+					ErrorMessage("Error in reading the file:\n"
+							+ Integer.toString(ncount)
+							+ " entries per line is found!");
+				}
+			}
+
+			if (n < ncount) {
+				ErrorMessage("Error in reading the line "
+						+ Long.toString(line));
+				status = 3;
+				return false;
+			}
+
+			if (ncount == 2)
+				add(snum[0], snum[1]);
+			if (ncount == 3)
+				add(snum[0], snum[1], snum[2], snum[2]);
+			if (ncount == 4)
+				add(snum[0], snum[1], snum[2], snum[3]);
+			if (ncount == 6)
+				add(snum[0], snum[1], snum[2], snum[3], snum[4], snum[5]);
+			if (ncount == 10)
+				add(snum[0], snum[1], snum[2], snum[3], snum[4], snum[5],
+						snum[6], snum[7], snum[8], snum[9]);
+			return true;
+		}
 	}
 
 	/**
@@ -5469,204 +5655,98 @@ public class P1D extends DrawOptions implements Serializable {
 	}
 
 
-        /**
-         * Sorting the original array using either X or Y values. The sorting done in increasing order.
-         * We use exchange sort method. Currently supports dimensions 2 (X-Y), 3 (X-Y,errror on Y), 4 (X-Y, errors upper and lower on Y).
-         * @param axis
-         *            if axis=0, sorting applied for X, if axis=1, sorting is applied for Y.
-         */
-        public  void sort(int axis) {
-
-                if (axis != 0 && axis != 1) {
-                        ErrorMessage("Axis variable should be 0 or 1!");
-                }
+	/**
+	 * Sorting the original array using either X or Y values. The sorting is
+	 * done in increasing order. The sort is stable (points with equal values
+	 * keep their order) and takes O(n) time. All error columns are reordered
+	 * together with X and Y.
+	 * 
+	 * @param axis
+	 *            if axis=0, sorting applied for X, if axis=1, sorting is
+	 *            applied for Y.
+	 */
+	public void sort(int axis) {
+		sort(axis, false);
+	}
 
-                // use exchange sort
-                if (axis==0) {
-                
-                
-                if (dimen==2) {  
-                double tempX;
-                double tempY;
-                for (int i=0; i < size()-1; i++) {
-                  for (int j=i+1; j<size(); j++) {
-                              if (X.getQuick(i)>X.getQuick(j)) {
-                                    tempX= X.getQuick(i);         
-                                    tempY= Y.getQuick(i);         
-                                    X.setQuick(i,getQuickX(j));
-                                    Y.setQuick(i,getQuickY(j));
-                                    X.setQuick(j,tempX);
-                                    Y.setQuick(j,tempY);
-                                   }; 
-                        }
-                }
-                }
-                
-                
-                if (dimen==3) {  
-                double tempX;
-                double tempY;
-                double tempEY;
-                for (int i=0; i < size()-1; i++) {
-                  for (int j=i+1; j<size(); j++) {
-                              if (X.getQuick(i)>X.getQuick(j)) {
-                                    tempX= X.getQuick(i);         // swap
-                                    tempY= Y.getQuick(i);         // swap
-                                    tempEY= YE1upper.getQuick(i);
-                                    X.setQuick(i,getQuickX(j));
-                                    Y.setQuick(i,getQuickY(j));
-                                    YE1upper.setQuick(i,YE1upper.getQuick(j));
-                                    X.setQuick(j,tempX);
-                                    Y.setQuick(j,tempY);
-                                    YE1upper.setQuick(j,tempEY);
-                                   }; 
-                        }
-                }
-                }
-                
-                
-                if (dimen==4) {  
-                double tempX;
-                double tempY;
-                double tempEYu;
-                double tempEYd;
-                for (int i=0; i < size()-1; i++) {
-                  for (int j=i+1; j<size(); j++) {
-                              if (X.getQuick(i)>X.getQuick(j)) {
-                                    tempX= X.getQuick(i);         // swap
-                                    tempY= Y.getQuick(i);         // swap
-                                    tempEYu= YE1upper.getQuick(i);
-                                    tempEYd= YE1down.getQuick(i);
-                                    X.setQuick(i,getQuickX(j));
-                                    Y.setQuick(i,getQuickY(j));
-                                    YE1upper.setQuick(i, YE1upper.getQuick(j));
-                                    YE1down.setQuick(i,  YE1down.getQuick(j) );
-                                    X.setQuick(j,tempX);
-                                    Y.setQuick(j,tempY);
-                                    YE1upper.setQuick(j,tempEYu);
-                                    YE1down.setQuick(j,tempEYd);
-                                   }; 
-                        }
-                }
-                }
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                }
+	/**
+	 * Sorting the original array using either X or Y values. The sort is
+	 * stable, also in decreasing order. All error columns are reordered
+	 * together with X and Y.
+	 * 
+	 * @param axis
+	 *            if axis=0, sorting applied for X, if axis=1, sorting is
+	 *            applied for Y.
+	 * @param descending
+	 *            sort in decreasing order if true
+	 */
+	public void sort(int axis, boolean descending) {
 
+		if (axis != 0 && axis != 1) {
+			ErrorMessage("Axis variable should be 0 or 1!");
+			return;
+		}
 
-               if (axis==1) {
-                if (dimen==2) {
-                double tempX;
-                double tempY;
-                for (int i=0; i < size()-1; i++) {
-                  for (int j=i+1; j<size(); j++) {
-                              if (Y.getQuick(i)>Y.getQuick(j)) {
-                                    tempX= X.getQuick(i);         // swap
-                                    tempY= Y.getQuick(i);         // swap
-                                    X.setQuick(i,getQuickX(j));
-                                    Y.setQuick(i,getQuickY(j));
-                                    X.setQuick(j,tempX);
-                                    Y.setQuick(j,tempY);
-                                   };
-                        }
-                }
-                }
-                
-                
-                
-                
-                if (dimen==3) {  
-                double tempX;
-                double tempY;
-                double tempEY;
-                for (int i=0; i < size()-1; i++) {
-                  for (int j=i+1; j<size(); j++) {
-                              if (Y.getQuick(i)>Y.getQuick(j)) {
-                                    tempX= X.getQuick(i);         // swap
-                                    tempY= Y.getQuick(i);         // swap
-                                    tempEY= YE1upper.getQuick(i);
-                                    X.setQuick(i,getQuickX(j));
-                                    Y.setQuick(i,getQuickY(j));
-                                    YE1upper.setQuick(i,YE1upper.getQuick(j));
-                                    X.setQuick(j,tempX);
-                                    Y.setQuick(j,tempY);
-                                    YE1upper.setQuick(j,tempEY);
-                                   }; 
-                        }
-                }
-                }
-                
-                
-                if (dimen==4) {  
-                double tempX;
-                double tempY;
-                double tempEYu;
-                double tempEYd;
-                for (int i=0; i < size()-1; i++) {
-                  for (int j=i+1; j<size(); j++) {
-                              if (Y.getQuick(i)>Y.getQuick(j)) {
-                                    tempX= X.getQuick(i);         // swap
-                                    tempY= Y.getQuick(i);         // swap
-                                    tempEYu= YE1upper.getQuick(i);
-                                    tempEYd= YE1down.getQuick(i);
-                                    X.setQuick(i,getQuickX(j));
-                                    Y.setQuick(i,getQuickY(j));
-                                    YE1upper.setQuick(i, YE1upper.getQuick(j));
-                                    YE1down.setQuick(i,  YE1down.getQuick(j) );
-                                    X.setQuick(j,tempX);
-                                    Y.setQuick(j,tempY);
-                                    YE1upper.setQuick(j,tempEYu);
-                                    YE1down.setQuick(j,tempEYd);
-                                   }; 
-                        }
-                }
-                }
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                
-                }
+		DoubleArrayList key = (axis == 0) ? X : Y;
+		permute(IndexSort.sort(key.elements(), size(), descending));
+	}
 
+	/**
+	 * Sorting the original array using several keys. Points are ordered by
+	 * the first axis, points with equal values by the second axis. For
+	 * example, sortBy(new int[]{1,0}, new boolean[]{true,false}) sorts in
+	 * decreasing Y and, for the same Y, in increasing X. The sort is stable.
+	 * 
+	 * @param axes
+	 *            axes used as keys, most significant first (0 for X, 1 for Y)
+	 * @param descending
+	 *            sort order for each axis (null for increasing order)
+	 */
+	public void sortBy(int[] axes, boolean[] descending) {
 
+		double[][] keys = new double[axes.length][];
+		for (int i = 0; i < axes.length; i++) {
+			if (axes[i] != 0 && axes[i] != 1) {
+				ErrorMessage("Axis variable should be 0 or 1!");
+				return;
+			}
+			keys[i] = (axes[i] == 0) ? X.elements() : Y.elements();
+		}
+		permute(IndexSort.sort(keys, size(), descending));
+	}
 
-                return;
+	/**
+	 * Sorting the original array using a comparator. The comparator is
+	 * called with two point indices, so it can use any combination of values
+	 * and errors, e.g. getQuickX(i) and getQuickYupper(i). The sort is stable.
+	 * 
+	 * @param cmp
+	 *            comparator of point indices
+	 */
+	public void sortBy(IntComparator cmp) {
+		permute(IndexSort.sort(size(), cmp));
+	}
 
-        }
+	/**
+	 * Reorder all columns such that the point i becomes the point p[i].
+	 * 
+	 * @param p
+	 *            permutation of the point indices
+	 */
+	private void permute(int[] p) {
+		int n = size();
+		double[] buffer = null;
+		DoubleArrayList[] columns = columns();
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] != null && columns[i].size() == n) {
+				double[] data = columns[i].elements();
+				buffer = IndexSort.permute(data, p, n, buffer);
+				// elements() of a mapped column is a copy
+				if (columns[i] instanceof MappedDoubleArrayList)
+					columns[i].elements(data);
+			}
+		}
+	}
 
 
 
@@ -5890,6 +5970,8 @@ public class P1D extends DrawOptions implements Serializable {
 	 * It return mean, error on the mean, RMS, variance, standard deviation. <p>
 	 * The key for the output <b>map are: mean, error, rms, variance, stddev </b>.
 	 * 
+	 * All values are evaluated in one pass over the data with {@link jhplot.stat.Moments}.
+	 * 
 	 * @param axis axis=0 for X and axis=1 for Y
 	 * @return map representing statistics
 	 */
@@ -5898,24 +5980,17 @@ public class P1D extends DrawOptions implements Serializable {
 		
 		Map<String,Double> tmp= new  HashMap<String,Double>();
 		
-		if (axis==0){
-		tmp.put("mean", meanX());
-		tmp.put("mean_error", meanXerror());
-		tmp.put("rms", rmsX());
-		tmp.put("variance", varianceX());
-		tmp.put("standardDeviation", stddeviationX());
-		}
-		if (axis==1){
-			tmp.put("mean", meanY());
-			tmp.put("mean_error", meanYerror());
-			tmp.put("rms", rmsY());
-			tmp.put("variance", varianceY());
-			tmp.put("standardDeviation", stddeviationY());
+		if (axis==0 || axis==1){
+			DoubleArrayList col = (axis==0) ? X : Y;
+			jhplot.stat.Moments m = jhplot.stat.Moments.compute(col.elements(), 0, col.size(), null, null);
+			double sd = m.getStandardDeviation();
+			tmp.put("mean", m.getMean());
+			tmp.put("mean_error", sd/FastMath.sqrt(size()));
+			tmp.put("rms", m.getRms());
+			tmp.put("variance", m.getVariance());
+			tmp.put("standardDeviation", sd);
 			}
 		
-		
-		
-		
 		return tmp;
 	}
 	
@@ -0,0 +1,369 @@
+/**
+*    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+*    All rights reserved.
+*
+*    This program is free software; you can redistribute it and/or modify it under the terms
+*    of the GNU General Public License as published by the Free Software Foundation; either
+*    version 3 of the License, or any later version.
+*
+*    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+*    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*    See the GNU General Public License for more details.
+*
+*    You should have received a copy of the GNU General Public License along with this program;
+*    if not, see <http://www.gnu.org/licenses>.
+*
+*    Additional permission under GNU GPL version 3 section 7:
+*    If you have received this program as a library with written permission from the DataMelt team,
+*    you can link or combine this library with your non-GPL project to convey the resulting work.
+*    In this case, this library should be considered as released under the terms of
+*    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+*    provided you include this license notice and a URL through which recipients can access the
+*    Corresponding Source.
+**/
+package jhplot;
+
+import java.awt.Color;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import jplot.DataArray;
+import jplot.LinePars;
+
+/**
+ * A window of the last (X,Y) points of a stream, for real-time plots. The
+ * points are kept in a ring buffer of fixed capacity: when it is full, each
+ * new point replaces the oldest one, so the memory does not grow however long
+ * the stream is.
+ * <p>
+ * Points are added by one thread (the producer) without locking. Other
+ * threads, e.g. the event thread which draws the points, read consistent
+ * copies of the window with {@link #snapshot(double[], double[])} while the
+ * producer goes on. A copy can be reduced to the lowest and highest point of
+ * each of a number of buckets (e.g. one per pixel column of the plot), so that
+ * the drawing costs in proportion to the number of buckets.
+ * <p>
+ * The buffer is drawn with {@link HPlot#draw(P1DRing)}, where the window is
+ * read at each update of the canvas, or with {@link HPlotRT#add(P1DRing)}.
+ *
+ * <pre>
+ * P1DRing p = new P1DRing(&quot;sensor&quot;, 100000);
+ * p.setBuckets(1000);
+ * c.draw(p);
+ * // in the data thread
+ * p.add(t, v);
+ * // in a timer
+ * c.updateChanged();
+ * </pre>
+ *
+ * @author S.Chekanov
+ *
+ */
+public class P1DRing extends DrawOptions implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int capacity;
+	// one slot more than the capacity, which the producer fills while the
+	// others are read
+	private final int slots;
+	// x and y of the point i at 2*(i % slots) and 2*(i % slots)+1
+	private final AtomicLongArray values;
+	// number of points added so far, and at the last clear()
+	private final AtomicLong count = new AtomicLong();
+	private volatile long cleared;
+	// read by the threads which copy the points
+	private volatile int buckets;
+
+	/**
+	 * Construct an empty buffer.
+	 *
+	 * @param title
+	 *            title
+	 * @param capacity
+	 *            number of points kept
+	 */
+	public P1DRing(String title, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive: "
+					+ capacity);
+		this.capacity = capacity;
+		this.slots = capacity + 1;
+		this.values = new AtomicLongArray(2 * slots);
+		this.title = title;
+		lpp.setColor(Color.black);
+		lpp.setPenWidth(1.0f);
+		lpp.setType(LinePars.P1D);
+		lpp.setDrawLine(true);
+		lpp.setDrawSymbol(false);
+		lpp.errorsY(false);
+		lpp.setName(title);
+	}
+
+	/**
+	 * Construct an empty buffer without title.
+	 *
+	 * @param capacity
+	 *            number of points kept
+	 */
+	public P1DRing(int capacity) {
+		this("No title", capacity);
+	}
+
+	/**
+	 * Adds a point. The oldest point is removed if the buffer is full. This
+	 * method must be called by one thread only.
+	 *
+	 * @param x
+	 *            X-value
+	 * @param y
+	 *            Y-value
+	 */
+	public void add(double x, double y) {
+		long n = count.get();
+		int i = 2 * (int) (n % slots);
+		values.lazySet(i, Double.doubleToRawLongBits(x));
+		values.lazySet(i + 1, Double.doubleToRawLongBits(y));
+		count.lazySet(n + 1);
+	}
+
+	/**
+	 * Adds points. This method must be called by the thread which adds the
+	 * points.
+	 *
+	 * @param x
+	 *            X-values
+	 * @param y
+	 *            Y-values, as many as X-values
+	 */
+	public void add(double[] x, double[] y) {
+		if (x.length != y.length)
+			throw new IllegalArgumentException("Different numbers of X ("
+					+ x.length + ") and Y (" + y.length + ") values");
+		for (int k = 0; k < x.length; k++)
+			add(x[k], y[k]);
+	}
+
+	/**
+	 * Removes all points. This method must be called by the thread which adds
+	 * the points.
+	 */
+	public void clear() {
+		cleared = count.get();
+	}
+
+	/**
+	 * Returns the number of points which can be kept.
+	 *
+	 * @return capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of points in the buffer.
+	 *
+	 * @return number of points, at most the capacity
+	 */
+	public int size() {
+		long end = count.get();
+		return (int) Math.max(0, Math.min(end - cleared, capacity));
+	}
+
+	/**
+	 * Returns the number of points added since the buffer was created,
+	 * including the removed ones. This changes whenever a point is added.
+	 *
+	 * @return number of points added
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Sets the number of buckets of the copies made by
+	 * {@link #snapshot(double[], double[])}. Use about the width of the plot
+	 * in pixels for large buffers shown as lines.
+	 *
+	 * @param buckets
+	 *            number of buckets, or 0 to copy all points
+	 */
+	public void setBuckets(int buckets) {
+		if (buckets < 0)
+			throw new IllegalArgumentException("Negative number of buckets: "
+					+ buckets);
+		this.buckets = buckets;
+	}
+
+	/**
+	 * Returns the number of buckets of the copies.
+	 *
+	 * @return number of buckets, or 0 if all points are copied
+	 */
+	public int getBuckets() {
+		return buckets;
+	}
+
+	/**
+	 * Returns the length of the arrays needed by
+	 * {@link #snapshot(double[], double[])}. If another thread can change the
+	 * number of buckets, take it once with {@link #getBuckets()} and use
+	 * {@link #getSnapshotLength(int)} and
+	 * {@link #snapshot(double[], double[], int)} instead.
+	 *
+	 * @return capacity, or twice the number of buckets if this is less
+	 */
+	public int getSnapshotLength() {
+		return getSnapshotLength(buckets);
+	}
+
+	/**
+	 * Returns the length of the arrays needed by
+	 * {@link #snapshot(double[], double[], int)}.
+	 *
+	 * @param buckets
+	 *            number of buckets, or 0 to copy all points
+	 * @return capacity, or twice the number of buckets if this is less
+	 */
+	public int getSnapshotLength(int buckets) {
+		return buckets > 0 ? Math.min(capacity, 2 * buckets) : capacity;
+	}
+
+	/**
+	 * Copies the points in the buffer, from the oldest to the newest. With
+	 * buckets (see {@link #setBuckets(int)}), only the lowest and the highest
+	 * point of each bucket are copied.
+	 *
+	 * @param x
+	 *            array receiving the X-values, of at least
+	 *            {@link #getSnapshotLength()} values
+	 * @param y
+	 *            array receiving the Y-values
+	 * @return number of points copied
+	 */
+	public int snapshot(double[] x, double[] y) {
+		return snapshot(x, y, buckets);
+	}
+
+	/**
+	 * Copies the points in the buffer, from the oldest to the newest, reduced
+	 * to the lowest and the highest point of each bucket. A bucket is a run of
+	 * consecutive points, and the buffer is split into buckets of equal
+	 * length. This method can be called by any thread while points are added.
+	 *
+	 * @param x
+	 *            array receiving the X-values, of at least min(capacity, 2 *
+	 *            buckets) values
+	 * @param y
+	 *            array receiving the Y-values
+	 * @param buckets
+	 *            number of buckets, or 0 to copy all points
+	 * @return number of points copied
+	 */
+	public int snapshot(double[] x, double[] y, int buckets) {
+
+		long skip = 0;
+		while (true) {
+			long end = count.get();
+			long from = Math.max(cleared, end - capacity) + skip;
+			if (from > end)
+				from = end;
+			int n = read(from, end, x, y, buckets);
+			// a point can be replaced while it is read when the producer
+			// added as many points as there are slots after it
+			long now = count.get();
+			if (from > now - slots)
+				return n;
+			// leave room for the points added while reading
+			skip = Math.min(capacity, 2 * (now - end) + 1);
+		}
+	}
+
+	/**
+	 * Returns a copy of the points in the buffer.
+	 *
+	 * @return points, reduced to buckets if set
+	 */
+	public P1D getP1D() {
+		int b = buckets;
+		int len = getSnapshotLength(b);
+		double[] x = new double[len];
+		double[] y = new double[len];
+		int n = snapshot(x, y, b);
+		P1D p = new P1D(getTitle());
+		for (int i = 0; i < n; i++)
+			p.add(x[i], y[i]);
+		p.setDrawOption(copyLinePars(lpp));
+		return p;
+	}
+
+	/**
+	 * Return a DataArray container from JPlot with a copy of the points.
+	 *
+	 * @return Container of type DataArray
+	 */
+	public DataArray getDataArray() {
+		int b = buckets;
+		int len = getSnapshotLength(b);
+		double[] x = new double[len];
+		double[] y = new double[len];
+		DataArray data = new DataArray();
+		data.setColumns(snapshot(x, y, b), x, y);
+		return data;
+	}
+
+	// copies the points from..end-1, or the lowest and highest of each bucket
+	private int read(long from, long end, double[] x, double[] y, int buckets) {
+
+		long n = end - from;
+		if (buckets <= 0 || 2 * buckets >= n) {
+			for (int k = 0; k < n; k++) {
+				int i = 2 * (int) ((from + k) % slots);
+				x[k] = Double.longBitsToDouble(values.get(i));
+				y[k] = Double.longBitsToDouble(values.get(i + 1));
+			}
+			return (int) n;
+		}
+
+		int m = 0;
+		for (int b = 0; b < buckets; b++) {
+			long first = from + n * b / buckets;
+			long last = from + n * (b + 1) / buckets;
+			long low = -1, high = -1;
+			double xLow = 0, yLow = 0, xHigh = 0, yHigh = 0;
+			for (long j = first; j < last; j++) {
+				int i = 2 * (int) (j % slots);
+				double v = Double.longBitsToDouble(values.get(i + 1));
+				if (low < 0 || v < yLow) {
+					low = j;
+					yLow = v;
+					xLow = Double.longBitsToDouble(values.get(i));
+				}
+				if (high < 0 || v > yHigh) {
+					high = j;
+					yHigh = v;
+					xHigh = Double.longBitsToDouble(values.get(i));
+				}
+			}
+			if (low < 0)
+				continue;
+			// in the order of the stream
+			if (low <= high) {
+				x[m] = xLow;
+				y[m++] = yLow;
+				if (high != low) {
+					x[m] = xHigh;
+					y[m++] = yHigh;
+				}
+			} else {
+				x[m] = xHigh;
+				y[m++] = yHigh;
+				x[m] = xLow;
+				y[m++] = yLow;
+			}
+		}
+		return m;
+	}
+}
@@ -25,7 +25,6 @@ package jhplot;
 
 
 import java.text.DecimalFormat;
-import java.util.StringTokenizer;
 import java.awt.Color;
 import java.io.*;
 import java.net.URL;
@@ -35,6 +34,8 @@ import java.util.zip.ZipFile;
 import cern.colt.list.DoubleArrayList;
 import cern.jet.stat.Descriptive;
 import jhplot.gui.HelpBrowser;
+import jhplot.io.MappedColumns;
+import jhplot.io.NumberReader;
 import jhplot.io.PReader;
 import jplot.DataArray2D;
 
@@ -57,6 +58,7 @@ public class P2D extends Plottable implements Serializable {
 	private DoubleArrayList dataX;
 	private DoubleArrayList dataY;
 	private DoubleArrayList dataZ;
+	private transient MappedColumns mapped; // file with the columns, or null
 	private Color c;
 
 	private int s;
@@ -123,9 +125,113 @@ public class P2D extends Plottable implements Serializable {
 	}
 
 	
+	/**
+	 * Create an empty container whose X, Y and Z values are stored in a
+	 * memory-mapped file instead of the Java heap. The file can be opened
+	 * later with {@link #openMapped(String)}. Note that getArrayX() and
+	 * similar methods return copies of the data for such containers.
+	 * 
+	 * @param path
+	 *            file name. An existing file is overwritten.
+	 * @param title
+	 *            title
+	 * @return new container backed by the file
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public static P2D createMapped(String path, String title)
+			throws IOException {
+		MappedColumns mc = MappedColumns.create(path, 3);
+		mc.setTitle(title);
+		mc.setDimension(3);
+		return fromMapped(mc, title);
+	}
+
+	/**
+	 * Open a container written by {@link #createMapped(String, String)} or
+	 * {@link #writeMapped(String)}. The file is mapped into memory, so the
+	 * data are available at once without reading or parsing.
+	 * 
+	 * @param path
+	 *            file name
+	 * @return container backed by the file
+	 * @throws IOException
+	 *             if the file cannot be opened or has a wrong format
+	 */
+	public static P2D openMapped(String path) throws IOException {
+		MappedColumns mc = MappedColumns.open(path);
+		if (mc.getColumnCount() != 3) {
+			mc.close();
+			throw new IOException("Not a P2D file: " + path);
+		}
+		return fromMapped(mc, mc.getTitle());
+	}
+
+	private static P2D fromMapped(MappedColumns mc, String title) {
+		P2D p = new P2D(title);
+		p.mapped = mc;
+		p.setDoubleArrayLists(mc.getColumn(0), mc.getColumn(1),
+				mc.getColumn(2));
+		return p;
+	}
+
+	/**
+	 * Write this container to a file which can be opened with
+	 * {@link #openMapped(String)}.
+	 * 
+	 * @param path
+	 *            file name. An existing file is overwritten.
+	 * @return 0 if no errors
+	 */
+	public int writeMapped(String path) {
+		try {
+			MappedColumns mc = MappedColumns.create(path, 3);
+			mc.setTitle(title);
+			mc.setDimension(3);
+			mc.getColumn(0).addAllOf(dataX);
+			mc.getColumn(1).addAllOf(dataY);
+			mc.getColumn(2).addAllOf(dataZ);
+			mc.close();
+		} catch (IOException e) {
+			ErrorMessage("Cannot write the file " + path + ": "
+					+ e.getMessage());
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Check if the data are stored in a memory-mapped file.
+	 * 
+	 * @return true if the container was created with createMapped() or
+	 *         openMapped()
+	 */
+	public boolean isMapped() {
+		return mapped != null;
+	}
+
+	/**
+	 * Write all changes to the mapped file and close it. The data can still
+	 * be accessed, but no new points can be added once the allocated space
+	 * is used. Does nothing if the data are on the heap.
+	 */
+	public void closeMapped() {
+		if (mapped == null)
+			return;
+		mapped.setTitle(title);
+		try {
+			mapped.close();
+		} catch (IOException e) {
+			ErrorMessage("Cannot close the file " + mapped.getFile() + ": "
+					+ e.getMessage());
+		}
+	}
+
 	/**
 	 * Read P2D from a file. The old content will be lost. The file should
 	 * contain 3 columns: x,y,z. Comment lines starting with "#" and "*" are ignored.
+	 * A memory-mapped container (see {@link #isMapped()}) stays mapped: the
+	 * values are written to its file, which must not be closed yet.
 	 * 
 	 * @param br
 	 *            Input buffered reader
@@ -139,60 +245,12 @@ public class P2D extends Plottable implements Serializable {
 
 		try {
 
-			String line;
-			// dis.available() returns 0 if the file does not have more lines.
-			while ((line = br.readLine()) != null) {
-
-				line = line.trim();
-				if (!line.startsWith("#") && !line.startsWith("*")) {
-
-					StringTokenizer st = new StringTokenizer(line);
-					int ncount = st.countTokens(); // number of words
-				
-
-					double[] snum = new double[ncount];
-
-					if (ncount != 3) {
-						ErrorMessage("Error in reading the file:\n"
-								+ Integer.toString(ncount)
-								+ " entries per line is found!");
-						return 3;
-					}
-
-					// split this line
-					int mm = 0;
-					while (st.hasMoreTokens()) { // make sure there is stuff
-						// to get
-						String tmp = st.nextToken();
-
-						// read double
-						double dd = 0;
-						try {
-							dd = Double.parseDouble(tmp.trim());
-						} catch (NumberFormatException e) {
-							ErrorMessage("Error in reading the line "
-									+ Integer.toString(mm + 1));
-							return 3;
-						}
-						snum[mm] = dd;
-						mm++;
-
-					} // end loop over each line
-
-					
-				    dataX.add(snum[0]);
-				    dataY.add(snum[1]);
-				    dataZ.add(snum[2]);
-					
-
-				} // skip #
-
-				// this statement reads the line from the file and print it to
-				// System.out.println(line);
-			}
+			int status = readRows(br);
 
 			// dispose all the resources after using them.
 			br.close();
+			if (status != 0)
+				return status;
 
 		} catch (FileNotFoundException e) {
 			ErrorMessage("File not found!");
@@ -207,6 +265,74 @@ public class P2D extends Plottable implements Serializable {
 
 	}
 
+	/**
+	 * Read P2D from a large uncompressed file using several threads. The file
+	 * is split at line boundaries and the parts are converted in parallel.
+	 * The result is the same as for read(String). The file should contain 3
+	 * columns: x,y,z. Comment lines starting with "#" and "*" are ignored.
+	 * 
+	 * @param sfile
+	 *            input file
+	 * @return zero if success
+	 */
+	public int readParallel(String sfile) {
+
+		clear();
+		Rows rows = new Rows();
+		try {
+			NumberReader.read(new File(sfile), rows, null);
+		} catch (NumberFormatException e) {
+			ErrorMessage(e.getMessage());
+			return 3;
+		} catch (FileNotFoundException e) {
+			ErrorMessage("File not found:" + sfile);
+			return 2;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 1;
+		}
+		return rows.status;
+	}
+
+	/**
+	 * Add the rows of a text to this container.
+	 * 
+	 * @return zero if success, 3 for wrong input
+	 */
+	private int readRows(Reader in) throws IOException {
+
+		Rows rows = new Rows();
+		try {
+			NumberReader.read(in, rows);
+		} catch (NumberFormatException e) {
+			ErrorMessage(e.getMessage());
+			return 3;
+		}
+		return rows.status;
+	}
+
+	/**
+	 * Adds rows with x,y,z.
+	 */
+	private class Rows implements NumberReader.Handler {
+
+		int status = 0;
+
+		public boolean row(long line, double[] values, int n) {
+			if (n != 3) {
+				ErrorMessage("Error in reading the file:\n"
+						+ Integer.toString(n)
+						+ " entries per line is found!");
+				status = 3;
+				return false;
+			}
+			dataX.add(values[0]);
+			dataY.add(values[1]);
+			dataZ.add(values[2]);
+			return true;
+		}
+	}
+
 	/**
 	 * Read P2D from a file. 
 	 * 
@@ -249,7 +375,8 @@ public class P2D extends Plottable implements Serializable {
 	 * It can read URL if the string starts from http or ftp, otherwise a file on the file system is assumed.
 	 * <p>
 	 * The old content will be lost. Use a space to separate values in columns and tab to put new row.
-	 * Comment lines starting with "#" and "*" are ignored.
+	 * Comment lines starting with "#" and "*" are ignored. A memory-mapped
+	 * container keeps its storage, as for read(BufferedReader).
 	 * 
 	 * @param sfile
 	 *            File name with input
@@ -322,58 +449,10 @@ public class P2D extends Plottable implements Serializable {
 						// System.out.println("Length is " + size);
 						BufferedReader br = new BufferedReader(
 								new InputStreamReader(zf.getInputStream(ze)));
-						String line;
-						while ((line = br.readLine()) != null) {
-
-							line = line.trim();
-
-							if (!line.startsWith("#") && !line.startsWith("*")) {
-
-								StringTokenizer st = new StringTokenizer(line);
-								int ncount = st.countTokens(); // number of
-																// words
-								
-
-								// String[] sword = new String[ncount];
-								double[] snum = new double[ncount];
-
-								if (ncount != 3 ) {
-									ErrorMessage("Error in reading the file:\n"
-											+ Integer.toString(ncount)
-											+ " entries per line is found!");
-									return 3;
-								}
-
-								// split this line
-								int mm = 0;
-								while (st.hasMoreTokens()) { // make sure there
-																// is stuff
-									// to get
-									String tmp = st.nextToken();
-
-									// read double
-									double dd = 0;
-									try {
-										dd = Double.parseDouble(tmp.trim());
-									} catch (NumberFormatException e) {
-										ErrorMessage("Error in reading the line "
-												+ Integer.toString(mm + 1));
-										return 3;
-									}
-									snum[mm] = dd;
-									mm++;
-
-								} // end loop over each line
-
-								
-								dataX.add(snum[0] );
-								dataY.add(snum[1] );
-								dataZ.add(snum[2] );
-								
-								
-
-							} // skip #
-
+						int status = readRows(br);
+						if (status != 0) {
+							br.close();
+							return status;
 						}
 						br.close();
 					}
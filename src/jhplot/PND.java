@@ -30,13 +30,13 @@ import hep.aida.ITree;
 import java.io.*;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.StringTokenizer;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import jhplot.stat.Statistics;
 import jhplot.gui.HelpBrowser;
+import jhplot.io.NumberReader;
 import jhplot.io.PReader;
 import jhplot.math.DoubleArray;
 
@@ -579,45 +579,12 @@ public class PND implements Serializable {
 
 		try {
 
-			String line;
-			// dis.available() returns 0 if the file does not have more lines.
-			while ((line = br.readLine()) != null) {
-
-				line = line.trim();
-				if (!line.startsWith("#") && !line.startsWith("*")) {
-
-					StringTokenizer st = new StringTokenizer(line);
-					dimension = st.countTokens(); // number of words
-					double[] snum = new double[dimension];
-
-					int mm = 0;
-					while (st.hasMoreTokens()) { // make sure there is stuff
-						// to get
-						String tmp = st.nextToken();
-
-						// read double
-						double dd = 0;
-						try {
-							dd = Double.parseDouble(tmp.trim());
-						} catch (NumberFormatException e) {
-							ErrorMessage("Error in reading the line "
-									+ Integer.toString(mm + 1));
-						}
-						snum[mm] = dd;
-						mm++;
-
-					} // end loop over each line
-
-					data.add(snum);
-
-				} // skip #
-
-				// this statement reads the line from the file and print it to
-				// System.out.println(line);
-			}
+			int status = readRows(br);
 
 			// dispose all the resources after using them.
 			br.close();
+			if (status != 0)
+				return status;
 
 		} catch (FileNotFoundException e) {
 			ErrorMessage("File not found!");
@@ -631,6 +598,65 @@ public class PND implements Serializable {
 		return 0;
 	}
 
+	/**
+	 * Read PND from a large uncompressed file using several threads. The file
+	 * is split at line boundaries and the parts are converted in parallel.
+	 * The result is the same as for read(String). Use a space to separate
+	 * values in columns and new line to put new row. Comment lines starting
+	 * with "#" and "*" are ignored.
+	 * 
+	 * @param sfile
+	 *            input file
+	 * @return zero if success
+	 */
+	public int readParallel(String sfile) {
+
+		data.clear();
+		try {
+			NumberReader.read(new File(sfile), new Rows(), null);
+		} catch (NumberFormatException e) {
+			ErrorMessage(e.getMessage());
+			return 3;
+		} catch (FileNotFoundException e) {
+			ErrorMessage("File not found!");
+			return 2;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Add the rows of a text to this container.
+	 * 
+	 * @return zero if success, 3 for wrong input
+	 */
+	private int readRows(Reader in) throws IOException {
+
+		try {
+			NumberReader.read(in, new Rows());
+		} catch (NumberFormatException e) {
+			ErrorMessage(e.getMessage());
+			return 3;
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds each row as a new array.
+	 */
+	private class Rows implements NumberReader.Handler {
+
+		public boolean row(long line, double[] values, int n) {
+			double[] snum = new double[n];
+			System.arraycopy(values, 0, snum, 0, n);
+			dimension = n;
+			data.add(snum);
+			return true;
+		}
+	}
+
 	/**
 	 * Read PND from a file.
 	 * 
@@ -756,38 +782,10 @@ public class PND implements Serializable {
 						// System.out.println("Length is " + size);
 						BufferedReader br = new BufferedReader(
 								new InputStreamReader(zf.getInputStream(ze)));
-						String line;
-						while ((line = br.readLine()) != null) {
-
-							line = line.trim();
-							if (!line.startsWith("#") && !line.startsWith("*")) {
-
-								StringTokenizer st = new StringTokenizer(line);
-								dimension = st.countTokens(); // number of words
-								double[] snum = new double[dimension];
-
-								int mm = 0;
-								while (st.hasMoreTokens()) { // make sure there
-									// is stuff
-									// to get
-									String tmp = st.nextToken();
-
-									// read double
-									double dd = 0;
-									try {
-										dd = Double.parseDouble(tmp.trim());
-									} catch (NumberFormatException e) {
-										ErrorMessage("Error in reading the line "
-												+ Integer.toString(mm + 1));
-									}
-									snum[mm] = dd;
-									mm++;
-
-								} // end loop over each line
-
-								data.add(snum);
-
-							} // skip #
+						int status = readRows(br);
+						if (status != 0) {
+							br.close();
+							return status;
 						}
 						br.close();
 					}
@@ -1149,23 +1147,16 @@ public class PND implements Serializable {
 	public PND standardize() {
 
 		int dim = getDimension();
-		double values[][] = new double[dim][size()];
-
-		for (int n = 0; n < dim; n++) {
-			double a[] = new double[size()];
-			for (int j = 0; j < size(); j++)
-				a[j] = get(j, n);
-			double mean = Statistics.mean(a);
-			double std = Statistics.stddeviation(a);
-			for (int j = 0; j < size(); j++)
-				values[n][j] = (a[j] - mean) / std;
-
-		}
+		if (data.size() == 0)
+			return this;
+		double rows[][] = data.toArray(new double[data.size()][]);
+		double mean[] = Statistics.mean(rows);
+		double std[] = Statistics.stddeviation(rows);
 
-		for (int j = 0; j < size(); j++) {
+		for (int j = 0; j < rows.length; j++) {
 			double t[] = new double[dim];
 			for (int n = 0; n < dim; n++)
-				t[n] = values[n][j];
+				t[n] = (rows[j][n] - mean[n]) / std[n];
 			data.set(j, t);
 		}
 
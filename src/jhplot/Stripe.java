@@ -0,0 +1,105 @@
+/**
+*    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+*    All rights reserved.
+*
+*    This program is free software; you can redistribute it and/or modify it under the terms
+*    of the GNU General Public License as published by the Free Software Foundation; either
+*    version 3 of the License, or any later version.
+*
+*    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+*    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*    See the GNU General Public License for more details.
+*
+*    You should have received a copy of the GNU General Public License along with this program;
+*    if not, see <http://www.gnu.org/licenses>.
+*
+*    Additional permission under GNU GPL version 3 section 7:
+*    If you have received this program as a library with written permission from the DataMelt team,
+*    you can link or combine this library with your non-GPL project to convey the resulting work.
+*    In this case, this library should be considered as released under the terms of
+*    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+*    provided you include this license notice and a URL through which recipients can access the
+*    Corresponding Source.
+**/
+package jhplot;
+
+/**
+ * The sums filled by one thread, handed over to a merging thread without
+ * locks. The owner brackets each fill with {@link #begin()} and
+ * {@link #end()}, which only write a counter; {@link #swap()} replaces the
+ * sums by a spare and waits for a fill in progress to end, so that only the
+ * merging thread pays for the synchronization. The counter is odd while the
+ * owner fills, as in a sequence lock.
+ * <p>
+ * The owner is the thread which creates the stripe. Only the owner may call
+ * begin() and end(), and swap() must be called by one thread at a time. The
+ * sums returned by swap() must be emptied before the next swap(), which gives
+ * them back to the owner. Once the owner has ended (see
+ * {@link #isOwnerAlive()}), the stripe is not filled any more, and the sums of
+ * one last swap() are final.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+final class Stripe<T> {
+
+	private final Thread owner = Thread.currentThread();
+	private volatile T current;
+	private T spare;
+	private volatile int seq;
+
+	Stripe(T current, T spare) {
+
+		this.current = current;
+		this.spare = spare;
+	}
+
+	/**
+	 * Whether the owner can still fill the sums.
+	 * 
+	 * @return false if the thread which created the stripe has ended
+	 */
+	boolean isOwnerAlive() {
+
+		return owner.isAlive();
+	}
+
+	/**
+	 * Start filling. Called by the owner only.
+	 * 
+	 * @return sums to fill until {@link #end()}
+	 */
+	T begin() {
+
+		// the volatile write is seen before the read of the sums
+		seq++;
+		return current;
+	}
+
+	/**
+	 * End filling. Called by the owner only.
+	 */
+	void end() {
+
+		seq++;
+	}
+
+	/**
+	 * Take the sums filled so far and give the spare ones to the owner.
+	 * 
+	 * @return sums which are no longer filled
+	 */
+	T swap() {
+
+		T old = current;
+		current = spare;
+		// the owner either fills the new sums or is still filling the old
+		int s = seq;
+		if ((s & 1) != 0) {
+			while (seq == s)
+				Thread.yield();
+		}
+		spare = old;
+		return old;
+	}
+}
@@ -135,12 +135,14 @@ public class GHPanel implements ComponentListener, Serializable {
 		this.Height = Height;
 
 		// what if the screen size is smaller?
-		Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-		int Sheight = screenSize.height;
-		int Swidth = screenSize.width;
-		if (Swidth < this.Width || Sheight < this.Height) {
-			this.Width = (int) (0.5 * Swidth);
-			this.Height = (int) (0.5 * Sheight);
+		if (!GraphicsEnvironment.isHeadless()) {
+			Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+			int Sheight = screenSize.height;
+			int Swidth = screenSize.width;
+			if (Swidth < this.Width || Sheight < this.Height) {
+				this.Width = (int) (0.5 * Swidth);
+				this.Height = (int) (0.5 * Sheight);
+			}
 		}
 
 		CanvasPanel.addComponentListener(this);
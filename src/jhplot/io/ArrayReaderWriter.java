@@ -1,10 +1,16 @@
 package jhplot.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Class for reading binary data from files to multidimensional arrays
  * and writing binary data to files from multidimensional arrays.
+ * The files are read and written through NIO channels in large blocks;
+ * one dimensional arrays can also be mapped into memory without copying.
  *
  * Copyright (C) 2005  Vincent Cheung (vincent@psi.toronto.edu, http://www.psi.toronto.edu/~vincent/)
  * 
@@ -23,6 +29,9 @@ import java.io.*;
  */
 public class ArrayReaderWriter {
 
+	/** size of the buffers used to read and write the files */
+	private static final int BUFFER = 1 << 20;
+
 	/**
 	 * Writes an array to a file.
 	 *
@@ -46,49 +55,19 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			// get the 64-bit long representation of the double
-			value = Double.doubleToLongBits(array[i]);
-			
-			// write the 64-bit long to the stream
-			for(int n = 0; n < 8; n++) {
-				file.write((byte)(value & 0xff));
-			
-				value >>= 8;
-			} // end for
-		} // end for
+		try {
+			// write the array to the file
+			file.put(array, size[0]);
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -114,51 +93,21 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				// get the 64-bit long representation of the double
-				value = Double.doubleToLongBits(array[i][j]);
-				
-				// write the 64-bit long to the stream
-				for(int n = 0; n < 8; n++) {
-					file.write((byte)(value & 0xff));
-				
-					value >>= 8;
-				} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				file.put(array[i], size[1]);
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -184,53 +133,23 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					// get the 64-bit long representation of the double
-					value = Double.doubleToLongBits(array[i][j][k]);
-					
-					// write the 64-bit long to the stream
-					for(int n = 0; n < 8; n++) {
-						file.write((byte)(value & 0xff));
-					
-						value >>= 8;
-					} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					file.put(array[i][j], size[2]);
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -256,55 +175,25 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						// get the 64-bit long representation of the double
-						value = Double.doubleToLongBits(array[t][i][j][k]);
-					
-						// write the 64-bit long to the stream
-						for(int n = 0; n < 8; n++) {
-							file.write((byte)(value & 0xff));
-					
-							value >>= 8;
-						} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						file.put(array[i][j][k], size[3]);
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -330,57 +219,27 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length, array[0][0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							// get the 64-bit long representation of the double
-							value = Double.doubleToLongBits(array[t][i][j][k][m]);
-						
-							// write the 64-bit long to the stream
-							for(int n = 0; n < 8; n++) {
-								file.write((byte)(value & 0xff));
-						
-								value >>= 8;
-							} // end for
+		try {
+			// write the array to the file
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							file.put(array[t][i][j][k], size[4]);
 						} // end for
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -401,48 +260,22 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static double[] read1DArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		double[] array = null;
-		int[] size = new int[1];
 		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 1);
+		int[] size = file.size;
 
-		// read the array
-		array = new double[size[0]];
-		
-		for(int i = 0; i < array.length; i++) {
-			value = 0;
-				
-			for(int n = 0; n < 8; n++)
-				value |= (long)(file.read() & 0xff) << (8 * n);
+		try {
+			// read the array
+			double[] array = new double[size[0]];
 			
-			array[i] = Double.longBitsToDouble(value);
-
-		} // end for
+			file.get(array, size[0]);
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read1DArray method
 
 	/**
@@ -463,50 +296,24 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static double[][] read2DArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		double[][] array = null;
-		int[] size = new int[2];
 		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new double[size[0]][size[1]];
-		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				value = 0;
-				
-				for(int n = 0; n < 8; n++)
-					value |= (long)(file.read() & 0xff) << (8 * n);
-				
-				array[i][j] = Double.longBitsToDouble(value);
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 2);
+		int[] size = file.size;
 
+		try {
+			// read the array
+			double[][] array = new double[size[0]][size[1]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				file.get(array[i], size[1]);
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read2DArray method
 
 	/**
@@ -527,52 +334,26 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static double[][][] read3DArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		double[][][] array = null;
-		int[] size = new int[3];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new double[size[0]][size[1]][size[2]];
-		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					value = 0;
-					
-					for(int n = 0; n < 8; n++)
-						value |= (long)(file.read() & 0xff) << (8 * n);
-					
-					array[i][j][k] = Double.longBitsToDouble(value);
-				
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 3);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			double[][][] array = new double[size[0]][size[1]][size[2]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					file.get(array[i][j], size[2]);
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read3DArray method
 
 	/**
@@ -593,53 +374,28 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static double[][][][] read4DArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		double[][][][] array = null;
-		int[] size = new int[4];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new double[size[0]][size[1]][size[2]][size[3]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						value = 0;
-						
-						for(int n = 0; n < 8; n++)
-							value |= (long)(file.read() & 0xff) << (8 * n);
-						
-						array[t][i][j][k] = Double.longBitsToDouble(value);
-					} // end for	
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 4);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			double[][][][] array = new double[size[0]][size[1]][size[2]][size[3]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						file.get(array[i][j][k], size[3]);
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read4DArray method
 
 	/**
@@ -660,55 +416,30 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static double[][][][][] read5DArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		double[][][][][] array = null;
-		int[] size = new int[5];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new double[size[0]][size[1]][size[2]][size[3]][size[4]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							value = 0;
-						
-							for(int n = 0; n < 8; n++)
-								value |= (long)(file.read() & 0xff) << (8 * n);
-							
-							array[t][i][j][k][m] = Double.longBitsToDouble(value);
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 5);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			double[][][][][] array = new double[size[0]][size[1]][size[2]][size[3]][size[4]];
+			
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							file.get(array[t][i][j][k], size[4]);
 						} // end for
-					} // end for	
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read5DArray method
 
 	
@@ -739,49 +470,20 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			// get the 64-bit long representation of the double
-			value = Double.doubleToLongBits((float)array[i]);
-			
-			// write the 64-bit long to the stream
-			for(int n = 0; n < 8; n++) {
-				file.write((byte)(value & 0xff));
-			
-				value >>= 8;
-			} // end for
-		} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++)
+				file.put(array[i]);
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -807,51 +509,22 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				// get the 64-bit long representation of the double
-				value = Double.doubleToLongBits((float)array[i][j]);
-				
-				// write the 64-bit long to the stream
-				for(int n = 0; n < 8; n++) {
-					file.write((byte)(value & 0xff));
-				
-					value >>= 8;
-				} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++)
+					file.put(array[i][j]);
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -877,53 +550,24 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					// get the 64-bit long representation of the double
-					value = Double.doubleToLongBits((float)array[i][j][k]);
-					
-					// write the 64-bit long to the stream
-					for(int n = 0; n < 8; n++) {
-						file.write((byte)(value & 0xff));
-					
-						value >>= 8;
-					} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++)
+						file.put(array[i][j][k]);
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -949,55 +593,26 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						// get the 64-bit long representation of the double
-						value = Double.doubleToLongBits((float)array[t][i][j][k]);
-					
-						// write the 64-bit long to the stream
-						for(int n = 0; n < 8; n++) {
-							file.write((byte)(value & 0xff));
-					
-							value >>= 8;
-						} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						for(int m = 0; m < size[3]; m++)
+							file.put(array[i][j][k][m]);
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -1023,57 +638,28 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length, array[0][0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							// get the 64-bit long representation of the double
-							value = Double.doubleToLongBits((float)array[t][i][j][k][m]);
-						
-							// write the 64-bit long to the stream
-							for(int n = 0; n < 8; n++) {
-								file.write((byte)(value & 0xff));
-						
-								value >>= 8;
-							} // end for
+		try {
+			// write the array to the file
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							for(int m = 0; m < size[4]; m++)
+								file.put(array[t][i][j][k][m]);
 						} // end for
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -1094,48 +680,23 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static float[] read1DFloatArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		float[] array = null;
-		int[] size = new int[1];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
 		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 1);
+		int[] size = file.size;
 
-		// read the array
-		array = new float[size[0]];
-		
-		for(int i = 0; i < array.length; i++) {
-			value = 0;
-				
-			for(int n = 0; n < 8; n++)
-				value |= (long)(file.read() & 0xff) << (8 * n);
+		try {
+			// read the array
+			float[] array = new float[size[0]];
 			
-			array[i] = (float)Double.longBitsToDouble(value);
-
-		} // end for
+			for(int i = 0; i < size[0]; i++)
+				array[i] = (float)file.get();
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read1DFloatArray method
 
 	/**
@@ -1156,50 +717,25 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static float[][] read2DFloatArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		float[][] array = null;
-		int[] size = new int[2];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new float[size[0]][size[1]];
 		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				value = 0;
-				
-				for(int n = 0; n < 8; n++)
-					value |= (long)(file.read() & 0xff) << (8 * n);
-				
-				array[i][j] = (float)Double.longBitsToDouble(value);
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 2);
+		int[] size = file.size;
 
+		try {
+			// read the array
+			float[][] array = new float[size[0]][size[1]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++)
+					array[i][j] = (float)file.get();
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read2DFloatArray method
 
 	/**
@@ -1220,52 +756,27 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static float[][][] read3DFloatArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		float[][][] array = null;
-		int[] size = new int[3];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new float[size[0]][size[1]][size[2]];
-		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					value = 0;
-					
-					for(int n = 0; n < 8; n++)
-						value |= (long)(file.read() & 0xff) << (8 * n);
-					
-					array[i][j][k] = (float)Double.longBitsToDouble(value);
-				
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 3);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			float[][][] array = new float[size[0]][size[1]][size[2]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++)
+						array[i][j][k] = (float)file.get();
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read3DFloatArray method
 
 	/**
@@ -1286,53 +797,29 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static float[][][][] read4DFloatArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		float[][][][] array = null;
-		int[] size = new int[4];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new float[size[0]][size[1]][size[2]][size[3]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						value = 0;
-						
-						for(int n = 0; n < 8; n++)
-							value |= (long)(file.read() & 0xff) << (8 * n);
-						
-						array[t][i][j][k] = (float)Double.longBitsToDouble(value);
-					} // end for	
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 4);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			float[][][][] array = new float[size[0]][size[1]][size[2]][size[3]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						for(int m = 0; m < size[3]; m++)
+							array[i][j][k][m] = (float)file.get();
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read4DFloatArray method
 
 	/**
@@ -1353,55 +840,31 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static float[][][][][] read5DFloatArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		float[][][][][] array = null;
-		int[] size = new int[5];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new float[size[0]][size[1]][size[2]][size[3]][size[4]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							value = 0;
-						
-							for(int n = 0; n < 8; n++)
-								value |= (long)(file.read() & 0xff) << (8 * n);
-							
-							array[t][i][j][k][m] = (float)Double.longBitsToDouble(value);
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 5);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			float[][][][][] array = new float[size[0]][size[1]][size[2]][size[3]][size[4]];
+			
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							for(int m = 0; m < size[4]; m++)
+								array[t][i][j][k][m] = (float)file.get();
 						} // end for
-					} // end for	
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read5DFloatArray method
 
 
@@ -1434,50 +897,21 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++)
+				file.put(array[i]);
+
+			file.flush();
+		} finally {
+			file.close();
 		}
-
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			// get the 64-bit long representation of the double
-			value = Double.doubleToLongBits(array[i]);
-			
-			// write the 64-bit long to the stream
-			for(int n = 0; n < 8; n++) {
-				file.write((byte)(value & 0xff));
-			
-				value >>= 8;
-			} // end for
-		} // end for
-
-		file.close();
-	} // end write method
+	} // end write method
 
 	/**
 	 * Writes a rectangular jagged array to a file.
@@ -1504,51 +938,22 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				// get the 64-bit long representation of the double
-				value = Double.doubleToLongBits(array[i][j]);
-				
-				// write the 64-bit long to the stream
-				for(int n = 0; n < 8; n++) {
-					file.write((byte)(value & 0xff));
-				
-					value >>= 8;
-				} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++)
+					file.put(array[i][j]);
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -1576,53 +981,24 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					// get the 64-bit long representation of the double
-					value = Double.doubleToLongBits(array[i][j][k]);
-					
-					// write the 64-bit long to the stream
-					for(int n = 0; n < 8; n++) {
-						file.write((byte)(value & 0xff));
-					
-						value >>= 8;
-					} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++)
+						file.put(array[i][j][k]);
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -1650,55 +1026,26 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						// get the 64-bit long representation of the double
-						value = Double.doubleToLongBits(array[t][i][j][k]);
-					
-						// write the 64-bit long to the stream
-						for(int n = 0; n < 8; n++) {
-							file.write((byte)(value & 0xff));
-					
-							value >>= 8;
-						} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						for(int m = 0; m < size[3]; m++)
+							file.put(array[i][j][k][m]);
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -1726,57 +1073,28 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length, array[0][0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							// get the 64-bit long representation of the double
-							value = Double.doubleToLongBits(array[t][i][j][k][m]);
-						
-							// write the 64-bit long to the stream
-							for(int n = 0; n < 8; n++) {
-								file.write((byte)(value & 0xff));
-						
-								value >>= 8;
-							} // end for
+		try {
+			// write the array to the file
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							for(int m = 0; m < size[4]; m++)
+								file.put(array[t][i][j][k][m]);
 						} // end for
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 
@@ -1800,48 +1118,23 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static int[] read1DIntArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		int[] array = null;
-		int[] size = new int[1];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
 		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 1);
+		int[] size = file.size;
 
-
-		// read the array
-		array = new int[size[0]];
-		
-		for(int i = 0; i < array.length; i++) {
-			value = 0;
-				
-			for(int n = 0; n < 8; n++)
-				value |= (long)(file.read() & 0xff) << (8 * n);
+		try {
+			// read the array
+			int[] array = new int[size[0]];
 			
-			array[i] = (int)Double.longBitsToDouble(value);
-
-		} // end for
+			for(int i = 0; i < size[0]; i++)
+				array[i] = (int)file.get();
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read1DIntArray method
 
 	/**
@@ -1864,50 +1157,25 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static int[][] read2DIntArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		int[][] array = null;
-		int[] size = new int[2];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
 		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new int[size[0]][size[1]];
-		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				value = 0;
-				
-				for(int n = 0; n < 8; n++)
-					value |= (long)(file.read() & 0xff) << (8 * n);
-				
-				array[i][j] = (int)Double.longBitsToDouble(value);
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 2);
+		int[] size = file.size;
 
+		try {
+			// read the array
+			int[][] array = new int[size[0]][size[1]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++)
+					array[i][j] = (int)file.get();
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read2DIntArray method
 
 	/**
@@ -1930,52 +1198,27 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static int[][][] read3DIntArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		int[][][] array = null;
-		int[] size = new int[3];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new int[size[0]][size[1]][size[2]];
-		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					value = 0;
-					
-					for(int n = 0; n < 8; n++)
-						value |= (long)(file.read() & 0xff) << (8 * n);
-					
-					array[i][j][k] = (int)Double.longBitsToDouble(value);
-				
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 3);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			int[][][] array = new int[size[0]][size[1]][size[2]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++)
+						array[i][j][k] = (int)file.get();
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read3DIntArray method
 
 	/**
@@ -1998,53 +1241,29 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static int[][][][] read4DIntArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		int[][][][] array = null;
-		int[] size = new int[4];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new int[size[0]][size[1]][size[2]][size[3]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						value = 0;
-						
-						for(int n = 0; n < 8; n++)
-							value |= (long)(file.read() & 0xff) << (8 * n);
-						
-						array[t][i][j][k] = (int)Double.longBitsToDouble(value);
-					} // end for	
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 4);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			int[][][][] array = new int[size[0]][size[1]][size[2]][size[3]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						for(int m = 0; m < size[3]; m++)
+							array[i][j][k][m] = (int)file.get();
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read4DIntArray method
 	
 	/**
@@ -2067,55 +1286,31 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static int[][][][][] read5DIntArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		int[][][][][] array = null;
-		int[] size = new int[5];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new int[size[0]][size[1]][size[2]][size[3]][size[4]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							value = 0;
-							
-							for(int n = 0; n < 8; n++)
-								value |= (long)(file.read() & 0xff) << (8 * n);
-							
-							array[t][i][j][k][m] = (int)Double.longBitsToDouble(value);
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 5);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			int[][][][][] array = new int[size[0]][size[1]][size[2]][size[3]][size[4]];
+			
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							for(int m = 0; m < size[4]; m++)
+								array[t][i][j][k][m] = (int)file.get();
 						} // end for
-					} // end for	
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read5DIntArray method
 	
 	
@@ -2148,49 +1343,20 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
-
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			// get the 64-bit long representation of the double
-			value = Double.doubleToLongBits(array[i] ? 1 : 0);
-			
-			// write the 64-bit long to the stream
-			for(int n = 0; n < 8; n++) {
-				file.write((byte)(value & 0xff));
-			
-				value >>= 8;
-			} // end for
-		} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++)
+				file.put(array[i] ? 1 : 0);
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -2218,51 +1384,22 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				// get the 64-bit long representation of the double
-				value = Double.doubleToLongBits(array[i][j] ? 1 : 0);
-				
-				// write the 64-bit long to the stream
-				for(int n = 0; n < 8; n++) {
-					file.write((byte)(value & 0xff));
-				
-					value >>= 8;
-				} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++)
+					file.put(array[i][j] ? 1 : 0);
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -2290,53 +1427,24 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					// get the 64-bit long representation of the double
-					value = Double.doubleToLongBits(array[i][j][k] ? 1 : 0);
-					
-					// write the 64-bit long to the stream
-					for(int n = 0; n < 8; n++) {
-						file.write((byte)(value & 0xff));
-					
-						value >>= 8;
-					} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++)
+						file.put(array[i][j][k] ? 1 : 0);
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 	
 	/**
@@ -2364,55 +1472,26 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						// get the 64-bit long representation of the double
-						value = Double.doubleToLongBits(array[t][i][j][k] ? 1 : 0);
-					
-						// write the 64-bit long to the stream
-						for(int n = 0; n < 8; n++) {
-							file.write((byte)(value & 0xff));
-					
-							value >>= 8;
-						} // end for
+		try {
+			// write the array to the file
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						for(int m = 0; m < size[3]; m++)
+							file.put(array[i][j][k][m] ? 1 : 0);
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 	/**
@@ -2440,57 +1519,28 @@ public class ArrayReaderWriter {
 		
 		// the size of the array
 		int[] size = {array.length, array[0].length, array[0][0].length, array[0][0][0].length, array[0][0][0][0].length};
-		
-		int temp;
-		long value;
 	
-		// create a stream to the file, overwriting any existing file and creating
-		// the necessary directories
-		BufferedOutputStream file = getStream(filename);
+		// open a channel to the file, overwriting any existing file and creating
+		// the necessary directories, and write the array dimensions to it
+		ChannelWriter file = new ChannelWriter(filename, size);
 
-		// write the number of array dimensions to the file
-		temp = size.length;
-		
-		for(int i = 0; i < 4; i++) {
-			file.write((byte)(temp & 0xff));
-			
-			temp >>= 8;
-		}
-		
-		// write the array dimensions to the file
-		for(int i = 0; i < size.length; i++) {
-			
-			temp = size[i];
-			
-			for(int j = 0; j < 4; j++) {
-				file.write((byte)(temp & 0xff));
-				
-				temp >>= 8;
-			}
-		}
-
-		// write the array to the file
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							// get the 64-bit long representation of the double
-							value = Double.doubleToLongBits(array[t][i][j][k][m] ? 1 : 0);
-						
-							// write the 64-bit long to the stream
-							for(int n = 0; n < 8; n++) {
-								file.write((byte)(value & 0xff));
-						
-								value >>= 8;
-							} // end for
+		try {
+			// write the array to the file
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							for(int m = 0; m < size[4]; m++)
+								file.put(array[t][i][j][k][m] ? 1 : 0);
 						} // end for
 					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
+			file.flush();
+		} finally {
+			file.close();
+		}
 	} // end write method
 
 
@@ -2512,48 +1562,23 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static boolean[] read1DBooleanArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		boolean[] array = null;
-		int[] size = new int[1];
 		
-		int temp;
-		long value;
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 1);
+		int[] size = file.size;
 
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new boolean[size[0]];
-		
-		for(int i = 0; i < array.length; i++) {
-			value = 0;
-				
-			for(int n = 0; n < 8; n++)
-				value |= (long)(file.read() & 0xff) << (8 * n);
+		try {
+			// read the array
+			boolean[] array = new boolean[size[0]];
 			
-			array[i] = (Double.longBitsToDouble(value) == 1);
-
-		} // end for
+			for(int i = 0; i < size[0]; i++)
+				array[i] = (file.get() == 1);
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read1DBooleanArray method
 
 	/**
@@ -2574,50 +1599,25 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static boolean[][] read2DBooleanArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		boolean[][] array = null;
-		int[] size = new int[2];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
 		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new boolean[size[0]][size[1]];
-		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				value = 0;
-				
-				for(int n = 0; n < 8; n++)
-					value |= (long)(file.read() & 0xff) << (8 * n);
-				
-				array[i][j] = (Double.longBitsToDouble(value) == 1);
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 2);
+		int[] size = file.size;
 
+		try {
+			// read the array
+			boolean[][] array = new boolean[size[0]][size[1]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++)
+					array[i][j] = (file.get() == 1);
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read2DBooleanArray method
 
 	/**
@@ -2638,52 +1638,27 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static boolean[][][] read3DBooleanArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		boolean[][][] array = null;
-		int[] size = new int[3];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new boolean[size[0]][size[1]][size[2]];
-		
-		for(int i = 0; i < array.length; i++) {
-			for(int j = 0; j < array[0].length; j++) {
-				for(int k = 0; k < array[0][0].length; k++) {
-					value = 0;
-					
-					for(int n = 0; n < 8; n++)
-						value |= (long)(file.read() & 0xff) << (8 * n);
-					
-					array[i][j][k] = (Double.longBitsToDouble(value) == 1);
-				
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 3);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			boolean[][][] array = new boolean[size[0]][size[1]][size[2]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++)
+						array[i][j][k] = (file.get() == 1);
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read3DBooleanArray method
 
 	/**
@@ -2706,53 +1681,29 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static boolean[][][][] read4DBooleanArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		boolean[][][][] array = null;
-		int[] size = new int[4];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new boolean[size[0]][size[1]][size[2]][size[3]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						value = 0;
-						
-						for(int n = 0; n < 8; n++)
-							value |= (long)(file.read() & 0xff) << (8 * n);
-						
-						array[t][i][j][k] = (Double.longBitsToDouble(value) == 1);
-					} // end for	
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 4);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			boolean[][][][] array = new boolean[size[0]][size[1]][size[2]][size[3]];
+			
+			for(int i = 0; i < size[0]; i++) {
+				for(int j = 0; j < size[1]; j++) {
+					for(int k = 0; k < size[2]; k++) {
+						for(int m = 0; m < size[3]; m++)
+							array[i][j][k][m] = (file.get() == 1);
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read4DBooleanArray method
 
 	/**
@@ -2775,55 +1726,31 @@ public class ArrayReaderWriter {
 	 * @throws IOException
 	 */
 	public static boolean[][][][][] read5DBooleanArray(String filename) throws IOException {
-	
-		BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename));
-
-		boolean[][][][][] array = null;
-		int[] size = new int[5];
-		
-		int temp;
-		long value;
-
-		// get the number of dimensions of the array in the file
-		temp = (file.read() & 0xff)
-					| ((file.read() & 0xff) << 8)
-					| ((file.read() & 0xff) << 16)
-					| ((file.read() & 0xff) << 24);
-		
-		if(temp != size.length)
-			throw new IOException("File doesn't contain a " + size.length + " dimensional array");
-		
-		// get the size of the array along each of the dimensions
-		for(int i = 0; i < size.length; i++)
-			size[i] = (file.read() & 0xff)
-					  | ((file.read() & 0xff) << 8)
-					  | ((file.read() & 0xff) << 16)
-					  | ((file.read() & 0xff) << 24);
-
-
-		// read the array
-		array = new boolean[size[0]][size[1]][size[2]][size[3]][size[4]];
-		
-		for(int t = 0; t < array.length; t++) {
-			for(int i = 0; i < array[0].length; i++) {
-				for(int j = 0; j < array[0][0].length; j++) {
-					for(int k = 0; k < array[0][0][0].length; k++) {
-						for(int m = 0; m < array[0][0][0][0].length; m++) {
-							value = 0;
-							
-							for(int n = 0; n < 8; n++)
-								value |= (long)(file.read() & 0xff) << (8 * n);
-							
-							array[t][i][j][k][m] = (Double.longBitsToDouble(value) == 1);
+		
+		// open a channel to the file and read the size of the array
+		// along each of the dimensions
+		ChannelReader file = new ChannelReader(filename, 5);
+		int[] size = file.size;
+
+		try {
+			// read the array
+			boolean[][][][][] array = new boolean[size[0]][size[1]][size[2]][size[3]][size[4]];
+			
+			for(int t = 0; t < size[0]; t++) {
+				for(int i = 0; i < size[1]; i++) {
+					for(int j = 0; j < size[2]; j++) {
+						for(int k = 0; k < size[3]; k++) {
+							for(int m = 0; m < size[4]; m++)
+								array[t][i][j][k][m] = (file.get() == 1);
 						} // end for
-					} // end for	
+					} // end for
 				} // end for
 			} // end for
-		} // end for
 
-		file.close();
-		
-		return(array);
+			return(array);
+		} finally {
+			file.close();
+		}
 	} // end read5DBooleanArray method
 	
 	
@@ -2850,6 +1777,234 @@ public class ArrayReaderWriter {
 	
 	}
 	
+	/**
+	 * Maps a one dimensional array in a file into memory.
+	 *
+	 * The file has the same format as for {@link #read1DArray(String)}, but the values
+	 * are not copied: the returned buffer is a read-only view of the mapped file, so
+	 * the operating system pages the values in as they are accessed. The mapping stays
+	 * valid after the method returns and is released when the buffer is garbage collected.
+	 *
+	 * A single mapping is limited to 2 GB, i.e. about 268 million values.
+	 *
+	 * @param filename the name of the file containing the array
+	 * @return a read-only view of the array values
+	 * @throws IOException
+	 */
+	public static DoubleBuffer map1DArray(String filename) throws IOException {
+	
+		FileChannel channel = new RandomAccessFile(filename, "r").getChannel();
+		
+		try {
+			// read the number of dimensions and the size of the array
+			ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			
+			while(header.hasRemaining())
+				if(channel.read(header) < 0)
+					throw new EOFException("Unexpected end of file " + filename);
+			
+			header.flip();
+			
+			if(header.getInt() != 1)
+				throw new IOException("File doesn't contain a 1 dimensional array");
+			
+			long length = 8L * header.getInt();
+			
+			if(length > Integer.MAX_VALUE)
+				throw new IOException("Array in " + filename + " is too large to be mapped");
+			
+			if(8 + length > channel.size())
+				throw new EOFException("Unexpected end of file " + filename);
+			
+			// map only the values
+			ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, 8, length);
+			
+			return(values.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+		} finally {
+			channel.close();
+		}
+	} // end map1DArray method
+	
+	/**
+	 * Create a channel to the file specified by filename.
+	 *
+	 * If the file already exists, it is overwritten.  The necessary directories
+	 * are created.
+	 *
+	 * @param filename the name of the file.
+	 * @return a channel to the file.
+	 */
+	private static FileChannel getChannel(String filename) throws IOException {
+		File file = new File(filename);
+			
+		// create the necessary directories
+		if (file.getParentFile() != null)
+			file.getParentFile().mkdirs();
+		
+		return (new FileOutputStream(file).getChannel());
+	}
+	
+	/**
+	 * Writes the header and the values of an array through a file channel. The values
+	 * are collected as little endian doubles in a direct buffer and written in bulk.
+	 */
+	private static final class ChannelWriter {
+		
+		private final FileChannel channel;
+		private final ByteBuffer bytes;
+		private final DoubleBuffer values;
+		
+		ChannelWriter(String filename, int[] size) throws IOException {
+			
+			ByteBuffer header = ByteBuffer.allocate(4 * (size.length + 1)).order(ByteOrder.LITTLE_ENDIAN);
+			long count = 1;
+			
+			header.putInt(size.length);
+			
+			for(int i = 0; i < size.length; i++) {
+				header.putInt(size[i]);
+				count *= size[i];
+			}
+			
+			header.flip();
+			
+			channel = getChannel(filename);
+			
+			try {
+				while(header.hasRemaining())
+					channel.write(header);
+			} catch(IOException e) {
+				channel.close();
+				throw e;
+			}
+			
+			bytes = ByteBuffer.allocateDirect((int)Math.min(BUFFER, Math.max(8, 8 * count)))
+				.order(ByteOrder.LITTLE_ENDIAN);
+			values = bytes.asDoubleBuffer();
+		}
+		
+		void put(double value) throws IOException {
+			if(!values.hasRemaining())
+				flush();
+			
+			values.put(value);
+		}
+		
+		void put(double[] row, int length) throws IOException {
+			for(int offset = 0; offset < length; ) {
+				if(!values.hasRemaining())
+					flush();
+				
+				int n = Math.min(length - offset, values.remaining());
+				values.put(row, offset, n);
+				offset += n;
+			}
+		}
+		
+		void flush() throws IOException {
+			bytes.clear();
+			bytes.limit(8 * values.position());
+			
+			while(bytes.hasRemaining())
+				channel.write(bytes);
+			
+			values.clear();
+		}
+		
+		void close() throws IOException {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Reads the header and the values of an array through a file channel. The file is
+	 * read in large blocks into a direct buffer and the values are taken from a little
+	 * endian double view of it.
+	 */
+	private static final class ChannelReader {
+		
+		private final FileChannel channel;
+		private final ByteBuffer bytes;
+		private DoubleBuffer values;
+		
+		/** the size of the array along each of the dimensions */
+		final int[] size;
+		
+		ChannelReader(String filename, int rank) throws IOException {
+			
+			channel = new FileInputStream(filename).getChannel();
+			
+			try {
+				bytes = ByteBuffer.allocateDirect((int)Math.min(BUFFER, Math.max(64, channel.size())))
+					.order(ByteOrder.LITTLE_ENDIAN);
+				bytes.limit(0);
+				
+				// get the number of dimensions of the array in the file
+				fill(4);
+				
+				if(bytes.getInt() != rank)
+					throw new IOException("File doesn't contain a " + rank + " dimensional array");
+				
+				// get the size of the array along each of the dimensions
+				size = new int[rank];
+				
+				for(int i = 0; i < rank; i++) {
+					fill(4);
+					size[i] = bytes.getInt();
+				}
+			} catch(IOException e) {
+				channel.close();
+				throw e;
+			}
+			
+			values = bytes.asDoubleBuffer();
+		}
+		
+		/** Makes sure that at least the given number of bytes is in the buffer. */
+		private void fill(int need) throws IOException {
+			if(bytes.remaining() >= need)
+				return;
+			
+			bytes.compact();
+			
+			while(bytes.hasRemaining() && channel.read(bytes) >= 0);
+			
+			bytes.flip();
+			
+			if(bytes.remaining() < need)
+				throw new EOFException("Unexpected end of file");
+		}
+		
+		private void refill() throws IOException {
+			// skip the values taken from the view, then read more
+			bytes.position(bytes.position() + 8 * values.position());
+			fill(8);
+			values = bytes.asDoubleBuffer();
+		}
+		
+		double get() throws IOException {
+			if(!values.hasRemaining())
+				refill();
+			
+			return(values.get());
+		}
+		
+		void get(double[] row, int length) throws IOException {
+			for(int offset = 0; offset < length; ) {
+				if(!values.hasRemaining())
+					refill();
+				
+				int n = Math.min(length - offset, values.remaining());
+				values.get(row, offset, n);
+				offset += n;
+			}
+		}
+		
+		void close() throws IOException {
+			channel.close();
+		}
+	}
+	
 	
 	
 	
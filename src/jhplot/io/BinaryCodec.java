@@ -0,0 +1,97 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A compact binary encoding of one type of objects. Codecs write only the
+ * numbers and the title of an object in a fixed layout, so they are much
+ * smaller and faster than the Java serialization, which writes the class
+ * descriptions and all fields of every object. Codecs are registered in
+ * {@link BinaryCodecs}, which adds a header with the id and the version of
+ * the codec, so objects can be decoded without knowing their type.
+ * <p>
+ * Codecs must be stateless: the same instance is used by all threads.
+ * 
+ * @param <T>
+ *            type of the encoded objects
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public interface BinaryCodec<T> {
+
+	/**
+	 * Get the encoded class. Only objects of exactly this class are encoded;
+	 * subclasses fall back to the Java serialization.
+	 * 
+	 * @return class of the objects
+	 */
+	Class<T> getType();
+
+	/**
+	 * Get the id of the codec, which is written in front of every object. Ids
+	 * below 256 are reserved for the codecs of jHPlot.
+	 * 
+	 * @return id of the codec
+	 */
+	int getId();
+
+	/**
+	 * Get the version of the layout written by {@link #write}.
+	 * 
+	 * @return version (0 - 65535)
+	 */
+	int getVersion();
+
+	/**
+	 * Write an object.
+	 * 
+	 * @param out
+	 *            output
+	 * @param ob
+	 *            object to write
+	 * @throws IOException
+	 *             in case of output errors
+	 */
+	void write(DataOutput out, T ob) throws IOException;
+
+	/**
+	 * Read an object.
+	 * 
+	 * @param in
+	 *            input
+	 * @param version
+	 *            version of the layout the object was written with
+	 * @return the object
+	 * @throws IOException
+	 *             in case of input errors or an unknown version
+	 */
+	T read(DataInput in, int version) throws IOException;
+}
@@ -0,0 +1,877 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.io;
+
+import hep.aida.IAxis;
+import hep.aida.ref.histogram.Histogram1D;
+import hep.aida.ref.histogram.Histogram2D;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jhplot.H1D;
+import jhplot.H2D;
+import jhplot.P0D;
+import jhplot.P1D;
+import jhplot.PND;
+import cern.colt.list.DoubleArrayList;
+
+/**
+ * Registry of {@link BinaryCodec}s and the binary format used for the
+ * objects which have a codec by HFile and HDataBase after setBinary(true),
+ * and by Serialized.writeBinary(). Codecs for P0D, P1D, PND, H1D and H2D are
+ * registered by default; other types are written with the Java serialization
+ * as before.
+ * <p>
+ * An encoded object starts with a magic number, the id and the version of
+ * its codec, followed by the data written by the codec. Arrays of doubles are
+ * converted in bulk. The codecs keep the title and all numbers: the columns of
+ * P0D, P1D and PND; the axis, the heights, errors, entries, means and RMS of
+ * all bins (including underflow and overflow), the mean, RMS and number of
+ * entries of H1D and H2D. Drawing attributes are not kept; use the Java
+ * serialization (the default of HFile and HDataBase) if they are needed.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class BinaryCodecs {
+
+	/**
+	 * First 4 bytes of an encoded object ("JHBC"). A Java serialization
+	 * stream starts with 0xACED, so both can be told apart.
+	 */
+	public static final int MAGIC = 0x4A484243;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int CHUNK = 4096; // values converted at once
+
+	private static final Map<Class<?>, BinaryCodec<?>> byType = new ConcurrentHashMap<Class<?>, BinaryCodec<?>>();
+	private static final Map<Integer, BinaryCodec<?>> byId = new ConcurrentHashMap<Integer, BinaryCodec<?>>();
+
+	static {
+		register(new P0DCodec());
+		register(new P1DCodec());
+		register(new PNDCodec());
+		register(new H1DCodec());
+		register(new H2DCodec());
+	}
+
+	private BinaryCodecs() {
+	}
+
+	/**
+	 * Register a codec. It replaces a codec registered before for the same
+	 * class or id.
+	 * 
+	 * @param codec
+	 *            codec
+	 */
+	public static synchronized void register(BinaryCodec<?> codec) {
+
+		if (codec.getVersion() < 0 || codec.getVersion() > 0xFFFF)
+			throw new IllegalArgumentException("Wrong codec version: "
+					+ codec.getVersion());
+		BinaryCodec<?> old = byId.put(codec.getId(), codec);
+		if (old != null && old.getType() != codec.getType())
+			byType.remove(old.getType());
+		old = byType.put(codec.getType(), codec);
+		if (old != null && old.getId() != codec.getId())
+			byId.remove(old.getId());
+	}
+
+	/**
+	 * Find the codec for an object.
+	 * 
+	 * @param ob
+	 *            object
+	 * @return codec for the class of the object or null
+	 */
+	public static BinaryCodec<?> find(Object ob) {
+
+		if (ob == null)
+			return null;
+		return byType.get(ob.getClass());
+	}
+
+	/**
+	 * Find a codec using its id.
+	 * 
+	 * @param id
+	 *            id of the codec
+	 * @return codec or null
+	 */
+	public static BinaryCodec<?> find(int id) {
+
+		return byId.get(id);
+	}
+
+	/**
+	 * Check if an object can be encoded.
+	 * 
+	 * @param ob
+	 *            object
+	 * @return true if there is a codec for its class
+	 */
+	public static boolean isSupported(Object ob) {
+
+		return find(ob) != null;
+	}
+
+	/**
+	 * Write an object with its header.
+	 * 
+	 * @param out
+	 *            output
+	 * @param ob
+	 *            object with a registered codec
+	 * @throws IOException
+	 *             in case of output errors
+	 */
+	@SuppressWarnings("unchecked")
+	public static void write(DataOutput out, Object ob) throws IOException {
+
+		BinaryCodec<Object> c = (BinaryCodec<Object>) find(ob);
+		if (c == null)
+			throw new IllegalArgumentException("No binary codec for "
+					+ (ob == null ? "null" : ob.getClass().getName()));
+		out.writeInt(MAGIC);
+		out.writeInt(c.getId());
+		out.writeShort(c.getVersion());
+		c.write(out, ob);
+	}
+
+	/**
+	 * Read an object written by {@link #write(DataOutput, Object)}.
+	 * 
+	 * @param in
+	 *            input
+	 * @return object
+	 * @throws IOException
+	 *             if the input is not an encoded object or its codec is not
+	 *             registered
+	 */
+	public static Object read(DataInput in) throws IOException {
+
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a binary encoded object");
+		int id = in.readInt();
+		int version = in.readUnsignedShort();
+		BinaryCodec<?> c = find(id);
+		if (c == null)
+			throw new IOException("No binary codec with id " + id);
+		return c.read(in, version);
+	}
+
+	/**
+	 * Encode an object.
+	 * 
+	 * @param ob
+	 *            object
+	 * @return encoded object, or null if there is no codec for it
+	 * @throws IOException
+	 *             in case of errors in the codec
+	 */
+	public static byte[] encode(Object ob) throws IOException {
+
+		if (!isSupported(ob))
+			return null;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		write(out, ob);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode an object.
+	 * 
+	 * @param b
+	 *            encoded object
+	 * @return object
+	 * @throws IOException
+	 *             if the bytes are not an encoded object
+	 */
+	public static Object decode(byte[] b) throws IOException {
+
+		return read(new DataInputStream(new ByteArrayInputStream(b)));
+	}
+
+	/**
+	 * Check if a stream starts with an encoded object. The stream must
+	 * support mark(), its position is not changed.
+	 * 
+	 * @param in
+	 *            input stream
+	 * @return true if the next bytes are the magic number
+	 * @throws IOException
+	 *             in case of input errors
+	 */
+	public static boolean isEncoded(InputStream in) throws IOException {
+
+		in.mark(4);
+		try {
+			int magic = 0;
+			for (int i = 0; i < 4; i++) {
+				int b = in.read();
+				if (b < 0)
+					return false;
+				magic = (magic << 8) | b;
+			}
+			return magic == MAGIC;
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Write a string, which can be null or longer than 64k.
+	 * 
+	 * @param out
+	 *            output
+	 * @param s
+	 *            string
+	 * @throws IOException
+	 *             in case of output errors
+	 */
+	public static void writeString(DataOutput out, String s) throws IOException {
+
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] b = s.getBytes(UTF8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Read a string written by {@link #writeString(DataOutput, String)}.
+	 * 
+	 * @param in
+	 *            input
+	 * @return string or null
+	 * @throws IOException
+	 *             in case of input errors
+	 */
+	public static String readString(DataInput in) throws IOException {
+
+		int n = in.readInt();
+		if (n < 0)
+			return null;
+		byte[] b = new byte[n];
+		in.readFully(b);
+		return new String(b, UTF8);
+	}
+
+	/**
+	 * Write an array of doubles, without its length.
+	 * 
+	 * @param out
+	 *            output
+	 * @param a
+	 *            values
+	 * @param off
+	 *            first value
+	 * @param len
+	 *            number of values
+	 * @throws IOException
+	 *             in case of output errors
+	 */
+	public static void writeDoubles(DataOutput out, double[] a, int off,
+			int len) throws IOException {
+
+		ByteBuffer b = ByteBuffer.allocate(8 * Math.min(len, CHUNK));
+		while (len > 0) {
+			int n = Math.min(len, CHUNK);
+			b.clear();
+			b.asDoubleBuffer().put(a, off, n);
+			out.write(b.array(), 0, 8 * n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Read an array of doubles written by
+	 * {@link #writeDoubles(DataOutput, double[], int, int)}.
+	 * 
+	 * @param in
+	 *            input
+	 * @param a
+	 *            array receiving the values
+	 * @param off
+	 *            first value
+	 * @param len
+	 *            number of values
+	 * @throws IOException
+	 *             in case of input errors
+	 */
+	public static void readDoubles(DataInput in, double[] a, int off, int len)
+			throws IOException {
+
+		ByteBuffer b = ByteBuffer.allocate(8 * Math.min(len, CHUNK));
+		while (len > 0) {
+			int n = Math.min(len, CHUNK);
+			in.readFully(b.array(), 0, 8 * n);
+			b.clear();
+			b.asDoubleBuffer().get(a, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Write an array of ints, without its length.
+	 * 
+	 * @param out
+	 *            output
+	 * @param a
+	 *            values
+	 * @param off
+	 *            first value
+	 * @param len
+	 *            number of values
+	 * @throws IOException
+	 *             in case of output errors
+	 */
+	public static void writeInts(DataOutput out, int[] a, int off, int len)
+			throws IOException {
+
+		ByteBuffer b = ByteBuffer.allocate(4 * Math.min(len, CHUNK));
+		while (len > 0) {
+			int n = Math.min(len, CHUNK);
+			b.clear();
+			b.asIntBuffer().put(a, off, n);
+			out.write(b.array(), 0, 4 * n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Read an array of ints written by
+	 * {@link #writeInts(DataOutput, int[], int, int)}.
+	 * 
+	 * @param in
+	 *            input
+	 * @param a
+	 *            array receiving the values
+	 * @param off
+	 *            first value
+	 * @param len
+	 *            number of values
+	 * @throws IOException
+	 *             in case of input errors
+	 */
+	public static void readInts(DataInput in, int[] a, int off, int len)
+			throws IOException {
+
+		ByteBuffer b = ByteBuffer.allocate(4 * Math.min(len, CHUNK));
+		while (len > 0) {
+			int n = Math.min(len, CHUNK);
+			in.readFully(b.array(), 0, 4 * n);
+			b.clear();
+			b.asIntBuffer().get(a, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Write a list of doubles with its size; null is written as size -1.
+	 */
+	private static void writeList(DataOutput out, DoubleArrayList l)
+			throws IOException {
+
+		if (l == null) {
+			out.writeInt(-1);
+			return;
+		}
+		int n = l.size();
+		out.writeInt(n);
+		writeDoubles(out, l.elements(), 0, n);
+	}
+
+	private static double[] readArray(DataInput in) throws IOException {
+
+		int n = in.readInt();
+		if (n < 0)
+			return null;
+		double[] a = new double[n];
+		readDoubles(in, a, 0, n);
+		return a;
+	}
+
+	private static void checkVersion(BinaryCodec<?> c, int version)
+			throws IOException {
+
+		if (version > c.getVersion())
+			throw new IOException("Unsupported version " + version + " of "
+					+ c.getType().getName());
+	}
+
+	/**
+	 * Write an axis: the number of bins, followed by the range for fixed bins
+	 * or by all edges for variable bins.
+	 */
+	private static void writeAxis(DataOutput out, IAxis a) throws IOException {
+
+		int bins = a.bins();
+		out.writeInt(bins);
+		out.writeBoolean(a.isFixedBinning());
+		if (a.isFixedBinning()) {
+			out.writeDouble(a.lowerEdge());
+			out.writeDouble(a.upperEdge());
+		} else {
+			double[] edges = new double[bins + 1];
+			for (int i = 0; i < bins; i++)
+				edges[i] = a.binLowerEdge(i);
+			edges[bins] = a.upperEdge();
+			writeDoubles(out, edges, 0, bins + 1);
+		}
+	}
+
+	/**
+	 * Read an axis written by writeAxis(): bins, min and max for fixed bins
+	 * (edges is null), the edges otherwise.
+	 */
+	private static Object[] readAxis(DataInput in) throws IOException {
+
+		int bins = in.readInt();
+		if (bins < 1)
+			throw new IOException("Wrong number of bins: " + bins);
+		if (in.readBoolean()) {
+			double min = in.readDouble();
+			double max = in.readDouble();
+			return new Object[] { bins, min, max, null };
+		}
+		double[] edges = new double[bins + 1];
+		readDoubles(in, edges, 0, bins + 1);
+		return new Object[] { bins, edges[0], edges[bins], edges };
+	}
+
+	/**
+	 * AIDA index of the element i of the arrays used by setContents(): 0 is
+	 * the underflow and bins+1 the overflow bin.
+	 */
+	private static int bin(int i, int bins) {
+
+		if (i == 0)
+			return IAxis.UNDERFLOW_BIN;
+		if (i == bins + 1)
+			return IAxis.OVERFLOW_BIN;
+		return i - 1;
+	}
+
+	/**
+	 * Title and values of P0D.
+	 */
+	private static class P0DCodec implements BinaryCodec<P0D> {
+
+		public Class<P0D> getType() {
+			return P0D.class;
+		}
+
+		public int getId() {
+			return 1;
+		}
+
+		public int getVersion() {
+			return 1;
+		}
+
+		public void write(DataOutput out, P0D p) throws IOException {
+			writeString(out, p.getTitle());
+			writeList(out, p);
+		}
+
+		public P0D read(DataInput in, int version) throws IOException {
+			checkVersion(this, version);
+			P0D p = new P0D(readString(in));
+			double[] a = readArray(in);
+			if (a != null)
+				p.elements(a);
+			return p;
+		}
+	}
+
+	/**
+	 * Title, dimension and the columns of P1D in the order X, Y, YE1upper,
+	 * YE1down, XE1left, XE1right, YE2upper, YE2down, XE2left, XE2right.
+	 * Columns which are not used are written as null.
+	 */
+	private static class P1DCodec implements BinaryCodec<P1D> {
+
+		public Class<P1D> getType() {
+			return P1D.class;
+		}
+
+		public int getId() {
+			return 2;
+		}
+
+		public int getVersion() {
+			return 1;
+		}
+
+		public void write(DataOutput out, P1D p) throws IOException {
+			writeString(out, p.getTitle());
+			out.writeInt(p.getDimension());
+			DoubleArrayList[] c = new DoubleArrayList[] { p.getXval(),
+					p.getYval(), p.getYE1upper(), p.getYE1down(),
+					p.getXE1left(), p.getXE1right(), p.getYE2upper(),
+					p.getYE2down(), p.getXE2left(), p.getXE2right() };
+			out.writeByte(c.length);
+			for (DoubleArrayList l : c)
+				writeList(out, l);
+		}
+
+		public P1D read(DataInput in, int version) throws IOException {
+			checkVersion(this, version);
+			P1D p = new P1D(readString(in), in.readInt());
+			int n = in.readUnsignedByte();
+			for (int i = 0; i < n; i++) {
+				double[] a = readArray(in);
+				DoubleArrayList c = a == null ? null : new DoubleArrayList(a);
+				switch (i) {
+				case 0:
+					p.setXval(c);
+					break;
+				case 1:
+					p.setYval(c);
+					break;
+				case 2:
+					p.setYE1upper(c);
+					break;
+				case 3:
+					p.setYE1down(c);
+					break;
+				case 4:
+					p.setXE1left(c);
+					break;
+				case 5:
+					p.setXE1right(c);
+					break;
+				case 6:
+					p.setYE2upper(c);
+					break;
+				case 7:
+					p.setYE2down(c);
+					break;
+				case 8:
+					p.setXE2left(c);
+					break;
+				case 9:
+					p.setXE2right(c);
+					break;
+				default:
+					throw new IOException("Too many columns in P1D: " + n);
+				}
+			}
+			return p;
+		}
+	}
+
+	/**
+	 * Title and rows of PND. Rows of the same length are written as one
+	 * block.
+	 */
+	private static class PNDCodec implements BinaryCodec<PND> {
+
+		public Class<PND> getType() {
+			return PND.class;
+		}
+
+		public int getId() {
+			return 3;
+		}
+
+		public int getVersion() {
+			return 1;
+		}
+
+		public void write(DataOutput out, PND p) throws IOException {
+			writeString(out, p.getTitle());
+			ArrayList<double[]> rows = p.getArrayList();
+			int n = rows.size();
+			int dim = n > 0 ? rows.get(0).length : 0;
+			boolean same = true;
+			for (int i = 1; i < n && same; i++)
+				same = rows.get(i).length == dim;
+			out.writeInt(n);
+			out.writeBoolean(same);
+			if (same) {
+				out.writeInt(dim);
+				int per = Math.max(1, CHUNK / Math.max(dim, 1));
+				double[] block = new double[per * dim];
+				for (int i = 0; i < n; i += per) {
+					int m = Math.min(per, n - i);
+					for (int k = 0; k < m; k++)
+						System.arraycopy(rows.get(i + k), 0, block, k * dim,
+								dim);
+					writeDoubles(out, block, 0, m * dim);
+				}
+			} else {
+				for (int i = 0; i < n; i++) {
+					double[] r = rows.get(i);
+					out.writeInt(r.length);
+					writeDoubles(out, r, 0, r.length);
+				}
+			}
+		}
+
+		public PND read(DataInput in, int version) throws IOException {
+			checkVersion(this, version);
+			PND p = new PND(readString(in));
+			int n = in.readInt();
+			boolean same = in.readBoolean();
+			int dim = same ? in.readInt() : 0;
+			for (int i = 0; i < n; i++) {
+				double[] r = new double[same ? dim : in.readInt()];
+				readDoubles(in, r, 0, r.length);
+				p.add(r);
+			}
+			return p;
+		}
+	}
+
+	/**
+	 * Title, axis and contents of H1D.
+	 */
+	private static class H1DCodec implements BinaryCodec<H1D> {
+
+		public Class<H1D> getType() {
+			return H1D.class;
+		}
+
+		public int getId() {
+			return 4;
+		}
+
+		public int getVersion() {
+			return 1;
+		}
+
+		public void write(DataOutput out, H1D h) throws IOException {
+			Histogram1D h1 = h.get();
+			IAxis a = h1.axis();
+			int bins = a.bins();
+			int nb = bins + 2;
+			double[] heights = new double[nb];
+			double[] errors = new double[nb];
+			int[] entries = new int[nb];
+			double[] means = new double[nb];
+			double[] rmss = new double[nb];
+			for (int i = 0; i < nb; i++) {
+				int k = bin(i, bins);
+				heights[i] = h1.binHeight(k);
+				errors[i] = h1.binError(k);
+				entries[i] = h1.binEntries(k);
+				means[i] = h1.binMean(k);
+				rmss[i] = h1.binRms(k);
+			}
+			writeString(out, h.getTitle());
+			writeAxis(out, a);
+			writeDoubles(out, heights, 0, nb);
+			writeDoubles(out, errors, 0, nb);
+			writeInts(out, entries, 0, nb);
+			writeDoubles(out, means, 0, nb);
+			writeDoubles(out, rmss, 0, nb);
+			out.writeDouble(h1.mean());
+			out.writeDouble(h1.rms());
+			out.writeInt(h1.allEntries());
+			out.writeInt(h1.entries());
+		}
+
+		public H1D read(DataInput in, int version) throws IOException {
+			checkVersion(this, version);
+			String title = readString(in);
+			Object[] a = readAxis(in);
+			int bins = (Integer) a[0];
+			H1D h;
+			if (a[3] == null)
+				h = new H1D(title, bins, (Double) a[1], (Double) a[2]);
+			else
+				h = new H1D(title, (double[]) a[3]);
+			int nb = bins + 2;
+			double[] heights = new double[nb];
+			double[] errors = new double[nb];
+			int[] entries = new int[nb];
+			double[] means = new double[nb];
+			double[] rmss = new double[nb];
+			readDoubles(in, heights, 0, nb);
+			readDoubles(in, errors, 0, nb);
+			readInts(in, entries, 0, nb);
+			readDoubles(in, means, 0, nb);
+			readDoubles(in, rmss, 0, nb);
+			double mean = in.readDouble();
+			double rms = in.readDouble();
+			int all = in.readInt();
+			int valid = in.readInt();
+			h.setContents(heights, errors, entries, means, rmss);
+			h.setNEntries(all);
+			h.setValidEntries(valid);
+			h.setMeanAndRms(mean, rms);
+			return h;
+		}
+	}
+
+	/**
+	 * Title, axes and contents of H2D.
+	 */
+	private static class H2DCodec implements BinaryCodec<H2D> {
+
+		public Class<H2D> getType() {
+			return H2D.class;
+		}
+
+		public int getId() {
+			return 5;
+		}
+
+		public int getVersion() {
+			return 1;
+		}
+
+		public void write(DataOutput out, H2D h) throws IOException {
+			Histogram2D h2 = h.get();
+			IAxis ax = h2.xAxis();
+			IAxis ay = h2.yAxis();
+			int nx = ax.bins() + 2;
+			int ny = ay.bins() + 2;
+			double[] heights = new double[ny];
+			double[] errors = new double[ny];
+			int[] entries = new int[ny];
+			double[] meanXs = new double[ny];
+			double[] rmsXs = new double[ny];
+			double[] meanYs = new double[ny];
+			double[] rmsYs = new double[ny];
+			writeString(out, h.getTitle());
+			writeAxis(out, ax);
+			writeAxis(out, ay);
+			for (int i = 0; i < nx; i++) {
+				int kx = bin(i, nx - 2);
+				for (int j = 0; j < ny; j++) {
+					int ky = bin(j, ny - 2);
+					heights[j] = h2.binHeight(kx, ky);
+					errors[j] = h2.binError(kx, ky);
+					entries[j] = h2.binEntries(kx, ky);
+					meanXs[j] = h2.binMeanX(kx, ky);
+					rmsXs[j] = h2.binRmsX(kx, ky);
+					meanYs[j] = h2.binMeanY(kx, ky);
+					rmsYs[j] = h2.binRmsY(kx, ky);
+				}
+				writeDoubles(out, heights, 0, ny);
+				writeDoubles(out, errors, 0, ny);
+				writeInts(out, entries, 0, ny);
+				writeDoubles(out, meanXs, 0, ny);
+				writeDoubles(out, rmsXs, 0, ny);
+				writeDoubles(out, meanYs, 0, ny);
+				writeDoubles(out, rmsYs, 0, ny);
+			}
+			out.writeDouble(h.getMeanX());
+			out.writeDouble(h.getRmsX());
+			out.writeDouble(h.getMeanY());
+			out.writeDouble(h.getRmsY());
+			out.writeInt(h2.allEntries());
+			out.writeInt(h2.entries());
+		}
+
+		public H2D read(DataInput in, int version) throws IOException {
+			checkVersion(this, version);
+			String title = readString(in);
+			Object[] ax = readAxis(in);
+			Object[] ay = readAxis(in);
+			H2D h;
+			if (ax[3] == null && ay[3] == null)
+				h = new H2D(title, (Integer) ax[0], (Double) ax[1],
+						(Double) ax[2], (Integer) ay[0], (Double) ay[1],
+						(Double) ay[2]);
+			else
+				h = new H2D(title, edges(ax), edges(ay));
+			int nx = (Integer) ax[0] + 2;
+			int ny = (Integer) ay[0] + 2;
+			double[][] heights = new double[nx][ny];
+			double[][] errors = new double[nx][ny];
+			int[][] entries = new int[nx][ny];
+			double[][] meanXs = new double[nx][ny];
+			double[][] rmsXs = new double[nx][ny];
+			double[][] meanYs = new double[nx][ny];
+			double[][] rmsYs = new double[nx][ny];
+			for (int i = 0; i < nx; i++) {
+				readDoubles(in, heights[i], 0, ny);
+				readDoubles(in, errors[i], 0, ny);
+				readInts(in, entries[i], 0, ny);
+				readDoubles(in, meanXs[i], 0, ny);
+				readDoubles(in, rmsXs[i], 0, ny);
+				readDoubles(in, meanYs[i], 0, ny);
+				readDoubles(in, rmsYs[i], 0, ny);
+			}
+			double meanX = in.readDouble();
+			double rmsX = in.readDouble();
+			double meanY = in.readDouble();
+			double rmsY = in.readDouble();
+			int all = in.readInt();
+			int valid = in.readInt();
+			h.setContents(heights, errors, entries, meanXs, rmsXs, meanYs,
+					rmsYs);
+			h.setNEntries(all);
+			h.setValidEntries(valid);
+			h.setMeanX(meanX);
+			h.setRmsX(rmsX);
+			h.setMeanY(meanY);
+			h.setRmsY(rmsY);
+			return h;
+		}
+
+		/**
+		 * Edges of an axis read by readAxis(), also for fixed bins.
+		 */
+		private static double[] edges(Object[] a) {
+			if (a[3] != null)
+				return (double[]) a[3];
+			int bins = (Integer) a[0];
+			double min = (Double) a[1];
+			double max = (Double) a[2];
+			double[] e = new double[bins + 1];
+			for (int i = 0; i <= bins; i++)
+				e[i] = min + (max - min) * i / bins;
+			e[bins] = max;
+			return e;
+		}
+	}
+}
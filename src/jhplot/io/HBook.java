@@ -14,6 +14,7 @@ import jhplot.*;
 import jhplot.gui.HelpBrowser;
 import jplot.XMLRead;
 import java.text.DecimalFormat;
+import java.nio.charset.Charset;
 import hep.aida.*;
 
 /**
@@ -27,6 +28,19 @@ import hep.aida.*;
  * standard serialisation. You can read data from URL as well.
  * <p>
  * The file extension of HBook is "jdat".
+ * <p>
+ * With the option "w", the objects are kept in memory and written by
+ * {@link #close()}. With the option "s", every object is written to the file
+ * when it is added, so the memory does not grow with the number of objects
+ * and the objects written before a crash can still be read. Objects in
+ * streamed files cannot be changed after they are written.
+ * <p>
+ * A file is closed with an index of the positions of the objects, which is
+ * ignored by older versions. A local file is not read completely: the objects
+ * are read when they are requested by {@link #get(String)}. The file is not
+ * kept open in between, so it can be replaced or deleted. Files without
+ * index (older files or streamed files which were not closed) are indexed by
+ * scanning the XML tags.
  * 
  * @see <a href="http://jwork.org/jhepwork/cbook/">CFBook web page</a>. Look at
  *      examples in examples/hbook.py and hbook2d.py.
@@ -60,11 +74,37 @@ public class HBook {
 
         private static int count=0;
 
-	private DecimalFormat dfb = new DecimalFormat("##.#####E00");
+	private DecimalFormat dfb = null;
+
+	private static final String[] OBJECTS = { "h1d", "h2d", "p1d", "p0d",
+			"p0i", "pnd", "p2d", "pni", "array1D", "array1I", "array2D",
+			"array2I", "f1d", "f2d", "fnd", "fpr" };
+
+	private final Charset charset = Charset.defaultCharset();
+
+	private boolean stream = false;
+
+	// key, position and length of the objects in the file
+	private Map<String, long[]> index = new LinkedHashMap<String, long[]>();
+
+	private OutputStream out;
+
+	private long position;
+
+	// open only while the index or an object is read
+	private RandomAccessFile input;
+
+	// the objects are formatted here before they are written
+	private final CharArrayWriter block = new CharArrayWriter();
+
+	private final PrintWriter blockOut = new PrintWriter(block);
+
+	private final StringBuilder num = new StringBuilder();
 
 	/**
 	 * Initialize HBook and tell what to do.
 	 * If the option is "w", the file will be written.
+	 * If the option is "s", each object is written when it is added.
 	 * If the option is "r", we read the file. 
 	 * If the file name starts with
 	 * "http" or "ftp", the file will be read from URL.
@@ -73,7 +113,7 @@ public class HBook {
 	 * @param file 
 	 *           file for reading or writing
 	 * @param option
-	 *            can be "r" (read) or "w" (write).           
+	 *            can be "r" (read), "w" (write) or "s" (stream).
 	 */
 
 	public HBook(String file,String option) {
@@ -82,15 +122,26 @@ public class HBook {
                this.option=option;
                map = new HashMap<String, Object>();
                 if (option.equalsIgnoreCase("r")) {
-                 read(file);        
-               };
+                  if (file.startsWith("http") || file.startsWith("ftp"))
+                        read(file);
+                  else
+                        open(file);
+               } else if (option.equalsIgnoreCase("s")) {
+                  stream = true;
+                  try {
+                        out = new BufferedOutputStream(new FileOutputStream(
+                                        new File(file)), 1 << 16);
+                  } catch (IOException e) {
+                        jhplot.utils.Util.ErrorMessage(e.toString());
+                  }
+               }
 
 
 	}
 
 	/**
-	 * Set format for writting double values. The default format is
-	 * "##.#####E00.
+	 * Set format for writting double values. By default, the shortest
+	 * text which is read back as the same value is written.
          * @param dfb writing format.
 	 */
 	public void setFormat(DecimalFormat dfb) {
@@ -128,101 +179,184 @@ public class HBook {
 
 	private void write(String file) {
 
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(new File(file)),
+					1 << 16);
+			for (Map.Entry<String, Object> entry : map.entrySet())
+				writeBlock(entry.getKey(), entry.getValue());
+			finish();
+		} catch (IOException e) {
+			jhplot.utils.Util.ErrorMessage("Error in the output file");
+			e.printStackTrace();
+		}
+
+	}
+
+	/**
+	 * Write the header of the file.
+	 */
+	private void writeHeader() throws IOException {
+
 		Date dat = new Date();
 		String today = String.valueOf(dat);
 
-		try {
-			FileOutputStream f1 = new FileOutputStream(new File(file));
-			PrintStream tx = new PrintStream(f1);
-                        tx.println("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"); 
-			tx.println("<jhepwork>");
-			setString("created-by", createdBy, tx);
-			setString("created-on", today, tx);
-			setString("description", description, tx);
-			setInt("version", version, tx);
-			tx.println("");
+		PrintWriter tx = blockOut;
+		block.reset();
+		tx.println("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>");
+		tx.println("<jhepwork>");
+		setString("created-by", createdBy, tx);
+		setString("created-on", today, tx);
+		setString("description", description, tx);
+		setInt("version", version, tx);
+		tx.println("");
+		flushBlock();
+	}
 
-			Iterator<Map.Entry<String, Object>> entries = map.entrySet()
-					.iterator();
+	/**
+	 * Write one object to the file and add it to the index.
+	 */
+	private void writeBlock(String key, Object ob) throws IOException {
+
+		if (position == 0)
+			writeHeader();
+		block.reset();
+		if (!writeObject(blockOut, key, ob))
+			return;
+		long start = position;
+		long length = flushBlock();
+		index.put(key.trim(), new long[] { start, length });
+	}
 
-			while (entries.hasNext()) {
-				Map.Entry<String, Object> entry = entries.next();
-				String key = entry.getKey();
-				Object ob = entry.getValue();
+	/**
+	 * Close the XML, write the index after it and close the file.
+	 */
+	private void finish() throws IOException {
+
+		if (position == 0)
+			writeHeader();
+		block.reset();
+		blockOut.println("</jhepwork>");
+		flushBlock();
+
+		long start = position;
+		block.reset();
+		blockOut.println("<index>");
+		for (Map.Entry<String, long[]> entry : index.entrySet()) {
+			long[] at = entry.getValue();
+			blockOut.println(at[0] + sep + at[1] + sep + entry.getKey());
+		}
+		blockOut.println("</index>");
+		blockOut.println("<index-offset>" + start + "</index-offset>");
+		flushBlock();
+		out.close();
+		out = null;
+	}
 
-				if (ob instanceof jhplot.H1D) {
-					H1D h1 = (jhplot.H1D) ob;
-					writeH1D(tx, key, h1);
-				}
+	/**
+	 * Write the formatted text to the file.
+	 * 
+	 * @return number of written bytes
+	 */
+	private long flushBlock() throws IOException {
 
-				else if (ob instanceof jhplot.H2D) {
-					H2D h2 = (jhplot.H2D) ob;
-					writeH2D(tx, key, h2);
-				}
+		blockOut.flush();
+		byte[] b = block.toString().getBytes(charset);
+		out.write(b);
+		position += b.length;
+		return b.length;
+	}
 
-				else if (ob instanceof jhplot.P1D) {
-					P1D p1 = (jhplot.P1D) ob;
-					writeP1D(tx, key, p1);
-				}
+	/**
+	 * Add an object to the map or, for streaming, write it.
+	 */
+	private void put(String id, Object ob) {
 
-				else if (ob instanceof jhplot.P0D) {
-					P0D p1 = (jhplot.P0D) ob;
-					writeP0D(tx, key, p1);
-				}
+		if (!stream) {
+			map.put(id, ob);
+			return;
+		}
+		if (out == null)
+			return;
+		try {
+			writeBlock(id, ob);
+			out.flush();
+		} catch (IOException e) {
+			jhplot.utils.Util.ErrorMessage("Error in the output file");
+			e.printStackTrace();
+		}
+	}
 
-				else if (ob instanceof jhplot.P0I) {
-					P0I p1 = (jhplot.P0I) ob;
-					writeP0I(tx, key, p1);
-				}
+	/**
+	 * Format an object.
+	 * 
+	 * @return false if the object is not supported
+	 */
+	private boolean writeObject(PrintWriter tx, String key, Object ob) {
 
-				else if (ob instanceof jhplot.PND) {
-					PND p1 = (jhplot.PND) ob;
-					writePND(tx, key, p1);
-				}
+		if (ob instanceof jhplot.H1D) {
+			H1D h1 = (jhplot.H1D) ob;
+			writeH1D(tx, key, h1);
+		}
 
-				else if (ob instanceof jhplot.PNI) {
-					PNI p1 = (jhplot.PNI) ob;
-					writePNI(tx, key, p1);
-				} else if (ob instanceof jhplot.F1D) {
-					F1D p1 = (jhplot.F1D) ob;
-					writeF1D(tx, key, p1);
-				} else if (ob instanceof jhplot.F2D) {
-					F2D p1 = (jhplot.F2D) ob;
-					writeF2D(tx, key, p1);
-				} else if (ob instanceof jhplot.FPR) {
-					FPR p1 = (jhplot.FPR) ob;
-					writeFPR(tx, key, p1);
-				} else if (ob instanceof jhplot.FND) {
-					FND p1 = (jhplot.FND) ob;
-					writeFND(tx, key, p1);
-				} else if (ob instanceof jhplot.P2D) {
-					P2D p1 = (jhplot.P2D) ob;
-					writeP2D(tx, key, p1);
-				} else if (ob instanceof double[]) {
-					double[] p1 = (double[]) ob;
-					writeArrayD(tx, key, p1);
-				} else if (ob instanceof int[]) {
-					int[] p1 = (int[]) ob;
-					writeArrayI(tx, key, p1);
-				} else if (ob instanceof double[][]) {
-					double[][] p1 = (double[][]) ob;
-					writeArrayDD(tx, key, p1);
-				} else if (ob instanceof int[][]) {
-					int[][] p1 = (int[][]) ob;
-					writeArrayII(tx, key, p1);
-				}
+		else if (ob instanceof jhplot.H2D) {
+			H2D h2 = (jhplot.H2D) ob;
+			writeH2D(tx, key, h2);
+		}
 
-			} // end loop over objects
+		else if (ob instanceof jhplot.P1D) {
+			P1D p1 = (jhplot.P1D) ob;
+			writeP1D(tx, key, p1);
+		}
 
-			tx.println("</jhepwork>");
-			tx.close();
-			f1.close();
+		else if (ob instanceof jhplot.P0D) {
+			P0D p1 = (jhplot.P0D) ob;
+			writeP0D(tx, key, p1);
+		}
 
-		} catch (IOException e) {
-			jhplot.utils.Util.ErrorMessage("Error in the output file");
-			e.printStackTrace();
+		else if (ob instanceof jhplot.P0I) {
+			P0I p1 = (jhplot.P0I) ob;
+			writeP0I(tx, key, p1);
+		}
+
+		else if (ob instanceof jhplot.PND) {
+			PND p1 = (jhplot.PND) ob;
+			writePND(tx, key, p1);
 		}
 
+		else if (ob instanceof jhplot.PNI) {
+			PNI p1 = (jhplot.PNI) ob;
+			writePNI(tx, key, p1);
+		} else if (ob instanceof jhplot.F1D) {
+			F1D p1 = (jhplot.F1D) ob;
+			writeF1D(tx, key, p1);
+		} else if (ob instanceof jhplot.F2D) {
+			F2D p1 = (jhplot.F2D) ob;
+			writeF2D(tx, key, p1);
+		} else if (ob instanceof jhplot.FPR) {
+			FPR p1 = (jhplot.FPR) ob;
+			writeFPR(tx, key, p1);
+		} else if (ob instanceof jhplot.FND) {
+			FND p1 = (jhplot.FND) ob;
+			writeFND(tx, key, p1);
+		} else if (ob instanceof jhplot.P2D) {
+			P2D p1 = (jhplot.P2D) ob;
+			writeP2D(tx, key, p1);
+		} else if (ob instanceof double[]) {
+			double[] p1 = (double[]) ob;
+			writeArrayD(tx, key, p1);
+		} else if (ob instanceof int[]) {
+			int[] p1 = (int[]) ob;
+			writeArrayI(tx, key, p1);
+		} else if (ob instanceof double[][]) {
+			double[][] p1 = (double[][]) ob;
+			writeArrayDD(tx, key, p1);
+		} else if (ob instanceof int[][]) {
+			int[][] p1 = (int[][]) ob;
+			writeArrayII(tx, key, p1);
+		} else {
+			return false;
+		}
+		return true;
 	}
 
 	/**
@@ -267,6 +401,19 @@ public class HBook {
 
 		}
 
+		parse(reader, true);
+	}
+
+	/**
+	 * Read all objects from jhepwork XML and put them to the map.
+	 * 
+	 * @param reader
+	 *            XML text, closed at the end
+	 * @param header
+	 *            read also the creation time, description and version
+	 */
+	private void parse(BufferedReader reader, boolean header) {
+
 		try {
 
 			XMLRead xr = new XMLRead();
@@ -276,10 +423,12 @@ public class HBook {
 				return;
 			}
 
-			createdBy = xr.getString("created-by", "NOT SET");
-			time = xr.getString("created-on", "NOT SET");
-			description = xr.getString("description", "NOT SET");
-			version = xr.getInt("version", -1);
+			if (header) {
+				createdBy = xr.getString("created-by", "NOT SET");
+				time = xr.getString("created-on", "NOT SET");
+				description = xr.getString("description", "NOT SET");
+				version = xr.getInt("version", -1);
+			}
 
 			// now read H1D histograms
 			double min, max;
@@ -838,6 +987,254 @@ public class HBook {
 
 	} // end of HBook class
 
+	/**
+	 * Open a local file for reading the objects on demand. The positions of
+	 * the objects are taken from the index at the end of the file, or found by
+	 * scanning the file. Files which cannot be indexed are read completely.
+	 * The file is closed when the index is read.
+	 * 
+	 * @param file
+	 *            input file name
+	 */
+	private void open(String file) {
+
+		long header = -1;
+		try {
+			input = new RandomAccessFile(file, "r");
+			header = readIndex();
+			if (header < 0)
+				header = scan();
+			if (header >= 0)
+				parse(text(0, header, false), true);
+		} catch (IOException e) {
+			jhplot.utils.Util.ErrorMessage(e.toString());
+		} finally {
+			closeInput();
+		}
+		if (header < 0) {
+			index.clear();
+			read(file);
+		}
+	}
+
+	/**
+	 * Close the input file. It is opened again to read an object.
+	 */
+	private void closeInput() {
+
+		if (input == null)
+			return;
+		try {
+			input.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		input = null;
+	}
+
+	/**
+	 * Read the index written at the end of the file.
+	 * 
+	 * @return the position of the first object, or -1 if there is no valid
+	 *         index
+	 */
+	private long readIndex() throws IOException {
+
+		long size = input.length();
+		int tail = (int) Math.min(size, 128);
+		byte[] b = new byte[tail];
+		input.seek(size - tail);
+		input.readFully(b);
+		String s = new String(b, "ISO-8859-1");
+		int i = s.lastIndexOf("<index-offset>");
+		int j = s.lastIndexOf("</index-offset>");
+		if (i < 0 || j < i)
+			return -1;
+		long start;
+		try {
+			start = Long.parseLong(s.substring(i + 14, j).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+		long end = size - tail + i;
+		if (start < 0 || start >= end)
+			return -1;
+
+		BufferedReader r = text(start, end - start, false);
+		String line = r.readLine();
+		if (line == null || !line.trim().equals("<index>"))
+			return -1;
+		Map<String, long[]> found = new LinkedHashMap<String, long[]>();
+		long header = start;
+		while ((line = r.readLine()) != null && !line.trim().equals("</index>")) {
+			int k1 = line.indexOf(' ');
+			int k2 = k1 < 0 ? -1 : line.indexOf(' ', k1 + 1);
+			if (k2 < 0)
+				return -1;
+			long at, length;
+			try {
+				at = Long.parseLong(line.substring(0, k1));
+				length = Long.parseLong(line.substring(k1 + 1, k2));
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+			if (at < 0 || length <= 0 || at + length > start)
+				return -1;
+			found.put(line.substring(k2 + 1), new long[] { at, length });
+			header = Math.min(header, at);
+		}
+		if (line == null)
+			return -1;
+		index.putAll(found);
+		return header;
+	}
+
+	/**
+	 * Find the objects by their tags. Every tag must be on a separate line,
+	 * as it is required by XMLRead. Objects which are not complete are
+	 * skipped.
+	 * 
+	 * @return the position of the first object, or -1 if an object has no key
+	 */
+	private long scan() throws IOException {
+
+		InputStream in = new FileInputStream(file);
+		try {
+			Map<String, long[]> found = new LinkedHashMap<String, long[]>();
+			byte[] buf = new byte[1 << 16];
+			byte[] line = new byte[1024]; // start of the current line
+			int n = 0;
+			long pos = 0;
+			long lineStart = 0;
+			long header = -1;
+			long start = 0;
+			String open = null;
+			String id = null;
+			boolean done = false;
+			while (!done) {
+				int r = in.read(buf);
+				boolean eof = r < 0;
+				if (eof) {
+					// the last line can end without a new line
+					if (n == 0)
+						break;
+					buf[0] = '\n';
+					r = 1;
+					done = true;
+				}
+				for (int i = 0; i < r; i++) {
+					byte c = buf[i];
+					if (!eof)
+						pos++;
+					if (c != '\n') {
+						if (n < line.length)
+							line[n++] = c;
+						continue;
+					}
+					String s = tag(line, n);
+					n = 0;
+					if (s != null) {
+						if (open == null) {
+							open = objectTag(s);
+							if (open != null) {
+								if (header < 0)
+									header = lineStart;
+								start = lineStart;
+								id = null;
+							} else if (s.startsWith("</jhepwork")) {
+								done = true;
+								break;
+							}
+						} else if (id == null && s.startsWith("<id>")) {
+							int k = s.lastIndexOf('<');
+							if (k < 4)
+								k = s.length();
+							id = s.substring(4, k).trim();
+						} else if (s.startsWith("</" + open + ">")) {
+							if (id == null)
+								return -1;
+							found.put(id, new long[] { start, pos - start });
+							open = null;
+						}
+					}
+					lineStart = pos;
+				}
+			}
+			index.putAll(found);
+			return header < 0 ? lineStart : header;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Get a line if it starts with a tag.
+	 * 
+	 * @return trimmed line or null
+	 */
+	private String tag(byte[] line, int n) {
+
+		int i = 0;
+		while (i < n && (line[i] & 0xff) <= ' ')
+			i++;
+		if (i == n || line[i] != '<')
+			return null;
+		return new String(line, i, n - i, charset).trim();
+	}
+
+	/**
+	 * Get the name of the object which starts with this tag.
+	 * 
+	 * @return name or null
+	 */
+	private static String objectTag(String s) {
+
+		for (String t : OBJECTS) {
+			if (s.length() > t.length() + 1 && s.startsWith(t, 1)) {
+				char c = s.charAt(t.length() + 1);
+				if (c == '>' || c == ' ')
+					return t;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get a part of the input file as text.
+	 * 
+	 * @param wrap
+	 *            put the text inside the jhepwork tag
+	 */
+	private BufferedReader text(long start, long length, boolean wrap)
+			throws IOException {
+
+		byte[] b = new byte[(int) length];
+		input.seek(start);
+		input.readFully(b);
+		String s = new String(b, charset);
+		if (wrap)
+			s = "<jhepwork>\n" + s + "</jhepwork>\n";
+		return new BufferedReader(new StringReader(s));
+	}
+
+	/**
+	 * Read one object from the file and put it to the map. The file is open
+	 * only while the object is read.
+	 */
+	private void load(long[] at) {
+
+		try {
+			if (out != null)
+				out.flush();
+			input = new RandomAccessFile(file, "r");
+			parse(text(at[0], at[1], true), false);
+		} catch (IOException e) {
+			jhplot.utils.Util.ErrorMessage(e.toString());
+		} finally {
+			closeInput();
+		}
+	}
+
 	/**
 	 * Get an object using the key
 	 * 
@@ -849,6 +1246,8 @@ public class HBook {
 	 */
 	public Object get(String id) {
 
+		if (map.containsKey(id) == false && index.containsKey(id))
+			load(index.get(id));
 		if (map.containsKey(id) == false) {
 			jhplot.utils.Util.ErrorMessage("The key = " + id
 					+ " was not found!");
@@ -864,13 +1263,8 @@ public class HBook {
 	 */
 	public String[] getKeys() {
 
-		Iterator<Map.Entry<String, Object>> entries = map.entrySet().iterator();
-		List<String> a = new ArrayList<String>();
-		while (entries.hasNext()) {
-			Map.Entry<String, Object> entry = entries.next();
-			String key = entry.getKey();
-			a.add(key);
-		}
+		Set<String> a = new LinkedHashSet<String>(index.keySet());
+		a.addAll(map.keySet());
 		String[] tmp = a.toArray(new String[a.size()]);
 		return tmp;
 	}
@@ -886,7 +1280,7 @@ public class HBook {
 	 */
 	public void write(String id, H1D h1d) {
 
-		map.put(id, h1d);
+		put(id, h1d);
 
 	}
 
@@ -901,7 +1295,7 @@ public class HBook {
 	 */
 	public void write(String id, H2D h2d) {
 
-		map.put(id, h2d);
+		put(id, h2d);
 
 	}
 
@@ -916,7 +1310,7 @@ public class HBook {
 	 */
 	public void write(String id, P1D p1d) {
 
-		map.put(id, p1d);
+		put(id, p1d);
 
 	}
 
@@ -931,7 +1325,7 @@ public class HBook {
 	 */
 	public void write(String id, PND pnd) {
 
-		map.put(id, pnd);
+		put(id, pnd);
 
 	}
 
@@ -946,7 +1340,7 @@ public class HBook {
 	 */
 	public void write(String id, PNI pnd) {
 
-		map.put(id, pnd);
+		put(id, pnd);
 
 	}
 
@@ -961,7 +1355,7 @@ public class HBook {
 	 */
 	public void write(String id, P0D pnd) {
 
-		map.put(id, pnd);
+		put(id, pnd);
 
 	}
 
@@ -976,7 +1370,7 @@ public class HBook {
 	 */
 	public void write(String id, P0I pnd) {
 
-		map.put(id, pnd);
+		put(id, pnd);
 
 	}
 
@@ -991,7 +1385,7 @@ public class HBook {
 	 */
 	public void write(String id, P2D pnd) {
 
-		map.put(id, pnd);
+		put(id, pnd);
 
 	}
 
@@ -1078,7 +1472,7 @@ public class HBook {
 	 */
 	public void write(String id, F1D f1) {
 
-		map.put(id, f1);
+		put(id, f1);
 
 	}
 
@@ -1094,7 +1488,7 @@ public class HBook {
 	 */
 	public void write(String id, FPR f1) {
 
-		map.put(id, f1);
+		put(id, f1);
 
 	}
 
@@ -1110,7 +1504,7 @@ public class HBook {
 	 */
 	public void write(String id, F2D f2) {
 
-		map.put(id, f2);
+		put(id, f2);
 
 	}
 
@@ -1126,7 +1520,7 @@ public class HBook {
 	 */
 	public void write(String id, double[] a) {
 
-		map.put(id, a);
+		put(id, a);
 
 	}
 
@@ -1142,7 +1536,7 @@ public class HBook {
 	 */
 	public void write(String id, int[] a) {
 
-		map.put(id, a);
+		put(id, a);
 
 	}
 
@@ -1158,7 +1552,7 @@ public class HBook {
 	 */
 	public void write(String id, double[][] a) {
 
-		map.put(id, a);
+		put(id, a);
 
 	}
 
@@ -1174,7 +1568,7 @@ public class HBook {
 	 */
 	public void write(String id, int[][] a) {
 
-		map.put(id, a);
+		put(id, a);
 
 	}
 
@@ -1190,7 +1584,7 @@ public class HBook {
 	 */
 	public void write(String id, FND a) {
 
-		map.put(id, a);
+		put(id, a);
 
 	}
 
@@ -1203,8 +1597,18 @@ public class HBook {
 	public void close() {
 
                 if (option.equalsIgnoreCase("w")) write(file);
+		if (stream && out != null) {
+			try {
+				finish();
+			} catch (IOException e) {
+				jhplot.utils.Util.ErrorMessage("Error in the output file");
+				e.printStackTrace();
+			}
+		}
+		closeInput();
 		map.clear();
 		map = null;
+		index.clear();
 		reader = null;
 	}
 
@@ -1218,6 +1622,11 @@ public class HBook {
 	 */
 
 	private double[] getDoubles(String a) {
+		try {
+			return NumberReader.parse(a);
+		} catch (NumberFormatException e) {
+			// not valid numbers are set to 0 below
+		}
 		a = a.trim();
 		StringTokenizer st = new StringTokenizer(a, sep);
 		int ncount = st.countTokens(); // number of words
@@ -1279,7 +1688,7 @@ public class HBook {
 	 * @param me
 	 * @param h1
 	 */
-	private void writeH1D(PrintStream tx, String key, H1D h1) {
+	private void writeH1D(PrintWriter tx, String key, H1D h1) {
 		IAxis axis = h1.getAxis(); 
 		tx.println("<h1d>");
 		setString("id", key, tx);
@@ -1342,7 +1751,7 @@ public class HBook {
 	 * @param me
 	 * @param h1
 	 */
-	private void writeH2D(PrintStream tx, String key, H2D h2) {
+	private void writeH2D(PrintWriter tx, String key, H2D h2) {
 
 		tx.println("<h2d>");
 		setString("id", key, tx);
@@ -1467,7 +1876,7 @@ public class HBook {
 	 * @param me
 	 * @param p1
 	 */
-	private void writeP1D(PrintStream tx, String key, P1D p1) {
+	private void writeP1D(PrintWriter tx, String key, P1D p1) {
 
 		tx.println("<p1d>");
 		setString("id", key, tx);
@@ -1523,7 +1932,7 @@ public class HBook {
 	 * @param me
 	 * @param p0d
 	 */
-	private void writeP0D(PrintStream tx, String key, P0D p0d) {
+	private void writeP0D(PrintWriter tx, String key, P0D p0d) {
 
 		tx.println("<p0d>");
 		setString("id", key, tx);
@@ -1550,7 +1959,7 @@ public class HBook {
 	 * @param me
 	 * @param p0i
 	 */
-	private void writeP0I(PrintStream tx, String key, P0I p0i) {
+	private void writeP0I(PrintWriter tx, String key, P0I p0i) {
 
 		tx.println("<p0i>");
 		setString("id", key, tx);
@@ -1577,7 +1986,7 @@ public class HBook {
 	 * @param me
 	 * @param pnd
 	 */
-	private void writePND(PrintStream tx, String key, PND pnd) {
+	private void writePND(PrintWriter tx, String key, PND pnd) {
 
 		tx.println("<pnd>");
 		setString("id", key, tx);
@@ -1607,7 +2016,7 @@ public class HBook {
 	 * @param me
 	 * @param pni
 	 */
-	private void writePNI(PrintStream tx, String key, PNI pni) {
+	private void writePNI(PrintWriter tx, String key, PNI pni) {
 
 		tx.println("<pni>");
 		setString("id", key, tx);
@@ -1637,7 +2046,7 @@ public class HBook {
 	 * @param me
 	 * @param p
 	 */
-	private void writeF1D(PrintStream tx, String key, F1D p) {
+	private void writeF1D(PrintWriter tx, String key, F1D p) {
 
 		tx.println("<f1d>");
 		setString("id", key, tx);
@@ -1654,7 +2063,7 @@ public class HBook {
 
 	}
 
-	private void writeFPR(PrintStream tx, String key, FPR p) {
+	private void writeFPR(PrintWriter tx, String key, FPR p) {
 
 		tx.println("<fpr>");
 		setString("id", key, tx);
@@ -1680,7 +2089,7 @@ public class HBook {
 	 * @param me
 	 * @param p
 	 */
-	private void writeF2D(PrintStream tx, String key, F2D p) {
+	private void writeF2D(PrintWriter tx, String key, F2D p) {
 		tx.println("<f2d>");
 		setString("id", key, tx);
 		setString("title", p.getTitle(), tx);
@@ -1707,7 +2116,7 @@ public class HBook {
 	 * @param me
 	 * @param p
 	 */
-	private void writeFND(PrintStream tx, String key, FND p) {
+	private void writeFND(PrintWriter tx, String key, FND p) {
 		tx.println("<fnd>");
 		setString("id", key, tx);
 		setString("title", p.getTitle(), tx);
@@ -1725,7 +2134,7 @@ public class HBook {
 	 * @param me
 	 * @param pni
 	 */
-	private void writeP2D(PrintStream tx, String key, P2D pni) {
+	private void writeP2D(PrintWriter tx, String key, P2D pni) {
 
 		tx.println("<p2d>");
 		setString("id", key, tx);
@@ -1747,7 +2156,7 @@ public class HBook {
 		tx.println("");
 	}
 
-	private void writeArrayD(PrintStream tx, String key, double[] pni) {
+	private void writeArrayD(PrintWriter tx, String key, double[] pni) {
 
 		tx.println("<array1D>");
 		setString("id", key, tx);
@@ -1767,7 +2176,7 @@ public class HBook {
 	 * @param me
 	 * @param pni
 	 */
-	private void writeArrayI(PrintStream tx, String key, int[] pni) {
+	private void writeArrayI(PrintWriter tx, String key, int[] pni) {
 		tx.println("<array1I>");
 		setString("id", key, tx);
 		tx.println("<data>");
@@ -1787,7 +2196,7 @@ public class HBook {
 	 * @param me
 	 * @param array
 	 */
-	private void writeArrayDD(PrintStream tx, String key, double[][] array) {
+	private void writeArrayDD(PrintWriter tx, String key, double[][] array) {
 
 		tx.println("<array2D>");
 		setString("id", key, tx);
@@ -1810,6 +2219,9 @@ public class HBook {
 	 */
 	public Map<String, Object> getAll() {
 
+		for (Map.Entry<String, long[]> entry : index.entrySet())
+			if (!map.containsKey(entry.getKey()))
+				load(entry.getValue());
 		return map;
 	}
 
@@ -1829,7 +2241,7 @@ public class HBook {
 	 * @param me
 	 * @param array
 	 */
-	private void writeArrayII(PrintStream tx, String key, int[][] array) {
+	private void writeArrayII(PrintWriter tx, String key, int[][] array) {
 
 		tx.println("<array2I>");
 		setString("id", key, tx);
@@ -1858,33 +2270,34 @@ public class HBook {
 	 * @param key
 	 *            key or name of the XML item
 	 */
-	private void setString(String key, String data, PrintStream tx) {
+	private void setString(String key, String data, PrintWriter tx) {
 		// tx.println("<"+key+"=\""+ data + "\"/>");
 		tx.println("<" + key + ">" + data.trim() + "</" + key + ">");
 
 	}
 
-	private void setInt(String key, int data, PrintStream tx) {
+	private void setInt(String key, int data, PrintWriter tx) {
 		// tx.println("<"+key+"=\""+ Integer.toString(data) + "\"/>");
 		tx.println("<" + key + ">" + IntS(data) + "</" + key + ">");
 
 	}
 
-	private void setDouble(String key, Double data, PrintStream tx) {
+	private void setDouble(String key, Double data, PrintWriter tx) {
 		// tx.println("<"+key+"=\""+ Double.toString(data) + "\"/>");
 		tx.println("<" + key + ">" + DoubleS(data) + "</" + key + ">");
 	}
 
-	private void setBoolean(String key, boolean data, PrintStream tx) {
+	private void setBoolean(String key, boolean data, PrintWriter tx) {
 		// tx.println("<"+key+"=\""+ Double.toString(data) + "\"/>");
 		tx.println("<" + key + ">" + Boolean.toString(data) + "</" + key + ">");
 	}
 
         // format only numbers iwth decimal part
 	private String DoubleS(double d) {
-                if (d % 1.0 > 0) return dfb.format(d);
-	        else
-                return Integer.toString((int)d);	
+		if (dfb != null && d != Math.rint(d))
+			return dfb.format(d);
+		num.setLength(0);
+		return NumberWriter.append(num, d).toString();
 	}
 
 	private String IntS(int d) {
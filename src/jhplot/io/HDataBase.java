@@ -28,9 +28,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Enumeration;
 
+import jhplot.io.db.BaseRecordsFile;
+import jhplot.io.db.MappedRecordsFile;
 import jhplot.io.db.RecordReader;
 import jhplot.io.db.RecordWriter;
-import jhplot.io.db.RecordsFile;
 import jhplot.io.db.RecordsFileException;
 
 /**
@@ -47,6 +48,15 @@ import jhplot.io.db.RecordsFileException;
  * order time with respect to file accesses. The index is small enough to load
  * into memory. This will make it easier for our implementation to fulfill the
  * requirement that dictates access time.
+ * <p>
+ * The file is memory-mapped (see {@link MappedRecordsFile}). Several threads
+ * can get objects at the same time; inserts, updates and removals wait for the
+ * readers and are done one at a time.
+ * <p>
+ * Objects are stored with the Java serialization. After setBinary(true), P0D,
+ * P1D, PND, H1D and H2D are stored with the compact binary codecs of
+ * {@link BinaryCodecs} instead (without drawing attributes). Both are read
+ * back.
  * 
  * The code is based on:
  * http://www.javaworld.com/javaworld/jw-01-1999/jw-01-step.html
@@ -57,9 +67,22 @@ import jhplot.io.db.RecordsFileException;
  */
 public class HDataBase {
 
-	public RecordsFile recordsFile;
+	public BaseRecordsFile recordsFile;
+	/**
+	 * @deprecated no longer set, since the records are written by
+	 *             {@link #insert(String, Object)} and
+	 *             {@link #update(Object, String)} with writers of their own.
+	 */
+	@Deprecated
 	public RecordWriter rw;
+	/**
+	 * @deprecated no longer set. Use {@link #get(String)}, or
+	 *             <code>recordsFile.readRecord(key)</code> for the record
+	 *             of a key.
+	 */
+	@Deprecated
 	public RecordReader rr;
+	private boolean binary;
 
 	/**
 	 * Create a new persistent database. If file exists, and the option "w" is
@@ -78,7 +101,7 @@ public class HDataBase {
 
 			try {
 				(new File(file)).delete();
-				recordsFile = new RecordsFile(file, 128);
+				recordsFile = new MappedRecordsFile(file, 128);
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -89,7 +112,7 @@ public class HDataBase {
 		} else if (option.equalsIgnoreCase("r")) {
 
 			try {
-				recordsFile = new RecordsFile(file, "r");
+				recordsFile = new MappedRecordsFile(file, "r");
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -100,7 +123,7 @@ public class HDataBase {
 		} else if (option.equalsIgnoreCase("rw")) {
 
 			try {
-				recordsFile = new RecordsFile(file, 128);
+				recordsFile = new MappedRecordsFile(file, 128);
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -116,24 +139,46 @@ public class HDataBase {
 
 	};
 
+	/**
+	 * Store P0D, P1D, PND, H1D and H2D with the compact binary codecs of
+	 * {@link BinaryCodecs}, which are faster and smaller than the Java
+	 * serialization, but do not keep the drawing attributes. The default is
+	 * false.
+	 * 
+	 * @param binary
+	 *            true to encode these objects with the binary codecs
+	 */
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	/**
+	 * Check if objects with a binary codec are stored with it.
+	 * 
+	 * @return true if the binary codecs are used
+	 */
+	public boolean isBinary() {
+		return binary;
+	}
+
 	/**
 	 * Returns an enumeration of all the keys in the database.
 	 */
-	public synchronized Enumeration getKeys() {
+	public Enumeration getKeys() {
 		return recordsFile.enumerateKeys();
 	}
 
 	/**
 	 * Returns the current number of records in the database.
 	 */
-	public synchronized int getRecords() {
+	public int getRecords() {
 		return recordsFile.getNumRecords();
 	}
 
 	/**
 	 * Checks if there is a record belonging to the given key.
 	 */
-	public synchronized boolean isExists(String key) {
+	public boolean isExists(String key) {
 		return recordsFile.recordExists(key);
 	}
 
@@ -147,7 +192,7 @@ public class HDataBase {
 	public HDataBase(String file) {
 
 		try {
-			recordsFile = new RecordsFile(file, "r");
+			recordsFile = new MappedRecordsFile(file, "r");
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -171,10 +216,10 @@ public class HDataBase {
 
 		boolean success = true;
 
-		rw = new RecordWriter(key);
+		RecordWriter w = new RecordWriter(key, binary);
 		try {
-			rw.writeObject(obj);
-			recordsFile.insertRecord(rw);
+			w.writeObject(obj);
+			recordsFile.insertRecord(w);
 		} catch (IOException e) {
 			success = false;
 			// TODO Auto-generated catch block
@@ -200,8 +245,7 @@ public class HDataBase {
 
 		Object ob = null;
 		try {
-			rr = recordsFile.readRecord(key);
-			ob = rr.readObject();
+			ob = recordsFile.readObject(key);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -231,10 +275,10 @@ public class HDataBase {
 
 		boolean success = true;
 
-		rw = new RecordWriter(key);
+		RecordWriter w = new RecordWriter(key, binary);
 		try {
-			rw.writeObject(ob);
-			recordsFile.updateRecord(rw);
+			w.writeObject(ob);
+			recordsFile.updateRecord(w);
 		} catch (IOException e) {
 			success = false;
 			// TODO Auto-generated catch block
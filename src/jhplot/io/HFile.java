@@ -26,8 +26,13 @@ package jhplot.io;
 
 import jhplot.*; 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.net.MalformedURLException;
@@ -49,6 +54,20 @@ import jhplot.gui.HelpBrowser;
  * You can also insert objects using the keys and read them back. In this case,
  * avoid writing many objects without the keys since the extraction of keys will
  * be very inefficient. Try not mix write/read with keys or without.
+ * <p>
+ * Files are written in the indexed format (version 3). Each object is
+ * serialized into its own record, compressed separately if compression is on,
+ * and written to the file at once. On close(), an index with the position of
+ * every record is appended. When such a file is opened for reading, only the
+ * index is read: read(key) seeks to one record and decodes it, and
+ * getKeys() lists the keys without reading any object. Files written in the
+ * old sequential format (option "ws", or by older versions) are detected
+ * automatically and read as before.
+ * <p>
+ * After setBinary(true), P0D, P1D, PND, H1D and H2D are written in the
+ * indexed format with the compact binary codecs of {@link BinaryCodecs}
+ * instead of the Java serialization. They keep the data, but not the drawing
+ * attributes. Other objects are always serialized.
  * 
  * @author S.Chekanov
  * 
@@ -64,6 +83,21 @@ public class HFile {
 	private Map<String, Object> hmap;
 	final private int version = 2;
 
+	// indexed format
+	private static final int MAGIC = 0x4A484649; // "JHFI"
+	private static final int INDEXED_VERSION = 3;
+	private static final byte CODEC_NONE = 0;
+	private static final byte CODEC_GZIP = 1;
+	private static final byte CODEC_BINARY = 2; // flag: encoded by BinaryCodecs
+	private DataOutputStream out; // writer of an indexed file
+	private long position; // bytes written to out
+	private byte codec;
+	private boolean binary;
+	private RandomAccessFile raf; // reader of an indexed file
+	private Map<String, Record> index;
+	private List<Record> records; // records without keys, in order
+	private int next; // next record without key to read
+
 	/**
 	 * Open a file to write/read objects to/from a serialized file in sequential
 	 * order. Objects can be gzipped/gunzipped on-fly. If "w" option is set, the
@@ -82,7 +116,8 @@ public class HFile {
 	 *            File name. Can be located on URL if starts from http or ftp.
 	 * @param option
 	 *            Option to create the file. If "w" - write a file (or read)
-	 *            file, if "r" only read created file.
+	 *            file, if "r" only read created file. "ws" writes the old
+	 *            sequential format without index.
 	 * @param compression
 	 *            if true, objects are compressed on-fly using GZIP
 	 * @param bufferSize
@@ -99,6 +134,23 @@ public class HFile {
 
 		if (option.equalsIgnoreCase("w")) {
 
+			try {
+				(new File(file)).delete();
+				oof = new FileOutputStream(file);
+				out = new DataOutputStream(new BufferedOutputStream(oof,
+						buffer));
+				out.writeInt(MAGIC);
+				out.writeInt(INDEXED_VERSION);
+				position = 8;
+				codec = compression ? CODEC_GZIP : CODEC_NONE;
+				index = new LinkedHashMap<String, Record>();
+				records = new ArrayList<Record>();
+			} catch (IOException e) {
+				jhplot.utils.Util.ErrorMessage(e.toString());
+			}
+
+		} else if (option.equalsIgnoreCase("ws")) {
+
 			try {
 				(new File(file)).delete();
 				oof = new FileOutputStream(file);
@@ -128,12 +180,25 @@ public class HFile {
 					URLConnection urlConn = url.openConnection();
 					urlConn.setDoInput(true);
 					urlConn.setUseCaches(false);
-
-					if (compression == true) {
-						iis = new ObjectInputStream(new GZIPInputStream(
-								urlConn.getInputStream()));
+					InputStream in = new BufferedInputStream(
+							urlConn.getInputStream(), buffer);
+
+					if (isIndexed(in)) {
+						// indexed files need random access
+						File tmp = File.createTempFile("hfile", ".jser");
+						tmp.deleteOnExit();
+						OutputStream os = new FileOutputStream(tmp);
+						byte[] b = new byte[buffer];
+						int n;
+						while ((n = in.read(b)) > 0)
+							os.write(b, 0, n);
+						os.close();
+						in.close();
+						openIndexed(tmp);
+					} else if (compression == true) {
+						iis = new ObjectInputStream(new GZIPInputStream(in));
 					} else {
-						iis = new ObjectInputStream(urlConn.getInputStream());
+						iis = new ObjectInputStream(in);
 					}
 				} catch (MalformedURLException e) {
 					jhplot.utils.Util.ErrorMessage(e.toString());
@@ -145,6 +210,14 @@ public class HFile {
 
 				try {
 					FileInputStream iif = new FileInputStream(new File(file));
+					BufferedInputStream bif = new BufferedInputStream(iif, 8);
+					boolean indexed = isIndexed(bif);
+					bif.close();
+					if (indexed) {
+						openIndexed(new File(file));
+						return;
+					}
+					iif = new FileInputStream(new File(file));
 
 					if (compression == true) {
 						iis = new ObjectInputStream(new BufferedInputStream(
@@ -162,7 +235,7 @@ public class HFile {
 		} else {
 
 			jhplot.utils.Util
-					.ErrorMessage("Wrong option!. Only \"r\" or \"w\"  is allowed");
+					.ErrorMessage("Wrong option!. Only \"r\", \"w\" or \"ws\" is allowed");
 		}
 
 	};
@@ -239,6 +312,16 @@ public class HFile {
 	 */
 	public boolean write(String key, Object ob) {
 
+		if (out != null) {
+			if (index.containsKey(key))
+				return false;
+			Record r = writeRecord(ob);
+			if (r == null)
+				return false;
+			index.put(key, r);
+			return true;
+		}
+
 		if (!hmap.containsKey(key)) {
 			hmap.put(key, ob);
 			return true;
@@ -266,6 +349,14 @@ public class HFile {
                 else if (ob instanceof jhplot.F3D)    ob=((F3D)ob).get();
                 else if (ob instanceof jhplot.FND)    ob=((FND)ob).get();
 
+		if (out != null) {
+			Record r = writeRecord(ob);
+			if (r == null)
+				return false;
+			records.add(r);
+			nev++;
+			return true;
+		}
 
 		try {
 			oos.writeObject(ob);
@@ -301,6 +392,20 @@ public class HFile {
 	 */
 	public Map<String, Object> getObjectMap() {
 
+		// decode all objects with keys
+		if (raf != null && hmap.size() == 0) {
+			HFileMap<String, Object> map = new HFileMap<String, Object>(
+					INDEXED_VERSION);
+			for (Map.Entry<String, Record> e : index.entrySet()) {
+				Object obj = readRecord(e.getValue());
+				if (obj == null)
+					return null;
+				map.put(e.getKey(), obj);
+			}
+			hmap = map;
+			return hmap;
+		}
+
 		// try to get this map
 		if (hmap.size() == 0 && iis != null) {
 			try {
@@ -342,6 +447,14 @@ public class HFile {
 	 */
 	public Object read() {
 
+		if (raf != null) {
+			if (next >= records.size())
+				return null;
+			Object ob = readRecord(records.get(next++));
+			nev++;
+			return ob;
+		}
+
 		Object ob = null;
 		try {
 			ob = iis.readObject();
@@ -380,6 +493,13 @@ public class HFile {
 
 		Object obj = null;
 
+		if (raf != null) {
+			Record r = index.get(key);
+			if (r == null)
+				return null;
+			return readRecord(r);
+		}
+
 		if (hmap.size() == 0 && iis != null) {
 			try {
 				while ((obj = iis.readObject()) != null) {
@@ -410,6 +530,17 @@ public class HFile {
 		boolean success = true;
 		try {
 
+			if (out != null) {
+				writeIndex();
+				out.close();
+				out = null;
+			}
+
+			if (raf != null) {
+				raf.close();
+				raf = null;
+			}
+
 			if (oos != null) {
 				oos.writeObject(hmap); // add the map as the last object
 				oos.flush();
@@ -433,6 +564,244 @@ public class HFile {
 
 	}
 
+	/**
+	 * Get the keys of all objects written with a key. For files in the indexed
+	 * format, no object is read.
+	 * 
+	 * @return keys
+	 */
+	public Set<String> getKeys() {
+
+		if (index != null)
+			return Collections.unmodifiableSet(index.keySet());
+		Map<String, Object> map = getObjectMap();
+		if (map == null)
+			return Collections.<String> emptySet();
+		return Collections.unmodifiableSet(map.keySet());
+	}
+
+	/**
+	 * Write P0D, P1D, PND, H1D and H2D with the compact binary codecs of
+	 * {@link BinaryCodecs}, which are faster and smaller than the Java
+	 * serialization, but do not keep the drawing attributes (the objects are
+	 * read back with the default ones). Only the indexed format supports it.
+	 * The default is false.
+	 * 
+	 * @param binary
+	 *            true to encode these objects with the binary codecs
+	 */
+	public void setBinary(boolean binary) {
+
+		this.binary = binary;
+	}
+
+	/**
+	 * Check if objects with a binary codec are written with it.
+	 * 
+	 * @return true if the binary codecs are used
+	 */
+	public boolean isBinary() {
+
+		return binary;
+	}
+
+	/**
+	 * Check if the file uses the indexed format.
+	 * 
+	 * @return true for files with an index (version 3)
+	 */
+	public boolean isIndexed() {
+
+		return index != null;
+	}
+
+	/**
+	 * Position, size and codec of one object in an indexed file.
+	 */
+	private static class Record {
+		final long offset;
+		final int length;
+		final byte codec;
+
+		Record(long offset, int length, byte codec) {
+			this.offset = offset;
+			this.length = length;
+			this.codec = codec;
+		}
+	}
+
+	/**
+	 * Check the first bytes of a stream for the indexed format. The stream
+	 * must support mark().
+	 */
+	private static boolean isIndexed(InputStream in) throws IOException {
+
+		in.mark(4);
+		int magic = 0;
+		for (int i = 0; i < 4; i++) {
+			int b = in.read();
+			if (b < 0) {
+				in.reset();
+				return false;
+			}
+			magic = (magic << 8) | b;
+		}
+		in.reset();
+		return magic == MAGIC;
+	}
+
+	/**
+	 * Open an indexed file and read the index, which is located at the
+	 * position given by the last 12 bytes of the file.
+	 */
+	private void openIndexed(File f) throws IOException {
+
+		raf = new RandomAccessFile(f, "r");
+		long size = raf.length();
+		raf.seek(4);
+		int v = raf.readInt();
+		if (v != INDEXED_VERSION || size < 20) {
+			raf.close();
+			raf = null;
+			throw new IOException("Unsupported HFile version " + v);
+		}
+		raf.seek(size - 12);
+		long start = raf.readLong();
+		if (raf.readInt() != MAGIC || start < 8 || start > size - 12) {
+			raf.close();
+			raf = null;
+			throw new IOException("The file " + f
+					+ " has no index. Was it closed?");
+		}
+		byte[] b = new byte[(int) (size - 12 - start)];
+		raf.seek(start);
+		raf.readFully(b);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+		int nkeys = in.readInt();
+		index = new LinkedHashMap<String, Record>(2 * nkeys);
+		for (int i = 0; i < nkeys; i++) {
+			String key = in.readUTF();
+			index.put(key, new Record(in.readLong(), in.readInt(), in
+					.readByte()));
+		}
+		int n = in.readInt();
+		records = new ArrayList<Record>(n);
+		for (int i = 0; i < n; i++)
+			records.add(new Record(in.readLong(), in.readInt(), in.readByte()));
+		next = 0;
+	}
+
+	/**
+	 * Serialize an object into a new record: length, codec and the
+	 * serialized (and compressed) object. With setBinary(true), objects with
+	 * a binary codec are encoded instead of serialized.
+	 */
+	private Record writeRecord(Object ob) {
+
+		if (ob instanceof jhplot.F1D)
+			ob = ((F1D) ob).get();
+		else if (ob instanceof jhplot.F2D)
+			ob = ((F2D) ob).get();
+		else if (ob instanceof jhplot.F3D)
+			ob = ((F3D) ob).get();
+		else if (ob instanceof jhplot.FND)
+			ob = ((FND) ob).get();
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			OutputStream os = bytes;
+			if (codec == CODEC_GZIP)
+				os = new GZIPOutputStream(os);
+			byte c = codec;
+			if (binary && BinaryCodecs.isSupported(ob)) {
+				DataOutputStream o = new DataOutputStream(os);
+				BinaryCodecs.write(o, ob);
+				o.close();
+				c |= CODEC_BINARY;
+			} else {
+				ObjectOutputStream o = new ObjectOutputStream(os);
+				o.writeObject(ob);
+				o.close();
+			}
+			Record r = new Record(position, bytes.size(), c);
+			out.writeInt(r.length);
+			out.writeByte(r.codec);
+			bytes.writeTo(out);
+			position += 5 + r.length;
+			return r;
+		} catch (IOException e) {
+			jhplot.utils.Util.ErrorMessage(e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Read and decode one record. Returns null in case of errors.
+	 */
+	private Object readRecord(Record r) {
+
+		try {
+			raf.seek(r.offset);
+			int length = raf.readInt();
+			byte c = raf.readByte();
+			if (length != r.length || c != r.codec)
+				throw new IOException("Corrupted record at " + r.offset);
+			byte[] b = new byte[length];
+			raf.readFully(b);
+			InputStream is = new ByteArrayInputStream(b);
+			if ((c & CODEC_GZIP) != 0)
+				is = new GZIPInputStream(is);
+			if ((c & CODEC_BINARY) != 0)
+				return BinaryCodecs.read(new DataInputStream(is));
+			ObjectInputStream o = new ObjectInputStream(is);
+			Object ob = o.readObject();
+			o.close();
+
+			// restore functions
+			if (ob instanceof jhplot.FProxy) {
+				FProxy fp = (FProxy) ob;
+				if (fp.getType() == 1)
+					ob = new F1D(fp);
+				else if (fp.getType() == 2)
+					ob = new F2D(fp);
+				else if (fp.getType() == 3)
+					ob = new F3D(fp);
+				else if (fp.getType() == 4)
+					ob = new FND(fp);
+			}
+			return ob;
+		} catch (ClassNotFoundException | IOException e) {
+			jhplot.utils.Util.ErrorMessage(e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Append the index: keys with their records, the records without keys,
+	 * the position of the index and the magic number.
+	 */
+	private void writeIndex() throws IOException {
+
+		long start = position;
+		out.writeInt(index.size());
+		for (Map.Entry<String, Record> e : index.entrySet()) {
+			Record r = e.getValue();
+			out.writeUTF(e.getKey());
+			out.writeLong(r.offset);
+			out.writeInt(r.length);
+			out.writeByte(r.codec);
+		}
+		out.writeInt(records.size());
+		for (Record r : records) {
+			out.writeLong(r.offset);
+			out.writeInt(r.length);
+			out.writeByte(r.codec);
+		}
+		out.writeLong(start);
+		out.writeInt(MAGIC);
+		out.flush();
+	}
+
 	/**
 	 * Show online documentation.
 	 */
@@ -0,0 +1,423 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+package jhplot.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file with columns of doubles which are memory-mapped and live outside the
+ * Java heap. Each column is a {@link MappedDoubleArrayList}, so it can be used
+ * wherever a DoubleArrayList is expected. Columns are stored in blocks of
+ * {@link #BLOCK_SIZE} values which are appended to the file as the columns
+ * grow, so only the columns which are actually filled take space, no data is
+ * moved when a column grows, and a column can hold more than 2 GB.
+ * <p>
+ * The file is mapped in regions of many blocks, up to {@link #REGION_BYTES}
+ * each, so that a large file needs few mappings. A new region is mapped when
+ * the blocks of the last one are used; it is as large as the blocks used so
+ * far (but at most REGION_BYTES), so the space reserved at the end of the file
+ * is at most the size of the data.
+ * <p>
+ * Opening an existing file only maps the regions: no data is read or parsed
+ * before it is accessed, and the operating system pages it in on demand.
+ * Changes are written back to the file by the operating system; call
+ * {@link #force()} or {@link #close()} to make sure they are on disk.
+ * <p>
+ * The file starts with a header of 1024 bytes holding the number of
+ * columns, the number of used blocks, the size of each column, a dimension
+ * and a title which can be used
+ * by the container owning the columns. Every block starts with the index of the
+ * column and the position of the block inside the column. All numbers are
+ * little-endian.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author S.Chekanov
+ *
+ */
+public class MappedColumns {
+
+	/**
+	 * Maximum number of columns in a file.
+	 */
+	public static final int MAX_COLUMNS = 16;
+
+	/**
+	 * Number of values in a block.
+	 */
+	public static final int BLOCK_SIZE = 1 << 16;
+
+	/**
+	 * Maximum number of bytes mapped by one region.
+	 */
+	public static final long REGION_BYTES = 1L << 30;
+
+	static final int BLOCK_SHIFT = 16;
+	static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private static final int MAGIC = 0x4A484D43; // "JHMC"
+	private static final int VERSION = 2; // 1: all blocks of the file are used
+	private static final int HEADER = 1024;
+	private static final int BLOCK_HEADER = 16;
+	private static final int MAX_TITLE = 512;
+	private static final long BLOCK_BYTES = BLOCK_HEADER + 8L * BLOCK_SIZE;
+	private static final long REGION_BLOCKS = REGION_BYTES / BLOCK_BYTES;
+
+	// header layout
+	private static final int POS_NCOLUMNS = 12;
+	private static final int POS_DIMENSION = 16;
+	private static final int POS_BLOCKS = 24;
+	private static final int POS_SIZES = 32;
+	private static final int POS_TITLE = POS_SIZES + 8 * MAX_COLUMNS;
+
+	private final File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private final MappedByteBuffer header;
+	private final MappedDoubleArrayList[] columns;
+	private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+	private MappedByteBuffer last; // last region
+	private long lastFirst; // first block of the last region
+	private long mappedBlocks; // blocks covered by the regions
+	private long nblocks; // used blocks
+
+	private MappedColumns(File file, RandomAccessFile raf, boolean create,
+			int ncolumns) throws IOException {
+		this.file = file;
+		this.raf = raf;
+		this.channel = raf.getChannel();
+		if (create) {
+			channel.truncate(0);
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(0, MAGIC);
+			header.putInt(4, VERSION);
+			header.putInt(8, BLOCK_SHIFT);
+			header.putInt(POS_NCOLUMNS, ncolumns);
+		} else {
+			if (channel.size() < HEADER)
+				throw new IOException("Not a mapped column file: " + file);
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC)
+				throw new IOException("Not a mapped column file: " + file);
+			int version = header.getInt(4);
+			if ((version != VERSION && version != 1)
+					|| header.getInt(8) != BLOCK_SHIFT)
+				throw new IOException("Unsupported version of file: " + file);
+			ncolumns = header.getInt(POS_NCOLUMNS);
+			if (ncolumns < 1 || ncolumns > MAX_COLUMNS)
+				throw new IOException("Corrupted header in file: " + file);
+		}
+
+		columns = new MappedDoubleArrayList[ncolumns];
+		for (int i = 0; i < ncolumns; i++)
+			columns[i] = new MappedDoubleArrayList(this, i);
+
+		if (!create)
+			mapBlocks();
+	}
+
+	/**
+	 * Create a new file with empty columns. An existing file is overwritten.
+	 *
+	 * @param file
+	 *            file name
+	 * @param ncolumns
+	 *            number of columns (1 - {@link #MAX_COLUMNS})
+	 * @return the opened file
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public static MappedColumns create(String file, int ncolumns)
+			throws IOException {
+		if (ncolumns < 1 || ncolumns > MAX_COLUMNS)
+			throw new IllegalArgumentException("Number of columns must be between 1 and "
+					+ MAX_COLUMNS);
+		File f = new File(file);
+		return new MappedColumns(f, new RandomAccessFile(f, "rw"), true,
+				ncolumns);
+	}
+
+	/**
+	 * Open an existing file. The data are mapped, not read.
+	 *
+	 * @param file
+	 *            file name
+	 * @return the opened file
+	 * @throws IOException
+	 *             if the file does not exist or has a wrong format
+	 */
+	public static MappedColumns open(String file) throws IOException {
+		File f = new File(file);
+		if (!f.exists())
+			throw new IOException("File does not exist: " + file);
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		try {
+			return new MappedColumns(f, raf, false, 0);
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get a column.
+	 *
+	 * @param index
+	 *            index of the column
+	 * @return the column backed by this file
+	 */
+	public MappedDoubleArrayList getColumn(int index) {
+		return columns[index];
+	}
+
+	/**
+	 * Get the number of columns.
+	 *
+	 * @return number of columns
+	 */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Get the dimension stored in the header.
+	 *
+	 * @return dimension
+	 */
+	public int getDimension() {
+		return header.getInt(POS_DIMENSION);
+	}
+
+	/**
+	 * Set the dimension stored in the header. Its meaning is defined by the
+	 * container which uses the columns.
+	 *
+	 * @param dimension
+	 *            dimension
+	 */
+	public void setDimension(int dimension) {
+		header.putInt(POS_DIMENSION, dimension);
+	}
+
+	/**
+	 * Get the title stored in the header.
+	 *
+	 * @return title
+	 */
+	public String getTitle() {
+		int n = header.getShort(POS_TITLE) & 0xFFFF;
+		byte[] b = new byte[n];
+		for (int i = 0; i < n; i++)
+			b[i] = header.get(POS_TITLE + 2 + i);
+		return new String(b, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * Set the title stored in the header. Long titles are truncated.
+	 *
+	 * @param title
+	 *            title
+	 */
+	public void setTitle(String title) {
+		byte[] b = (title == null ? "" : title).getBytes(Charset
+				.forName("UTF-8"));
+		int n = Math.min(b.length, MAX_TITLE - 2);
+		header.putShort(POS_TITLE, (short) n);
+		for (int i = 0; i < n; i++)
+			header.put(POS_TITLE + 2 + i, b[i]);
+	}
+
+	/**
+	 * Get the file name.
+	 *
+	 * @return file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Write all changes to the disk.
+	 */
+	public void force() {
+		header.force();
+		for (MappedByteBuffer r : regions)
+			r.force();
+	}
+
+	/**
+	 * Write all changes to the disk and close the file. The columns can still
+	 * be read and modified, but they cannot grow beyond the blocks which are
+	 * already allocated. The memory is released when the columns are garbage
+	 * collected.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be closed
+	 */
+	public void close() throws IOException {
+		if (channel == null)
+			return;
+		force();
+		channel = null;
+		raf.close();
+		raf = null;
+	}
+
+	/**
+	 * Check if the file is open.
+	 *
+	 * @return true if new blocks can be allocated
+	 */
+	public boolean isOpen() {
+		return channel != null;
+	}
+
+	long getSize(int column) {
+		return header.getLong(POS_SIZES + 8 * column);
+	}
+
+	void setSize(int column, long size) {
+		header.putLong(POS_SIZES + 8 * column, size);
+	}
+
+	/**
+	 * Take the next free block of the file for a column. A new region is
+	 * mapped when the last one is full.
+	 */
+	DoubleBuffer allocate(int column, int index) {
+		if (channel == null)
+			throw new IllegalStateException("File is closed: " + file);
+		if (nblocks == mappedBlocks) {
+			try {
+				map(nblocks, Math.min(REGION_BLOCKS, Math.max(1, nblocks)));
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot allocate a block in "
+						+ file + ": " + e.getMessage(), e);
+			}
+		}
+		ByteBuffer b = block(last, nblocks - lastFirst);
+		b.putInt(0, column);
+		b.putInt(4, index);
+		nblocks++;
+		header.putLong(POS_BLOCKS, nblocks);
+		return view(b);
+	}
+
+	/**
+	 * Map a region of the file, which grows the file if needed.
+	 */
+	private void map(long first, long count) throws IOException {
+		last = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + first
+				* BLOCK_BYTES, count * BLOCK_BYTES);
+		regions.add(last);
+		lastFirst = first;
+		mappedBlocks = first + count;
+	}
+
+	/**
+	 * Get a block of a region.
+	 */
+	private static ByteBuffer block(MappedByteBuffer region, long k) {
+		ByteBuffer b = region.duplicate();
+		b.position((int) (k * BLOCK_BYTES));
+		b.limit((int) ((k + 1) * BLOCK_BYTES));
+		return b.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Map all regions of an existing file and hand the used blocks to the
+	 * columns.
+	 */
+	private void mapBlocks() throws IOException {
+		long available = (channel.size() - HEADER) / BLOCK_BYTES;
+		if (header.getInt(4) == 1) {
+			nblocks = available;
+			header.putInt(4, VERSION);
+			header.putLong(POS_BLOCKS, nblocks);
+		} else {
+			nblocks = header.getLong(POS_BLOCKS);
+		}
+		if (nblocks < 0 || nblocks > available)
+			throw new IOException("Corrupted header in file: " + file);
+
+		List<List<DoubleBuffer>> blocks = new ArrayList<List<DoubleBuffer>>();
+		for (int i = 0; i < columns.length; i++)
+			blocks.add(new ArrayList<DoubleBuffer>());
+
+		for (long first = 0; first < nblocks; first += REGION_BLOCKS) {
+			map(first, Math.min(REGION_BLOCKS, nblocks - first));
+			for (long k = first; k < mappedBlocks; k++) {
+				ByteBuffer b = block(last, k - first);
+				int column = b.getInt(0);
+				int index = b.getInt(4);
+				if (column < 0 || column >= columns.length || index < 0)
+					throw new IOException("Corrupted block " + k
+							+ " in file: " + file);
+				List<DoubleBuffer> list = blocks.get(column);
+				while (list.size() <= index)
+					list.add(null);
+				list.set(index, view(b));
+			}
+		}
+		// the space reserved for new blocks
+		if (available > nblocks)
+			map(nblocks, Math.min(REGION_BLOCKS, available - nblocks));
+
+		for (int i = 0; i < columns.length; i++) {
+			List<DoubleBuffer> list = blocks.get(i);
+			long size = getSize(i);
+			if (size > (long) list.size() * BLOCK_SIZE || size > Integer.MAX_VALUE)
+				throw new IOException("Corrupted column " + i + " in file: "
+						+ file);
+			for (int k = 0; k < list.size(); k++)
+				if (list.get(k) == null)
+					throw new IOException("Missing block " + k + " of column "
+							+ i + " in file: " + file);
+			columns[i].attach(list.toArray(new DoubleBuffer[list.size()]),
+					(int) size);
+		}
+	}
+
+	/**
+	 * Get the values of a block as doubles.
+	 */
+	private static DoubleBuffer view(ByteBuffer b) {
+		ByteBuffer d = b.duplicate();
+		d.position(BLOCK_HEADER);
+		return d.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+	}
+}
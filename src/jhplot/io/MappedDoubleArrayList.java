@@ -0,0 +1,443 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+package jhplot.io;
+
+import java.io.ObjectStreamException;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+import cern.colt.function.DoubleProcedure;
+import cern.colt.list.AbstractDoubleList;
+import cern.colt.list.DoubleArrayList;
+
+/**
+ * A DoubleArrayList whose values are stored in a memory-mapped file instead
+ * of a Java array. Columns are obtained from {@link MappedColumns}. All list
+ * operations work as for DoubleArrayList, with one difference:
+ * {@link #elements()} returns a copy of the values, since there is no backing
+ * array. Values changed in this copy must be written back with
+ * {@link #elements(double[])}. Methods which return a new list, such as
+ * {@link #copy()} and {@link #partFromTo(int, int)}, return lists on the heap.
+ * <p>
+ * When serialized, the list is written as an ordinary DoubleArrayList.
+ *
+ * @author S.Chekanov
+ *
+ */
+public class MappedDoubleArrayList extends DoubleArrayList {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int SHIFT = MappedColumns.BLOCK_SHIFT;
+	private static final int MASK = MappedColumns.BLOCK_MASK;
+	private static final int BLOCK = MappedColumns.BLOCK_SIZE;
+
+	private transient MappedColumns owner;
+	private transient int column;
+	private transient DoubleBuffer[] blocks;
+
+	MappedDoubleArrayList(MappedColumns owner, int column) {
+		super(0);
+		this.owner = owner;
+		this.column = column;
+		this.blocks = new DoubleBuffer[0];
+	}
+
+	/**
+	 * Set the blocks of an existing column.
+	 */
+	void attach(DoubleBuffer[] blocks, int size) {
+		this.blocks = blocks;
+		this.size = size;
+	}
+
+	/**
+	 * Get the file holding this column.
+	 *
+	 * @return the file
+	 */
+	public MappedColumns getColumns() {
+		return owner;
+	}
+
+	/**
+	 * Write the changes of the file holding this column to the disk.
+	 */
+	public void force() {
+		owner.force();
+	}
+
+	@Override
+	public double getQuick(int index) {
+		return blocks[index >>> SHIFT].get(index & MASK);
+	}
+
+	@Override
+	public void setQuick(int index, double element) {
+		blocks[index >>> SHIFT].put(index & MASK, element);
+	}
+
+	@Override
+	public double get(int index) {
+		if (index >= size || index < 0)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		return getQuick(index);
+	}
+
+	@Override
+	public void set(int index, double element) {
+		if (index >= size || index < 0)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		setQuick(index, element);
+	}
+
+	@Override
+	public void add(double element) {
+		if (size == capacity())
+			ensureCapacity(size + 1);
+		setQuick(size, element);
+		setSizeRaw(size + 1);
+	}
+
+	@Override
+	public void beforeInsert(int index, double element) {
+		if (index > size || index < 0)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		ensureCapacity(size + 1);
+		for (int i = size; i > index; i--)
+			setQuick(i, getQuick(i - 1));
+		setQuick(index, element);
+		setSizeRaw(size + 1);
+	}
+
+	@Override
+	protected void setSizeRaw(int newSize) {
+		size = newSize;
+		if (owner != null)
+			owner.setSize(column, newSize);
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		if (owner == null) {
+			// called from the super constructor
+			super.ensureCapacity(minCapacity);
+			return;
+		}
+		int n = blocks.length;
+		int needed = (int) (((long) minCapacity + BLOCK - 1) >>> SHIFT);
+		if (needed <= n)
+			return;
+		DoubleBuffer[] b = new DoubleBuffer[needed];
+		System.arraycopy(blocks, 0, b, 0, n);
+		for (int i = n; i < needed; i++)
+			b[i] = owner.allocate(column, i);
+		blocks = b;
+	}
+
+	/**
+	 * Number of values which fit into the allocated blocks.
+	 */
+	private int capacity() {
+		return (int) Math.min((long) blocks.length << SHIFT, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Blocks are never released, this method does nothing.
+	 */
+	@Override
+	public void trimToSize() {
+	}
+
+	/**
+	 * Returns a copy of the values. Changes of the returned array are not
+	 * seen by this list.
+	 *
+	 * @return a new array with the values of this list
+	 */
+	@Override
+	public double[] elements() {
+		double[] a = new double[size];
+		read(0, a, 0, size);
+		return a;
+	}
+
+	/**
+	 * Replace the values of this list with the given values. The size of the
+	 * list becomes the length of the array. The array is copied.
+	 *
+	 * @param values
+	 *            new values
+	 * @return this list
+	 */
+	@Override
+	public AbstractDoubleList elements(double[] values) {
+		if (owner == null)
+			return super.elements(values);
+		ensureCapacity(values.length);
+		write(0, values, 0, values.length);
+		setSizeRaw(values.length);
+		return this;
+	}
+
+	/**
+	 * Copy values into an array, block by block.
+	 *
+	 * @param index
+	 *            first index in this list
+	 * @param dst
+	 *            destination array
+	 * @param off
+	 *            first index in the destination array
+	 * @param len
+	 *            number of values
+	 */
+	public void read(int index, double[] dst, int off, int len) {
+		while (len > 0) {
+			DoubleBuffer b = blocks[index >>> SHIFT].duplicate();
+			int pos = index & MASK;
+			int n = Math.min(len, BLOCK - pos);
+			b.position(pos);
+			b.get(dst, off, n);
+			index += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Copy values from an array, block by block. The blocks must be allocated.
+	 *
+	 * @param index
+	 *            first index in this list
+	 * @param src
+	 *            source array
+	 * @param off
+	 *            first index in the source array
+	 * @param len
+	 *            number of values
+	 */
+	private void write(int index, double[] src, int off, int len) {
+		while (len > 0) {
+			DoubleBuffer b = blocks[index >>> SHIFT].duplicate();
+			int pos = index & MASK;
+			int n = Math.min(len, BLOCK - pos);
+			b.position(pos);
+			b.put(src, off, n);
+			index += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void addAllOf(DoubleArrayList other) {
+		int n = other.size();
+		if (n == 0)
+			return;
+		if (other instanceof MappedDoubleArrayList) {
+			addAllOfFromTo(other, 0, n - 1);
+			return;
+		}
+		ensureCapacity(size + n);
+		write(size, other.elements(), 0, n);
+		setSizeRaw(size + n);
+	}
+
+	@Override
+	public void replaceFromToWithFrom(int from, int to,
+			AbstractDoubleList other, int otherFrom) {
+		int length = to - from + 1;
+		if (length <= 0)
+			return;
+		checkRangeFromTo(from, to, size);
+		checkRangeFromTo(otherFrom, otherFrom + length - 1, other.size());
+		if (other == this) {
+			if (from > otherFrom) {
+				for (int i = length - 1; i >= 0; i--)
+					setQuick(from + i, getQuick(otherFrom + i));
+			} else {
+				for (int i = 0; i < length; i++)
+					setQuick(from + i, getQuick(otherFrom + i));
+			}
+		} else if (other instanceof MappedDoubleArrayList) {
+			MappedDoubleArrayList o = (MappedDoubleArrayList) other;
+			for (int i = 0; i < length; i++)
+				setQuick(from + i, o.getQuick(otherFrom + i));
+		} else if (other instanceof DoubleArrayList) {
+			write(from, other.elements(), otherFrom, length);
+		} else {
+			for (int i = 0; i < length; i++)
+				setQuick(from + i, other.get(otherFrom + i));
+		}
+	}
+
+	@Override
+	public int binarySearchFromTo(double key, int from, int to) {
+		int low = from;
+		int high = to;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			double midVal = getQuick(mid);
+			if (midVal < key)
+				low = mid + 1;
+			else if (midVal > key)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	@Override
+	public int indexOfFromTo(double element, int from, int to) {
+		if (size == 0)
+			return -1;
+		checkRangeFromTo(from, to, size);
+		for (int i = from; i <= to; i++)
+			if (element == getQuick(i))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOfFromTo(double element, int from, int to) {
+		if (size == 0)
+			return -1;
+		checkRangeFromTo(from, to, size);
+		for (int i = to; i >= from; i--)
+			if (element == getQuick(i))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public boolean forEach(DoubleProcedure procedure) {
+		for (int i = 0; i < size; i++)
+			if (!procedure.apply(getQuick(i)))
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object otherObj) {
+		if (!(otherObj instanceof AbstractDoubleList))
+			return false;
+		if (this == otherObj)
+			return true;
+		AbstractDoubleList other = (AbstractDoubleList) otherObj;
+		if (size != other.size())
+			return false;
+		for (int i = 0; i < size; i++)
+			if (getQuick(i) != other.get(i))
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(AbstractDoubleList other) {
+		return retain(other, false);
+	}
+
+	@Override
+	public boolean retainAll(AbstractDoubleList other) {
+		return retain(other, true);
+	}
+
+	private boolean retain(AbstractDoubleList other, boolean keep) {
+		int j = 0;
+		for (int i = 0; i < size; i++) {
+			double v = getQuick(i);
+			if (other.contains(v) == keep)
+				setQuick(j++, v);
+		}
+		boolean modified = j != size;
+		setSizeRaw(j);
+		return modified;
+	}
+
+	@Override
+	public void reverse() {
+		for (int i = 0, j = size - 1; i < j; i++, j--) {
+			double tmp = getQuick(i);
+			setQuick(i, getQuick(j));
+			setQuick(j, tmp);
+		}
+	}
+
+	@Override
+	public void shuffleFromTo(int from, int to) {
+		if (size == 0)
+			return;
+		checkRangeFromTo(from, to, size);
+		Random r = new Random();
+		for (int i = from; i < to; i++) {
+			int k = i + r.nextInt(to - i + 1);
+			double tmp = getQuick(k);
+			setQuick(k, getQuick(i));
+			setQuick(i, tmp);
+		}
+	}
+
+	/**
+	 * Returns a copy on the heap.
+	 *
+	 * @return a DoubleArrayList with the same values
+	 */
+	@Override
+	public DoubleArrayList copy() {
+		return new DoubleArrayList(elements());
+	}
+
+	/**
+	 * Returns a copy on the heap.
+	 *
+	 * @return a DoubleArrayList with the same values
+	 */
+	@Override
+	public Object clone() {
+		return copy();
+	}
+
+	/**
+	 * Returns a part of the list as a new list on the heap.
+	 */
+	@Override
+	public AbstractDoubleList partFromTo(int from, int to) {
+		if (size == 0)
+			return new DoubleArrayList(0);
+		checkRangeFromTo(from, to, size);
+		double[] part = new double[to - from + 1];
+		read(from, part, 0, part.length);
+		return new DoubleArrayList(part);
+	}
+
+	private Object writeReplace() throws ObjectStreamException {
+		return copy();
+	}
+}
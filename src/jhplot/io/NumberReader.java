@@ -0,0 +1,558 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+package jhplot.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import cern.colt.list.DoubleArrayList;
+import cern.colt.list.IntArrayList;
+
+/**
+ * Reads rows of numbers from text. Each line is one row, numbers are separated
+ * by white spaces. Empty lines and lines starting with "#" or "*" are skipped.
+ * The text is scanned directly in a character buffer and numbers are
+ * converted without creating Strings, so reading does not produce garbage
+ * per line. Numbers which cannot be converted exactly on the fast path (more
+ * than 15 significant digits, large exponents, NaN, Infinity, hex) are passed
+ * to Double.parseDouble, so the values are always identical to
+ * Double.parseDouble.
+ * <p>
+ * Rows are read one by one with {@link #next()}, or handed to a
+ * {@link Handler} by {@link #read(Reader, Handler)}. Large files can be read
+ * in parallel with {@link #read(File, Handler, ForkJoinPool)}: the file is
+ * split at line boundaries, the chunks are converted by several threads and
+ * the rows are given to the handler in the original order.
+ * <p>
+ * A line which contains something that is not a number causes a
+ * NumberFormatException whose message contains the line number.
+ *
+ * @author S.Chekanov
+ *
+ */
+public class NumberReader {
+
+	/**
+	 * Receives the rows of a file.
+	 */
+	public interface Handler {
+
+		/**
+		 * Called for each row. The array is reused for the next row and
+		 * must be copied if the values are kept.
+		 *
+		 * @param line
+		 *            line number, starting from 1
+		 * @param values
+		 *            values of the row
+		 * @param n
+		 *            number of values in this row
+		 * @return false to stop reading
+		 */
+		boolean row(long line, double[] values, int n);
+	}
+
+	/**
+	 * Files smaller than this are not split for the parallel reading.
+	 */
+	public static final int MIN_CHUNK = 1 << 22;
+
+	private static final int MAX_CHUNK = 1 << 26;
+
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private final Reader in;
+	private char[] buf;
+	private int pos;
+	private int limit;
+	private boolean eof;
+	private long line;
+	private double[] values = new double[16];
+	private int count;
+	private String bad; // text which is not a number
+
+	/**
+	 * Read numbers from a reader. The reader does not need to be buffered.
+	 *
+	 * @param in
+	 *            input
+	 */
+	public NumberReader(Reader in) {
+		this.in = in;
+		this.buf = new char[1 << 16];
+	}
+
+	/**
+	 * Read numbers from characters in memory.
+	 */
+	private NumberReader(char[] text, int length) {
+		this.in = null;
+		this.buf = text;
+		this.limit = length;
+		this.eof = true;
+	}
+
+	/**
+	 * Go to the next row with numbers.
+	 *
+	 * @return false at the end of the input
+	 * @throws IOException
+	 *             if the input cannot be read
+	 * @throws NumberFormatException
+	 *             if the row contains something that is not a number
+	 */
+	public boolean next() throws IOException {
+		int scan = pos;
+		while (true) {
+			int eol = scan;
+			while (eol < limit && buf[eol] != '\n')
+				eol++;
+			if (eol == limit && !eof) {
+				scan = eol - pos;
+				fill();
+				scan += pos;
+				continue;
+			}
+			if (pos == limit)
+				return false;
+			line++;
+			count = parseLine(pos, eol);
+			pos = eol < limit ? eol + 1 : limit;
+			scan = pos;
+			if (count > 0)
+				return true;
+		}
+	}
+
+	/**
+	 * Get the values of the current row. The array is reused for the next
+	 * row and can be longer than the number of values.
+	 *
+	 * @return values
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Get the number of values in the current row.
+	 *
+	 * @return number of values
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the line number of the current row.
+	 *
+	 * @return line number, starting from 1
+	 */
+	public long getLineNumber() {
+		return line;
+	}
+
+	/**
+	 * Read all rows and give them to the handler. The reader is not closed.
+	 *
+	 * @param in
+	 *            input
+	 * @param handler
+	 *            receives the rows
+	 * @return false if the handler stopped the reading
+	 * @throws IOException
+	 *             if the input cannot be read
+	 * @throws NumberFormatException
+	 *             if a row contains something that is not a number
+	 */
+	public static boolean read(Reader in, Handler handler) throws IOException {
+		NumberReader r = new NumberReader(in);
+		while (r.next()) {
+			if (!handler.row(r.line, r.values, r.count))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Read all rows of a file in parallel and give them to the handler in the
+	 * order of the file. The handler is called from the calling thread only.
+	 * Small files are read by the calling thread.
+	 *
+	 * @param file
+	 *            input file (not compressed)
+	 * @param handler
+	 *            receives the rows
+	 * @param pool
+	 *            pool to run on, or null to use a temporary pool with one
+	 *            thread per processor
+	 * @return false if the handler stopped the reading
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws NumberFormatException
+	 *             if a row contains something that is not a number
+	 */
+	public static boolean read(File file, Handler handler, ForkJoinPool pool)
+			throws IOException {
+		int threads = pool == null ? Runtime.getRuntime()
+				.availableProcessors() : pool.getParallelism();
+		long size = file.length();
+		if (threads < 2 || size < 2L * MIN_CHUNK) {
+			Reader in = new InputStreamReader(new FileInputStream(file),
+					"ISO-8859-1");
+			try {
+				return read(in, handler);
+			} finally {
+				in.close();
+			}
+		}
+
+		boolean temporary = pool == null;
+		if (temporary)
+			pool = new ForkJoinPool(threads);
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long[] bounds = split(channel, size, threads);
+			int nchunks = bounds.length - 1;
+			Chunk[] chunks = new Chunk[nchunks];
+			// keep a few chunks ahead of the handler, but not the whole file
+			int window = 2 * threads;
+			int submitted = 0;
+			long base = 0;
+			double[] row = new double[16];
+			for (int k = 0; k < nchunks; k++) {
+				while (submitted < nchunks && submitted < k + window) {
+					chunks[submitted] = new Chunk(channel, bounds[submitted],
+							bounds[submitted + 1]);
+					pool.execute(chunks[submitted]);
+					submitted++;
+				}
+				Chunk c = chunks[k];
+				c.join();
+				chunks[k] = null;
+				if (c.ioError != null)
+					throw c.ioError;
+				double[] v = c.values.elements();
+				int[] n = c.counts.elements();
+				int[] lines = c.lines.elements();
+				int off = 0;
+				for (int i = 0; i < c.counts.size(); i++) {
+					if (n[i] > row.length)
+						row = new double[n[i]];
+					System.arraycopy(v, off, row, 0, n[i]);
+					off += n[i];
+					if (!handler.row(base + lines[i], row, n[i])) {
+						cancel(chunks);
+						return false;
+					}
+				}
+				if (c.error != null) {
+					cancel(chunks);
+					throw new NumberFormatException("Error in reading the line "
+							+ (base + c.errorLine) + ": " + c.error);
+				}
+				base += c.nlines;
+			}
+			return true;
+		} finally {
+			raf.close();
+			if (temporary)
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * Convert the numbers of one row given as a string. Used for the rows
+	 * of other text formats.
+	 *
+	 * @param text
+	 *            numbers separated by white spaces
+	 * @return values
+	 * @throws NumberFormatException
+	 *             if the text contains something that is not a number
+	 */
+	static double[] parse(String text) {
+		char[] c = text.toCharArray();
+		NumberReader r = new NumberReader(c, c.length);
+		r.line = 1;
+		int n = r.parseLine(0, c.length);
+		double[] v = new double[n];
+		System.arraycopy(r.values, 0, v, 0, n);
+		return v;
+	}
+
+	private static void cancel(Chunk[] chunks) {
+		for (Chunk c : chunks)
+			if (c != null)
+				c.cancel(false);
+	}
+
+	/**
+	 * Find chunk boundaries which are at the start of a line.
+	 */
+	private static long[] split(FileChannel channel, long size, int threads)
+			throws IOException {
+		long chunk = Math.max(MIN_CHUNK, size / (4L * threads));
+		chunk = Math.min(chunk, MAX_CHUNK);
+		int nchunks = (int) ((size + chunk - 1) / chunk);
+		long[] bounds = new long[nchunks + 1];
+		ByteBuffer b = ByteBuffer.allocate(4096);
+		int m = 1;
+		for (int k = 1; k < nchunks; k++) {
+			long p = Math.max(k * chunk, bounds[m - 1]);
+			// move to the byte after the next new line
+			search: while (p < size) {
+				b.clear();
+				int n = channel.read(b, p);
+				if (n <= 0)
+					break;
+				for (int i = 0; i < n; i++) {
+					if (b.get(i) == '\n') {
+						p += i + 1;
+						break search;
+					}
+				}
+				p += n;
+			}
+			if (p < size && p > bounds[m - 1])
+				bounds[m++] = p;
+		}
+		bounds[m++] = size;
+		if (m < bounds.length) {
+			long[] t = new long[m];
+			System.arraycopy(bounds, 0, t, 0, m);
+			bounds = t;
+		}
+		return bounds;
+	}
+
+	/**
+	 * Converts a part of a file.
+	 */
+	private static final class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long from;
+		private final long to;
+
+		DoubleArrayList values;
+		IntArrayList counts;
+		IntArrayList lines;
+		int nlines;
+		String error;
+		long errorLine;
+		IOException ioError;
+
+		Chunk(FileChannel channel, long from, long to) {
+			this.channel = channel;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			int length = (int) (to - from);
+			values = new DoubleArrayList(length / 8);
+			counts = new IntArrayList(length / 32);
+			lines = new IntArrayList(length / 32);
+			char[] text = new char[length];
+			try {
+				ByteBuffer b = ByteBuffer.allocate(Math.min(length, 1 << 16));
+				int pos = 0;
+				while (pos < length) {
+					b.clear();
+					if (b.remaining() > length - pos)
+						b.limit(length - pos);
+					int n = channel.read(b, from + pos);
+					if (n < 0)
+						break;
+					for (int i = 0; i < n; i++)
+						text[pos + i] = (char) (b.get(i) & 0xFF);
+					pos += n;
+				}
+				length = pos;
+			} catch (IOException e) {
+				ioError = e;
+				return;
+			}
+
+			NumberReader r = new NumberReader(text, length);
+			try {
+				while (r.next()) {
+					for (int i = 0; i < r.count; i++)
+						values.add(r.values[i]);
+					counts.add(r.count);
+					lines.add((int) r.line);
+				}
+			} catch (NumberFormatException e) {
+				error = r.bad;
+				errorLine = r.line;
+			} catch (IOException e) {
+				ioError = e;
+			}
+			nlines = (int) r.line;
+		}
+	}
+
+	/**
+	 * Move the unread characters to the start of the buffer and read more.
+	 */
+	private void fill() throws IOException {
+		int n = limit - pos;
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, n);
+		} else if (n == buf.length) {
+			char[] b = new char[2 * buf.length];
+			System.arraycopy(buf, 0, b, 0, n);
+			buf = b;
+		}
+		pos = 0;
+		limit = n;
+		int r = in.read(buf, limit, buf.length - limit);
+		if (r < 0)
+			eof = true;
+		else
+			limit += r;
+	}
+
+	/**
+	 * Convert the numbers in buf[from, to).
+	 *
+	 * @return number of values, 0 for empty lines and comments
+	 */
+	private int parseLine(int from, int to) {
+		int i = from;
+		while (i < to && buf[i] <= ' ')
+			i++;
+		if (i == to || buf[i] == '#' || buf[i] == '*')
+			return 0;
+		int n = 0;
+		while (i < to) {
+			int start = i;
+			while (i < to && buf[i] > ' ')
+				i++;
+			if (n == values.length) {
+				double[] v = new double[2 * n];
+				System.arraycopy(values, 0, v, 0, n);
+				values = v;
+			}
+			values[n++] = parseDouble(start, i);
+			while (i < to && buf[i] <= ' ')
+				i++;
+		}
+		return n;
+	}
+
+	/**
+	 * Convert buf[from, to) to a double. Decimal numbers with up to 15
+	 * significant digits and a power of ten up to 22 are exact doubles
+	 * multiplied or divided by an exact power of ten, which is correctly
+	 * rounded. Everything else goes to Double.parseDouble.
+	 */
+	private double parseDouble(int from, int to) {
+		int i = from;
+		boolean negative = false;
+		char c = buf[i];
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			i++;
+		}
+		long m = 0;
+		int digits = 0;
+		int significant = 0;
+		int exp = 0;
+		while (i < to && (c = buf[i]) >= '0' && c <= '9') {
+			m = 10 * m + (c - '0');
+			if (m != 0)
+				significant++;
+			digits++;
+			i++;
+		}
+		if (i < to && buf[i] == '.') {
+			i++;
+			while (i < to && (c = buf[i]) >= '0' && c <= '9') {
+				m = 10 * m + (c - '0');
+				if (m != 0)
+					significant++;
+				digits++;
+				exp--;
+				i++;
+			}
+		}
+		if (i < to && digits > 0 && ((c = buf[i]) == 'e' || c == 'E')) {
+			i++;
+			boolean eneg = false;
+			if (i < to && ((c = buf[i]) == '-' || c == '+')) {
+				eneg = c == '-';
+				i++;
+			}
+			int e = 0;
+			int edigits = 0;
+			while (i < to && (c = buf[i]) >= '0' && c <= '9' && e < 10000) {
+				e = 10 * e + (c - '0');
+				edigits++;
+				i++;
+			}
+			if (edigits == 0)
+				return slowParse(from, to);
+			exp += eneg ? -e : e;
+		}
+		if (i != to || digits == 0 || significant > 15)
+			return slowParse(from, to);
+		double v;
+		if (m == 0)
+			v = 0.0;
+		else if (exp >= 0 && exp < POW10.length)
+			v = m * POW10[exp];
+		else if (exp < 0 && -exp < POW10.length)
+			v = m / POW10[-exp];
+		else
+			return slowParse(from, to);
+		return negative ? -v : v;
+	}
+
+	private double slowParse(int from, int to) {
+		String s = new String(buf, from, to - from);
+		try {
+			return Double.parseDouble(s);
+		} catch (NumberFormatException e) {
+			bad = s;
+			throw new NumberFormatException("Error in reading the line " + line
+					+ ": " + s);
+		}
+	}
+}
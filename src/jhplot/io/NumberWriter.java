@@ -0,0 +1,107 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.io;
+
+/**
+ * Writes doubles as short decimal text which is read back as exactly the same
+ * double. A number is written with the smallest number of decimal digits
+ * after the point for which the value divided by the power of ten gives the
+ * number again. Such numbers have at most 15 significant digits, so
+ * {@link NumberReader} converts them on its fast path with the same division.
+ * Integers are written without a point, all other numbers as by
+ * Double.toString.
+ *
+ * @author S.Chekanov
+ *
+ */
+final class NumberWriter {
+
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// more significant digits are not written on the fast path
+	private static final double MAX = 1e15;
+
+	private NumberWriter() {
+	}
+
+	/**
+	 * Append a double.
+	 *
+	 * @param sb
+	 *            output
+	 * @param d
+	 *            value
+	 * @return the output
+	 */
+	static StringBuilder append(StringBuilder sb, double d) {
+
+		double a = Math.abs(d);
+		if (a < MAX && a == Math.rint(a)) {
+			if (d == 0 && 1 / d < 0)
+				sb.append('-');
+			return sb.append((long) d);
+		}
+		if (a < MAX) {
+			for (int k = 1; k < POW10.length; k++) {
+				double s = a * POW10[k];
+				if (s >= MAX)
+					break;
+				long m = Math.round(s);
+				if (m / POW10[k] == a)
+					return appendDecimal(sb, d < 0, m, k);
+			}
+		}
+		return sb.append(Double.toString(d));
+	}
+
+	/**
+	 * Append m / 10^k. Numbers with more than three zeros after the point are
+	 * written with an exponent.
+	 */
+	private static StringBuilder appendDecimal(StringBuilder sb,
+			boolean negative, long m, int k) {
+
+		String s = Long.toString(m);
+		int point = s.length() - k;
+		if (negative)
+			sb.append('-');
+		if (point > 0)
+			return sb.append(s, 0, point).append('.').append(s, point,
+					s.length());
+		if (point >= -3) {
+			sb.append("0.");
+			for (int i = point; i < 0; i++)
+				sb.append('0');
+			return sb.append(s);
+		}
+		sb.append(s.charAt(0));
+		if (s.length() > 1)
+			sb.append('.').append(s, 1, s.length());
+		return sb.append('E').append(point - 1);
+	}
+}
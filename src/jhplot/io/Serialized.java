@@ -43,7 +43,9 @@ import jhplot.gui.HelpBrowser;
  * Methods used for serialization. Includes write (read) for the standard
  * serialization. Objects can be compressed on-fly using GZip. Also, one can use
  * XML format for serialization (writeXML(), readXML()). XML serialization is
- * based on XSream and not compressed. Files can be read from URL.
+ * based on XSream and not compressed. Files can be read from URL. P0D, P1D,
+ * PND, H1D and H2D can be written with the compact binary codecs
+ * (writeBinary()); read() recognizes both formats.
  * 
  * @author S.Chekanov
  * 
@@ -115,6 +117,49 @@ public class Serialized {
 
 	}
 
+	/**
+	 * Write an object to a file using the compact binary codecs of
+	 * {@link BinaryCodecs}, which are much faster and smaller than the Java
+	 * serialization for P0D, P1D, PND, H1D and H2D. Only the data are kept,
+	 * not the drawing attributes. Other objects are serialized as in
+	 * write(). Use the method read() to read it back.
+	 * 
+	 * @param o
+	 *            object to write into a file
+	 * 
+	 * @param name
+	 *            file name for output.
+	 * @param compressed
+	 *            set true if file should be compressed.
+	 * 
+	 * @return zero if no errors
+	 */
+	public static int writeBinary(Object o, String name, boolean compressed) {
+
+		if (!BinaryCodecs.isSupported(o))
+			return write(o, name, compressed);
+
+		try {
+			OutputStream outFile = new FileOutputStream(name);
+			if (compressed == true) {
+				outFile = new GZIPOutputStream(outFile);
+			}
+			DataOutputStream outStream = new DataOutputStream(
+					new BufferedOutputStream(outFile));
+			BinaryCodecs.write(outStream, o);
+			outStream.close();
+
+		} catch (FileNotFoundException e) {
+			ErrorMessage(e.toString());
+			return 2;
+		} catch (IOException e) {
+			ErrorMessage(e.toString());
+			return 1;
+		}
+
+		return 0;
+	}
+
 	/**
 	 * Write an object to a serialized XML file. Use the method readXML() to get
 	 * it back.
@@ -196,15 +241,13 @@ public class Serialized {
 		try {
 
 			FileInputStream fileIn = new FileInputStream(file);
-			ObjectInputStream in;
+			InputStream in = fileIn;
 
 			if (compressed == true) {
-				in = new ObjectInputStream(new GZIPInputStream(fileIn));
-			} else {
-				in = new ObjectInputStream(fileIn);
+				in = new GZIPInputStream(fileIn);
 			}
 
-			p0 = in.readObject();
+			p0 = readObject(in);
 			in.close();
 			fileIn.close();
 
@@ -241,15 +284,14 @@ public class Serialized {
 			urlConn.setDoInput(true);
 			urlConn.setUseCaches(false);
 
-			ObjectInputStream in;
+			InputStream in;
 			if (compressed == true) {
-				in = new ObjectInputStream(new GZIPInputStream(urlConn
-						.getInputStream()));
+				in = new GZIPInputStream(urlConn.getInputStream());
 			} else {
-				in = new ObjectInputStream(urlConn.getInputStream());
+				in = urlConn.getInputStream();
 			}
 
-			p0 = in.readObject();
+			p0 = readObject(in);
 			in.close();
 
 		} catch (ClassNotFoundException e) {
@@ -340,6 +382,18 @@ public class Serialized {
 
 	}
 
+	/**
+	 * Read a serialized or binary encoded object from a stream.
+	 */
+	private static Object readObject(InputStream in) throws IOException,
+			ClassNotFoundException {
+
+		BufferedInputStream b = new BufferedInputStream(in);
+		if (BinaryCodecs.isEncoded(b))
+			return BinaryCodecs.read(new DataInputStream(b));
+		return new ObjectInputStream(b).readObject();
+	}
+
 	/**
 	 * Generate error message
 	 * 
@@ -91,6 +91,13 @@ public abstract class BaseRecordsFile {
    */
   protected abstract RecordHeader getRecordAt(long targetFp) throws RecordsFileException;
 
+  /**
+   * Returns the database file.
+   */
+  protected RandomAccessFile getFile() {
+    return file;
+  }
+
   protected long getFileLength() throws IOException { 
     return file.length(); 
   }
@@ -244,6 +251,13 @@ public abstract class BaseRecordsFile {
     return new RecordReader(key, data);
   }
 
+  /**
+   * Reads the first object of a record.
+   */
+  public Object readObject(String key) throws RecordsFileException, IOException, ClassNotFoundException {
+    return readRecord(key).readObject();
+  }
+
   /**
    * Reads the data for the record with the given key.
    */
@@ -0,0 +1,57 @@
+package jhplot.io.db;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the remaining bytes of a buffer as a stream. The buffer itself is not
+ * changed. Supports mark and reset.
+ */
+final class ByteBufferInputStream extends InputStream {
+
+  private final ByteBuffer buf;
+  private int mark;
+
+  ByteBufferInputStream(ByteBuffer buf) {
+    this.buf = buf.duplicate();
+    this.mark = this.buf.position();
+  }
+
+  public int read() {
+    return buf.hasRemaining() ? buf.get() & 0xff : -1;
+  }
+
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (!buf.hasRemaining()) {
+      return -1;
+    }
+    int n = Math.min(len, buf.remaining());
+    buf.get(b, off, n);
+    return n;
+  }
+
+  public long skip(long n) {
+    int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+    buf.position(buf.position() + k);
+    return k;
+  }
+
+  public int available() {
+    return buf.remaining();
+  }
+
+  public boolean markSupported() {
+    return true;
+  }
+
+  public void mark(int readlimit) {
+    mark = buf.position();
+  }
+
+  public void reset() {
+    buf.position(mark);
+  }
+}
@@ -0,0 +1,470 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+package jhplot.io.db;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Records file which keeps the database file memory-mapped. The file format is
+ * the same as for {@link RecordsFile}. Headers, index entries and records are
+ * read and written in the mapped memory, so a lookup does not need system
+ * calls or a file pointer. Records after the first 2 GB of the file are read
+ * and written with positional channel operations.
+ * <p>
+ * Any number of threads can read at the same time: readers share the read
+ * lock and only wait while a record is inserted, updated or deleted, which
+ * takes the write lock. {@link #readObject(String)} decodes the object
+ * directly from the mapped memory while it holds the read lock.
+ * <p>
+ * The file grows in steps and is cut to its real length when it is closed.
+ * If the operating system does not allow this while the file is mapped, the
+ * free space at the end is reused when the file is opened again.
+ */
+public class MappedRecordsFile extends BaseRecordsFile {
+
+  // Largest part of the file which is mapped.
+  private static final long MAX_MAP = Integer.MAX_VALUE;
+
+  // Minimum and maximum growth of the file.
+  private static final long MIN_GROWTH = 1L << 20;
+  private static final long MAX_GROWTH = 1L << 26;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // In-memory index. Changed only with the write lock.
+  private final Map<String, RecordHeader> memIndex;
+
+  private final FileChannel channel;
+
+  private final boolean readOnly;
+
+  private MappedByteBuffer map;
+
+  // Length of the data in the file. The file itself can be longer.
+  private long length;
+
+  private long capacity;
+
+  /**
+   * Creates a new database file.  The initialSize parameter determines the 
+   * amount of space which is allocated for the index.
+   */
+  public MappedRecordsFile(String dbPath, int initialSize) throws IOException, RecordsFileException {
+    super(dbPath, initialSize);
+    memIndex = new HashMap<String, RecordHeader>(Math.max(16, 2 * initialSize));
+    channel = getFile().getChannel();
+    readOnly = false;
+    length = channel.size();
+    capacity = length;
+    remap();
+  }
+
+  /**
+   * Opens an existing database and initializes the in-memory index. The accessFlags 
+   * parameter can be "r" or "rw".
+   */
+  public MappedRecordsFile(String dbPath, String accessFlags) throws IOException, RecordsFileException {
+    super(dbPath, accessFlags);
+    channel = getFile().getChannel();
+    readOnly = accessFlags.indexOf('w') < 0;
+    capacity = channel.size();
+    remap();
+    int numRecords = readNumRecordsHeader();
+    memIndex = new HashMap<String, RecordHeader>(Math.max(16, 2 * numRecords));
+    length = dataStartPtr;
+    for (int i = 0; i < numRecords; i++) {
+      String key = readKeyFromIndex(i);
+      RecordHeader header = readRecordHeaderFromIndex(i);
+      header.setIndexPosition(i);
+      memIndex.put(key, header);
+      length = Math.max(length, header.dataPointer + header.dataCapacity);
+    }
+    if (length > capacity) {
+      throw new RecordsFileException("Database file is truncated: " + dbPath);
+    }
+  }
+
+  /**
+   * Returns an enumeration of all the keys in the database.
+   */
+  public Enumeration enumerateKeys() {
+    lock.readLock().lock();
+    try {
+      return Collections.enumeration(new ArrayList<String>(memIndex.keySet()));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the current number of records in the database. 
+   */
+  public int getNumRecords() {
+    lock.readLock().lock();
+    try {
+      return memIndex.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Checks if there is a record belonging to the given key. 
+   */
+  public boolean recordExists(String key) {
+    lock.readLock().lock();
+    try {
+      return memIndex.containsKey(key);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the given record to the database.
+   */
+  public void insertRecord(RecordWriter rw) throws RecordsFileException, IOException {
+    lock.writeLock().lock();
+    try {
+      checkWritable();
+      super.insertRecord(rw);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Updates an existing record.
+   */
+  public void updateRecord(RecordWriter rw) throws RecordsFileException, IOException {
+    lock.writeLock().lock();
+    try {
+      checkWritable();
+      super.updateRecord(rw);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Deletes a record.
+   */
+  public void deleteRecord(String key) throws RecordsFileException, IOException {
+    lock.writeLock().lock();
+    try {
+      checkWritable();
+      super.deleteRecord(key);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Reads a record. The data are copied from the mapped memory, so the reader
+   * is not affected by later changes of the database.
+   */
+  public RecordReader readRecord(String key) throws RecordsFileException, IOException {
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      return new RecordReader(key, readRecordData(key));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Reads the first object of a record directly from the mapped memory.
+   */
+  public Object readObject(String key) throws RecordsFileException, IOException, ClassNotFoundException {
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      RecordHeader header = keyToRecordHeader(key);
+      ByteBuffer b = region(header.dataPointer, header.dataCount);
+      RecordReader r = b != null ? new RecordReader(key, b)
+          : new RecordReader(key, readRecordData(header));
+      return r.readObject();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Closes the database. 
+   */
+  public void close() throws IOException, RecordsFileException {
+    lock.writeLock().lock();
+    try {
+      if (map != null && !readOnly) {
+        map.force();
+        map = null;
+        try {
+          getFile().setLength(length);
+        } catch (IOException e) {
+          // the file is still mapped; the free space is reused later
+        }
+      }
+      map = null;
+      super.close();
+    } finally {
+      memIndex.clear();
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Maps a key to a record header by looking it up in the in-memory index.
+   */
+  protected RecordHeader keyToRecordHeader(String key) throws RecordsFileException {
+    RecordHeader h = memIndex.get(key);
+    if (h == null) {
+      throw new RecordsFileException("Key not found: " + key);
+    }
+    return h;
+  }
+
+  /**
+   * Searches the file for free space and then returns a RecordHeader 
+   * which uses the space. (O(n) memory accesses)
+   */
+  protected RecordHeader allocateRecord(String key, int dataLength) throws RecordsFileException, IOException {
+    for (RecordHeader next : memIndex.values()) {
+      if (dataLength <= next.getFreeSpace()) {
+        RecordHeader newRecord = next.split();
+        writeRecordHeaderToIndex(next);
+        return newRecord;
+      }
+    }
+    // append record to end of file - grows file to allocate space
+    long fp = getFileLength();
+    setFileLength(fp + dataLength);
+    return new RecordHeader(fp, dataLength);
+  }
+
+  /**
+   * Returns the record to which the target file pointer belongs. Returns null if 
+   * the location is not part of a record. (O(n) mem accesses)
+   */
+  protected RecordHeader getRecordAt(long targetFp) throws RecordsFileException {
+    for (RecordHeader next : memIndex.values()) {
+      if (targetFp >= next.dataPointer &&
+          targetFp < next.dataPointer + (long)next.dataCapacity) {
+        return next;
+      }
+    }
+    return null;
+  }
+
+  protected long getFileLength() throws IOException {
+    return map == null ? super.getFileLength() : length;
+  }
+
+  /**
+   * Sets the length of the data. The file grows in steps and is mapped again
+   * when it grows.
+   */
+  protected void setFileLength(long l) throws IOException {
+    if (map == null) {
+      super.setFileLength(l);
+      return;
+    }
+    if (l > capacity) {
+      long step = Math.max(MIN_GROWTH, Math.min(MAX_GROWTH, capacity));
+      capacity = Math.max(l, capacity + step);
+      getFile().setLength(capacity);
+      remap();
+    }
+    length = l;
+  }
+
+  protected int readNumRecordsHeader() throws IOException {
+    if (map == null) {
+      return super.readNumRecordsHeader();
+    }
+    return map.getInt((int) NUM_RECORDS_HEADER_LOCATION);
+  }
+
+  protected void writeNumRecordsHeader(int numRecords) throws IOException {
+    if (map == null) {
+      super.writeNumRecordsHeader(numRecords);
+      return;
+    }
+    map.putInt((int) NUM_RECORDS_HEADER_LOCATION, numRecords);
+  }
+
+  protected long readDataStartHeader() throws IOException {
+    if (map == null) {
+      return super.readDataStartHeader();
+    }
+    return map.getLong((int) DATA_START_HEADER_LOCATION);
+  }
+
+  protected void writeDataStartPtrHeader(long dataStartPtr) throws IOException {
+    if (map == null) {
+      super.writeDataStartPtrHeader(dataStartPtr);
+      return;
+    }
+    map.putLong((int) DATA_START_HEADER_LOCATION, dataStartPtr);
+  }
+
+  String readKeyFromIndex(int position) throws IOException {
+    byte[] b = new byte[MAX_KEY_LENGTH];
+    read(indexPositionToKeyFp(position), b);
+    return new DataInputStream(new ByteArrayInputStream(b)).readUTF();
+  }
+
+  RecordHeader readRecordHeaderFromIndex(int position) throws IOException {
+    byte[] b = new byte[RECORD_HEADER_LENGTH];
+    read(indexPositionToRecordHeaderFp(position), b);
+    return RecordHeader.readHeader(new DataInputStream(new ByteArrayInputStream(b)));
+  }
+
+  protected void writeRecordHeaderToIndex(RecordHeader header) throws IOException {
+    DbByteArrayOutputStream b = new DbByteArrayOutputStream(RECORD_HEADER_LENGTH);
+    header.write(new DataOutputStream(b));
+    write(indexPositionToRecordHeaderFp(header.indexPosition), b.toByteArray());
+  }
+
+  /**
+   * Appends an entry to end of index. Assumes that insureIndexSpace() has already been called.
+   */
+  protected void addEntryToIndex(String key, RecordHeader newRecord, int currentNumRecords) throws IOException, RecordsFileException {
+    write(indexPositionToKeyFp(currentNumRecords), keyToBytes(key));
+    newRecord.setIndexPosition(currentNumRecords);
+    writeRecordHeaderToIndex(newRecord);
+    writeNumRecordsHeader(currentNumRecords+1);
+    memIndex.put(key, newRecord);
+  }
+
+  /**
+   * Removes the record from the index. Replaces the target with the entry at the 
+   * end of the index. 
+   */
+  protected void deleteEntryFromIndex(String key, RecordHeader header, int currentNumRecords) throws IOException, RecordsFileException {
+    if (header.indexPosition != currentNumRecords -1) {
+      String lastKey = readKeyFromIndex(currentNumRecords-1);
+      RecordHeader last = keyToRecordHeader(lastKey);
+      last.setIndexPosition(header.indexPosition);
+      write(indexPositionToKeyFp(last.indexPosition), keyToBytes(lastKey));
+      writeRecordHeaderToIndex(last);
+    }
+    writeNumRecordsHeader(currentNumRecords-1);
+    memIndex.remove(key);
+  }
+
+  /**
+   * Reads the record data for the given record header.
+   */
+  protected byte[] readRecordData(RecordHeader header) throws IOException {
+    byte[] buf = new byte[header.dataCount];
+    read(header.dataPointer, buf);
+    return buf;
+  }
+
+  protected void writeRecordData(RecordHeader header, RecordWriter rw) throws IOException, RecordsFileException {
+    writeRecordData(header, rw.out.toByteArray());
+  }
+
+  protected void writeRecordData(RecordHeader header, byte[] data) throws IOException, RecordsFileException {
+    if (data.length > header.dataCapacity) {
+      throw new RecordsFileException ("Record data does not fit");
+    } 
+    header.dataCount = data.length;
+    write(header.dataPointer, data);
+  }
+
+  private byte[] keyToBytes(String key) throws IOException, RecordsFileException {
+    DbByteArrayOutputStream temp = new DbByteArrayOutputStream(MAX_KEY_LENGTH);
+    (new DataOutputStream(temp)).writeUTF(key);
+    if (temp.size() > MAX_KEY_LENGTH) {
+      throw new RecordsFileException("Key is larger than permitted size of " + MAX_KEY_LENGTH + " bytes");
+    }
+    return temp.toByteArray();
+  }
+
+  private void remap() throws IOException {
+    map = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+        0, Math.min(capacity, MAX_MAP));
+  }
+
+  /**
+   * Returns the mapped bytes [pos, pos+n), or null if they are not mapped.
+   */
+  private ByteBuffer region(long pos, int n) {
+    if (pos + n > map.capacity()) {
+      return null;
+    }
+    ByteBuffer b = map.duplicate();
+    b.limit((int) pos + n);
+    b.position((int) pos);
+    return b;
+  }
+
+  private void read(long pos, byte[] b) throws IOException {
+    ByteBuffer r = region(pos, b.length);
+    if (r != null) {
+      r.get(b);
+      return;
+    }
+    ByteBuffer dst = ByteBuffer.wrap(b);
+    while (dst.hasRemaining()) {
+      if (channel.read(dst, pos + dst.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  private void write(long pos, byte[] b) throws IOException {
+    ByteBuffer r = region(pos, b.length);
+    if (r != null) {
+      r.put(b);
+      return;
+    }
+    ByteBuffer src = ByteBuffer.wrap(b);
+    while (src.hasRemaining()) {
+      channel.write(src, pos + src.position());
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (map == null) {
+      throw new IOException("Database is closed");
+    }
+  }
+
+  private void checkWritable() throws IOException {
+    checkOpen();
+    if (readOnly) {
+      throw new IOException("Database is opened for reading only");
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package jhplot.io.db;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+
+import jhplot.io.BinaryCodecs;
 
 
 /**
@@ -12,7 +15,8 @@ public class RecordReader {
   
   String key;
   byte[] data;
-  ByteArrayInputStream in;
+  ByteBuffer buffer;
+  InputStream in;
   ObjectInputStream objIn;
 
   protected RecordReader(String key, byte[] data) {
@@ -21,11 +25,25 @@ public class RecordReader {
     in = new ByteArrayInputStream(data);
   }
 
+  /**
+   * Reads the record directly from a buffer, without copying it.
+   */
+  RecordReader(String key, ByteBuffer buffer) {
+    this.key = key;
+    this.buffer = buffer;
+    in = new ByteBufferInputStream(buffer);
+  }
+
   protected String getKey() {
     return key;
   }
 
   protected  byte[] getData() {
+    if (data == null) {
+      ByteBuffer b = buffer.duplicate();
+      data = new byte[b.remaining()];
+      b.get(data);
+    }
     return data;
   }
 
@@ -41,9 +59,12 @@ public class RecordReader {
   }
 
   /**
-   * Reads the next object in the record using an ObjectInputStream.
+   * Reads the next object in the record using an ObjectInputStream, or
+   * using {@link BinaryCodecs} if the record holds a binary encoded object.
    */
   public  Object readObject() throws IOException, OptionalDataException, ClassNotFoundException {
+    if (objIn == null && BinaryCodecs.isEncoded(in))
+      return BinaryCodecs.read(new DataInputStream(in));
     return getObjectInputStream().readObject();
   }
 
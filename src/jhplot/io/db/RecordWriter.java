@@ -2,15 +2,28 @@ package jhplot.io.db;
 
 import java.io.*;
 
+import jhplot.io.BinaryCodecs;
+
 
 public  class RecordWriter {
 
   String key;
   DbByteArrayOutputStream out;
   ObjectOutputStream objOut;
+  boolean binary;
 
   public RecordWriter(String key) {
+    this(key, false);
+  }
+
+  /**
+   * Creates a record. If binary is true, objects with a binary codec are
+   * encoded with {@link BinaryCodecs}, which does not keep their drawing
+   * attributes.
+   */
+  public RecordWriter(String key, boolean binary) {
     this.key = key;
+    this.binary = binary;
     out = new DbByteArrayOutputStream();
   }
 
@@ -29,7 +42,18 @@ public  class RecordWriter {
     return objOut;
   }
 
+  /**
+   * Writes an object. If the record is binary, this is its first object and
+   * there is a binary codec for it, it is encoded with {@link BinaryCodecs}
+   * instead of the Java serialization.
+   */
   public void writeObject(Object o) throws IOException {
+    if (binary && objOut == null && out.size() == 0 && BinaryCodecs.isSupported(o)) {
+      DataOutputStream dout = new DataOutputStream(out);
+      BinaryCodecs.write(dout, o);
+      dout.flush();
+      return;
+    }
     getObjectOutputStream().writeObject(o);
     getObjectOutputStream().flush();
   }
@@ -0,0 +1,317 @@
+package jhplot.io.images;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import jhplot.HPlot;
+import jhplot.HPlotJa;
+import jhplot.gui.GHPanel;
+
+import org.freehep.graphicsbase.util.export.ExportFileType;
+
+/**
+ * Export of canvases without showing them, for batch jobs. A canvas is laid
+ * out at its preferred size and painted directly into the graphics of the
+ * output: a BufferedImage for PNG, JPG, GIF and BMP, and the VectorGraphics of
+ * FreeHEP for vector formats with a native exporter (SVG, PDF, PS, EPS, EMF ...,
+ * depending on the installed FreeHEP modules). Other formats (e.g. SVGZ) are
+ * exported as in {@link ExportVGraphics}, through SVG.
+ * <p>
+ * The jobs of a queue run on a pool of threads, one per processor by default.
+ * Canvases can be created without a display (java.awt.headless=true), as no
+ * frame is made for them then. A canvas must not be changed until its job is
+ * done; wait for the Future returned by add() or for {@link #finish()}.
+ *
+ * <pre>
+ * CanvasExport queue = new CanvasExport();
+ * for (int i = 0; i &lt; n; i++) {
+ * 	HPlot c = new HPlot(&quot;plot&quot;, 600, 400);
+ * 	c.draw(h[i]);
+ * 	queue.add(c, &quot;plot&quot; + i + &quot;.png&quot;);
+ * }
+ * queue.finish();
+ * </pre>
+ *
+ * @author S.Chekanov
+ *
+ */
+public class CanvasExport {
+
+	private static final String metadata = "(C) DataMelt. jWork.ORG (http://jwork.org/scavis/). S.Chekanov";
+
+	private final ExecutorService pool;
+	private final List<Future<File>> jobs = new ArrayList<Future<File>>();
+
+	/**
+	 * Create a queue with one thread per processor.
+	 */
+	public CanvasExport() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a queue.
+	 *
+	 * @param threads
+	 *            number of threads which render the canvases
+	 */
+	public CanvasExport(int threads) {
+		pool = Executors.newFixedThreadPool(Math.max(1, threads),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "canvas export");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Add a canvas to the queue. All its pads are updated before the export.
+	 *
+	 * @param canvas
+	 *            canvas
+	 * @param file
+	 *            output file, the format is given by the extension
+	 * @return the file when it is written
+	 */
+	public Future<File> add(final HPlot canvas, final String file) {
+		return submit(new Callable<File>() {
+			public File call() throws IOException {
+				canvas.updateAll();
+				return write(canvas, file);
+			}
+		});
+	}
+
+	/**
+	 * Add a canvas to the queue.
+	 *
+	 * @param canvas
+	 *            canvas (HPlot, HChart, HPlot3D ...)
+	 * @param file
+	 *            output file, the format is given by the extension
+	 * @return the file when it is written
+	 */
+	public Future<File> add(final GHPanel canvas, final String file) {
+		return submit(new Callable<File>() {
+			public File call() throws IOException {
+				return write(canvas, file);
+			}
+		});
+	}
+
+	/**
+	 * Add a HPlotJa canvas to the queue. Its drawing lives in the JaxoDraw
+	 * frame, so it is exported with {@link HPlotJa#export(String)} and needs
+	 * a display.
+	 *
+	 * @param canvas
+	 *            canvas
+	 * @param file
+	 *            output file, the format is given by the extension
+	 * @return the file when it is written
+	 */
+	public Future<File> add(final HPlotJa canvas, final String file) {
+		return submit(new Callable<File>() {
+			public File call() {
+				canvas.export(file);
+				return new File(file);
+			}
+		});
+	}
+
+	/**
+	 * Add any component to the queue.
+	 *
+	 * @param c
+	 *            component
+	 * @param file
+	 *            output file, the format is given by the extension
+	 * @return the file when it is written
+	 */
+	public Future<File> add(final Component c, final String file) {
+		return submit(new Callable<File>() {
+			public File call() throws IOException {
+				return write(c, file);
+			}
+		});
+	}
+
+	private synchronized Future<File> submit(Callable<File> job) {
+		Future<File> f = pool.submit(job);
+		jobs.add(f);
+		return f;
+	}
+
+	/**
+	 * Wait until all the jobs of the queue are done. Failed jobs are reported
+	 * on the error stream. The queue can still be used afterwards.
+	 *
+	 * @return number of files written
+	 */
+	public int waitAll() throws InterruptedException {
+		List<Future<File>> done;
+		synchronized (this) {
+			done = new ArrayList<Future<File>>(jobs);
+			jobs.clear();
+		}
+		int n = 0;
+		for (Future<File> f : done) {
+			try {
+				f.get();
+				n++;
+			} catch (ExecutionException e) {
+				System.err.println("CanvasExport: " + e.getCause());
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Wait until all the jobs are done and stop the threads.
+	 *
+	 * @return number of files written
+	 */
+	public int finish() throws InterruptedException {
+		int n = waitAll();
+		pool.shutdown();
+		pool.awaitTermination(1, TimeUnit.MINUTES);
+		return n;
+	}
+
+	/**
+	 * Export a canvas to a file without showing it.
+	 *
+	 * @param canvas
+	 *            canvas
+	 * @param file
+	 *            output file, the format is given by the extension. If there
+	 *            is no extension, PNG is assumed.
+	 * @return output file
+	 */
+	public static File write(GHPanel canvas, String file) throws IOException {
+		if (canvas.isBorderShown())
+			canvas.showBorders(false);
+		return write(canvas.getCanvasPanel(), file);
+	}
+
+	/**
+	 * Export a component to a file without showing it.
+	 *
+	 * @param c
+	 *            component
+	 * @param file
+	 *            output file, the format is given by the extension. If there
+	 *            is no extension, PNG is assumed.
+	 * @return output file
+	 */
+	public static File write(Component c, String file) throws IOException {
+
+		File f = new File(file);
+		int dot = file.lastIndexOf('.');
+		String ext = (dot == -1) ? "png" : file.substring(dot + 1).trim()
+				.toLowerCase();
+		if (ext.equals("jpeg"))
+			ext = "jpg";
+
+		if (ext.equals("png") || ext.equals("jpg") || ext.equals("gif")
+				|| ext.equals("bmp")) {
+			if (!ImageIO.write(paint(c), ext, f))
+				throw new IOException("No image writer for " + ext);
+			return f;
+		}
+
+		ExportFileType t = find(ext);
+		if (t == null) {
+			// through SVG
+			layout(c);
+			ExportVGraphics.export(c, CanvasExport.class.getName(), file);
+			return f;
+		}
+		layout(c);
+		t.exportToFile(f, c, c, new Properties(), metadata);
+		return f;
+	}
+
+	/**
+	 * Paint a component into an image without showing it.
+	 *
+	 * @param c
+	 *            component
+	 * @return image of the size of the component
+	 */
+	public static BufferedImage paint(Component c) {
+
+		layout(c);
+		Dimension d = c.getSize();
+		BufferedImage image = new BufferedImage(Math.max(1, d.width),
+				Math.max(1, d.height), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			Color back = c.getBackground();
+			g.setColor(back == null ? Color.white : back);
+			g.fillRect(0, 0, d.width, d.height);
+			c.print(g);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * Lay out a component which is not shown, at its preferred size unless a
+	 * size is set.
+	 *
+	 * @param c
+	 *            component
+	 */
+	public static void layout(Component c) {
+
+		if (c.isDisplayable())
+			return; // done by its window
+		Dimension d = c.getSize();
+		if (d.width <= 0 || d.height <= 0)
+			c.setSize(c.getPreferredSize());
+		layoutTree(c);
+	}
+
+	// validate() does nothing without a peer, so lay out from the top
+	private static void layoutTree(Component c) {
+		if (!(c instanceof Container))
+			return;
+		Container p = (Container) c;
+		p.doLayout();
+		for (Component child : p.getComponents())
+			layoutTree(child);
+	}
+
+	// native exporter of a vector format
+	private static ExportFileType find(String ext) {
+		List<ExportFileType> list = ExportFileType.getExportFileTypes();
+		for (ExportFileType t : list) {
+			for (String e : t.getExtensions())
+				if (e.equalsIgnoreCase(ext))
+					return t;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,225 @@
+package jhplot.math;
+
+import cern.colt.function.IntComparator;
+
+/**
+ * Sorting of primitive keys into index permutations. All methods return a
+ * permutation p such that keys[p[0]],..,keys[p[n-1]] is in sorted order; the
+ * keys themselves are not modified. The permutation can then be applied to
+ * any number of parallel columns with {@link #permute(double[], int[], int, double[])}.
+ * <p>
+ * Double keys are sorted with a least-significant-digit radix sort on their
+ * IEEE-754 bit patterns in O(n), using the same ordering as
+ * {@link Double#compare(double, double)} (-0.0 before 0.0, NaN last). All
+ * sorts are stable: equal keys keep their original order, also in
+ * descending order. Sorting with a comparator uses a stable merge sort.
+ *
+ * @author S.Chekanov
+ */
+public class IndexSort {
+
+	private static final int BITS = 11;
+	private static final int RADIX = 1 << BITS;
+	private static final int MASK = RADIX - 1;
+	private static final int INSERTIONSORT_THRESHOLD = 32;
+
+	private IndexSort() {
+	}
+
+	/**
+	 * Stable sort of the first n keys in increasing order.
+	 *
+	 * @param keys
+	 *            keys to be sorted
+	 * @param n
+	 *            number of keys
+	 * @return permutation p such that keys[p[0]],..,keys[p[n-1]] is sorted
+	 */
+	public static int[] sort(double[] keys, int n) {
+		return sort(keys, n, false);
+	}
+
+	/**
+	 * Stable sort of the first n keys.
+	 *
+	 * @param keys
+	 *            keys to be sorted
+	 * @param n
+	 *            number of keys
+	 * @param descending
+	 *            sort in decreasing order if true
+	 * @return permutation p such that keys[p[0]],..,keys[p[n-1]] is sorted
+	 */
+	public static int[] sort(double[] keys, int n, boolean descending) {
+		long[] k = new long[n];
+		for (int i = 0; i < n; i++)
+			k[i] = sortable(keys[i], descending);
+		return radix(k, SortUtils.identity(n));
+	}
+
+	/**
+	 * Stable lexicographic sort on several keys. Rows are ordered by the first
+	 * key, rows with equal first keys by the second one and so on.
+	 *
+	 * @param keys
+	 *            key columns, most significant first
+	 * @param n
+	 *            number of rows
+	 * @param descending
+	 *            sort order for each key column (null for increasing order)
+	 * @return permutation p such that the rows p[0],..,p[n-1] are sorted
+	 */
+	public static int[] sort(double[][] keys, int n, boolean[] descending) {
+		int[] p = SortUtils.identity(n);
+		long[] k = new long[n];
+		// LSD: sort by the least significant key first, stability keeps the
+		// order of the previous passes for equal keys
+		for (int c = keys.length - 1; c >= 0; c--) {
+			boolean desc = descending != null && descending[c];
+			double[] col = keys[c];
+			for (int i = 0; i < n; i++)
+				k[i] = sortable(col[p[i]], desc);
+			p = radix(k, p);
+		}
+		return p;
+	}
+
+	/**
+	 * Stable sort of row indices 0,..,n-1 using a comparator on row indices.
+	 *
+	 * @param n
+	 *            number of rows
+	 * @param cmp
+	 *            comparator called with two row indices
+	 * @return permutation p such that the rows p[0],..,p[n-1] are sorted
+	 */
+	public static int[] sort(int n, IntComparator cmp) {
+		int[] p = SortUtils.identity(n);
+		int[] tmp = new int[n];
+		mergeSort(p, tmp, 0, n, cmp);
+		return p;
+	}
+
+	/**
+	 * Rearrange the first n elements of data such that
+	 * data_after[i] == data_before[p[i]].
+	 *
+	 * @param data
+	 *            data to be permuted in place
+	 * @param p
+	 *            the permutation, as returned by the sort methods
+	 * @param n
+	 *            number of elements
+	 * @param buffer
+	 *            work array of length n or more, may be null
+	 * @return the work array, which can be passed to the next call
+	 */
+	public static double[] permute(double[] data, int[] p, int n,
+			double[] buffer) {
+		if (buffer == null || buffer.length < n)
+			buffer = new double[n];
+		for (int i = 0; i < n; i++)
+			buffer[i] = data[p[i]];
+		System.arraycopy(buffer, 0, data, 0, n);
+		return buffer;
+	}
+
+	/**
+	 * Map a double to a long whose unsigned order is the order of
+	 * Double.compare.
+	 */
+	private static long sortable(double v, boolean descending) {
+		long bits = Double.doubleToLongBits(v);
+		bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+		return descending ? ~bits : bits;
+	}
+
+	/**
+	 * Radix sort of the keys, returning the values of idx in sorted key order.
+	 * The keys are compared as unsigned numbers. Key i belongs to idx[i].
+	 */
+	private static int[] radix(long[] key, int[] idx) {
+		int n = idx.length;
+		if (n < INSERTIONSORT_THRESHOLD) {
+			long[] k = key.clone();
+			int[] p = idx.clone();
+			for (int i = 1; i < n; i++) {
+				long kv = k[i];
+				int pv = p[i];
+				int j = i - 1;
+				while (j >= 0 && compareUnsigned(k[j], kv) > 0) {
+					k[j + 1] = k[j];
+					p[j + 1] = p[j];
+					j--;
+				}
+				k[j + 1] = kv;
+				p[j + 1] = pv;
+			}
+			return p;
+		}
+
+		long[] k = key;
+		int[] p = idx;
+		long[] k2 = new long[n];
+		int[] p2 = new int[n];
+		int[] count = new int[RADIX + 1];
+		for (int shift = 0; shift < 64; shift += BITS) {
+			java.util.Arrays.fill(count, 0);
+			for (int i = 0; i < n; i++)
+				count[(int) ((k[i] >>> shift) & MASK) + 1]++;
+			// all keys share this digit, nothing to do
+			if (count[(int) ((k[0] >>> shift) & MASK) + 1] == n)
+				continue;
+			for (int d = 0; d < RADIX; d++)
+				count[d + 1] += count[d];
+			for (int i = 0; i < n; i++) {
+				int pos = count[(int) ((k[i] >>> shift) & MASK)]++;
+				k2[pos] = k[i];
+				p2[pos] = p[i];
+			}
+			long[] kt = k;
+			k = k2;
+			k2 = kt;
+			int[] pt = p;
+			p = p2;
+			p2 = pt;
+		}
+		// never return the caller's index array
+		return p == idx ? idx.clone() : p;
+	}
+
+	private static int compareUnsigned(long a, long b) {
+		a += Long.MIN_VALUE;
+		b += Long.MIN_VALUE;
+		return a < b ? -1 : (a == b ? 0 : 1);
+	}
+
+	private static void mergeSort(int[] p, int[] tmp, int from, int to,
+			IntComparator cmp) {
+		if (to - from < INSERTIONSORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				int v = p[i];
+				int j = i - 1;
+				while (j >= from && cmp.compare(p[j], v) > 0) {
+					p[j + 1] = p[j];
+					j--;
+				}
+				p[j + 1] = v;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(p, tmp, from, mid, cmp);
+		mergeSort(p, tmp, mid, to, cmp);
+		if (cmp.compare(p[mid - 1], p[mid]) <= 0)
+			return;
+		System.arraycopy(p, from, tmp, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to)
+			p[k++] = cmp.compare(tmp[j], tmp[i]) < 0 ? tmp[j++] : tmp[i++];
+		while (i < mid)
+			p[k++] = tmp[i++];
+		while (j < to)
+			p[k++] = tmp[j++];
+	}
+}
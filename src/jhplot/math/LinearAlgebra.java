@@ -68,13 +68,23 @@ public class LinearAlgebra extends DoubleArray {
 	 * @return Matrix v1 - v2
 	 */
 	public static double[][] minus(double[][] v1, double[][] v2) {
+		return minus(v1, v2, new double[v1.length][v1[0].length]);
+	}
+
+	/**
+	 * Element-wise subtraction of two matrices into a given matrix. All matrices
+	 * must be same size. The output may be v1 or v2 to subtract in place.
+	 * @param v1 Minuend matrix
+	 * @param v2 Subtrahend matrix
+	 * @param out Matrix receiving v1 - v2
+	 * @return out
+	 */
+	public static double[][] minus(double[][] v1, double[][] v2, double[][] out) {
 		checkRowDimension(v2, v1.length);
 		checkColumnDimension(v2, v1[0].length);
-		double[][] array = new double[v1.length][v1[0].length];
-		for (int i = 0; i < v1.length; i++)
-			for (int j = 0; j < v1[0].length; j++)
-				array[i][j] = v1[i][j] - v2[i][j];
-		return array;
+		checkOutput(out, v1.length, v1[0].length);
+		MatrixKernels.apply(MatrixKernels.MINUS, v1, v2, 0, out);
+		return out;
 	}
 
 	/**
@@ -84,11 +94,21 @@ public class LinearAlgebra extends DoubleArray {
 	 * @return Matrix v1 - v2
 	 */
 	public static double[][] minus(double[][] v1, double v2) {
-		double[][] array = new double[v1.length][v1[0].length];
-		for (int i = 0; i < v1.length; i++)
-			for (int j = 0; j < v1[0].length; j++)
-				array[i][j] = v1[i][j] - v2;
-		return array;
+		return minus(v1, v2, sameShape(v1));
+	}
+
+	/**
+	 * Subtract a scalar from each element of a matrix into a given matrix.
+	 * The output may be v1 to subtract in place.
+	 * @param v1 Minuend matrix
+	 * @param v2 Scalar subtrahend
+	 * @param out Matrix receiving v1 - v2
+	 * @return out
+	 */
+	public static double[][] minus(double[][] v1, double v2, double[][] out) {
+		checkShape(out, v1);
+		MatrixKernels.apply(MatrixKernels.MINUS_SCALAR, v1, null, v2, out);
+		return out;
 	}
 
 	/**
@@ -138,13 +158,23 @@ public class LinearAlgebra extends DoubleArray {
 	 * @return Matrix v1 + v2
 	 */
 	public static double[][] plus(double[][] v1, double[][] v2) {
+		return plus(v1, v2, new double[v1.length][v1[0].length]);
+	}
+
+	/**
+	 * Element-wise sum of two matrices into a given matrix. All matrices must
+	 * be same size. The output may be v1 or v2 to add in place.
+	 * @param v1 Matrix
+	 * @param v2 Matrix
+	 * @param out Matrix receiving v1 + v2
+	 * @return out
+	 */
+	public static double[][] plus(double[][] v1, double[][] v2, double[][] out) {
 		checkRowDimension(v2, v1.length);
 		checkColumnDimension(v2, v1[0].length);
-		double[][] array = new double[v1.length][v1[0].length];
-		for (int i = 0; i < v1.length; i++)
-			for (int j = 0; j < v1[0].length; j++)
-				array[i][j] = v1[i][j] + v2[i][j];
-		return array;
+		checkOutput(out, v1.length, v1[0].length);
+		MatrixKernels.apply(MatrixKernels.PLUS, v1, v2, 0, out);
+		return out;
 	}
 
 	/**
@@ -154,11 +184,21 @@ public class LinearAlgebra extends DoubleArray {
 	 * @return Matrix v1 + v2
 	 */
 	public static double[][] plus(double[][] v1, double v2) {
-		double[][] array = new double[v1.length][v1[0].length];
-		for (int i = 0; i < v1.length; i++)
-			for (int j = 0; j < v1[0].length; j++)
-				array[i][j] = v1[i][j] + v2;
-		return array;
+		return plus(v1, v2, sameShape(v1));
+	}
+
+	/**
+	 * Add a scalar to each element of a matrix into a given matrix. The output
+	 * may be v1 to add in place.
+	 * @param v1 Matrix
+	 * @param v2 Scalar
+	 * @param out Matrix receiving v1 + v2
+	 * @return out
+	 */
+	public static double[][] plus(double[][] v1, double v2, double[][] out) {
+		checkShape(out, v1);
+		MatrixKernels.apply(MatrixKernels.PLUS_SCALAR, v1, null, v2, out);
+		return out;
 	}
 
 	/**
@@ -208,11 +248,21 @@ public class LinearAlgebra extends DoubleArray {
 	 * @return v1 * v
 	 */
 	public static double[][] times(double[][] v1, double v) {
-		double[][] array = new double[v1.length][v1[0].length];
-		for (int i = 0; i < v1.length; i++)
-			for (int j = 0; j < v1[i].length; j++)
-				array[i][j] = v1[i][j] * v;
-		return array;
+		return times(v1, v, sameShape(v1));
+	}
+
+	/**
+	 * Multiply each element in a matrix by a scalar into a given matrix. The
+	 * output may be v1 to multiply in place.
+	 * @param v1 Matrix
+	 * @param v Scalar
+	 * @param out Matrix receiving v1 * v
+	 * @return out
+	 */
+	public static double[][] times(double[][] v1, double v, double[][] out) {
+		checkShape(out, v1);
+		MatrixKernels.apply(MatrixKernels.TIMES_SCALAR, v1, null, v, out);
+		return out;
 	}
 
 	/**
@@ -235,11 +285,73 @@ public class LinearAlgebra extends DoubleArray {
 	 * @return Matrix v1 / v
 	 */
 	public static double[][] divide(double[][] v1, double v) {
-		double[][] array = new double[v1.length][v1[0].length];
-		for (int i = 0; i < v1.length; i++)
-			for (int j = 0; j < v1[i].length; j++)
-				array[i][j] = v1[i][j] / v;
-		return array;
+		return divide(v1, v, sameShape(v1));
+	}
+
+	/**
+	 * Divide each element of a matrix by a scalar into a given matrix. The
+	 * output may be v1 to divide in place.
+	 * @param v1 Matrix numerator
+	 * @param v Scalar denominator
+	 * @param out Matrix receiving v1 / v
+	 * @return out
+	 */
+	public static double[][] divide(double[][] v1, double v, double[][] out) {
+		checkShape(out, v1);
+		MatrixKernels.apply(MatrixKernels.DIVIDE_SCALAR, v1, null, v, out);
+		return out;
+	}
+
+	/**
+	 * Element-wise product of two matrices. Matrices must be same size.
+	 * @param v1 Matrix
+	 * @param v2 Matrix
+	 * @return Matrix. (i,j) element is v1(i,j)*v2(i,j)
+	 */
+	public static double[][] arrayTimes(double[][] v1, double[][] v2) {
+		return arrayTimes(v1, v2, new double[v1.length][v1[0].length]);
+	}
+
+	/**
+	 * Element-wise product of two matrices into a given matrix. All matrices
+	 * must be same size. The output may be v1 or v2 to multiply in place.
+	 * @param v1 Matrix
+	 * @param v2 Matrix
+	 * @param out Matrix receiving the products v1(i,j)*v2(i,j)
+	 * @return out
+	 */
+	public static double[][] arrayTimes(double[][] v1, double[][] v2, double[][] out) {
+		checkRowDimension(v2, v1.length);
+		checkColumnDimension(v2, v1[0].length);
+		checkOutput(out, v1.length, v1[0].length);
+		MatrixKernels.apply(MatrixKernels.TIMES, v1, v2, 0, out);
+		return out;
+	}
+
+	/**
+	 * Element-wise ratio of two matrices. Matrices must be same size.
+	 * @param v1 Numerators
+	 * @param v2 Denominators
+	 * @return Matrix. (i,j) element is v1(i,j)/v2(i,j)
+	 */
+	public static double[][] arrayDivide(double[][] v1, double[][] v2) {
+		return arrayDivide(v1, v2, new double[v1.length][v1[0].length]);
+	}
+
+	/**
+	 * Element-wise ratio of two matrices into a given matrix. All matrices
+	 * must be same size. The output may be v1 or v2 to divide in place.
+	 * @param v1 Numerators
+	 * @param v2 Denominators
+	 * @param out Matrix receiving the ratios v1(i,j)/v2(i,j)
+	 * @return out
+	 */
+	public static double[][] arrayDivide(double[][] v1, double[][] v2, double[][] out) {
+		checkRowDimension(v2, v1.length);
+		checkColumnDimension(v2, v1[0].length);
+		checkOutput(out, v1.length, v1[0].length);
+		MatrixKernels.apply(MatrixKernels.DIVIDE, v1, v2, 0, out);
+		return out;
 	}
 
 	/**
@@ -271,24 +383,31 @@ public class LinearAlgebra extends DoubleArray {
 
 	/**
 	 * Matrix multiplication according to the rules of linear algebra.
-	 * Matrices must be same size.
+	 * Number of columns in v1 must equal number of rows in v2. The product is
+	 * computed on cache-sized tiles, and in parallel for large matrices.
 	 * @param v1 Matrix
 	 * @param v2 Matrix
 	 * @return Matrix v1 * v2
 	 */
 	public static double[][] times(double[][] v1, double[][] v2) {
+		return times(v1, v2, new double[v1.length][v2[0].length]);
+	}
+
+	/**
+	 * Matrix multiplication into a given matrix, which must not be v1 or v2.
+	 * @see #times(double[][], double[][])
+	 * @param v1 m x n Matrix
+	 * @param v2 n x p Matrix
+	 * @param out m x p Matrix receiving v1 * v2
+	 * @return out
+	 */
+	public static double[][] times(double[][] v1, double[][] v2, double[][] out) {
 		checkRowDimension(v2, v1[0].length);
-		//checkColumnDimension(v2, v1[0].length);
-		double[][] array = new double[v1.length][v2[0].length];
-		for (int i = 0; i < array.length; i++)
-			for (int j = 0; j < array[i].length; j++) {
-				double tmp = 0;
-				for (int k = 0; k < v1[0].length; k++)
-					tmp += v1[i][k] * v2[k][j];
-				array[i][j] = tmp;
-			}
-		return array;
-		//return new Matrix(v1).times(new Matrix(v2)).getArray();
+		checkOutput(out, v1.length, v2[0].length);
+		if (out == v1 || out == v2)
+			throwError("the product cannot be computed in place.");
+		MatrixKernels.multiply(v1, v2, out);
+		return out;
 	}
 
 	/**
@@ -304,6 +423,27 @@ public class LinearAlgebra extends DoubleArray {
 		return getColumnCopy(times(v1, columnVector(v2)), 0);
 	}
 
+	private static void checkOutput(double[][] out, int m, int n) {
+		checkRowDimension(out, m);
+		checkColumnDimension(out, n);
+	}
+
+	// a matrix with rows as long as those of v, which may differ
+	private static double[][] sameShape(double[][] v) {
+		double[][] array = new double[v.length][];
+		for (int i = 0; i < v.length; i++)
+			array[i] = new double[v[i].length];
+		return array;
+	}
+
+	private static void checkShape(double[][] out, double[][] v) {
+		checkRowDimension(out, v.length);
+		for (int i = 0; i < v.length; i++)
+			if (out[i].length != v[i].length)
+				throwError("row " + i + " have " + out[i].length
+						+ " columns instead of " + v[i].length + " columns expected.");
+	}
+
 	// Now follows JAMA methods calls //
 
 	public static double[][] divideLU(double[][] v1, double[]... v2) {
@@ -0,0 +1,244 @@
+package jhplot.math;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import jhplot.math.exp4j.ParallelEvaluator;
+
+/**
+ * Kernels for rectangular matrices stored as arrays of rows. The matrix
+ * product and the transpose work on tiles which fit into the cache, and all
+ * kernels split the rows of the result over the workers of the default pool
+ * when the matrices are large enough. Each element of a product is summed in
+ * the order of the textbook triple loop, so the results are the same as for
+ * the naive code.
+ *
+ * @author S.Chekanov
+ *
+ */
+final class MatrixKernels {
+
+	/** Element-wise operations */
+	static final int PLUS = 0, MINUS = 1, TIMES = 2, DIVIDE = 3, PLUS_SCALAR = 4,
+			MINUS_SCALAR = 5, TIMES_SCALAR = 6, DIVIDE_SCALAR = 7;
+
+	/** Multiply-adds of a product above which it is computed in parallel */
+	static final long PARALLEL_PRODUCT = 1L << 20;
+
+	/** Elements above which element-wise operations run in parallel */
+	static final long PARALLEL_ELEMENTS = 1L << 18;
+
+	private static final int TILE_K = 64; // rows of the right matrix in a tile
+	private static final int TILE_J = 512; // columns of the right matrix in a tile
+	private static final int TILE = 32; // square tile of the transpose
+
+	private static final int PRODUCT = -1, TRANSPOSE = -2;
+
+	private MatrixKernels() {
+	}
+
+	/**
+	 * Matrix product c = a * b. The sizes must be checked by the caller and c
+	 * must not share rows with a or b.
+	 *
+	 * @param a
+	 *            m x n matrix
+	 * @param b
+	 *            n x p matrix
+	 * @param c
+	 *            m x p matrix receiving the product
+	 */
+	static void multiply(double[][] a, double[][] b, double[][] c) {
+
+		int n = b.length;
+		int p = c.length == 0 ? 0 : c[0].length;
+		run(PRODUCT, a, b, 0, c, (long) n * p, PARALLEL_PRODUCT);
+	}
+
+	/**
+	 * Transpose t = m'. Only the first row of m defines the number of columns.
+	 *
+	 * @param m
+	 *            r x c matrix
+	 * @param t
+	 *            c x r matrix receiving the transpose
+	 */
+	static void transpose(double[][] m, double[][] t) {
+
+		run(TRANSPOSE, m, null, 0, t, m.length, PARALLEL_ELEMENTS);
+	}
+
+	/**
+	 * Element-wise operation c = a op b or c = a op s. The matrix c may be a
+	 * or b, in which case the operation is done in place.
+	 *
+	 * @param op
+	 *            one of the operation codes
+	 * @param a
+	 *            first matrix
+	 * @param b
+	 *            second matrix, or null for an operation with a scalar
+	 * @param s
+	 *            scalar
+	 * @param c
+	 *            matrix receiving the result
+	 */
+	static void apply(int op, double[][] a, double[][] b, double s,
+			double[][] c) {
+
+		int p = c.length == 0 ? 0 : c[0].length;
+		run(op, a, b, s, c, p, PARALLEL_ELEMENTS);
+	}
+
+	private static void run(int op, double[][] a, double[][] b, double s,
+			double[][] c, long rowCost, long threshold) {
+
+		int rows = c.length;
+		if (rows > 1 && rowCost * rows > threshold) {
+			ForkJoinPool pool = ParallelEvaluator.getDefaultPool();
+			int chunk = (int) Math.max(Math.max(1, threshold / Math.max(1, rowCost)),
+					rows / (4 * pool.getParallelism()));
+			if (rows > chunk) {
+				pool.invoke(new Rows(op, a, b, s, c, 0, rows, chunk));
+				return;
+			}
+		}
+		rows(op, a, b, s, c, 0, rows);
+	}
+
+	private static void rows(int op, double[][] a, double[][] b, double s,
+			double[][] c, int from, int to) {
+
+		if (op == PRODUCT)
+			product(a, b, c, from, to);
+		else if (op == TRANSPOSE)
+			transpose(a, c, from, to);
+		else
+			for (int i = from; i < to; i++)
+				row(op, a[i], b == null ? null : b[i], s, c[i]);
+	}
+
+	private static void product(double[][] a, double[][] b, double[][] c,
+			int from, int to) {
+
+		int n = b.length;
+		int p = c[from].length;
+		for (int i = from; i < to; i++)
+			Arrays.fill(c[i], 0, p, 0);
+		for (int jj = 0; jj < p; jj += TILE_J) {
+			int je = Math.min(p, jj + TILE_J);
+			for (int kk = 0; kk < n; kk += TILE_K) {
+				int ke = Math.min(n, kk + TILE_K);
+				for (int i = from; i < to; i++) {
+					double[] ai = a[i];
+					double[] ci = c[i];
+					for (int k = kk; k < ke; k++) {
+						double aik = ai[k];
+						double[] bk = b[k];
+						for (int j = jj; j < je; j++)
+							ci[j] += aik * bk[j];
+					}
+				}
+			}
+		}
+	}
+
+	// rows from..to of t are the columns from..to of m
+	private static void transpose(double[][] m, double[][] t, int from,
+			int to) {
+
+		int r = m.length;
+		for (int ii = 0; ii < r; ii += TILE) {
+			int ie = Math.min(r, ii + TILE);
+			for (int jj = from; jj < to; jj += TILE) {
+				int je = Math.min(to, jj + TILE);
+				for (int i = ii; i < ie; i++) {
+					double[] mi = m[i];
+					for (int j = jj; j < je; j++)
+						t[j][i] = mi[j];
+				}
+			}
+		}
+	}
+
+	private static void row(int op, double[] a, double[] b, double s,
+			double[] c) {
+
+		int n = c.length;
+		switch (op) {
+		case PLUS:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] + b[j];
+			break;
+		case MINUS:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] - b[j];
+			break;
+		case TIMES:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] * b[j];
+			break;
+		case DIVIDE:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] / b[j];
+			break;
+		case PLUS_SCALAR:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] + s;
+			break;
+		case MINUS_SCALAR:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] - s;
+			break;
+		case TIMES_SCALAR:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] * s;
+			break;
+		case DIVIDE_SCALAR:
+			for (int j = 0; j < n; j++)
+				c[j] = a[j] / s;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + op);
+		}
+	}
+
+	private static final class Rows extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int op;
+		private final double[][] a;
+		private final double[][] b;
+		private final double s;
+		private final double[][] c;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Rows(int op, double[][] a, double[][] b, double s, double[][] c,
+				int from, int to, int chunk) {
+			this.op = op;
+			this.a = a;
+			this.b = b;
+			this.s = s;
+			this.c = c;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunk) {
+				rows(op, a, b, s, c, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			Rows right = new Rows(op, a, b, s, c, mid, to, chunk);
+			right.fork();
+			new Rows(op, a, b, s, c, from, mid, chunk).compute();
+			right.join();
+		}
+	}
+}
@@ -174,10 +174,14 @@ public final class Numeric {
    */
   public static double trapezium(final int N, final F1D func, final double a, final double b) {
     double A = 0.0, x = a, h = (b - a) / N;
-    for (int i = 0; i < N; i++) {
-      A += func.eval(x) + func.eval(x + h);
+    final double p[] = new double[N + 1];
+    for (int i = 0; i <= N; i++) {
+      p[i] = x;
       x += h;
     }
+    final double f[] = func.evalPoints(p);
+    for (int i = 0; i < N; i++)
+      A += f[i] + f[i + 1];
     return A * h / 2.0;
   }
 
@@ -378,10 +382,17 @@ public final class Numeric {
     double x = a;
     final double dx = (b - a) / N;
     final double dx2 = dx / 2.0;
+    final double up[] = new double[N];
+    final double down[] = new double[N];
     for (int i = 0; i < N; i++) {
-      diff[i] = (func.eval(x + dx2) - func.eval(x - dx2)) / dx;
+      up[i] = x + dx2;
+      down[i] = x - dx2;
       x += dx;
     }
+    final double fup[] = func.evalPoints(up);
+    final double fdown[] = func.evalPoints(down);
+    for (int i = 0; i < N; i++)
+      diff[i] = (fup[i] - fdown[i]) / dx;
     return diff;
   }
 
@@ -1,5 +1,6 @@
 package jhplot.math;
 
+import jhplot.math.exp4j.CompiledExpression;
 import jhplot.math.exp4j.Expression;
 import jhplot.math.exp4j.ExpressionBuilder;
 import edu.cornell.lassp.houle.RngPack.RandomSeedable;
@@ -274,22 +275,34 @@ public class Random {
      * @return A double.
      */
     public static double rejection(Expression fun, double maxFun, double min, double max) {
+        CompiledExpression c = null;
+        try {
+                c = fun.compile("x");
+        } catch (IllegalArgumentException e) {
+                c = null;
+        }
+        double[] arg = new double[1];
         double try_x;
         double try_y;
         do {
             try_x = min + rand() * (max - min);
             try_y = rand() * maxFun;
-        } while (eval(fun,try_x) < try_y);
+        } while (eval(fun,c,arg,try_x) < try_y);
         return try_x;
     }
 
 
 
-   private static double  eval(Expression fun, double x) {
+   private static double  eval(Expression fun, CompiledExpression c, double[] arg, double x) {
          double d=0;
          try {
-        	     fun.setVariable("x", x);
-        	     d  = fun.evaluate();
+                     if (c != null) {
+                         arg[0] = x;
+                         d = c.applyAsDouble(arg);
+                     } else {
+        	         fun.setVariable("x", x);
+        	         d  = fun.evaluate();
+                     }
                  } catch (Exception e) {
                     System.out.println("eval(): Failed to evaluate function");
 
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014 Frank Asseg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jhplot.math.exp4j;
+
+import java.util.Map;
+
+import jhplot.math.exp4j.function.Function;
+import jhplot.math.exp4j.operator.Operator;
+import jhplot.math.exp4j.operator.Operators;
+import jhplot.math.exp4j.tokenizer.*;
+
+/**
+ * Column-at-a-time evaluation of the RPN program. The rows are processed in
+ * blocks: every token is applied to the whole block before the next token is
+ * looked at, so the inner loops are simple array loops the JIT can unroll and
+ * vectorize. Stack entries either point directly into a variable column or
+ * into a scratch buffer owned by the stack position.
+ * <p>
+ * The evaluator keeps no state between calls and can be used from several
+ * threads at the same time. If an operator or a function fails for a row, an
+ * {@link EvaluationException} with the index of the row is thrown.
+ *
+ * @author S.Chekanov
+ */
+final class BatchEvaluator {
+
+    /**
+     * Number of rows evaluated per token
+     */
+    static final int BLOCK = 512;
+
+    private BatchEvaluator() {
+    }
+
+    /**
+     * Evaluate rows [from, to) of the columns
+     * @param tokens the tokens in reverse polish notation
+     * @param values values of the variables which are not given as columns
+     * @param names names of the variables given as columns
+     * @param columns the values of the variables, one array per name
+     * @param output array receiving the results at the same row index
+     * @param from first row
+     * @param to last row (exclusive)
+     * @throws EvaluationException if an operator or a function fails for a row
+     */
+    static void evaluate(Token[] tokens, Map<String, Double> values, String[] names, double[][] columns,
+                         double[] output, int from, int to) {
+        if (names.length != columns.length) {
+            throw new IllegalArgumentException("The number of variable names and columns does not match");
+        }
+        final int depth = maxDepth(tokens);
+
+        /* resolve variables to a column or a constant once */
+        final double[][] columnOf = new double[tokens.length][];
+        final double[] constantOf = new double[tokens.length];
+        for (int t = 0; t < tokens.length; t++) {
+            if (tokens[t].getType() == Token.TOKEN_NUMBER) {
+                constantOf[t] = ((NumberToken) tokens[t]).getValue();
+            } else if (tokens[t].getType() == Token.TOKEN_VARIABLE) {
+                final String name = ((VariableToken) tokens[t]).getName();
+                for (int i = 0; i < names.length; i++) {
+                    if (names[i].equals(name)) {
+                        columnOf[t] = columns[i];
+                        break;
+                    }
+                }
+                if (columnOf[t] == null) {
+                    final Double value = values.get(name);
+                    if (value == null) {
+                        throw new IllegalArgumentException("No value has been set for the setVariable '" + name + "'.");
+                    }
+                    constantOf[t] = value;
+                }
+            }
+        }
+
+        final double[][] scratch = new double[depth][Math.min(BLOCK, Math.max(to - from, 1))];
+        final double[][] stack = new double[depth][];
+        final int[] offset = new int[depth];
+
+        for (int start = from; start < to; start += BLOCK) {
+            final int n = Math.min(BLOCK, to - start);
+            int top = -1;
+            for (int t = 0; t < tokens.length; t++) {
+                final Token tok = tokens[t];
+                switch (tok.getType()) {
+                    case Token.TOKEN_NUMBER:
+                        top++;
+                        fill(scratch[top], n, constantOf[t]);
+                        stack[top] = scratch[top];
+                        offset[top] = 0;
+                        break;
+                    case Token.TOKEN_VARIABLE:
+                        top++;
+                        if (columnOf[t] != null) {
+                            stack[top] = columnOf[t];
+                            offset[top] = start;
+                        } else {
+                            fill(scratch[top], n, constantOf[t]);
+                            stack[top] = scratch[top];
+                            offset[top] = 0;
+                        }
+                        break;
+                    case Token.TOKEN_OPERATOR:
+                        final Operator op = ((OperatorToken) tok).getOperator();
+                        if (op.getNumOperands() == 2) {
+                            top--;
+                            binary(op, stack[top], offset[top], stack[top + 1], offset[top + 1], scratch[top], n, start);
+                        } else {
+                            unary(op, stack[top], offset[top], scratch[top], n, start);
+                        }
+                        stack[top] = scratch[top];
+                        offset[top] = 0;
+                        break;
+                    case Token.TOKEN_FUNCTION:
+                        final Function func = ((FunctionToken) tok).getFunction();
+                        final int nargs = func.getNumArguments();
+                        top -= nargs - 1;
+                        function(func, stack, offset, top, nargs, scratch[top], n, start);
+                        stack[top] = scratch[top];
+                        offset[top] = 0;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            System.arraycopy(stack[0], offset[0], output, start, n);
+        }
+    }
+
+    /**
+     * Validate the program and get the maximum depth of the stack
+     */
+    private static int maxDepth(Token[] tokens) {
+        int size = 0;
+        int max = 0;
+        for (Token t : tokens) {
+            switch (t.getType()) {
+                case Token.TOKEN_NUMBER:
+                case Token.TOKEN_VARIABLE:
+                    size++;
+                    break;
+                case Token.TOKEN_OPERATOR:
+                    final Operator op = ((OperatorToken) t).getOperator();
+                    if (size < op.getNumOperands()) {
+                        throw new IllegalArgumentException("Invalid number of operands available for '" + op.getSymbol() + "' operator");
+                    }
+                    if (op.getNumOperands() == 2) {
+                        size--;
+                    }
+                    break;
+                case Token.TOKEN_FUNCTION:
+                    final Function func = ((FunctionToken) t).getFunction();
+                    if (size < func.getNumArguments()) {
+                        throw new IllegalArgumentException("Invalid number of arguments available for '" + func.getName() + "' function");
+                    }
+                    size = size - func.getNumArguments() + 1;
+                    break;
+                default:
+                    break;
+            }
+            max = Math.max(max, size);
+        }
+        if (size != 1) {
+            throw new IllegalArgumentException("Invalid number of items on the output queue. Might be caused by an invalid number of arguments for a function.");
+        }
+        return max;
+    }
+
+    private static void fill(double[] a, int n, double v) {
+        for (int i = 0; i < n; i++) {
+            a[i] = v;
+        }
+    }
+
+    private static boolean isBuiltin(Operator op, char symbol) {
+        return op.getSymbol().length() == 1 && op == Operators.getBuiltinOperator(symbol, op.getNumOperands());
+    }
+
+    /* the loops which can fail report the row start + i */
+    private static void binary(Operator op, double[] a, int ao, double[] b, int bo, double[] r, int n, int start) {
+        int k = 0;
+        final char symbol = op.getSymbol().charAt(0);
+        if (isBuiltin(op, symbol)) {
+            switch (symbol) {
+                case '+':
+                    for (int i = 0; i < n; i++) {
+                        r[i] = a[ao + i] + b[bo + i];
+                    }
+                    return;
+                case '-':
+                    for (int i = 0; i < n; i++) {
+                        r[i] = a[ao + i] - b[bo + i];
+                    }
+                    return;
+                case '*':
+                    for (int i = 0; i < n; i++) {
+                        r[i] = a[ao + i] * b[bo + i];
+                    }
+                    return;
+                case '/':
+                    try {
+                        for (; k < n; k++) {
+                            r[k] = ExpressionCompiler.divide(a[ao + k], b[bo + k]);
+                        }
+                    } catch (RuntimeException e) {
+                        throw new EvaluationException(start + k, e);
+                    }
+                    return;
+                case '%':
+                    try {
+                        for (; k < n; k++) {
+                            r[k] = ExpressionCompiler.modulo(a[ao + k], b[bo + k]);
+                        }
+                    } catch (RuntimeException e) {
+                        throw new EvaluationException(start + k, e);
+                    }
+                    return;
+                case '^':
+                    for (int i = 0; i < n; i++) {
+                        r[i] = Math.pow(a[ao + i], b[bo + i]);
+                    }
+                    return;
+                default:
+                    break;
+            }
+        }
+        final double[] args = new double[2];
+        try {
+            for (; k < n; k++) {
+                args[0] = a[ao + k];
+                args[1] = b[bo + k];
+                r[k] = op.apply(args);
+            }
+        } catch (RuntimeException e) {
+            throw new EvaluationException(start + k, e);
+        }
+    }
+
+    private static void unary(Operator op, double[] a, int ao, double[] r, int n, int start) {
+        final char symbol = op.getSymbol().charAt(0);
+        if (isBuiltin(op, symbol)) {
+            if (symbol == '-') {
+                for (int i = 0; i < n; i++) {
+                    r[i] = -a[ao + i];
+                }
+            } else {
+                System.arraycopy(a, ao, r, 0, n);
+            }
+            return;
+        }
+        final double[] args = new double[1];
+        int i = 0;
+        try {
+            for (; i < n; i++) {
+                args[0] = a[ao + i];
+                r[i] = op.apply(args);
+            }
+        } catch (RuntimeException e) {
+            throw new EvaluationException(start + i, e);
+        }
+    }
+
+    private static void function(Function func, double[][] stack, int[] offset, int first, int nargs,
+                                 double[] r, int n, int start) {
+        final double[] args = new double[nargs];
+        int i = 0;
+        try {
+            if (nargs == 1) {
+                final double[] a = stack[first];
+                final int ao = offset[first];
+                for (; i < n; i++) {
+                    args[0] = a[ao + i];
+                    r[i] = func.apply(args);
+                }
+                return;
+            }
+            for (; i < n; i++) {
+                for (int j = 0; j < nargs; j++) {
+                    args[j] = stack[first + j][offset[first + j] + i];
+                }
+                r[i] = func.apply(args);
+            }
+        } catch (RuntimeException e) {
+            throw new EvaluationException(start + i, e);
+        }
+    }
+}
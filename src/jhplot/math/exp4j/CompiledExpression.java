@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Frank Asseg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jhplot.math.exp4j;
+
+/**
+ * An expression compiled to JVM bytecode. Variables are bound to slots: the
+ * i-th value passed to {@link #applyAsDouble(double...)} is the value of the
+ * i-th variable given when the expression was compiled. Instances hold no
+ * mutable state and can be shared between threads.
+ *
+ * @see ExpressionBuilder#buildCompiled()
+ * @see Expression#compile(String...)
+ */
+public interface CompiledExpression {
+
+    /**
+     * Evaluate the expression
+     * @param vars the values of the variables, in slot order
+     * @return the result of the evaluation
+     */
+    double applyAsDouble(double... vars);
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Frank Asseg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jhplot.math.exp4j;
+
+/**
+ * Thrown by the evaluation of an expression for a block of rows when it fails
+ * for one of them. The cause is the exception thrown by the operator or the
+ * function, e.g. an {@link ArithmeticException} for a division by zero.
+ *
+ * @author S.Chekanov
+ */
+public class EvaluationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int row;
+
+    /**
+     * Create a new instance
+     * @param row the index of the row which failed
+     * @param cause the exception thrown for this row
+     */
+    public EvaluationException(int row, RuntimeException cause) {
+        super(cause.getMessage() + " (row " + row + ")", cause);
+        this.row = row;
+    }
+
+    /**
+     * Get the index of the row which failed, in the columns given to the evaluation
+     * @return the row index
+     */
+    public int getRow() {
+        return row;
+    }
+}
@@ -30,6 +30,8 @@ public class Expression {
 
     private final Set<String> userFunctionNames;
 
+    private volatile Compiled compiled;
+
 
     Expression(final Token[] tokens) {
         this.tokens = tokens;
@@ -178,6 +180,76 @@ public class Expression {
         return output.pop();
     }
 
+    /**
+     * Evaluate the expression for a block of rows at once. Each listed variable is
+     * given as a column and the i-th result is computed from the i-th element of the
+     * columns. Variables which are not listed take the value set with
+     * {@link #setVariable(String, double)}. The RPN program is applied one token at a
+     * time to a block of rows, which is much faster than calling {@link #evaluate()}
+     * in a loop.
+     * @param variables the names of the variables given as columns
+     * @param columns the values of the variables, one array per name
+     * @param output the array receiving the results
+     * @throws EvaluationException if an operator or a function fails for a row
+     */
+    public void evaluate(String[] variables, double[][] columns, double[] output) {
+        evaluate(variables, columns, output, 0, output.length);
+    }
+
+    /**
+     * Evaluate the expression for the rows [from, to) of the columns. The results are
+     * written to the output array at the same index.
+     * @param variables the names of the variables given as columns
+     * @param columns the values of the variables, one array per name
+     * @param output the array receiving the results
+     * @param from the first row
+     * @param to the last row (exclusive)
+     * @see #evaluate(String[], double[][], double[])
+     */
+    public void evaluate(String[] variables, double[][] columns, double[] output, int from, int to) {
+        BatchEvaluator.evaluate(this.tokens, this.variables, variables, columns, output, from, to);
+    }
+
+    /**
+     * Evaluate the expression for an array of values of a single variable
+     * @param variable the name of the variable
+     * @param column the values of the variable
+     * @param output the array receiving the results
+     * @see #evaluate(String[], double[][], double[])
+     */
+    public void evaluate(String variable, double[] column, double[] output) {
+        evaluate(new String[]{variable}, new double[][]{column}, output, 0, column.length);
+    }
+
+    /**
+     * Compile this expression to JVM bytecode. The compiled form takes the values of
+     * the variables by position, in the order given here, and does not use the values
+     * set by {@link #setVariable(String, double)}. The last compiled form is cached,
+     * so calling this method again with the same variables is cheap.
+     * @param variables the names of the variables, in slot order
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression uses a variable which is not listed
+     */
+    public CompiledExpression compile(String... variables) {
+        Compiled c = this.compiled;
+        if (c == null || !Arrays.equals(c.variables, variables)) {
+            final String[] names = variables.clone();
+            c = new Compiled(names, ExpressionCompiler.compile(this.tokens, names));
+            this.compiled = c;
+        }
+        return c.expression;
+    }
+
+    private static final class Compiled {
+        final String[] variables;
+        final CompiledExpression expression;
+
+        Compiled(String[] variables, CompiledExpression expression) {
+            this.variables = variables;
+            this.expression = expression;
+        }
+    }
+
     private double[] reverseInPlace(double[] args) {
         int len = args.length;
         for (int i = 0; i < len / 2; i++) {
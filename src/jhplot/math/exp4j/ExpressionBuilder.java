@@ -48,7 +48,7 @@ public class ExpressionBuilder {
         this.expression = expression;
         this.userOperators = new HashMap<String, Operator>(4);
         this.userFunctions = new HashMap<String, Function>(4);
-        this.variableNames = new HashSet<String>(4);
+        this.variableNames = new LinkedHashSet<String>(4);
     }
 
     /**
@@ -162,4 +162,14 @@ public class ExpressionBuilder {
                 this.userFunctions.keySet());
     }
 
+    /**
+     * Build the expression and compile it to JVM bytecode. The variables are bound to slots
+     * in the order they were declared with {@link #variables(String...)} or {@link #variable(String)}.
+     * If bytecode can not be generated, the returned instance interprets the expression instead.
+     * @return a {@link CompiledExpression} for the expression
+     */
+    public CompiledExpression buildCompiled() {
+        return build().compile(this.variableNames.toArray(new String[this.variableNames.size()]));
+    }
+
 }
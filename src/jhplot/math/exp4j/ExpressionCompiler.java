@@ -0,0 +1,577 @@
+/*
+ * Copyright 2014 Frank Asseg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jhplot.math.exp4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jhplot.math.exp4j.function.Function;
+import jhplot.math.exp4j.operator.Operator;
+import jhplot.math.exp4j.operator.Operators;
+import jhplot.math.exp4j.tokenizer.*;
+
+/**
+ * Translates the RPN token array of an {@link Expression} into a class
+ * implementing {@link CompiledExpression}. Variables are read from the
+ * argument array by slot, builtin arithmetic operators become single JVM
+ * instructions and functions or user operators are called through their
+ * {@code apply} method. Each generated class lives in its own class loader so
+ * it can be unloaded together with the expression.
+ * <p>
+ * If a class can not be generated or defined (for example, because of a
+ * security manager) the expression is evaluated by a slot-based interpreter
+ * instead, which gives identical results.
+ * <p>
+ * The public static methods are called from the generated code and are not
+ * meant to be used directly.
+ *
+ * @author S.Chekanov
+ */
+public final class ExpressionCompiler {
+
+    private static final String PACKAGE = "jhplot/math/exp4j/";
+    private static final String FUNCTION = "jhplot/math/exp4j/function/Function";
+    private static final String OPERATOR = "jhplot/math/exp4j/operator/Operator";
+    private static final String APPLY_DESC = "([D)D";
+
+    private static final int MAX_CODE = 65535;
+
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private static volatile boolean available = true;
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Division as done by the builtin '/' operator
+     * @param a dividend
+     * @param b divisor
+     * @return a/b
+     */
+    public static double divide(double a, double b) {
+        if (b == 0d) {
+            throw new ArithmeticException("Division by zero!");
+        }
+        return a / b;
+    }
+
+    /**
+     * Modulo as done by the builtin '%' operator
+     * @param a dividend
+     * @param b divisor
+     * @return a%b
+     */
+    public static double modulo(double a, double b) {
+        if (b == 0d) {
+            throw new ArithmeticException("Division by zero!");
+        }
+        return a % b;
+    }
+
+    /**
+     * Check whether expressions are translated to bytecode. This becomes false
+     * after the first failure to define a generated class.
+     * @return true if bytecode generation is available
+     */
+    public static boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Compile the RPN tokens with the given variable slots
+     * @param tokens the tokens in reverse polish notation
+     * @param variables the variable names, in slot order
+     * @return the compiled expression
+     */
+    static CompiledExpression compile(Token[] tokens, String[] variables) {
+        final Node root = Node.parse(tokens, variables);
+        if (available) {
+            try {
+                final CompiledExpression c = new Generator().generate(root);
+                if (c != null) {
+                    return c;
+                }
+            } catch (LinkageError e) {
+                available = false;
+            } catch (SecurityException e) {
+                available = false;
+            } catch (ReflectiveOperationException e) {
+                available = false;
+            }
+        }
+        return new Interpreted(root);
+    }
+
+    /**
+     * Node of the expression tree rebuilt from the RPN tokens
+     */
+    static final class Node {
+        static final int NUMBER = 0;
+        static final int VARIABLE = 1;
+        static final int OPERATOR = 2;
+        static final int FUNCTION = 3;
+
+        final int kind;
+        final double value;
+        final int slot;
+        final Operator operator;
+        final Function function;
+        final Node[] args;
+
+        private Node(int kind, double value, int slot, Operator operator, Function function, Node[] args) {
+            this.kind = kind;
+            this.value = value;
+            this.slot = slot;
+            this.operator = operator;
+            this.function = function;
+            this.args = args;
+        }
+
+        static Node parse(Token[] tokens, String[] variables) {
+            final Map<String, Integer> slots = new HashMap<String, Integer>(variables.length * 2);
+            for (int i = 0; i < variables.length; i++) {
+                slots.put(variables[i], i);
+            }
+            final Deque<Node> output = new ArrayDeque<Node>();
+            for (Token t : tokens) {
+                switch (t.getType()) {
+                    case Token.TOKEN_NUMBER:
+                        output.push(new Node(NUMBER, ((NumberToken) t).getValue(), -1, null, null, null));
+                        break;
+                    case Token.TOKEN_VARIABLE:
+                        final String name = ((VariableToken) t).getName();
+                        final Integer slot = slots.get(name);
+                        if (slot == null) {
+                            throw new IllegalArgumentException("The setVariable '" + name + "' is not bound to a slot");
+                        }
+                        output.push(new Node(VARIABLE, 0, slot, null, null, null));
+                        break;
+                    case Token.TOKEN_OPERATOR:
+                        final Operator op = ((OperatorToken) t).getOperator();
+                        if (output.size() < op.getNumOperands()) {
+                            throw new IllegalArgumentException("Invalid number of operands available for '" + op.getSymbol() + "' operator");
+                        }
+                        output.push(new Node(OPERATOR, 0, -1, op, null, pop(output, op.getNumOperands())));
+                        break;
+                    case Token.TOKEN_FUNCTION:
+                        final Function func = ((FunctionToken) t).getFunction();
+                        if (output.size() < func.getNumArguments()) {
+                            throw new IllegalArgumentException("Invalid number of arguments available for '" + func.getName() + "' function");
+                        }
+                        output.push(new Node(FUNCTION, 0, -1, null, func, pop(output, func.getNumArguments())));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (output.size() != 1) {
+                throw new IllegalArgumentException("Invalid number of items on the output queue. Might be caused by an invalid number of arguments for a function.");
+            }
+            return output.pop();
+        }
+
+        private static Node[] pop(Deque<Node> output, int n) {
+            final Node[] args = new Node[n];
+            for (int i = n - 1; i >= 0; i--) {
+                args[i] = output.pop();
+            }
+            return args;
+        }
+
+        double evaluate(double[] vars) {
+            switch (kind) {
+                case NUMBER:
+                    return value;
+                case VARIABLE:
+                    return vars[slot];
+                case OPERATOR:
+                    return operator.apply(evaluate(args, vars));
+                default:
+                    return function.apply(evaluate(args, vars));
+            }
+        }
+
+        private static double[] evaluate(Node[] args, double[] vars) {
+            final double[] values = new double[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].evaluate(vars);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Fallback used when bytecode generation is not possible
+     */
+    private static final class Interpreted implements CompiledExpression {
+        private final Node root;
+
+        Interpreted(Node root) {
+            this.root = root;
+        }
+
+        @Override
+        public double applyAsDouble(double... vars) {
+            return root.evaluate(vars);
+        }
+    }
+
+    /**
+     * Class loader defining exactly one generated class
+     */
+    private static final class Loader extends ClassLoader {
+        Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] b) {
+            return defineClass(name, b, 0, b.length);
+        }
+    }
+
+    /**
+     * Minimal class file writer for the generated class. The generated code
+     * has no branches, so no stack map frames are needed.
+     */
+    private static final class Generator {
+        private final Map<String, Integer> constants = new HashMap<String, Integer>();
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private int poolCount = 1;
+
+        private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        private final DataOutputStream code = new DataOutputStream(codeBytes);
+        private int stack;
+        private int maxStack;
+
+        private final List<Function> functions = new ArrayList<Function>();
+        private final List<Operator> operators = new ArrayList<Operator>();
+
+        CompiledExpression generate(Node root) throws ReflectiveOperationException {
+            final String name = PACKAGE + "GeneratedExpression" + counter.incrementAndGet();
+            try {
+                final byte[] bytes = write(name, root);
+                if (bytes == null) {
+                    return null;
+                }
+                ClassLoader parent = ExpressionCompiler.class.getClassLoader();
+                final Class<?> c = new Loader(parent).define(name.replace('/', '.'), bytes);
+                return (CompiledExpression) c.getConstructor(Function[].class, Operator[].class).newInstance(
+                        functions.toArray(new Function[functions.size()]),
+                        operators.toArray(new Operator[operators.size()]));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private byte[] write(String name, Node root) throws IOException {
+            final int thisClass = classRef(name);
+            final int superClass = classRef("java/lang/Object");
+            final int iface = classRef(PACKAGE + "CompiledExpression");
+            final int functionsField = fieldRef(name, "functions", "[L" + FUNCTION + ";");
+            final int operatorsField = fieldRef(name, "operators", "[L" + OPERATOR + ";");
+            final int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+            final int codeAttr = utf8("Code");
+
+            /* applyAsDouble([D)D */
+            emit(root, functionsField, operatorsField);
+            code.writeByte(0xaf); // dreturn
+            final byte[] apply = codeBytes.toByteArray();
+            final int applyStack = maxStack;
+            if (apply.length > MAX_CODE || applyStack > MAX_CODE || poolCount > MAX_CODE) {
+                /* too large for a single method, interpret it instead */
+                return null;
+            }
+
+            /* <init>([Function;[Operator;)V */
+            final byte[] init = new byte[]{
+                    0x2a, (byte) 0xb7, hi(objectInit), lo(objectInit),              // aload_0; invokespecial
+                    0x2a, 0x2b, (byte) 0xb5, hi(functionsField), lo(functionsField), // aload_0; aload_1; putfield
+                    0x2a, 0x2c, (byte) 0xb5, hi(operatorsField), lo(operatorsField), // aload_0; aload_2; putfield
+                    (byte) 0xb1};                                                    // return
+
+            final int initName = utf8("<init>");
+            final int initDesc = utf8("([L" + FUNCTION + ";[L" + OPERATOR + ";)V");
+            final int applyName = utf8("applyAsDouble");
+            final int applyDesc = utf8(APPLY_DESC);
+            final int functionsName = utf8("functions");
+            final int functionsDesc = utf8("[L" + FUNCTION + ";");
+            final int operatorsName = utf8("operators");
+            final int operatorsDesc = utf8("[L" + OPERATOR + ";");
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(50);
+            out.writeShort(poolCount);
+            pool.flush();
+            poolBytes.writeTo(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(iface);
+
+            out.writeShort(2);
+            out.writeShort(0x0012); // private final
+            out.writeShort(functionsName);
+            out.writeShort(functionsDesc);
+            out.writeShort(0);
+            out.writeShort(0x0012);
+            out.writeShort(operatorsName);
+            out.writeShort(operatorsDesc);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            writeMethod(out, 0x0001, initName, initDesc, codeAttr, init, 2, 3);
+            writeMethod(out, 0x0081, applyName, applyDesc, codeAttr, apply, applyStack, 2);
+            out.writeShort(0);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        private static void writeMethod(DataOutputStream out, int access, int name, int desc, int codeAttr,
+                                        byte[] body, int maxStack, int maxLocals) throws IOException {
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(desc);
+            out.writeShort(1);
+            out.writeShort(codeAttr);
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+        private void emit(Node n, int functionsField, int operatorsField) throws IOException {
+            switch (n.kind) {
+                case Node.NUMBER:
+                    if (Double.doubleToRawLongBits(n.value) == 0L) {
+                        op(0x0e, 2); // dconst_0
+                    } else if (n.value == 1d) {
+                        op(0x0f, 2); // dconst_1
+                    } else {
+                        op(0x14, 2); // ldc2_w
+                        code.writeShort(doubleConst(n.value));
+                    }
+                    return;
+                case Node.VARIABLE:
+                    op(0x2b, 1); // aload_1
+                    pushInt(n.slot);
+                    op(0x31, 0); // daload
+                    return;
+                case Node.OPERATOR:
+                    if (emitBuiltin(n, functionsField, operatorsField)) {
+                        return;
+                    }
+                    op(0x2a, 1); // aload_0
+                    op(0xb4, 0); // getfield
+                    code.writeShort(operatorsField);
+                    pushInt(index(operators, n.operator));
+                    op(0x32, -1); // aaload
+                    emitArgs(n.args, functionsField, operatorsField);
+                    op(0xb6, 0); // invokevirtual
+                    code.writeShort(methodRef(OPERATOR, "apply", APPLY_DESC));
+                    return;
+                default:
+                    op(0x2a, 1);
+                    op(0xb4, 0);
+                    code.writeShort(functionsField);
+                    pushInt(index(functions, n.function));
+                    op(0x32, -1);
+                    emitArgs(n.args, functionsField, operatorsField);
+                    op(0xb6, 0);
+                    code.writeShort(methodRef(FUNCTION, "apply", APPLY_DESC));
+            }
+        }
+
+        private boolean emitBuiltin(Node n, int functionsField, int operatorsField) throws IOException {
+            final Operator o = n.operator;
+            final char symbol = o.getSymbol().length() == 1 ? o.getSymbol().charAt(0) : 0;
+            if (symbol == 0 || o != Operators.getBuiltinOperator(symbol, o.getNumOperands())) {
+                return false;
+            }
+            if (o.getNumOperands() == 1) {
+                emit(n.args[0], functionsField, operatorsField);
+                if (symbol == '-') {
+                    op(0x77, 0); // dneg
+                }
+                return true;
+            }
+            emit(n.args[0], functionsField, operatorsField);
+            emit(n.args[1], functionsField, operatorsField);
+            switch (symbol) {
+                case '+':
+                    op(0x63, -2); // dadd
+                    break;
+                case '-':
+                    op(0x67, -2); // dsub
+                    break;
+                case '*':
+                    op(0x6b, -2); // dmul
+                    break;
+                case '^':
+                    op(0xb8, -2); // invokestatic
+                    code.writeShort(methodRef("java/lang/Math", "pow", "(DD)D"));
+                    break;
+                case '/':
+                    op(0xb8, -2);
+                    code.writeShort(methodRef(PACKAGE + "ExpressionCompiler", "divide", "(DD)D"));
+                    break;
+                default:
+                    op(0xb8, -2);
+                    code.writeShort(methodRef(PACKAGE + "ExpressionCompiler", "modulo", "(DD)D"));
+                    break;
+            }
+            return true;
+        }
+
+        private void emitArgs(Node[] args, int functionsField, int operatorsField) throws IOException {
+            pushInt(args.length);
+            op(0xbc, 0); // newarray double
+            code.writeByte(7);
+            for (int i = 0; i < args.length; i++) {
+                op(0x59, 1); // dup
+                pushInt(i);
+                emit(args[i], functionsField, operatorsField);
+                op(0x52, -4); // dastore
+            }
+        }
+
+        private void pushInt(int v) throws IOException {
+            if (v <= 5) {
+                op(0x03 + v, 1); // iconst_<v>
+            } else if (v <= Byte.MAX_VALUE) {
+                op(0x10, 1); // bipush
+                code.writeByte(v);
+            } else {
+                op(0x11, 1); // sipush
+                code.writeShort(v);
+            }
+        }
+
+        private void op(int opcode, int delta) throws IOException {
+            code.writeByte(opcode);
+            stack += delta;
+            if (stack > maxStack) {
+                maxStack = stack;
+            }
+        }
+
+        private static <T> int index(List<T> list, T o) {
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) == o) {
+                    return i;
+                }
+            }
+            list.add(o);
+            return list.size() - 1;
+        }
+
+        private int utf8(String s) throws IOException {
+            final String key = "U" + s;
+            Integer idx = constants.get(key);
+            if (idx == null) {
+                pool.writeByte(1);
+                pool.writeUTF(s);
+                idx = poolCount++;
+                constants.put(key, idx);
+            }
+            return idx;
+        }
+
+        private int classRef(String name) throws IOException {
+            final String key = "C" + name;
+            Integer idx = constants.get(key);
+            if (idx == null) {
+                final int n = utf8(name);
+                pool.writeByte(7);
+                pool.writeShort(n);
+                idx = poolCount++;
+                constants.put(key, idx);
+            }
+            return idx;
+        }
+
+        private int nameAndType(String name, String desc) throws IOException {
+            final String key = "N" + name + ' ' + desc;
+            Integer idx = constants.get(key);
+            if (idx == null) {
+                final int n = utf8(name);
+                final int d = utf8(desc);
+                pool.writeByte(12);
+                pool.writeShort(n);
+                pool.writeShort(d);
+                idx = poolCount++;
+                constants.put(key, idx);
+            }
+            return idx;
+        }
+
+        private int fieldRef(String owner, String name, String desc) throws IOException {
+            return memberRef(9, owner, name, desc);
+        }
+
+        private int methodRef(String owner, String name, String desc) throws IOException {
+            return memberRef(10, owner, name, desc);
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) throws IOException {
+            final String key = "M" + tag + owner + '.' + name + desc;
+            Integer idx = constants.get(key);
+            if (idx == null) {
+                final int c = classRef(owner);
+                final int nt = nameAndType(name, desc);
+                pool.writeByte(tag);
+                pool.writeShort(c);
+                pool.writeShort(nt);
+                idx = poolCount++;
+                constants.put(key, idx);
+            }
+            return idx;
+        }
+
+        private int doubleConst(double v) throws IOException {
+            final long bits = Double.doubleToRawLongBits(v);
+            final String key = "D" + bits;
+            Integer idx = constants.get(key);
+            if (idx == null) {
+                pool.writeByte(6);
+                pool.writeLong(bits);
+                idx = poolCount;
+                poolCount += 2;
+                constants.put(key, idx);
+            }
+            return idx;
+        }
+
+        private static byte hi(int v) {
+            return (byte) (v >> 8);
+        }
+
+        private static byte lo(int v) {
+            return (byte) v;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2014 Frank Asseg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jhplot.math.exp4j;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel evaluation of an {@link Expression} over large arrays and grids
+ * using a {@link ForkJoinPool}. The rows are split into chunks and every chunk
+ * is evaluated with the batch evaluator, which allocates its own scratch
+ * buffers, so the workers never share mutable state. Grids are cut into tiles
+ * of about {@link #TILE} points which fit into the L1/L2 cache together with
+ * the scratch buffers. The results are identical to the serial evaluation.
+ * <p>
+ * The values of variables set with {@link Expression#setVariable(String, double)}
+ * are read by all workers and must not be changed during the evaluation.
+ *
+ * @author S.Chekanov
+ */
+public final class ParallelEvaluator {
+
+    /**
+     * Number of points in a grid tile
+     */
+    public static final int TILE = 4096;
+
+    /**
+     * Minimum number of points evaluated by one task
+     */
+    public static final int THRESHOLD = 8 * TILE;
+
+    private static ForkJoinPool defaultPool;
+
+    private ParallelEvaluator() {
+    }
+
+    /**
+     * Get the pool used when no pool is given. It is created on the first use with
+     * one worker per available processor.
+     * @return the default pool
+     */
+    public static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) {
+            defaultPool = new ForkJoinPool();
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Set the pool used when no pool is given
+     * @param pool the pool
+     */
+    public static synchronized void setDefaultPool(ForkJoinPool pool) {
+        defaultPool = pool;
+    }
+
+    /**
+     * Evaluate the expression for all rows of the columns in parallel
+     * @param pool the pool to run on, or null for the default pool
+     * @param expression the expression
+     * @param variables the names of the variables given as columns
+     * @param columns the values of the variables, one array per name
+     * @param output the array receiving the results
+     * @see Expression#evaluate(String[], double[][], double[])
+     */
+    public static void evaluate(ForkJoinPool pool, Expression expression, String[] variables, double[][] columns,
+                                double[] output) {
+        if (pool == null) {
+            pool = getDefaultPool();
+        }
+        pool.invoke(new Rows(expression, variables, columns, output, 0, output.length));
+    }
+
+    /**
+     * Evaluate a function of two variables on the grid x times y in parallel.
+     * The result z[i][j] is the value at (x[i], y[j]).
+     * @param pool the pool to run on, or null for the default pool
+     * @param expression the expression
+     * @param xName the name of the first variable
+     * @param x values of the first variable
+     * @param yName the name of the second variable
+     * @param y values of the second variable
+     * @param z the array receiving the results, at least x.length times y.length
+     */
+    public static void evaluateGrid(ForkJoinPool pool, Expression expression, String xName, double[] x,
+                                    String yName, double[] y, double[][] z) {
+        if (pool == null) {
+            pool = getDefaultPool();
+        }
+        if (x.length == 0 || y.length == 0) {
+            return;
+        }
+        pool.invoke(new Grid(expression, new String[]{xName, yName}, x, y, z, 0, x.length));
+    }
+
+    private static final class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Expression expression;
+        private final String[] variables;
+        private final double[][] columns;
+        private final double[] output;
+        private final int from;
+        private final int to;
+
+        Rows(Expression expression, String[] variables, double[][] columns, double[] output, int from, int to) {
+            this.expression = expression;
+            this.variables = variables;
+            this.columns = columns;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                expression.evaluate(variables, columns, output, from, to);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new Rows(expression, variables, columns, output, from, mid),
+                    new Rows(expression, variables, columns, output, mid, to));
+        }
+    }
+
+    private static final class Grid extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Expression expression;
+        private final String[] variables;
+        private final double[] x;
+        private final double[] y;
+        private final double[][] z;
+        private final int from;
+        private final int to;
+
+        Grid(Expression expression, String[] variables, double[] x, double[] y, double[][] z, int from, int to) {
+            this.expression = expression;
+            this.variables = variables;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1 || (long) (to - from) * y.length <= THRESHOLD) {
+                evaluateTiles();
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new Grid(expression, variables, x, y, z, from, mid),
+                    new Grid(expression, variables, x, y, z, mid, to));
+        }
+
+        private void evaluateTiles() {
+            final int cols = Math.min(y.length, TILE);
+            final int rows = Math.max(1, TILE / cols);
+            final double[] tx = new double[rows * cols];
+            final double[] ty = new double[rows * cols];
+            final double[] tz = new double[rows * cols];
+            final double[][] columns = new double[][]{tx, ty};
+            for (int i0 = from; i0 < to; i0 += rows) {
+                final int i1 = Math.min(i0 + rows, to);
+                for (int j0 = 0; j0 < y.length; j0 += cols) {
+                    final int j1 = Math.min(j0 + cols, y.length);
+                    int k = 0;
+                    for (int i = i0; i < i1; i++) {
+                        for (int j = j0; j < j1; j++) {
+                            tx[k] = x[i];
+                            ty[k] = y[j];
+                            k++;
+                        }
+                    }
+                    expression.evaluate(variables, columns, tz, 0, k);
+                    k = 0;
+                    for (int i = i0; i < i1; i++) {
+                        final int n = j1 - j0;
+                        System.arraycopy(tz, k, z[i], j0, n);
+                        k += n;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package jhplot.stat;
 
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 import jhplot.P1D;
 import jhplot.gui.HelpBrowser;
+import jhplot.math.exp4j.ParallelEvaluator;
 import org.apache.commons.math3.util.FastMath;
 
 
@@ -11,6 +16,11 @@ import org.apache.commons.math3.util.FastMath;
 * fluctuations inside a phase space. Calculations are done up to BP(6) order 
 * For a Poisson distribution it should be 1 
 * for all divisions
+* <p>
+* Each event is binned once per division: the bin of every particle is found
+* by index arithmetic, and only the filled bins are updated. Events can also be
+* passed in batches which are processed in parallel, and the results of
+* several instances with the same divisions can be merged.
 *
 * Here are relevant  papers: <p>
 *  1) LOCAL MULTIPLICITY FLUCTUATIONS IN HADRONIC Z DECAY.
@@ -41,17 +51,19 @@ import org.apache.commons.math3.util.FastMath;
 public class BunchingParameters {
 	
 	
+	private static final int MIN_EVENTS = 64; // events of a parallel task
+	
 	private int Bins=0;
 	private double Min=0;
 	private int [][] ICC;
+	private int [][] CELLS;   // filled bins of the current event
 	private int Nmax;  
 	private double[][] BP;
 	private double[][] ER;
 	private int[]   IBI;
 	private double[] BI;
-	private int NCO[][][];
+	private int OCC[][];      // events with particles in a bin
 	private int IH[][][];
-	private int CM[][][][];                    
 	private int Nev=0;
 	private double[][] HB;
 	private int IMAX=0;
@@ -113,34 +125,36 @@ public class BunchingParameters {
 			BI[i] = (Max-Min)/ (double)IBI[i];
 		}
 	    
-	   
-	    
+		allocate();
+		
+	}
+	
+	
+	/**
+	 * Empty instance with the same divisions.
+	 */
+	private BunchingParameters(BunchingParameters c) {
+		
+		Bins=c.Bins;
+		Min=c.Min;
+		Nmax=c.Nmax;
+		IBI=c.IBI;
+		BI=c.BI;
+		IMAX=c.IMAX;
+		allocate();
+	}
+	
+	
+	private void allocate() {
 		
 		ICC=new int[Bins][IMAX];
-		NCO=new int[Nmax][Bins][IMAX];
+		CELLS=new int[Bins][IMAX];
+		OCC=new int[Bins][IMAX];
 		IH=new int[Nmax][Bins][IMAX];
-		CM=new int[Nmax][Nmax][Bins][IMAX];
 		HB = new double [Nmax][IMAX];
 	    BP= new double[Nmax][Bins]; 
 	    ER= new double[Nmax][Bins]; 
 		Nev=0;
-		
-		
-		// set to zero
-		 for (int n = 0; n < Nmax; n++) {
-			   for (int i = 0; i < Bins; i++) {
-				   for (int j = 0; j < IBI[i]; j++) {  
-					   NCO[n][i][j]=0;
-					   IH[n][i][j]=0;
-				  
-			   }}
-		   }
-		
-		
-		
-		
-		
-		
 	}
 	
 	
@@ -155,59 +169,63 @@ public class BunchingParameters {
 	   
 	   Nev++;
 	   
-	   // set to zero before filling
-	   for (int i = 0; i< Bins; i++) 
-		   for (int j = 0; j<IBI[i]; j++) ICC[i][j]=0;
-	  
-	   
-	   // calculate number of particles in each bin
-	       for (int i = 0; i < Bins; i++)   {
-		   for (int j = 0; j < IBI[i]; j++) {
-			   double m1=Min+BI[i]*j;
-			   double m2=Min+BI[i]*(j+1);
-			   for (int m = 0; m < v.length; m++) 
-		                  if (v[m]>m1 && v[m]<m2) ICC[i][j]++;	
-		   }
-		   }
-		   
-		
-		   
-		   
-		 // collect event  probabilities  
-		   for (int n = 0; n < Nmax; n++) {
-			   for (int i = 0; i < Bins; i++) {
-				   for (int j = 0; j<IBI[i]; j++) { 
-				   
-				   if (ICC[i][j] == n) {
-					       NCO[n][i][j] = 1;
-					       IH[n][i][j]++;
-				   } else
-					        NCO[n][i][j] = 0;
-					   
-				   }
-			   }	   
+	   // calculate number of particles in each bin; the probability
+	   // to find no particles is derived from OCC in eval() 
+	   for (int i = 0; i < Bins; i++) {
+		   int[] cnt=ICC[i];
+		   int[] cells=CELLS[i];
+		   int k=EventBins.fill(v, Min, BI[i], IBI[i], cnt, cells);
+		   for (int c = 0; c < k; c++) {
+			   int j=cells[c];
+			   int n=cnt[j];
+			   OCC[i][j]++;
+			   if (n < Nmax) IH[n][i][j]++;
+			   cnt[j]=0;
 		   }
-		   
-
-		   // calculate  covariance for probabilities
-		   for (int i = 0; i < Bins; i++) {
-			   for (int j = 0; j < IBI[i]; j++) { 
-				   for (int n1 = 0; n1 < Nmax-1; n1++) {
-				   for (int n2 = 0; n2 < Nmax-1; n2++) 
-        			    CM[n1][n2][i][j] = CM[n1][n2][i][j]+NCO[n1][i][j]*NCO[n2][i][j];	   
-					   
-			      }
-			     }
-			   }
-			   
-		 
-	
-		   
-	   
+	   }
 		
 	}
    
    
+   /**
+    * Collect information about a batch of events. The events are
+    * split into chunks which are processed in parallel and merged.
+    * The result is the same as calling {@link #run(double[])} for every event.
+    * @param events - vectors characterizing particles, one per event
+    * @param pool pool to run on, or null for the default pool
+    */
+   public void run(double[][] events, ForkJoinPool pool){
+	   
+	   if (events.length <= MIN_EVENTS) {
+		   for (double[] v : events) run(v);
+		   return;
+	   }
+	   if (pool == null) pool=ParallelEvaluator.getDefaultPool();
+	   int chunk=Math.max(MIN_EVENTS, events.length/(4*pool.getParallelism()));
+	   merge(pool.invoke(new Events(this, events, 0, events.length, chunk)));
+   }
+   
+   
+   /**
+    * Add the events collected by another instance. Both must use
+    * the same order and divisions.
+    * @param o - other bunching parameters
+    */
+   public void merge(BunchingParameters o){
+	   
+	   if (o.Bins != Bins || o.Nmax != Nmax || o.Min != Min
+			   || !Arrays.equals(o.IBI, IBI) || !Arrays.equals(o.BI, BI))
+		   throw new IllegalArgumentException("Bunching parameters have different divisions");
+	   
+	   Nev += o.Nev;
+	   for (int i = 0; i < Bins; i++) 
+		   for (int j = 0; j < IBI[i]; j++) OCC[i][j] += o.OCC[i][j];
+	   for (int n = 1; n < Nmax; n++) 
+		   for (int i = 0; i < Bins; i++) 
+			   for (int j = 0; j < IBI[i]; j++) IH[n][i][j] += o.IH[n][i][j];
+   }
+   
+   
    
    /**
     * Evaluate bunching parameters at the end of the run
@@ -220,6 +238,10 @@ public class BunchingParameters {
         	   
 	    
 	   
+	   // events without particles in a bin
+	   for (int i = 0; i < Bins; i++) 
+		   for (int j = 0; j < IBI[i]; j++) IH[0][i][j]=Nev-OCC[i][j];
+	   
 	   HB = new double[Nmax][Bins];
 	   for (int i = 0; i < Nmax-1; i++) 	    
 		   for (int j = 0; j < Bins; j++) HB[i][j]=0;  
@@ -265,11 +287,13 @@ public class BunchingParameters {
 		   for (int j = 0; j < Bins; j++) CE[i1][i2][j]=0.0;
 	   
 	   
-	   for (int i1 = 0; i1 < Nmax; i1++) 
-		 for (int i2 = 0; i2 < Nmax; i2++) 
+	   // an event has exactly one multiplicity in a bin, so the products
+	   // of the probabilities vanish for different orders and the 
+	   // covariance sums reduce to IH
+	   for (int i1 = 0; i1 < Nmax-1; i1++) 
 		   for (int j = 0; j < Bins; j++) 
 			   for (int i = 0; i < IBI[j]; i++)   
-			   CE[i1][i2][j]=CE[i1][i2][j]+CM[i1][i2][j][i];
+			   CE[i1][i1][j]=CE[i1][i1][j]+IH[i1][j][i];
 	   
 	   
 	    double XN=AN*AN;
@@ -359,6 +383,45 @@ public class BunchingParameters {
 	   
 	   
 
+	/**
+	 * Events processed by one task.
+	 */
+	private static final class Events extends RecursiveTask<BunchingParameters> {
+		private static final long serialVersionUID = 1L;
+
+		private final BunchingParameters config;
+		private final double[][] events;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Events(BunchingParameters config, double[][] events, int from, int to, int chunk) {
+			this.config = config;
+			this.events = events;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected BunchingParameters compute() {
+			if (to - from <= chunk) {
+				BunchingParameters b = new BunchingParameters(config);
+				for (int i = from; i < to; i++)
+					b.run(events[i]);
+				return b;
+			}
+			int mid = (from + to) >>> 1;
+			Events right = new Events(config, events, mid, to, chunk);
+			right.fork();
+			BunchingParameters b = new Events(config, events, from, mid, chunk).compute();
+			b.merge(right.join());
+			return b;
+		}
+	}
+	   
+	   
+
 	/**
 	    * Show online documentation.
 	    */
@@ -0,0 +1,371 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.stat;
+
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import jhplot.math.exp4j.ParallelEvaluator;
+
+/**
+ * Accumulator for the means, variances, covariance and correlation matrix of
+ * rows of values. Rows are added one by one, as 2D arrays or from an
+ * iterator, so the data do not have to be kept in memory. Accumulators filled
+ * with different parts of the data can be merged.
+ * <p>
+ * Rows are collected in blocks of {@link #BLOCK} rows. For every block the
+ * means are computed first, then the co-moments of the centered values, and
+ * the block is merged into the totals with the pairwise update of Chan,
+ * Golub and LeVeque. This is numerically stable, and the co-moments are
+ * computed as dot products of contiguous columns of the block, only for the
+ * upper triangle of the symmetric matrix.
+ * <p>
+ * Example:
+ * 
+ * <pre>
+ * Covariance c = Covariance.compute(data); // double[rows][columns]
+ * double[][] cov = c.getCovariance();
+ * double[][] cor = c.getCorrelation();
+ * </pre>
+ * 
+ * This class is not thread-safe; use one accumulator per thread and merge
+ * them, or use {@link #compute(double[][], ForkJoinPool)}.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class Covariance {
+
+	/**
+	 * Number of rows processed at once.
+	 */
+	public static final int BLOCK = 64;
+
+	private static final int MIN_CHUNK = 4096; // rows of a parallel task
+
+	private final int n;
+	private long count;
+	private final double[] mean;
+	private final double[][] comoment; // upper triangle, j >= i
+	private final double[] block; // column-major: value j of row r at j*BLOCK+r
+	private final double[] bmean;
+	private int rows; // rows in the block
+
+	/**
+	 * Create an empty accumulator.
+	 * 
+	 * @param columns
+	 *            number of values in a row
+	 */
+	public Covariance(int columns) {
+
+		if (columns < 1)
+			throw new IllegalArgumentException(
+					"Number of columns must be positive");
+		n = columns;
+		mean = new double[n];
+		comoment = new double[n][n];
+		block = new double[n * BLOCK];
+		bmean = new double[n];
+	}
+
+	/**
+	 * Compute the covariance of the rows of a 2D array.
+	 * 
+	 * @param v
+	 *            array [rows][columns]
+	 * @return filled accumulator
+	 */
+	public static Covariance compute(double[][] v) {
+
+		Covariance c = new Covariance(v[0].length);
+		c.add(v, 0, v.length);
+		return c;
+	}
+
+	/**
+	 * Compute the covariance of the rows of a 2D array in parallel. The rows
+	 * are split into chunks which are accumulated by the workers of the pool
+	 * and merged.
+	 * 
+	 * @param v
+	 *            array [rows][columns]
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 * @return filled accumulator
+	 */
+	public static Covariance compute(double[][] v, ForkJoinPool pool) {
+
+		if (v.length <= MIN_CHUNK)
+			return compute(v);
+		if (pool == null)
+			pool = ParallelEvaluator.getDefaultPool();
+		int chunk = Math.max(MIN_CHUNK,
+				v.length / (4 * pool.getParallelism()));
+		if (v.length <= chunk)
+			return compute(v);
+		return pool.invoke(new Rows(v, 0, v.length, chunk));
+	}
+
+	/**
+	 * Add a row.
+	 * 
+	 * @param row
+	 *            values, at least the number of columns
+	 */
+	public void add(double[] row) {
+
+		for (int j = 0, k = rows; j < n; j++, k += BLOCK)
+			block[k] = row[j];
+		if (++rows == BLOCK)
+			flush();
+	}
+
+	/**
+	 * Add rows of a 2D array.
+	 * 
+	 * @param v
+	 *            array [rows][columns]
+	 * @param from
+	 *            first row
+	 * @param to
+	 *            end of the rows (exclusive)
+	 */
+	public void add(double[][] v, int from, int to) {
+
+		for (int i = from; i < to; i++)
+			add(v[i]);
+	}
+
+	/**
+	 * Add all rows given by an iterator. The row arrays can be reused by the
+	 * iterator.
+	 * 
+	 * @param it
+	 *            row source
+	 */
+	public void add(Iterator<double[]> it) {
+
+		while (it.hasNext())
+			add(it.next());
+	}
+
+	/**
+	 * Merge the rows of another accumulator with the same number of columns.
+	 * 
+	 * @param c
+	 *            accumulator to merge; its content is not changed
+	 */
+	public void merge(Covariance c) {
+
+		if (c.n != n)
+			throw new IllegalArgumentException("Different number of columns: "
+					+ c.n + " and " + n);
+		flush();
+		if (c.rows > 0) {
+			// copy of the pending rows of c
+			for (int j = 0; j < n; j++)
+				System.arraycopy(c.block, j * BLOCK, block, j * BLOCK, c.rows);
+			rows = c.rows;
+			flush();
+		}
+		merge(c.count, c.mean, c.comoment);
+	}
+
+	/**
+	 * Get the number of rows.
+	 * 
+	 * @return number of rows
+	 */
+	public long getCount() {
+
+		return count + rows;
+	}
+
+	/**
+	 * Get the number of columns.
+	 * 
+	 * @return number of columns
+	 */
+	public int getColumns() {
+
+		return n;
+	}
+
+	/**
+	 * Get the means of the columns.
+	 * 
+	 * @return means
+	 */
+	public double[] getMean() {
+
+		flush();
+		return mean.clone();
+	}
+
+	/**
+	 * Get the variances of the columns, divided by (rows-1).
+	 * 
+	 * @return variances
+	 */
+	public double[] getVariance() {
+
+		flush();
+		double[] v = new double[n];
+		for (int i = 0; i < n; i++)
+			v[i] = comoment[i][i] / (count - 1);
+		return v;
+	}
+
+	/**
+	 * Get the covariance matrix, divided by (rows-1).
+	 * 
+	 * @return symmetric matrix [columns][columns]
+	 */
+	public double[][] getCovariance() {
+
+		flush();
+		double[][] x = new double[n][n];
+		double d = count - 1;
+		for (int i = 0; i < n; i++)
+			for (int j = i; j < n; j++) {
+				x[i][j] = comoment[i][j] / d;
+				x[j][i] = x[i][j];
+			}
+		return x;
+	}
+
+	/**
+	 * Get the correlation matrix.
+	 * 
+	 * @return symmetric matrix [columns][columns]
+	 */
+	public double[][] getCorrelation() {
+
+		flush();
+		double[][] x = new double[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = i; j < n; j++) {
+				x[i][j] = comoment[i][j]
+						/ Math.sqrt(comoment[i][i] * comoment[j][j]);
+				x[j][i] = x[i][j];
+			}
+		return x;
+	}
+
+	/**
+	 * Move the rows of the block into the totals: means of the block, then
+	 * co-moments of the centered block, then the pairwise merge.
+	 */
+	private void flush() {
+
+		int m = rows;
+		if (m == 0)
+			return;
+		rows = 0;
+		for (int j = 0; j < n; j++) {
+			int off = j * BLOCK;
+			double s = 0;
+			for (int r = 0; r < m; r++)
+				s += block[off + r];
+			double bm = s / m;
+			for (int r = 0; r < m; r++)
+				block[off + r] -= bm;
+			bmean[j] = bm;
+		}
+
+		long total = count + m;
+		double f = (double) count * m / total;
+		double g = (double) m / total;
+		for (int i = 0; i < n; i++) {
+			int oi = i * BLOCK;
+			double di = bmean[i] - mean[i];
+			double[] ci = comoment[i];
+			for (int j = i; j < n; j++) {
+				int oj = j * BLOCK;
+				double s = 0;
+				for (int r = 0; r < m; r++)
+					s += block[oi + r] * block[oj + r];
+				ci[j] += s + f * di * (bmean[j] - mean[j]);
+			}
+		}
+		for (int j = 0; j < n; j++)
+			mean[j] += g * (bmean[j] - mean[j]);
+		count = total;
+	}
+
+	/**
+	 * Pairwise merge of the totals of other rows.
+	 */
+	private void merge(long cnt, double[] mn, double[][] cm) {
+
+		if (cnt == 0)
+			return;
+		long total = count + cnt;
+		double f = (double) count * cnt / total;
+		double g = (double) cnt / total;
+		for (int i = 0; i < n; i++) {
+			double di = mn[i] - mean[i];
+			for (int j = i; j < n; j++)
+				comoment[i][j] += cm[i][j] + f * di * (mn[j] - mean[j]);
+		}
+		for (int j = 0; j < n; j++)
+			mean[j] += g * (mn[j] - mean[j]);
+		count = total;
+	}
+
+	private static final class Rows extends RecursiveTask<Covariance> {
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] v;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Rows(double[][] v, int from, int to, int chunk) {
+			this.v = v;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected Covariance compute() {
+			if (to - from <= chunk) {
+				Covariance c = new Covariance(v[from].length);
+				c.add(v, from, to);
+				return c;
+			}
+			int mid = (from + to) >>> 1;
+			Rows right = new Rows(v, mid, to, chunk);
+			right.fork();
+			Covariance c = new Rows(v, from, mid, chunk).compute();
+			c.merge(right.join());
+			return c;
+		}
+	}
+}
@@ -0,0 +1,514 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.stat;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import jhplot.math.exp4j.ParallelEvaluator;
+
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * A discrete random variable given by a vector of samples. Every sample is
+ * discretised to the floor of its value, as in {@link ProbabilityState}, and
+ * the distinct states are numbered 0,..,getNumStates()-1. The states and their
+ * counts are kept in primitive arrays. They are counted in a dense array when
+ * the range of values is small, and in an open-addressing hash table
+ * otherwise, so no boxed numbers are created.
+ * <p>
+ * The marginal counts are computed once and reused by all functions of two
+ * variables, which only need to count the joint states. This is used by
+ * {@link #mutualInformation(DiscreteStates[], ForkJoinPool)} to compute the
+ * mutual information of all pairs of many features in parallel. The functions
+ * give the same values as {@link Entropy} and {@link MutualInformation} and
+ * use the base {@link Entropy#LOG_BASE}.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public final class DiscreteStates {
+
+	private static final int MIN_DENSE = 1 << 12; // always count in an array
+
+	private final int[] states;
+	private final int[] counts;
+	private final int numStates;
+
+	/**
+	 * Discretise a vector.
+	 * 
+	 * @param dataVector
+	 *            input vector. It is discretised to the floor of each value.
+	 */
+	public DiscreteStates(double[] dataVector) {
+
+		int n = dataVector.length;
+		int[] floor = new int[n];
+		int min = 0, max = 0;
+		for (int i = 0; i < n; i++) {
+			int v = (int) Math.floor(dataVector[i]);
+			floor[i] = v;
+			if (i == 0 || v < min)
+				min = v;
+			if (i == 0 || v > max)
+				max = v;
+		}
+		states = floor; // overwritten by the ids
+		Table t = count(floor, 1, null, min, n == 0 ? 0 : (long) max - min
+				+ 1, states, new Workspace());
+		counts = t.counts;
+		numStates = t.size;
+	}
+
+	private DiscreteStates(int[] states, int[] counts, int numStates) {
+		this.states = states;
+		this.counts = counts;
+		this.numStates = numStates;
+	}
+
+	/**
+	 * Get the joint variable of two variables. Every distinct pair of states
+	 * is a state of the joint variable.
+	 * 
+	 * @param first
+	 *            first variable
+	 * @param second
+	 *            second variable
+	 * @return joint variable
+	 */
+	public static DiscreteStates join(DiscreteStates first,
+			DiscreteStates second) {
+
+		check(first, second);
+		int[] ids = new int[first.size()];
+		Table t = first.joint(second, ids, new Workspace());
+		return new DiscreteStates(ids, t.counts, t.size);
+	}
+
+	/**
+	 * Get the number of samples.
+	 * 
+	 * @return number of samples
+	 */
+	public int size() {
+		return states.length;
+	}
+
+	/**
+	 * Get the number of distinct states.
+	 * 
+	 * @return number of states
+	 */
+	public int getNumStates() {
+		return numStates;
+	}
+
+	/**
+	 * Get the state of a sample.
+	 * 
+	 * @param i
+	 *            index of the sample
+	 * @return state (0 - getNumStates()-1)
+	 */
+	public int getState(int i) {
+		return states[i];
+	}
+
+	/**
+	 * Get the number of samples in a state.
+	 * 
+	 * @param state
+	 *            state (0 - getNumStates()-1)
+	 * @return count
+	 */
+	public int getCount(int state) {
+		return counts[state];
+	}
+
+	/**
+	 * Calculate the entropy H(X).
+	 * 
+	 * @return entropy
+	 * @see Entropy#calculateEntropy(double[])
+	 */
+	public double entropy() {
+		return entropy(counts, numStates, states.length);
+	}
+
+	/**
+	 * Calculate the joint entropy H(X,Y).
+	 * 
+	 * @param first
+	 *            first variable
+	 * @param second
+	 *            second variable
+	 * @return joint entropy
+	 * @see Entropy#calculateJointEntropy(double[], double[])
+	 */
+	public static double jointEntropy(DiscreteStates first,
+			DiscreteStates second) {
+
+		check(first, second);
+		Table t = first.joint(second, null, new Workspace());
+		return entropy(t.counts, t.size, first.size());
+	}
+
+	/**
+	 * Calculate the conditional entropy H(X|Y).
+	 * 
+	 * @param data
+	 *            variable X
+	 * @param condition
+	 *            variable Y
+	 * @return conditional entropy
+	 * @see Entropy#calculateConditionalEntropy(double[], double[])
+	 */
+	public static double conditionalEntropy(DiscreteStates data,
+			DiscreteStates condition) {
+
+		check(data, condition);
+		Table t = data.joint(condition, null, new Workspace());
+		double n = data.size();
+		long ns = condition.numStates;
+		double condEntropy = 0.0;
+		for (int k = 0; k < t.size; k++) {
+			double jointValue = t.counts[k] / n;
+			double condValue = condition.counts[(int) (t.keys[k] % ns)] / n;
+			condEntropy -= jointValue * FastMath.log(jointValue / condValue);
+		}
+		return condEntropy / FastMath.log(Entropy.LOG_BASE);
+	}
+
+	/**
+	 * Calculate the mutual information I(X;Y).
+	 * 
+	 * @param first
+	 *            variable X
+	 * @param second
+	 *            variable Y
+	 * @return mutual information
+	 * @see MutualInformation#calculateMutualInformation(double[], double[])
+	 */
+	public static double mutualInformation(DiscreteStates first,
+			DiscreteStates second) {
+
+		check(first, second);
+		return mutualInformation(first, second, new Workspace());
+	}
+
+	private static double mutualInformation(DiscreteStates first,
+			DiscreteStates second, Workspace w) {
+
+		Table t = first.joint(second, null, w);
+		double n = first.size();
+		long ns = second.numStates;
+		double mutualInformation = 0.0;
+		for (int k = 0; k < t.size; k++) {
+			double jointValue = t.counts[k] / n;
+			double firstValue = first.counts[(int) (t.keys[k] / ns)] / n;
+			double secondValue = second.counts[(int) (t.keys[k] % ns)] / n;
+			mutualInformation += jointValue
+					* Math.log(jointValue / firstValue / secondValue);
+		}
+		return mutualInformation / Math.log(Entropy.LOG_BASE);
+	}
+
+	/**
+	 * Calculate the mutual information of all pairs of features. The features
+	 * are discretised once and the pairs are processed in parallel.
+	 * 
+	 * @param features
+	 *            features, one vector of samples for each
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 * @return symmetric matrix I(X_i;X_j), with the entropies H(X_i) on the
+	 *         diagonal
+	 */
+	public static double[][] mutualInformation(double[][] features,
+			ForkJoinPool pool) {
+
+		if (pool == null)
+			pool = ParallelEvaluator.getDefaultPool();
+		DiscreteStates[] s = new DiscreteStates[features.length];
+		pool.invoke(new Features(features, s, 0, s.length));
+		return mutualInformation(s, pool);
+	}
+
+	/**
+	 * Calculate the mutual information of all pairs of discretised features
+	 * in parallel.
+	 * 
+	 * @param features
+	 *            features with the same number of samples
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 * @return symmetric matrix I(X_i;X_j), with the entropies H(X_i) on the
+	 *         diagonal
+	 */
+	public static double[][] mutualInformation(DiscreteStates[] features,
+			ForkJoinPool pool) {
+
+		int m = features.length;
+		for (int i = 1; i < m; i++)
+			check(features[0], features[i]);
+		if (pool == null)
+			pool = ParallelEvaluator.getDefaultPool();
+		double[][] mi = new double[m][m];
+		for (int i = 0; i < m; i++)
+			mi[i][i] = features[i].entropy();
+		long pairs = (long) m * (m - 1) / 2;
+		if (pairs > 0) {
+			long chunk = Math.max(1, pairs / (8 * pool.getParallelism()));
+			pool.invoke(new Pairs(features, mi, 0, pairs, chunk));
+		}
+		return mi;
+	}
+
+	private static void check(DiscreteStates a, DiscreteStates b) {
+		if (a.size() != b.size())
+			throw new IllegalArgumentException("Vectors have different sizes: "
+					+ a.size() + " and " + b.size());
+	}
+
+	private static double entropy(int[] counts, int size, int n) {
+
+		double length = n;
+		double entropy = 0.0;
+		for (int k = 0; k < size; k++) {
+			double prob = counts[k] / length;
+			entropy -= prob * FastMath.log(prob);
+		}
+		return entropy / FastMath.log(Entropy.LOG_BASE);
+	}
+
+	/**
+	 * Count the joint states. The key of a joint state is
+	 * first*other.numStates+second.
+	 */
+	private Table joint(DiscreteStates other, int[] ids, Workspace w) {
+		return count(states, other.numStates, other.states, 0,
+				(long) numStates * other.numStates, ids, w);
+	}
+
+	/**
+	 * Count the keys a[i]*mul+b[i]-offset, which are between 0 and range-1.
+	 * The distinct keys are numbered in the order in which they first appear,
+	 * ids receives the number of the key of each sample if not null. The
+	 * table and the slots are taken from the workspace, and the table is only
+	 * valid until the workspace is used again.
+	 */
+	private static Table count(int[] a, long mul, int[] b, long offset,
+			long range, int[] ids, Workspace w) {
+
+		int n = a.length;
+		int max = (int) Math.min(n, range);
+		Table t = w.table(max);
+		if (range <= Math.max(MIN_DENSE, 2L * n)) {
+			int[] slot = w.slots((int) range); // number + 1
+			for (int i = 0; i < n; i++) {
+				long key = a[i] * mul + (b == null ? 0 : b[i]) - offset;
+				int s = slot[(int) key];
+				if (s == 0) {
+					s = t.add(key);
+					slot[(int) key] = s;
+				}
+				t.counts[s - 1]++;
+				if (ids != null)
+					ids[i] = s - 1;
+			}
+			for (int k = 0; k < t.size; k++)
+				slot[(int) t.keys[k]] = 0;
+		} else {
+			int cap = Integer.highestOneBit(Math.max(2, 2 * max - 1)) << 1;
+			int mask = cap - 1;
+			long[] hkeys = w.hashKeys(cap);
+			int[] hslot = w.hashSlots(cap); // number + 1, 0 if empty
+			for (int i = 0; i < n; i++) {
+				long key = a[i] * mul + (b == null ? 0 : b[i]) - offset;
+				int h = hash(key) & mask;
+				int s;
+				while ((s = hslot[h]) != 0 && hkeys[h] != key)
+					h = (h + 1) & mask;
+				if (s == 0) {
+					s = t.add(key);
+					hkeys[h] = key;
+					hslot[h] = s;
+				}
+				t.counts[s - 1]++;
+				if (ids != null)
+					ids[i] = s - 1;
+			}
+			Arrays.fill(hslot, 0, cap, 0);
+		}
+		return t;
+	}
+
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	/**
+	 * Keys and counts of the distinct states.
+	 */
+	private static final class Table {
+		final long[] keys;
+		final int[] counts;
+		int size;
+
+		Table(int max) {
+			keys = new long[max];
+			counts = new int[max];
+		}
+
+		/** Add a key and return its number + 1 */
+		int add(long key) {
+			keys[size] = key;
+			return ++size;
+		}
+	}
+
+	/**
+	 * Arrays for counting, reused by the pairs computed by one task. The slots
+	 * are all 0 when the workspace is not in use.
+	 */
+	private static final class Workspace {
+		private Table table;
+		private int[] slots = new int[0];
+		private long[] hashKeys = new long[0];
+		private int[] hashSlots = new int[0];
+
+		/** An empty table for up to max keys */
+		Table table(int max) {
+			if (table == null || table.keys.length < max)
+				table = new Table(max);
+			else {
+				Arrays.fill(table.counts, 0, table.size, 0);
+				table.size = 0;
+			}
+			return table;
+		}
+
+		int[] slots(int length) {
+			if (slots.length < length)
+				slots = new int[length];
+			return slots;
+		}
+
+		long[] hashKeys(int length) {
+			if (hashKeys.length < length)
+				hashKeys = new long[length];
+			return hashKeys;
+		}
+
+		int[] hashSlots(int length) {
+			if (hashSlots.length < length)
+				hashSlots = new int[length];
+			return hashSlots;
+		}
+	}
+
+	private static final class Features extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] features;
+		private final DiscreteStates[] states;
+		private final int from;
+		private final int to;
+
+		Features(double[][] features, DiscreteStates[] states, int from, int to) {
+			this.features = features;
+			this.states = states;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				for (int i = from; i < to; i++)
+					states[i] = new DiscreteStates(features[i]);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Features(features, states, from, mid), new Features(
+					features, states, mid, to));
+		}
+	}
+
+	/**
+	 * Pairs i &lt; j with the numbers from - to-1, numbered row by row.
+	 */
+	private static final class Pairs extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final DiscreteStates[] features;
+		private final double[][] mi;
+		private final long from;
+		private final long to;
+		private final long chunk;
+
+		Pairs(DiscreteStates[] features, double[][] mi, long from, long to,
+				long chunk) {
+			this.features = features;
+			this.mi = mi;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunk) {
+				long mid = (from + to) >>> 1;
+				invokeAll(new Pairs(features, mi, from, mid, chunk), new Pairs(
+						features, mi, mid, to, chunk));
+				return;
+			}
+			int m = features.length;
+			int i = 0;
+			long p = from;
+			while (p >= m - 1 - i) {
+				p -= m - 1 - i;
+				i++;
+			}
+			int j = i + 1 + (int) p;
+			// one workspace for all pairs of this task
+			Workspace w = new Workspace();
+			for (long k = from; k < to; k++) {
+				double v = mutualInformation(features[i], features[j], w);
+				mi[i][j] = v;
+				mi[j][i] = v;
+				if (++j == m) {
+					i++;
+					j = i + 1;
+				}
+			}
+		}
+	}
+}
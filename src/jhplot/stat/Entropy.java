@@ -26,7 +26,6 @@
 *******************************************************************************/
 
 package jhplot.stat;
-import org.apache.commons.math3.util.FastMath;
 
 
 /**
@@ -35,6 +34,7 @@ import org.apache.commons.math3.util.FastMath;
  *           conditional entropy H(X|Y),
  *           joint entropy H(X,Y).
  * Defaults to log_2, and so the entropy is calculated in bits.
+ * The states are counted with {@link DiscreteStates}.
  * @author apocock
  */
 public abstract class Entropy
@@ -54,20 +54,7 @@ public abstract class Entropy
    */
   public static double calculateEntropy(double[] dataVector)
   {
-    ProbabilityState state = new ProbabilityState(dataVector);
-
-    double entropy = 0.0;
-    for (Double prob : state.probMap.values())
-    {
-      if (prob > 0) 
-      {
-        entropy -= prob * FastMath.log(prob);
-      }
-    }
-
-    entropy /= FastMath.log(LOG_BASE);
-    
-    return entropy;
+    return new DiscreteStates(dataVector).entropy();
   }//calculateEntropy(double [])
 
   /**
@@ -82,25 +69,8 @@ public abstract class Entropy
    */
   public strictfp static double calculateConditionalEntropy(double[] dataVector, double[] conditionVector)
   {
-    JointProbabilityState state = new JointProbabilityState(dataVector,conditionVector);
-
-    int numFirstStates = state.firstMaxVal;
-    double jointValue, condValue;
-    double condEntropy = 0.0;
-
-    for (Integer key : state.jointProbMap.keySet())
-    {
-      jointValue = state.jointProbMap.get(key);
-      condValue = state.secondProbMap.get(key / numFirstStates);
-      if ((jointValue > 0) && (condValue > 0))
-      {
-        condEntropy -= jointValue * FastMath.log(jointValue / condValue);
-      }
-    }
-    
-    condEntropy /= FastMath.log(LOG_BASE);
-
-    return condEntropy;
+    return DiscreteStates.conditionalEntropy(new DiscreteStates(dataVector),
+                                             new DiscreteStates(conditionVector));
   }//calculateConditionalEntropy(double [],double [])
   
   /**
@@ -116,19 +86,7 @@ public abstract class Entropy
    */
   public static double calculateJointEntropy(double[] firstVector, double[] secondVector)
   {    
-    JointProbabilityState state = new JointProbabilityState(firstVector,secondVector);
-
-    double entropy = 0.0;
-    for (Double prob : state.jointProbMap.values())
-    {
-      if (prob > 0) 
-      {
-        entropy -= prob * FastMath.log(prob);
-      }
-    }
-
-    entropy /= FastMath.log(LOG_BASE);
-    
-    return entropy;
+    return DiscreteStates.jointEntropy(new DiscreteStates(firstVector),
+                                       new DiscreteStates(secondVector));
   }//calculateJointEntropy(double [],double [])
 }//class Entropy
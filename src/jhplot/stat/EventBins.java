@@ -0,0 +1,83 @@
+package jhplot.stat;
+
+/**
+ * Counting of the particles of one event in uniform bins. A particle is
+ * counted in bin j if it is strictly between the edges Min+width*j and
+ * Min+width*(j+1), so particles on an edge or outside the range are not
+ * counted. The bin is found by index arithmetic and checked against the
+ * edges, which gives the same counts as comparing every particle with the
+ * edges of every bin.
+ *
+ * @author S.Chekanov
+ *
+ */
+final class EventBins {
+
+	private EventBins() {
+	}
+
+	/**
+	 * Find the bin of a value.
+	 *
+	 * @param x
+	 *            value
+	 * @param min
+	 *            low edge of the first bin
+	 * @param width
+	 *            bin width
+	 * @param n
+	 *            number of bins
+	 * @return bin index, or -1 if the value is not inside a bin
+	 */
+	static int index(double x, double min, double width, int n) {
+
+		double t = (x - min) / width;
+		if (!(t > -1 && t < n + 1))
+			return -1;
+		int j = (int) Math.floor(t);
+		if (j < 0)
+			j = 0;
+		else if (j >= n)
+			j = n - 1;
+		// the division can be one bin off near the edges
+		if (!(x > min + width * j))
+			j--;
+		else if (!(x < min + width * (j + 1)))
+			j++;
+		if (j < 0 || j >= n)
+			return -1;
+		if (x > min + width * j && x < min + width * (j + 1))
+			return j;
+		return -1;
+	}
+
+	/**
+	 * Count the particles of an event in the bins. The counts must be zero
+	 * for all bins before the call.
+	 *
+	 * @param v
+	 *            particles
+	 * @param min
+	 *            low edge of the first bin
+	 * @param width
+	 *            bin width
+	 * @param n
+	 *            number of bins
+	 * @param counts
+	 *            counts per bin, incremented
+	 * @param cells
+	 *            receives the indices of the filled bins (n or more)
+	 * @return number of filled bins
+	 */
+	static int fill(double[] v, double min, double width, int n,
+			int[] counts, int[] cells) {
+
+		int k = 0;
+		for (int m = 0; m < v.length; m++) {
+			int j = index(v[m], min, width, n);
+			if (j >= 0 && counts[j]++ == 0)
+				cells[k++] = j;
+		}
+		return k;
+	}
+}
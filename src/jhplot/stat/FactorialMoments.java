@@ -16,9 +16,14 @@
 package jhplot.stat;
 
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 import org.apache.commons.math3.util.FastMath;
 import jhplot.P1D;
 import jhplot.gui.HelpBrowser;
+import jhplot.math.exp4j.ParallelEvaluator;
 
 /**
  * Normalised factorial moments (NFM). They characterise local
@@ -26,6 +31,11 @@ import jhplot.gui.HelpBrowser;
  * factorial moments (getFM() method) or normalized factorial moment (getNFM()
  * method). The original version with horizontal binning was proposed in:
  * A.Bialas, R.Peschanski, Nucl. Phys. B273 (1986) 703 B308 (1988) 857
+ * <p>
+ * Each event is binned once per division: the bin of every particle is found
+ * by index arithmetic, and only the filled bins are updated. Events can also
+ * be passed in batches which are processed in parallel, and the results of
+ * several instances with the same divisions can be merged.
  * 
  * @author S.Chekanov
  * 
@@ -33,9 +43,13 @@ import jhplot.gui.HelpBrowser;
 
 public class FactorialMoments {
 
+	private static final int MIN_EVENTS = 64; // events of a parallel task
+
 	private int Bins = 0;
 	private double Min = 0;
 	private int[][] ICC;
+	private int[][] CELLS; // filled bins of the last event
+	private int[] NC;
 	private int Nmax;
 	private int[] IBI;
 	private double[] BI;
@@ -100,31 +114,34 @@ public class FactorialMoments {
 			BI[i] = (Max - Min) / (double) IBI[i];
 		}
 
+		allocate();
+
+	}
+
+	/**
+	 * Empty instance with the same divisions.
+	 */
+	private FactorialMoments(FactorialMoments c) {
+
+		Bins = c.Bins;
+		Min = c.Min;
+		Nmax = c.Nmax;
+		IBI = c.IBI;
+		BI = c.BI;
+		IMAX = c.IMAX;
+		allocate();
+	}
+
+	private void allocate() {
+
 		ICC = new int[Bins][IMAX];
+		CELLS = new int[Bins][IMAX];
+		NC = new int[Bins];
 		IH = new int[Nmax][Bins][IMAX];
 		CM = new int[Nmax][Bins][IMAX];
 		IL = new int[Nmax][Bins];
 		ILE = new int[Nmax][Bins];
 		Nev = 0;
-
-		// set to zero
-		for (int n = 0; n < Nmax; n++) {
-			for (int i = 0; i < Bins; i++) {
-				for (int j = 0; j < IBI[i]; j++) {
-					IH[n][i][j] = 0;
-
-				}
-			}
-		}
-
-		for (int n = 0; n < Nmax; n++) {
-			for (int i = 0; i < Bins; i++) {
-				IL[n][i] = 0;
-				ILE[n][i] = 0;
-
-			}
-		}
-
 	}
 
 	/**
@@ -138,63 +155,97 @@ public class FactorialMoments {
 
 		Nev++;
 
-		// set to zero before filling
-		for (int i = 0; i < Bins; i++)
-			for (int j = 0; j < IBI[i]; j++)
+		// set to zero the bins of the previous event
+		for (int i = 0; i < Bins; i++) {
+			for (int c = 0; c < NC[i]; c++) {
+				int j = CELLS[i][c];
 				ICC[i][j] = 0;
+				for (int n = 0; n < Nmax; n++) {
+					IH[n][i][j] = 0;
+					CM[n][i][j] = 0;
+				}
+			}
+		}
 
-		// calculate number of particles in each bin
+		// calculate number of particles in each bin. Empty bins do not
+		// contribute to the moments
 		for (int i = 0; i < Bins; i++) {
-			for (int j = 0; j < IBI[i]; j++) {
-				double m1 = Min + BI[i] * j;
-				double m2 = Min + BI[i] * (j + 1);
-				for (int m = 0; m < v.length; m++)
-					if (v[m] > m1 && v[m] < m2)
-						ICC[i][j]++;
+			NC[i] = EventBins.fill(v, Min, BI[i], IBI[i], ICC[i], CELLS[i]);
+			for (int c = 0; c < NC[i]; c++) {
+				int j = CELLS[i][c];
+				int nc = ICC[i][j];
+				IH[0][i][j] = nc;
+				for (int n = 1; n < Nmax; n++)
+					IH[n][i][j] = IH[n - 1][i][j] * (nc - n);
+				for (int n = 0; n < Nmax; n++) {
+					CM[n][i][j] = IH[n][i][j] * IH[n][i][j];
+					IL[n][i] = IL[n][i] + IH[n][i][j];
+					ILE[n][i] = ILE[n][i] + CM[n][i][j];
+				}
 			}
 		}
 
-		// collect event probabilities
-		for (int i = 0; i < Bins; i++) {
-			for (int j = 0; j < IBI[i]; j++) {
-				IH[0][i][j] = ICC[i][j];
-				IH[1][i][j] = ICC[i][j] * (ICC[i][j] - 1);
-				if (Nmax > 2)
-					IH[2][i][j] = IH[1][i][j] * (ICC[i][j] - 2);
-				if (Nmax > 3)
-					IH[3][i][j] = IH[2][i][j] * (ICC[i][j] - 3);
-				if (Nmax > 4)
-					IH[4][i][j] = IH[3][i][j] * (ICC[i][j] - 4);
-				if (Nmax > 5)
-					IH[5][i][j] = IH[4][i][j] * (ICC[i][j] - 5);
-				if (Nmax > 6)
-					IH[6][i][j] = IH[5][i][j] * (ICC[i][j] - 6);
-				if (Nmax > 7)
-					IH[7][i][j] = IH[6][i][j] * (ICC[i][j] - 7);
-				if (Nmax > 8)
-					IH[8][i][j] = IH[7][i][j] * (ICC[i][j] - 8);
-				if (Nmax > 9)
-					IH[9][i][j] = IH[8][i][j] * (ICC[i][j] - 9);
+	}
 
-			}
+	/**
+	 * Collect information about a batch of events. The events are split into
+	 * chunks which are processed in parallel and merged. The result is the
+	 * same as calling {@link #run(double[])} for every event.
+	 * 
+	 * @param events
+	 *            - vectors characterizing particles, one per event
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 */
+	public void run(double[][] events, ForkJoinPool pool) {
+
+		if (events.length <= MIN_EVENTS) {
+			for (double[] v : events)
+				run(v);
+			return;
 		}
+		if (pool == null)
+			pool = ParallelEvaluator.getDefaultPool();
+		int chunk = Math.max(MIN_EVENTS,
+				events.length / (4 * pool.getParallelism()));
+		merge(pool.invoke(new Events(this, events, 0, events.length, chunk)));
+	}
+
+	/**
+	 * Add the events collected by another instance. Both must use the same
+	 * divisions. The events of the other instance are taken to follow the
+	 * events of this one.
+	 * 
+	 * @param o
+	 *            - other factorial moments
+	 */
+	public void merge(FactorialMoments o) {
+
+		if (o.Bins != Bins || o.Nmax != Nmax || o.Min != Min
+				|| !Arrays.equals(o.IBI, IBI) || !Arrays.equals(o.BI, BI))
+			throw new IllegalArgumentException(
+					"Factorial moments have different divisions");
+		if (o.Nev == 0)
+			return;
 
+		Nev += o.Nev;
 		for (int n = 0; n < Nmax; n++) {
 			for (int i = 0; i < Bins; i++) {
-				for (int j = 0; j < IBI[i]; j++)
-					CM[n][i][j] = IH[n][i][j] * IH[n][i][j];
+				IL[n][i] = IL[n][i] + o.IL[n][i];
+				ILE[n][i] = ILE[n][i] + o.ILE[n][i];
 			}
 		}
 
-		for (int n = 0; n < Nmax; n++) {
-			for (int i = 0; i < Bins; i++) {
-				for (int j = 0; j < IBI[i]; j++) {
-					IL[n][i] = IL[n][i] + IH[n][i][j];
-					ILE[n][i] = ILE[n][i] + CM[n][i][j];
-				}
+		// eval() uses the bins of the last event
+		for (int i = 0; i < Bins; i++) {
+			System.arraycopy(o.ICC[i], 0, ICC[i], 0, IMAX);
+			System.arraycopy(o.CELLS[i], 0, CELLS[i], 0, IMAX);
+			for (int n = 0; n < Nmax; n++) {
+				System.arraycopy(o.IH[n][i], 0, IH[n][i], 0, IMAX);
+				System.arraycopy(o.CM[n][i], 0, CM[n][i], 0, IMAX);
 			}
 		}
-
+		System.arraycopy(o.NC, 0, NC, 0, Bins);
 	}
 
 	/**
@@ -346,6 +397,45 @@ public class FactorialMoments {
 
 	}
 
+	/**
+	 * Events processed by one task.
+	 */
+	private static final class Events extends RecursiveTask<FactorialMoments> {
+		private static final long serialVersionUID = 1L;
+
+		private final FactorialMoments config;
+		private final double[][] events;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Events(FactorialMoments config, double[][] events, int from, int to,
+				int chunk) {
+			this.config = config;
+			this.events = events;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected FactorialMoments compute() {
+			if (to - from <= chunk) {
+				FactorialMoments f = new FactorialMoments(config);
+				for (int i = from; i < to; i++)
+					f.run(events[i]);
+				return f;
+			}
+			int mid = (from + to) >>> 1;
+			Events right = new Events(config, events, mid, to, chunk);
+			right.fork();
+			FactorialMoments f = new Events(config, events, from, mid, chunk)
+					.compute();
+			f.merge(right.join());
+			return f;
+		}
+	}
+
 	/**
 	 * Show online documentation.
 	 */
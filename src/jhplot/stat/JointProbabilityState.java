@@ -34,6 +34,8 @@ import java.util.Set;
 /**
  * Calculates the probabilities of each state in a joint random variable.
  * Provides the base for all functions of two variables.
+ * The probabilities are stored in maps of boxed numbers; {@link DiscreteStates}
+ * counts the states in primitive arrays and is used by the entropy functions.
  *
  * @author apocock
  */
@@ -0,0 +1,190 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.stat;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jhplot.math.IndexSort;
+import cern.colt.list.DoubleArrayList;
+
+/**
+ * Quantile sketch of Karnin, Lang and Liberty (KLL). Values are kept in
+ * levels of compactors; a value at level h stands for 2^h original values.
+ * When the sketch is full, the lowest full level is sorted and every second
+ * value (starting at a random offset) is moved to the next level. The
+ * capacities shrink by a factor 2/3 from the top level down, so the sketch
+ * keeps about 3k values. The rank error decreases as 1/k and does not depend
+ * on the number of values; it is below 1% for the default k = 200.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class KLLSketch implements QuantileSketch, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int k;
+	private final List<DoubleArrayList> levels = new ArrayList<DoubleArrayList>();
+	private final Random random = new Random();
+	private long count;
+	private int size; // retained values
+
+	/**
+	 * Create a sketch with k=200.
+	 */
+	public KLLSketch() {
+
+		this(200);
+	}
+
+	/**
+	 * Create a sketch.
+	 * 
+	 * @param k
+	 *            capacity of the top level (at least 8); larger values give
+	 *            more accurate quantiles
+	 */
+	public KLLSketch(int k) {
+
+		if (k < 8)
+			throw new IllegalArgumentException("k must be at least 8");
+		this.k = k;
+		levels.add(new DoubleArrayList());
+	}
+
+	public void add(double x) {
+
+		if (Double.isNaN(x))
+			return;
+		levels.get(0).add(x);
+		count++;
+		size++;
+		compress();
+	}
+
+	public void merge(QuantileSketch other) {
+
+		if (!(other instanceof KLLSketch))
+			throw new IllegalArgumentException("Cannot merge "
+					+ other.getClass().getName() + " into KLLSketch");
+		KLLSketch s = (KLLSketch) other;
+		while (levels.size() < s.levels.size())
+			levels.add(new DoubleArrayList());
+		for (int h = 0; h < s.levels.size(); h++) {
+			DoubleArrayList l = s.levels.get(h);
+			levels.get(h).addAllOfFromTo(l, 0, l.size() - 1);
+			size += l.size();
+		}
+		count += s.count;
+		compress();
+	}
+
+	public double quantile(double phi) {
+
+		if (size == 0)
+			return Double.NaN;
+		double[] values = new double[size];
+		long[] weights = new long[size];
+		int n = 0;
+		for (int h = 0; h < levels.size(); h++) {
+			DoubleArrayList l = levels.get(h);
+			for (int i = 0; i < l.size(); i++) {
+				values[n] = l.getQuick(i);
+				weights[n++] = 1L << h;
+			}
+		}
+		int[] p = IndexSort.sort(values, n);
+		double target = Math.max(0, Math.min(1, phi)) * count;
+		long cum = 0;
+		for (int i = 0; i < n; i++) {
+			cum += weights[p[i]];
+			if (cum >= target)
+				return values[p[i]];
+		}
+		return values[p[n - 1]];
+	}
+
+	public long getCount() {
+
+		return count;
+	}
+
+	public QuantileSketch newInstance() {
+
+		return new KLLSketch(k);
+	}
+
+	/**
+	 * Get the number of values kept in the sketch.
+	 * 
+	 * @return retained values
+	 */
+	public int getRetained() {
+
+		return size;
+	}
+
+	private int capacity(int level) {
+
+		int depth = levels.size() - 1 - level;
+		return Math.max(2, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+	}
+
+	/**
+	 * Compact the lowest full level until the sketch fits its capacity.
+	 */
+	private void compress() {
+
+		while (true) {
+			int total = 0;
+			for (int h = 0; h < levels.size(); h++)
+				total += capacity(h);
+			if (size < total)
+				return;
+			for (int h = 0; h < levels.size(); h++) {
+				DoubleArrayList l = levels.get(h);
+				int n = l.size();
+				if (n < capacity(h))
+					continue;
+				if (h + 1 == levels.size())
+					levels.add(new DoubleArrayList());
+				DoubleArrayList up = levels.get(h + 1);
+				l.sort();
+				double[] e = l.elements();
+				// an odd value stays at this level
+				int start = n % 2;
+				for (int i = start + (random.nextBoolean() ? 1 : 0); i < n; i += 2)
+					up.add(e[i]);
+				size -= (n - start) / 2;
+				l.setSize(start);
+				break;
+			}
+		}
+	}
+}
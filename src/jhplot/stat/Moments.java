@@ -0,0 +1,511 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.stat;
+
+import java.io.Serializable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import jhplot.math.exp4j.ParallelEvaluator;
+
+/**
+ * One-pass accumulator of the count, sum, mean, variance, skewness, kurtosis,
+ * minimum and maximum of a stream of values. The central moments up to the
+ * order {@link #ORDER} are updated with the pairwise formulas of Chan and
+ * Pebay, which are numerically stable, and two accumulators can be merged. So
+ * parts of the data can be processed by different threads or read from
+ * different files and merged at the end. Moments around any value, the RMS,
+ * the geometric and the harmonic mean are derived from the accumulated sums.
+ * <p>
+ * An optional {@link QuantileSketch} estimates the median and other quantiles
+ * without keeping the values.
+ * <p>
+ * The variance, skewness and kurtosis are defined as in Colt's
+ * DynamicBin1D: the variance is divided by (n-1), the skewness is
+ * moment(3,mean)/sigma^3 and the kurtosis is moment(4,mean)/sigma^4 - 3.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public class Moments implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Highest order of the accumulated central moments.
+	 */
+	public static final int ORDER = 5;
+
+	private static final int CHUNK = 1024; // values summed around their mean
+	private static final int MIN_TASK = 1 << 16; // values of a parallel task
+	private static final double[][] BINOMIAL = binomial(ORDER);
+	private static final double[] POINT = new double[ORDER + 1]; // one value
+
+	private long n;
+	private double sum;
+	private double mean;
+	private double[] m = new double[ORDER + 1]; // sum of (x-mean)^p
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private double sumInv;
+	private double sumLog;
+	private QuantileSketch sketch;
+
+	/**
+	 * Create an empty accumulator without quantiles.
+	 */
+	public Moments() {
+	}
+
+	/**
+	 * Create an empty accumulator which also estimates quantiles.
+	 * 
+	 * @param sketch
+	 *            empty quantile sketch, or null
+	 */
+	public Moments(QuantileSketch sketch) {
+
+		this.sketch = sketch;
+	}
+
+	/**
+	 * Accumulate a part of an array.
+	 * 
+	 * @param a
+	 *            values
+	 * @param from
+	 *            first value
+	 * @param to
+	 *            end of the values (exclusive)
+	 * @return filled accumulator without quantiles
+	 */
+	public static Moments compute(double[] a, int from, int to) {
+
+		Moments s = new Moments();
+		s.add(a, from, to);
+		return s;
+	}
+
+	/**
+	 * Accumulate a part of an array in parallel. The array is split into
+	 * chunks which are accumulated by the workers of the pool and merged.
+	 * 
+	 * @param a
+	 *            values
+	 * @param from
+	 *            first value
+	 * @param to
+	 *            end of the values (exclusive)
+	 * @param sketch
+	 *            empty quantile sketch used as a prototype for the chunks, or
+	 *            null
+	 * @param pool
+	 *            pool to run on, or null for the default pool
+	 * @return filled accumulator
+	 */
+	public static Moments compute(double[] a, int from, int to,
+			QuantileSketch sketch, ForkJoinPool pool) {
+
+		if (to - from <= MIN_TASK) {
+			Moments s = new Moments(sketch == null ? null : sketch
+					.newInstance());
+			s.add(a, from, to);
+			return s;
+		}
+		if (pool == null)
+			pool = ParallelEvaluator.getDefaultPool();
+		int chunk = Math.max(MIN_TASK, (to - from) / (4 * pool.getParallelism()));
+		return pool.invoke(new Part(a, from, to, sketch, chunk));
+	}
+
+	/**
+	 * Add a value.
+	 * 
+	 * @param x
+	 *            value
+	 */
+	public void add(double x) {
+
+		merge(1, x, POINT);
+		sum += x;
+		update(x, x, 1 / x, Math.log(x));
+		if (sketch != null)
+			sketch.add(x);
+	}
+
+	/**
+	 * Add a part of an array. The values are processed in chunks: the mean
+	 * of a chunk first, then its central moments, then the chunk is merged.
+	 * 
+	 * @param a
+	 *            values
+	 * @param from
+	 *            first value
+	 * @param to
+	 *            end of the values (exclusive)
+	 */
+	public void add(double[] a, int from, int to) {
+
+		double[] mb = new double[ORDER + 1];
+		for (int i0 = from; i0 < to; i0 += CHUNK) {
+			int i1 = Math.min(to, i0 + CHUNK);
+			double s = 0;
+			for (int i = i0; i < i1; i++)
+				s += a[i];
+			double mc = s / (i1 - i0);
+			double s2 = 0, s3 = 0, s4 = 0, s5 = 0;
+			double lo = Double.POSITIVE_INFINITY;
+			double hi = Double.NEGATIVE_INFINITY;
+			double inv = 0, log = 0;
+			for (int i = i0; i < i1; i++) {
+				double x = a[i];
+				double d = x - mc;
+				double d2 = d * d;
+				s2 += d2;
+				s3 += d2 * d;
+				s4 += d2 * d2;
+				s5 += d2 * d2 * d;
+				if (x < lo)
+					lo = x;
+				if (x > hi)
+					hi = x;
+				inv += 1 / x;
+				log += Math.log(x);
+			}
+			mb[2] = s2;
+			mb[3] = s3;
+			mb[4] = s4;
+			mb[5] = s5;
+			merge(i1 - i0, mc, mb);
+			sum += s;
+			update(lo, hi, inv, log);
+		}
+		if (sketch != null)
+			for (int i = from; i < to; i++)
+				sketch.add(a[i]);
+	}
+
+	/**
+	 * Merge another accumulator into this one.
+	 * 
+	 * @param o
+	 *            accumulator to merge; it is not changed
+	 */
+	public void merge(Moments o) {
+
+		if (o.n == 0)
+			return;
+		merge(o.n, o.mean, o == this ? m.clone() : o.m);
+		sum += o.sum;
+		update(o.min, o.max, o.sumInv, o.sumLog);
+		if (sketch != null && o.sketch != null)
+			sketch.merge(o.sketch);
+	}
+
+	/**
+	 * Pairwise update of the mean and the central moments with nb values of
+	 * mean mb and central moments cb. The moments are updated in place, from
+	 * the highest order, which needs the old lower orders.
+	 */
+	private void merge(long nb, double meanB, double[] cb) {
+
+		if (n == 0) {
+			n = nb;
+			mean = meanB;
+			System.arraycopy(cb, 0, m, 0, m.length);
+			return;
+		}
+		double na = n;
+		double nt = na + nb;
+		double d = meanB - mean;
+		double[] ca = m;
+		for (int p = ORDER; p >= 2; p--) {
+			double s = ca[p] + cb[p];
+			double dk = 1, ak = 1, bk = 1;
+			for (int k = 1; k <= p - 2; k++) {
+				dk *= d;
+				ak *= -nb / nt;
+				bk *= na / nt;
+				s += BINOMIAL[p][k] * dk * (ak * ca[p - k] + bk * cb[p - k]);
+			}
+			s += Math.pow(na * nb * d / nt, p)
+					* (1 / Math.pow(nb, p - 1) - Math.pow(-1 / na, p - 1));
+			ca[p] = s;
+		}
+		mean += d * nb / nt;
+		n += nb;
+	}
+
+	private void update(double lo, double hi, double inv, double log) {
+
+		if (lo < min)
+			min = lo;
+		if (hi > max)
+			max = hi;
+		sumInv += inv;
+		sumLog += log;
+	}
+
+	/**
+	 * Get the number of values.
+	 * 
+	 * @return count
+	 */
+	public long getCount() {
+		return n;
+	}
+
+	/**
+	 * Get the sum of the values.
+	 * 
+	 * @return sum
+	 */
+	public double getSum() {
+		return sum;
+	}
+
+	/**
+	 * Get the mean.
+	 * 
+	 * @return mean, NaN if empty
+	 */
+	public double getMean() {
+		return n == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * Get the minimum value.
+	 * 
+	 * @return minimum, +infinity if empty
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * Get the maximum value.
+	 * 
+	 * @return maximum, -infinity if empty
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the sample variance, the sum of squared deviations divided by n-1.
+	 * 
+	 * @return variance
+	 */
+	public double getVariance() {
+		return m[2] / (n - 1);
+	}
+
+	/**
+	 * Get the sample standard deviation.
+	 * 
+	 * @return square root of the variance
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Get the standard error of the mean.
+	 * 
+	 * @return sqrt(variance / n)
+	 */
+	public double getStandardError() {
+		return Math.sqrt(getVariance() / n);
+	}
+
+	/**
+	 * Get the root mean square, the square root of the mean of x^2.
+	 * 
+	 * @return RMS
+	 */
+	public double getRms() {
+		return Math.sqrt(moment(2, 0));
+	}
+
+	/**
+	 * Get the skewness, moment(3,mean) / sigma^3.
+	 * 
+	 * @return skewness
+	 */
+	public double getSkewness() {
+		double sd = getStandardDeviation();
+		return m[3] / n / (sd * sd * sd);
+	}
+
+	/**
+	 * Get the excess kurtosis, moment(4,mean) / sigma^4 - 3.
+	 * 
+	 * @return kurtosis
+	 */
+	public double getKurtosis() {
+		double v = getVariance();
+		return m[4] / n / (v * v) - 3;
+	}
+
+	/**
+	 * Get the sum of 1/x.
+	 * 
+	 * @return sum of inversions
+	 */
+	public double getSumOfInversions() {
+		return sumInv;
+	}
+
+	/**
+	 * Get the sum of log(x).
+	 * 
+	 * @return sum of logarithms
+	 */
+	public double getSumOfLogarithms() {
+		return sumLog;
+	}
+
+	/**
+	 * Get the geometric mean, exp(sum(log x) / n).
+	 * 
+	 * @return geometric mean
+	 */
+	public double getGeometricMean() {
+		return Math.exp(sumLog / n);
+	}
+
+	/**
+	 * Get the harmonic mean, n / sum(1/x).
+	 * 
+	 * @return harmonic mean
+	 */
+	public double getHarmonicMean() {
+		return n / sumInv;
+	}
+
+	/**
+	 * Get the moment of order k around c, sum((x-c)^k) / n.
+	 * 
+	 * @param k
+	 *            order (0 - {@link #ORDER})
+	 * @param c
+	 *            center
+	 * @return moment
+	 */
+	public double moment(int k, double c) {
+
+		if (k < 0 || k > ORDER)
+			throw new IllegalArgumentException("Order must be between 0 and "
+					+ ORDER);
+		// sum (d + e)^k with d = x - mean, e = mean - c
+		double e = mean - c;
+		double s = 0;
+		double ej = 1;
+		for (int j = 0; j <= k; j++) {
+			int p = k - j;
+			double mp = p == 0 ? n : (p == 1 ? 0 : m[p]);
+			s += BINOMIAL[k][j] * ej * mp;
+			ej *= e;
+		}
+		return s / n;
+	}
+
+	/**
+	 * Get an estimated quantile from the quantile sketch.
+	 * 
+	 * @param phi
+	 *            fraction of the values below the quantile (0 - 1)
+	 * @return quantile, NaN if there is no sketch
+	 */
+	public double quantile(double phi) {
+		return sketch == null ? Double.NaN : sketch.quantile(phi);
+	}
+
+	/**
+	 * Get the estimated median from the quantile sketch.
+	 * 
+	 * @return median, NaN if there is no sketch
+	 */
+	public double median() {
+		return quantile(0.5);
+	}
+
+	/**
+	 * Get the quantile sketch.
+	 * 
+	 * @return sketch or null
+	 */
+	public QuantileSketch getQuantileSketch() {
+		return sketch;
+	}
+
+	private static double[][] binomial(int order) {
+
+		double[][] c = new double[order + 1][order + 1];
+		for (int p = 0; p <= order; p++) {
+			c[p][0] = 1;
+			for (int k = 1; k <= p; k++)
+				c[p][k] = c[p - 1][k - 1] + (k <= p - 1 ? c[p - 1][k] : 0);
+		}
+		return c;
+	}
+
+	private static final class Part extends RecursiveTask<Moments> {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] a;
+		private final int from;
+		private final int to;
+		private final QuantileSketch sketch;
+		private final int chunk;
+
+		Part(double[] a, int from, int to, QuantileSketch sketch, int chunk) {
+			this.a = a;
+			this.from = from;
+			this.to = to;
+			this.sketch = sketch;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected Moments compute() {
+			if (to - from <= chunk) {
+				Moments s = new Moments(sketch == null ? null : sketch
+						.newInstance());
+				s.add(a, from, to);
+				return s;
+			}
+			int mid = (from + to) >>> 1;
+			Part right = new Part(a, mid, to, sketch, chunk);
+			right.fork();
+			Moments s = new Part(a, from, mid, sketch, chunk).compute();
+			s.merge(right.join());
+			return s;
+		}
+	}
+}
@@ -32,6 +32,9 @@ package jhplot.stat;
  * Provides: Mutual Information I(X;Y),
  *           Conditional Mutual Information I(X,Y|Z).
  * Defaults to log_2, and so the entropy is calculated in bits.
+ * The states are counted with {@link DiscreteStates}; use
+ * {@link DiscreteStates#mutualInformation(double[][], java.util.concurrent.ForkJoinPool)}
+ * for the mutual information of all pairs of many features.
  * @author apocock
  */
 public abstract class MutualInformation
@@ -50,28 +53,8 @@ public abstract class MutualInformation
    */
   public strictfp static double calculateMutualInformation(double[] firstVector, double[] secondVector)
   {
-    double answer;
-    JointProbabilityState state = new JointProbabilityState(firstVector,secondVector);
-
-    int numFirstStates = state.firstMaxVal;
-    double jointValue, firstValue, secondValue;
-
-    double mutualInformation = 0.0;
-    for (Integer key : state.jointProbMap.keySet())
-    {
-      jointValue = state.jointProbMap.get(key);
-      firstValue = state.firstProbMap.get(key % numFirstStates);
-      secondValue = state.secondProbMap.get(key / numFirstStates);
-
-      if ((jointValue > 0) && (firstValue > 0) && (secondValue > 0))
-      {
-        mutualInformation += jointValue * Math.log(jointValue / firstValue / secondValue);
-      }
-    }
-
-    mutualInformation /= Math.log(Entropy.LOG_BASE);
-    
-    return mutualInformation; 
+    return DiscreteStates.mutualInformation(new DiscreteStates(firstVector),
+                                            new DiscreteStates(secondVector));
   }//calculateMutualInformation(double [], double [])
   
   /**
@@ -89,13 +72,13 @@ public abstract class MutualInformation
   public static double calculateConditionalMutualInformation
       (double[] firstVector, double[] secondVector, double[] conditionVector)
   {
-    //first create the vector to hold *outputVector
-    double[] mergedVector = new double[firstVector.length];
-    
-    ProbabilityState.mergeArrays(firstVector,conditionVector,mergedVector);
+    DiscreteStates first = new DiscreteStates(firstVector);
+    DiscreteStates second = new DiscreteStates(secondVector);
+    DiscreteStates condition = new DiscreteStates(conditionVector);
+    DiscreteStates merged = DiscreteStates.join(first,condition);
     
-    double firstCondEnt = Entropy.calculateConditionalEntropy(secondVector, conditionVector);
-    double secondCondEnt = Entropy.calculateConditionalEntropy(secondVector, mergedVector);
+    double firstCondEnt = DiscreteStates.conditionalEntropy(second, condition);
+    double secondCondEnt = DiscreteStates.conditionalEntropy(second, merged);
     
     double answer = firstCondEnt - secondCondEnt;
     
@@ -36,6 +36,8 @@ import java.util.Set;
  * include the normaliseArrays function which converts all inputs so they start
  * at 0, and the mergeArrays function which creates an array of the joint state of
  * the two input arrays.
+ * The probabilities are stored in maps of boxed numbers; {@link DiscreteStates}
+ * counts the states in primitive arrays and is used by the entropy functions.
  *
  * @author apocock
  */
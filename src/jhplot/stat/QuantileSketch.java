@@ -0,0 +1,78 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package by S.Chekanov and Work.ORG
+ *    All rights reserved.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+
+package jhplot.stat;
+
+/**
+ * A streaming estimate of the quantiles of a distribution, which uses much
+ * less memory than the values themselves. Sketches of the same type can be
+ * merged, so parts of the data can be processed by different threads or read
+ * from different files. See {@link KLLSketch}.
+ * 
+ * @author S.Chekanov
+ * 
+ */
+public interface QuantileSketch {
+
+	/**
+	 * Add a value.
+	 * 
+	 * @param x
+	 *            value
+	 */
+	void add(double x);
+
+	/**
+	 * Merge another sketch of the same type into this one.
+	 * 
+	 * @param other
+	 *            sketch to merge; it is not changed
+	 */
+	void merge(QuantileSketch other);
+
+	/**
+	 * Get the estimated quantile.
+	 * 
+	 * @param phi
+	 *            fraction of the values below the quantile (0 - 1); 0.5 for
+	 *            the median
+	 * @return estimated quantile, or NaN if no values were added
+	 */
+	double quantile(double phi);
+
+	/**
+	 * Get the number of added values.
+	 * 
+	 * @return count
+	 */
+	long getCount();
+
+	/**
+	 * Create an empty sketch with the same parameters.
+	 * 
+	 * @return new sketch
+	 */
+	QuantileSketch newInstance();
+}
@@ -114,20 +114,18 @@ public class Statistics {
 	public static double[] variance(double[][] v) {
 		int m = v.length;
 		int n = v[0].length;
+		double[] s = mean(v);
 		double[] var = new double[n];
 		int degrees = (m - 1);
-		double c;
-		double s;
-		for (int j = 0; j < n; j++) {
-			c = 0;
-			s = 0;
-			for (int k = 0; k < m; k++)
-				s += v[k][j];
-			s = s / m;
-			for (int k = 0; k < m; k++)
-				c += (v[k][j] - s) * (v[k][j] - s);
-			var[j] = c / degrees;
+		for (int k = 0; k < m; k++) {
+			double[] row = v[k];
+			for (int j = 0; j < n; j++) {
+				double d = row[j] - s[j];
+				var[j] += d * d;
+			}
 		}
+		for (int j = 0; j < n; j++)
+			var[j] /= degrees;
 		return var;
 	}
 
@@ -177,61 +175,38 @@ public class Statistics {
 		int n2 = v2[0].length;
 		double[][] X = new double[n1][n2];
 		int degrees = (m - 1);
-		double c;
-		double s1;
-		double s2;
-		for (int i = 0; i < n1; i++) {
-			for (int j = 0; j < n2; j++) {
-				c = 0;
-				s1 = 0;
-				s2 = 0;
-				for (int k = 0; k < m; k++) {
-					s1 += v1[k][i];
-					s2 += v2[k][j];
-				}
-				s1 = s1 / m;
-				s2 = s2 / m;
-				for (int k = 0; k < m; k++)
-					c += (v1[k][i] - s1) * (v2[k][j] - s2);
-				X[i][j] = c / degrees;
+		double[] s1 = mean(v1);
+		double[] s2 = mean(v2);
+		double[] d2 = new double[n2];
+		for (int k = 0; k < m; k++) {
+			for (int j = 0; j < n2; j++)
+				d2[j] = v2[k][j] - s2[j];
+			for (int i = 0; i < n1; i++) {
+				double d1 = v1[k][i] - s1[i];
+				double[] x = X[i];
+				for (int j = 0; j < n2; j++)
+					x[j] += d1 * d2[j];
 			}
 		}
+		for (int i = 0; i < n1; i++)
+			for (int j = 0; j < n2; j++)
+				X[i][j] /= degrees;
 		return X;
 	}
 
 	/**
-	 * Covariance
+	 * Covariance matrix of the columns of a 2D array. Large arrays are
+	 * processed in parallel, see {@link Covariance}.
 	 * 
 	 * @param v
-	 * @return
+	 *            array [rows][columns]
+	 * @return covariance matrix
 	 */
 	public static double[][] covariance(double[][] v) {
-		int m = v.length;
-		int n = v[0].length;
-		double[][] X = new double[n][n];
-		int degrees = (m - 1);
-		double c;
-		double s1;
-		double s2;
-		for (int i = 0; i < n; i++) {
-			for (int j = 0; j < n; j++) {
-				c = 0;
-				s1 = 0;
-				s2 = 0;
-				for (int k = 0; k < m; k++) {
-					s1 += v[k][i];
-					s2 += v[k][j];
-				}
-				s1 = s1 / m;
-				s2 = s2 / m;
-				for (int k = 0; k < m; k++)
-					c += (v[k][i] - s1) * (v[k][j] - s2);
-				X[i][j] = c / degrees;
-			}
-		}
-		return X;
+		return Covariance.compute(v, null).getCovariance();
 	}
 
+
 	/**
 	 * Correlation coefficient, covariance(v1, v2) / FastMath.sqrt(variance(v1) *
 	 * variance(v2)
@@ -267,42 +242,18 @@ public class Statistics {
 	}
 
 	/**
-	 * Correlation
+	 * Correlation matrix of the columns of a 2D array. Large arrays are
+	 * processed in parallel, see {@link Covariance}.
 	 * 
 	 * @param v
-	 * @return
+	 *            array [rows][columns]
+	 * @return correlation matrix
 	 */
 	public static double[][] correlation(double[][] v) {
-		int m = v.length;
-		int n = v[0].length;
-		double[][] X = new double[n][n];
-		double[][] V = new double[n][n];
-		int degrees = (m - 1);
-		double c;
-		double s1;
-		double s2;
-		for (int i = 0; i < n; i++) {
-			for (int j = 0; j < n; j++) {
-				c = 0;
-				s1 = 0;
-				s2 = 0;
-				for (int k = 0; k < m; k++) {
-					s1 += v[k][i];
-					s2 += v[k][j];
-				}
-				s1 = s1 / m;
-				s2 = s2 / m;
-				for (int k = 0; k < m; k++)
-					c += (v[k][i] - s1) * (v[k][j] - s2);
-				V[i][j] = c / degrees;
-			}
-		}
-		for (int i = 0; i < n; i++)
-			for (int j = 0; j < n; j++)
-				X[i][j] = V[i][j] / FastMath.sqrt(V[i][i] * V[j][j]);
-		return X;
+		return Covariance.compute(v, null).getCorrelation();
 	}
 
+
 	/**
 	 * Computes probability of F-ratio.
 	 * 
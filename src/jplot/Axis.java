@@ -370,12 +370,21 @@ public class Axis {
 		return numdigits;
 	}
 
-	// Number format cache used by formatNum.
-	// Note: i'd have put the body of the formatNum method below into
-	// a synchronized block for complete thread safety but that causes
-	// an abscure null pointer exception in the awt event thread.
-	// go figure.
-	private static NumberFormat numberFormat = null;
+	// Number format cache used by formatNum, one per thread since the
+	// format is changed for each number and canvases can be drawn by
+	// several threads at once.
+	private static final ThreadLocal<NumberFormat> numberFormat = new ThreadLocal<NumberFormat>() {
+		protected NumberFormat initialValue() {
+			// Cache the number format so that we don't have to get
+			// info about local language etc. from the OS each time.
+			// numberFormat = NumberFormat.getInstance();
+			NumberFormat f = NumberFormat.getInstance(Locale.ENGLISH);
+			// force to not include commas because we want the strings
+			// to be parsable back into numeric values. - DRG
+			f.setGroupingUsed(false);
+			return f;
+		}
+	};
 
 	/*
 	 * Return a string for displaying the specified number using the specified
@@ -386,18 +395,10 @@ public class Axis {
 	 * @param numfracdigits
 	 */
 	private static String formatNum(double num, int numfracdigits) {
-		if (numberFormat == null) {
-			// Cache the number format so that we don't have to get
-			// info about local language etc. from the OS each time.
-			// numberFormat = NumberFormat.getInstance();
-			numberFormat = NumberFormat.getInstance(Locale.ENGLISH);
-			// force to not include commas because we want the strings
-			// to be parsable back into numeric values. - DRG
-			numberFormat.setGroupingUsed(false);
-		}
-		numberFormat.setMinimumFractionDigits(numfracdigits);
-		numberFormat.setMaximumFractionDigits(numfracdigits);
-		return numberFormat.format(num);
+		NumberFormat f = numberFormat.get();
+		f.setMinimumFractionDigits(numfracdigits);
+		f.setMaximumFractionDigits(numfracdigits);
+		return f.format(num);
 	}
 
 	/**
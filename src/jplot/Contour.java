@@ -672,6 +672,79 @@ public class Contour {
 
 	}
 
+	/**
+	 * Create a grid from the points of a data array. Same as
+	 * {@link #createGrid(Vector, double, double, double, double)}, but the
+	 * cell of each point is found directly from the columns of the array.
+	 * 
+	 * @param da
+	 *            data array with points
+	 * @param xmin
+	 *            Min X
+	 * @param xmax
+	 *            Max X
+	 * @param ymin
+	 *            Min Y
+	 * @param ymax
+	 *            Max Y
+	 */
+	public void createGrid(DataArray da, double xmin, double xmax,
+			double ymin, double ymax) {
+
+		this.xmin = xmin;
+		this.xmax = xmax;
+		this.ymax = ymax;
+		this.ymin = ymin;
+
+		grid = new double[nx * ny];
+		dx = Math.abs(xmax - xmin) / nx;
+		dy = Math.abs(ymax - ymin) / ny;
+
+		ymin = Math.min(ymin, ymax);
+		xmin = Math.min(xmin, xmax);
+
+		double[] x = da.getColumn(DataArray.COLUMN_X);
+		double[] y = da.getColumn(DataArray.COLUMN_Y);
+		for (int k = 0; k < da.size(); k++) {
+			int i = cell(x[k], xmin, dx, nx);
+			if (i < 0)
+				continue;
+			int j = cell(y[k], ymin, dy, ny);
+			if (j >= 0)
+				grid[j * nx + i]++;
+		}
+
+		// get z-ranges
+		zrange();
+
+	}
+
+	/*
+	 * Cell of a value, or -1 if it is not strictly inside a cell. The cell is
+	 * checked against the same edges as in the loop over all cells.
+	 */
+	private static int cell(double v, double min, double width, int n) {
+
+		double t = (v - min) / width;
+		if (!(t > -1 && t < n + 1))
+			return -1;
+		int i = (int) Math.floor(t);
+		if (i < 0)
+			i = 0;
+		else if (i >= n)
+			i = n - 1;
+		// the division can be one cell off near the edges
+		if (!(v > min + i * width))
+			i--;
+		else if (!(v < min + (i + 1) * width))
+			i++;
+		if (i < 0 || i >= n)
+			return -1;
+		if (v > min + i * width && v < min + (i + 1) * width)
+			return i;
+		return -1;
+	}
+
 	/**
 	 * Create a grid from a H2D histogram
 	 * 
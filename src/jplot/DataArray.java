@@ -46,6 +46,11 @@ import java.io.Serializable;
  * symbols, draw lines or fill areas. All the plotting attributes are defined in
  * the base-class LinePars, here we set the actual data array, i.e. a vector of
  * points (PlotPoints) defining X,Y.
+ * <p>
+ * The points are kept by column, in one array of doubles for X, Y and each
+ * kind of error. Columns of errors which are all zero are not allocated. The
+ * columns of other containers can be drawn without copying, see
+ * {@link #setColumns(int, double[], double[], double[], double[], double[], double[], double[], double[], double[], double[])}.
  * 
  * @see LinePars
  */
@@ -63,10 +68,28 @@ public class DataArray extends LinePars implements Serializable {
 	protected int col = 0;
 	protected double mean = 0;
 	protected int Ntot = 0;
-	protected Vector<PlotPoint> points;
+	/** Columns of the points, see {@link #getColumn(int)} */
+	public static final int COLUMN_X = 0, COLUMN_Y = 1, COLUMN_XLEFT = 2,
+			COLUMN_XRIGHT = 3, COLUMN_YUPPER = 4, COLUMN_YLOWER = 5,
+			COLUMN_XLEFT_SYS = 6, COLUMN_XRIGHT_SYS = 7, COLUMN_YUPPER_SYS = 8,
+			COLUMN_YLOWER_SYS = 9;
+	/** Number of columns */
+	public static final int COLUMNS = 10;
+	// / values of the points by column, null for columns of zeros
+	protected double[][] columns;
+	// / number of points
+	protected int size;
+	// / points after which the pen lifts
+	protected BitSet lift = new BitSet();
+	// / true if the columns belong to another object, copied before changes
+	private boolean shared;
 	protected double[] maxValue = new double[GraphSettings.N_AXES];
 	protected double[] minValue = new double[GraphSettings.N_AXES];
 	protected double[] lowestNonZeroValue = new double[GraphSettings.N_AXES];
+	// / number of changes of the points, used to keep drawings up to date
+	private transient int modCount;
+	// / number of points added at the end, included in modCount
+	private transient int appended;
 
 	/**
 	 * Default constructor, initializes the class with nothing.
@@ -164,7 +187,13 @@ public class DataArray extends LinePars implements Serializable {
 	public void allocate(int n) {
 		if (n < 10)
 			n = 10;
-		points = new Vector<PlotPoint>(n, 10);
+		columns = new double[COLUMNS][];
+		columns[COLUMN_X] = new double[n];
+		columns[COLUMN_Y] = new double[n];
+		size = 0;
+		shared = false;
+		lift.clear();
+		modCount++;
 		// error_upper = new Vector(n,10);
 		// error_lower = new Vector(n,10);
 		for (int k = 0; k < GraphSettings.N_AXES; k++) {
@@ -315,7 +344,8 @@ public class DataArray extends LinePars implements Serializable {
 		y += additioner;
 		updateMinMax(x, y);
 		updateMean(x, y);
-		points.add(new PlotPoint(x, y));
+		modCount++;
+		append(x, y, 0, 0, 0, 0, 0, 0, 0, 0);
 	}
 
 	/**
@@ -346,7 +376,8 @@ public class DataArray extends LinePars implements Serializable {
 
 		// System.out.println(upper);
 
-		points.add(new PlotPoint(x, y, upper, lower));
+		modCount++;
+		append(x, y, 0, 0, upper, lower, 0, 0, 0, 0);
 	}
 
 	/**
@@ -382,7 +413,8 @@ public class DataArray extends LinePars implements Serializable {
 
 		// System.out.println(upper);
 
-		points.add(new PlotPoint(x, y, left, right, upper, lower));
+		modCount++;
+		append(x, y, left, right, upper, lower, 0, 0, 0, 0);
 	}
 
 	/**
@@ -434,8 +466,9 @@ public class DataArray extends LinePars implements Serializable {
 
 		// System.out.println(upper);
 
-		points.add(new PlotPoint(x, y, left, right, upper, lower, left_sys,
-				right_sys, upper_sys, lower_sys));
+		modCount++;
+		append(x, y, left, right, upper, lower, left_sys, right_sys,
+				upper_sys, lower_sys);
 	}
 
 	/**
@@ -454,7 +487,10 @@ public class DataArray extends LinePars implements Serializable {
 		y += additioner;
 		updateMinMax(x, y);
 		updateMean(x, y);
-		points.add(new PlotPoint(x, y, liftPen));
+		modCount++;
+		append(x, y, 0, 0, 0, 0, 0, 0, 0, 0);
+		if (liftPen)
+			lift.set(size - 1);
 	}
 
 	/**
@@ -468,9 +504,10 @@ public class DataArray extends LinePars implements Serializable {
 	 *            y-value of the plot-point
 	 */
 	public void setPoint(int i, double x, double y) {
-		if (i >= 0 && i < points.size()) {
+		if (i >= 0 && i < size) {
 			updateMinMax(x, y);
-			points.add(i, new PlotPoint(x, y));
+			modCount++;
+			insert(i, x, y, 0, 0, 0, 0, 0, 0, 0, 0);
 		}
 	}
 
@@ -489,9 +526,10 @@ public class DataArray extends LinePars implements Serializable {
 	 *            lower error on y
 	 **/
 	public void setPoint(int i, double x, double y, double upper, double lower) {
-		if (i >= 0 && i < points.size()) {
+		if (i >= 0 && i < size) {
 			updateMinMax(x, y, 0, 0, upper, lower);
-			points.add(i, new PlotPoint(x, y, upper, lower));
+			modCount++;
+			insert(i, x, y, 0, 0, upper, lower, 0, 0, 0, 0);
 		}
 	}
 
@@ -515,9 +553,10 @@ public class DataArray extends LinePars implements Serializable {
 	 **/
 	public void setPoint(int i, double x, double y, double left, double right,
 			double upper, double lower) {
-		if (i >= 0 && i < points.size()) {
+		if (i >= 0 && i < size) {
 			updateMinMax(x, y, left, right, upper, lower);
-			points.add(i, new PlotPoint(x, y, left, right, upper, lower));
+			modCount++;
+			insert(i, x, y, left, right, upper, lower, 0, 0, 0, 0);
 		}
 	}
 
@@ -550,11 +589,12 @@ public class DataArray extends LinePars implements Serializable {
 	public void setPoint(int i, double x, double y, double left, double right,
 			double upper, double lower, double left_sys, double right_sys,
 			double upper_sys, double lower_sys) {
-		if (i >= 0 && i < points.size()) {
+		if (i >= 0 && i < size) {
 			updateMinMax(x, y, left, right, upper, lower, left_sys, right_sys,
 					upper_sys, lower_sys);
-			points.add(i, new PlotPoint(x, y, left, right, upper, lower,
-					left_sys, right_sys, upper_sys, lower_sys));
+			modCount++;
+			insert(i, x, y, left, right, upper, lower, left_sys, right_sys,
+					upper_sys, lower_sys);
 		}
 	}
 
@@ -587,11 +627,216 @@ public class DataArray extends LinePars implements Serializable {
 	public void replacePoint(int i, double x, double y, double left,
 			double right, double upper, double lower, double left_sys,
 			double right_sys, double upper_sys, double lower_sys) {
-		if (i >= 0 && i < points.size()) {
-			points.set(i, new PlotPoint(x, y, left, right, upper, lower,
-					left_sys, right_sys, upper_sys, lower_sys));
+		if (i >= 0 && i < size) {
+			modCount++;
+			ensureCapacity(size);
+			lift.clear(i);
+			put(i, x, y, left, right, upper, lower, left_sys, right_sys,
+					upper_sys, lower_sys);
+		}
+	}
+
+	/**
+	 * Sets all points at once from columns of values. The arrays are used as
+	 * they are, without copying, as long as the multiplier and the additioner
+	 * of the Y values are not set. They are copied only before points are
+	 * added or changed later, so the arrays must not be changed while they
+	 * are drawn. Null is allowed for the columns of errors and stands for
+	 * zero errors. Y values and their errors are scaled as in
+	 * {@link #addPoint(double, double, double, double, double, double, double, double, double, double)}
+	 * , except for the errors which are null.
+	 * 
+	 * @param n
+	 *            number of points, the arrays can be longer
+	 * @param x
+	 *            x-values
+	 * @param y
+	 *            y-values
+	 * @param left
+	 *            - errors on x (left)
+	 * @param right
+	 *            - errors on x (right)
+	 * @param upper
+	 *            - errors on y (upper)
+	 * @param lower
+	 *            - errors on y (lower)
+	 * @param left_sys
+	 *            - errors on x (left) - second level, used for systematics
+	 * @param right_sys
+	 *            - errors on x (right)
+	 * @param upper_sys
+	 *            - errors on y (upper)
+	 * @param lower_sys
+	 *            - errors on y (lower)
+	 **/
+	public void setColumns(int n, double[] x, double[] y, double[] left,
+			double[] right, double[] upper, double[] lower, double[] left_sys,
+			double[] right_sys, double[] upper_sys, double[] lower_sys) {
+
+		double[][] c = { x, y, left, right, upper, lower, left_sys,
+				right_sys, upper_sys, lower_sys };
+		if (n < 0 || x == null || y == null)
+			throw new IllegalArgumentException("No X or Y values");
+		for (int k = 0; k < COLUMNS; k++)
+			if (c[k] != null && c[k].length < n)
+				throw new IllegalArgumentException("Column " + k
+						+ " is shorter than " + n);
+		if (multiplier != 1 || additioner != 0) {
+			int[] scaled = { COLUMN_Y, COLUMN_YUPPER, COLUMN_YLOWER,
+					COLUMN_YUPPER_SYS, COLUMN_YLOWER_SYS };
+			for (int k : scaled) {
+				if (c[k] == null)
+					continue;
+				double[] v = new double[n];
+				for (int i = 0; i < n; i++)
+					v[i] = c[k][i] * multiplier + additioner;
+				c[k] = v;
+			}
+		}
 
+		columns = c;
+		size = n;
+		shared = true;
+		lift.clear();
+		modCount++;
+		for (int k = 0; k < GraphSettings.N_AXES; k++) {
+			maxValue[k] = -GraphSettings.INF;
+			minValue[k] = GraphSettings.INF;
+			lowestNonZeroValue[k] = GraphSettings.INF;
 		}
+		mean = 0;
+		Ntot = 0;
+		for (int i = 0; i < n; i++) {
+			updateMinMax(c[COLUMN_X][i], c[COLUMN_Y][i],
+					value(COLUMN_XLEFT, i), value(COLUMN_XRIGHT, i),
+					value(COLUMN_YUPPER, i), value(COLUMN_YLOWER, i),
+					value(COLUMN_XLEFT_SYS, i), value(COLUMN_XRIGHT_SYS, i),
+					value(COLUMN_YUPPER_SYS, i), value(COLUMN_YLOWER_SYS, i));
+			updateMean(c[COLUMN_X][i], c[COLUMN_Y][i]);
+		}
+	}
+
+	/**
+	 * Sets all points at once from columns of values, see
+	 * {@link #setColumns(int, double[], double[], double[], double[], double[], double[], double[], double[], double[], double[])}
+	 * .
+	 * 
+	 * @param n
+	 *            number of points, the arrays can be longer
+	 * @param x
+	 *            x-values
+	 * @param y
+	 *            y-values
+	 * @param left
+	 *            - errors on x (left), or null
+	 * @param right
+	 *            - errors on x (right), or null
+	 * @param upper
+	 *            - errors on y (upper), or null
+	 * @param lower
+	 *            - errors on y (lower), or null
+	 **/
+	public void setColumns(int n, double[] x, double[] y, double[] left,
+			double[] right, double[] upper, double[] lower) {
+		setColumns(n, x, y, left, right, upper, lower, null, null, null, null);
+	}
+
+	/**
+	 * Sets all points at once from columns of values, see
+	 * {@link #setColumns(int, double[], double[], double[], double[], double[], double[], double[], double[], double[], double[])}
+	 * .
+	 * 
+	 * @param n
+	 *            number of points, the arrays can be longer
+	 * @param x
+	 *            x-values
+	 * @param y
+	 *            y-values
+	 **/
+	public void setColumns(int n, double[] x, double[] y) {
+		setColumns(n, x, y, null, null, null, null, null, null, null, null);
+	}
+
+	/**
+	 * Returns a column of values. This is the array used for drawing, valid
+	 * for the first {@link #size()} points. It must not be changed; use
+	 * {@link #replacePoint} instead.
+	 * 
+	 * @param column
+	 *            one of COLUMN_X, COLUMN_Y, COLUMN_XLEFT ... COLUMN_YLOWER_SYS
+	 * @return the values, or null for a column of errors which are all zero
+	 */
+	public double[] getColumn(int column) {
+		return columns[column];
+	}
+
+	// make room for n points in own arrays
+	private void ensureCapacity(int n) {
+		int capacity = columns[COLUMN_X].length;
+		if (!shared && capacity >= n)
+			return;
+		if (capacity < n)
+			capacity = Math.max(n, capacity + (capacity >> 1) + 10);
+		for (int k = 0; k < COLUMNS; k++)
+			if (columns[k] != null)
+				columns[k] = Arrays.copyOf(columns[k], capacity);
+		shared = false;
+	}
+
+	private void append(double x, double y, double left, double right,
+			double upper, double lower, double left_sys, double right_sys,
+			double upper_sys, double lower_sys) {
+		ensureCapacity(size + 1);
+		size++;
+		appended++;
+		put(size - 1, x, y, left, right, upper, lower, left_sys, right_sys,
+				upper_sys, lower_sys);
+	}
+
+	private void insert(int i, double x, double y, double left, double right,
+			double upper, double lower, double left_sys, double right_sys,
+			double upper_sys, double lower_sys) {
+		ensureCapacity(size + 1);
+		for (int k = 0; k < COLUMNS; k++)
+			if (columns[k] != null)
+				System.arraycopy(columns[k], i, columns[k], i + 1, size - i);
+		for (int k = size; k > i; k--)
+			lift.set(k, lift.get(k - 1));
+		lift.clear(i);
+		size++;
+		put(i, x, y, left, right, upper, lower, left_sys, right_sys,
+				upper_sys, lower_sys);
+	}
+
+	private void put(int i, double x, double y, double left, double right,
+			double upper, double lower, double left_sys, double right_sys,
+			double upper_sys, double lower_sys) {
+		columns[COLUMN_X][i] = x;
+		columns[COLUMN_Y][i] = y;
+		put(COLUMN_XLEFT, i, left);
+		put(COLUMN_XRIGHT, i, right);
+		put(COLUMN_YUPPER, i, upper);
+		put(COLUMN_YLOWER, i, lower);
+		put(COLUMN_XLEFT_SYS, i, left_sys);
+		put(COLUMN_XRIGHT_SYS, i, right_sys);
+		put(COLUMN_YUPPER_SYS, i, upper_sys);
+		put(COLUMN_YLOWER_SYS, i, lower_sys);
+	}
+
+	// a column of errors is allocated with the first non-zero error
+	private void put(int column, int i, double v) {
+		double[] c = columns[column];
+		if (c == null) {
+			if (v == 0)
+				return;
+			c = columns[column] = new double[columns[COLUMN_X].length];
+		}
+		c[i] = v;
+	}
+
+	private double value(int column, int i) {
+		double[] c = columns[column];
+		return c == null ? 0 : c[i];
 	}
 
 	/**
@@ -600,6 +845,7 @@ public class DataArray extends LinePars implements Serializable {
 	 **/
 	public void allUpdate() {
 
+		modCount++;
 		maxValue[GraphSettings.X_AXIS] = 0;
 		minValue[GraphSettings.X_AXIS] = 0;
 		lowestNonZeroValue[GraphSettings.X_AXIS] = 0;
@@ -608,7 +854,7 @@ public class DataArray extends LinePars implements Serializable {
 		lowestNonZeroValue[GraphSettings.Y_AXIS] = 0;
 		mean = 0;
 
-		for (int i = 0; i < points.size(); i++) {
+		for (int i = 0; i < size; i++) {
 			// update all
 			updateMinMax(getX(i), getY(i), getXleft(i), getXright(i),
 					getYupper(i), getYlower(i), getXleftSys(i),
@@ -618,15 +864,24 @@ public class DataArray extends LinePars implements Serializable {
 	}
 
 	/**
-	 * Returns the plot-point of the specified index.
+	 * Returns the plot-point of the specified index. This is a copy of the
+	 * values; use {@link #replacePoint} to change them.
 	 * 
 	 * @param i
 	 *            index of the plot-point
 	 * @return plotpoint at index i
 	 */
 	public PlotPoint getPoint(int i) {
-		if (i >= 0 && i < points.size())
-			return (PlotPoint) points.get(i);
+		if (i >= 0 && i < size) {
+			PlotPoint pp = new PlotPoint(columns[COLUMN_X][i],
+					columns[COLUMN_Y][i], value(COLUMN_XLEFT, i), value(
+							COLUMN_XRIGHT, i), value(COLUMN_YUPPER, i), value(
+							COLUMN_YLOWER, i), value(COLUMN_XLEFT_SYS, i),
+					value(COLUMN_XRIGHT_SYS, i), value(COLUMN_YUPPER_SYS, i),
+					value(COLUMN_YLOWER_SYS, i));
+			pp.setLiftPen(lift.get(i));
+			return pp;
+		}
 		return null;
 	}
 
@@ -638,22 +893,23 @@ public class DataArray extends LinePars implements Serializable {
 	 *            index of the plot-point
 	 */
 	public void setLiftPen(int i) {
-		if (i >= 0 && i < points.size()) {
-			((PlotPoint) points.get(i)).setLiftPen(true);
+		if (i >= 0 && i < size) {
+			lift.set(i);
+			modCount++;
 		}
 	}
 
 	public boolean liftPen(int i) {
-		return ((PlotPoint) points.get(i)).liftPen();
+		return lift.get(i);
 	}
 
 	/**
 	 * Return the length of the data vector.
 	 * 
-	 * @return length of the PlotPoint vector
+	 * @return number of points
 	 */
 	public int size() {
-		return points.size();
+		return size;
 	}
 
 	/**
@@ -675,14 +931,37 @@ public class DataArray extends LinePars implements Serializable {
 	}
 
 	/**
-	 * Return the data vector
+	 * Return the data vector. This is a copy of the points, made on each
+	 * call; for drawing read the columns with {@link #getColumn(int)}.
 	 * 
 	 * @return data vector with all the plot points
 	 */
 	public Vector getData() {
+		Vector<PlotPoint> points = new Vector<PlotPoint>(size);
+		for (int i = 0; i < size; i++)
+			points.add(getPoint(i));
 		return points;
 	}
 
+	/**
+	 * Return the number of changes of the points so far.
+	 * 
+	 * @return counter which changes whenever the points change
+	 */
+	int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * Return the number of changes of the points other than the addition of
+	 * points at the end of the array.
+	 * 
+	 * @return counter which changes whenever points are changed or removed
+	 */
+	int getEditCount() {
+		return modCount - appended;
+	}
+
 	/**
 	 * Return the upper-error vector
 	 * 
@@ -710,8 +989,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of x at index i
 	 */
 	public double getX(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getX();
+		if (i >= 0 && i < size) {
+			return columns[COLUMN_X][i];
 		}
 		return GraphSettings.INF;
 	}
@@ -725,8 +1004,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of x at index i
 	 */
 	public double getXleft(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getXleft();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_XLEFT, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -740,8 +1019,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of x at index i
 	 */
 	public double getXright(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getXright();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_XRIGHT, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -755,8 +1034,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of x at index i
 	 */
 	public double getXleftSys(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getXleftSys();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_XLEFT_SYS, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -770,8 +1049,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of x at index i
 	 */
 	public double getXrightSys(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getXrightSys();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_XRIGHT_SYS, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -785,8 +1064,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of y at index i
 	 */
 	public double getY(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getY();
+		if (i >= 0 && i < size) {
+			return columns[COLUMN_Y][i];
 		}
 		return GraphSettings.INF;
 	}
@@ -800,8 +1079,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of y at index i
 	 */
 	public double getYupper(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getYupper();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_YUPPER, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -815,8 +1094,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of y at index i
 	 */
 	public double getYlower(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getYlower();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_YLOWER, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -830,8 +1109,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of y at index i
 	 */
 	public double getYupperSys(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getYupperSys();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_YUPPER_SYS, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -845,8 +1124,8 @@ public class DataArray extends LinePars implements Serializable {
 	 * @return the value of y at index i
 	 */
 	public double getYlowerSys(int i) {
-		if (i >= 0 && i < size()) {
-			return ((PlotPoint) points.get(i)).getYlowerSys();
+		if (i >= 0 && i < size) {
+			return value(COLUMN_YLOWER_SYS, i);
 		}
 		return GraphSettings.INF;
 	}
@@ -947,9 +1226,13 @@ public class DataArray extends LinePars implements Serializable {
 	 */
 	public void clear() {
 
-		if (points.size() > 0) {
+		if (size > 0) {
 			Ntot = 0;
-			points.removeAllElements();
+			if (shared)
+				allocate(0);
+			size = 0;
+			lift.clear();
+			modCount++;
 			for (int k = 0; k < GraphSettings.N_AXES; k++) {
 				maxValue[k] = -GraphSettings.INF;
 				minValue[k] = GraphSettings.INF;
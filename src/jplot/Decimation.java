@@ -0,0 +1,202 @@
+/**
+ *    Copyright (C)  DataMelt project. The jHPLot package.
+ *
+ *    This program is free software; you can redistribute it and/or modify it under the terms
+ *    of the GNU General Public License as published by the Free Software Foundation; either
+ *    version 3 of the License, or any later version.
+ *
+ *    This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *    without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *    See the GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License along with this program;
+ *    if not, see <http://www.gnu.org/licenses>.
+ *
+ *    Additional permission under GNU GPL version 3 section 7:
+ *    If you have received this program as a library with written permission from the DataMelt team,
+ *    you can link or combine this library with your non-GPL project to convey the resulting work.
+ *    In this case, this library should be considered as released under the terms of
+ *    GNU Lesser public license (see <https://www.gnu.org/licenses/lgpl.html>),
+ *    provided you include this license notice and a URL through which recipients can access the
+ *    Corresponding Source.
+ **/
+
+package jplot;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Vector;
+
+/**
+ * Level of detail for large data arrays drawn as lines or symbols. Only the
+ * points which change the picture are kept, in panel coordinates:
+ * <ul>
+ * <li>for lines, each run of consecutive points falling into the same pixel
+ * column is replaced by its first, lowest, highest and last point (M4);</li>
+ * <li>for symbols, only the first point falling into a pixel is kept, and
+ * symbols which cannot reach the graph area are dropped.</li>
+ * </ul>
+ * The result depends on the data, the axis ranges and the size of the graph,
+ * and is kept until one of them changes. The drawing then costs in proportion
+ * to the width of the graph in pixels, not to the size of the data.
+ *
+ * @author S.Chekanov
+ */
+final class Decimation {
+
+	/** Arrays with fewer points (per pixel column) are drawn as they are */
+	static final int MIN_POINTS = 4;
+
+	private final double[] x;
+	private final double[] y;
+	private final int size;
+	private final int modCount;
+	private final double[] key;
+
+	/** points in panel coordinates */
+	final Vector<PlotPoint> points;
+
+	private Decimation(DataArray da, double[] key, Vector<PlotPoint> points) {
+		this.x = da.getColumn(DataArray.COLUMN_X);
+		this.y = da.getColumn(DataArray.COLUMN_Y);
+		this.size = da.size();
+		this.modCount = da.getModCount();
+		this.key = key;
+		this.points = points;
+	}
+
+	/**
+	 * Checks whether a data array can be decimated without changing the
+	 * picture. This is the case for lines and symbols without error bars,
+	 * filled areas, dashes or point frequencies.
+	 *
+	 * @param da
+	 *            data array
+	 * @param width
+	 *            width of the graph area in pixels
+	 */
+	static boolean applies(DataArray da, double width) {
+
+		if (da.getGraphStyle() != LinePars.LINES)
+			return false;
+		if (da.size() <= MIN_POINTS * Math.max(width, 1))
+			return false;
+		if (da.getErrorsX() || da.getErrorsY() || da.getErrorsSysX()
+				|| da.getErrorsSysY() || da.getErrorsFill()
+				|| da.getErrorsFillSys())
+			return false;
+		if (da.drawLine() && da.getDashLength() > 0)
+			return false;
+		if (da.drawSymbol() && da.getPointFrequency() != 1)
+			return false;
+		return da.drawLine() || da.drawSymbol();
+	}
+
+	/**
+	 * Checks whether this decimation is still valid for a data array and a
+	 * graph.
+	 */
+	boolean isValid(DataArray da, double[] key) {
+		return x == da.getColumn(DataArray.COLUMN_X)
+				&& y == da.getColumn(DataArray.COLUMN_Y) && size == da.size()
+				&& modCount == da.getModCount() && Arrays.equals(this.key, key);
+	}
+
+	/**
+	 * Decimate a data array.
+	 *
+	 * @param g
+	 *            graph which maps the data to the panel
+	 * @param da
+	 *            data array, for which {@link #applies} is true
+	 * @param key
+	 *            state of the graph which the result depends on
+	 */
+	static Decimation build(GraphXY g, DataArray da, double[] key) {
+
+		double[] xs = da.getColumn(DataArray.COLUMN_X);
+		double[] ys = da.getColumn(DataArray.COLUMN_Y);
+		int n = da.size();
+		boolean lines = da.drawLine();
+		boolean symbols = da.drawSymbol();
+		BitSet keep = new BitSet(n);
+
+		// pixel columns outside of the graph are merged into two
+		double aXmin = g.leftMargin - 1;
+		double aXmax = g.leftMargin + g.axisLength[GraphSettings.X_AXIS] + 1;
+		int left = (int) Math.floor(aXmin) - 1, right = (int) Math.ceil(aXmax) + 1;
+		int run = 0, first = -1, low = -1, high = -1, last = -1;
+		double yLow = 0, yHigh = 0;
+
+		// pixels where a symbol can be seen
+		double pad = da.getSymbolSize() * g.scalingFrame + da.getPenWidth()
+				* g.scalingFrame + 1;
+		int x0 = (int) Math.floor(g.leftMargin - pad);
+		int y0 = (int) Math.floor(g.topMargin - pad);
+		int w = (int) Math.ceil(g.axisLength[GraphSettings.X_AXIS] + 2 * pad) + 1;
+		int h = (int) Math.ceil(g.axisLength[GraphSettings.Y_AXIS] + 2 * pad) + 1;
+		BitSet used = symbols ? new BitSet(w * h) : null;
+
+		for (int i = 0; i < n; i++) {
+			double x = g.toX(xs[i]);
+			double y = g.toY(ys[i]);
+
+			if (symbols) {
+				int px = (int) Math.floor(x) - x0;
+				int py = (int) Math.floor(y) - y0;
+				if (px >= 0 && px < w && py >= 0 && py < h) {
+					int cell = py * w + px;
+					if (!used.get(cell)) {
+						used.set(cell);
+						keep.set(i);
+					}
+				}
+			}
+
+			if (!lines)
+				continue;
+			if (Double.isNaN(x) || Double.isNaN(y) || Double.isInfinite(x)
+					|| Double.isInfinite(y)) {
+				// breaks the line, keep it as it is
+				if (first >= 0)
+					keep(keep, first, low, high, last);
+				first = -1;
+				keep.set(i);
+				continue;
+			}
+			int column = x < aXmin ? left : (x > aXmax ? right : (int) Math
+					.floor(x));
+			if (first < 0 || column != run) {
+				if (first >= 0)
+					keep(keep, first, low, high, last);
+				run = column;
+				first = low = high = last = i;
+				yLow = yHigh = y;
+				continue;
+			}
+			last = i;
+			if (y < yLow) {
+				yLow = y;
+				low = i;
+			} else if (y > yHigh) {
+				yHigh = y;
+				high = i;
+			}
+		}
+		if (first >= 0)
+			keep(keep, first, low, high, last);
+
+		Vector<PlotPoint> p = new Vector<PlotPoint>(keep.cardinality());
+		for (int i = keep.nextSetBit(0); i >= 0; i = keep.nextSetBit(i + 1))
+			p.add(new PlotPoint(g.toX(xs[i]), g.toY(ys[i])));
+		return new Decimation(da, key, p);
+	}
+
+	private static void keep(BitSet keep, int first, int low, int high,
+			int last) {
+		keep.set(first);
+		keep.set(low);
+		keep.set(high);
+		keep.set(last);
+	}
+}
@@ -1473,11 +1473,11 @@ public abstract class GraphGeneral extends JPanel implements Printable {
 						for (Enumeration e2 = data.elements(); e2
 								.hasMoreElements();) {
 							DataArray da = (DataArray) e2.nextElement();
-							for (Enumeration e3 = da.getData().elements(); e3
-									.hasMoreElements();) {
-								PlotPoint p = (PlotPoint) e3.nextElement();
-								xx = toX(p.getX());
-								yy = toY(p.getY());
+							double[] xs = da.getColumn(DataArray.COLUMN_X);
+							double[] ys = da.getColumn(DataArray.COLUMN_Y);
+							for (int k = 0; k < da.size(); k++) {
+								xx = toX(xs[k]);
+								yy = toY(ys[k]);
 								if (xStart > xx - 3 && xStart < xx + 3
 										&& yStart > yy - 3 && yStart < yy + 3) {
 									LinePars lp = jplot.styleChooser.show(a, b,
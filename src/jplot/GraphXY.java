@@ -28,10 +28,12 @@ package jplot;
 import graph.RTextLine;
 import java.awt.*;
 import java.awt.geom.*;
+import java.awt.image.BufferedImage;
 import java.util.*;
 import java.text.DecimalFormat;
 import java.text.Format;
 import org.apache.commons.math3.util.FastMath;
+import org.freehep.graphics2d.PixelGraphics2D;
 import org.freehep.graphics2d.VectorGraphics;
 
 /**
@@ -51,6 +53,19 @@ public class GraphXY extends GraphGeneral {
 	private int xpolUPsys[], ypolUPsys[], xpolDWsys[], ypolDWsys[];
 	private int NtotPoly = 0;
 	private Contour contour;
+	private transient Map<DataArray, Decimation> decimated;
+
+	// layers drawn by updateGraph()
+	private static final int ALL_LAYERS = 0, BACK_LAYER = 1, FRONT_LAYER = 2;
+	private transient int layer = ALL_LAYERS;
+	private boolean incremental;
+	// background, grid and data; axes, labels and legend
+	private transient BufferedImage dataLayer, frontLayer;
+	private transient double[] layerKey;
+	// points of the data arrays in the data layer, and at the last show()
+	private transient Map<DataArray, int[]> layerState, shownState;
+	private transient long frameTime;
+	private transient double dashCounter1, dashCounter2;
 
 	/**
 	 * Main constructor. Sets the settings to their default values. If the graph
@@ -432,7 +447,7 @@ public class GraphXY extends GraphGeneral {
 						gs.getContour_binsX(), gs.getContour_binsY(),
 						gs.getContour_gray(), gs.getContour_levels());
 
-				contour.createGrid(da.getData(), MinAxis[X], MaxAxis[X],
+				contour.createGrid(da, MinAxis[X], MaxAxis[X],
 						MinAxis[Y], MaxAxis[Y]);
 
 				// break;
@@ -1054,35 +1069,50 @@ public class GraphXY extends GraphGeneral {
 	 * (i.e. outside the axes system).
 	 */
 	public Vector getPoints(DataArray da) {
+		return getPoints(da, 0, da.size());
+	}
 
-		Vector data = da.getData();
-
-		double x, y, oldX = 0.0;
+	/*
+	 * Same as getPoints(), for the points from..to-1 of a data array.
+	 */
+	private Vector getPoints(DataArray da, int from, int to) {
+
+		double[] xs = da.getColumn(DataArray.COLUMN_X);
+		double[] ys = da.getColumn(DataArray.COLUMN_Y);
+		double[] xl = da.getColumn(DataArray.COLUMN_XLEFT);
+		double[] xr = da.getColumn(DataArray.COLUMN_XRIGHT);
+		double[] yu = da.getColumn(DataArray.COLUMN_YUPPER);
+		double[] yl = da.getColumn(DataArray.COLUMN_YLOWER);
+		double[] xls = da.getColumn(DataArray.COLUMN_XLEFT_SYS);
+		double[] xrs = da.getColumn(DataArray.COLUMN_XRIGHT_SYS);
+		double[] yus = da.getColumn(DataArray.COLUMN_YUPPER_SYS);
+		double[] yls = da.getColumn(DataArray.COLUMN_YLOWER_SYS);
+
+		double x, y;
 		double left, right, upper, lower, left_sys, right_sys, upper_sys, lower_sys;
-		Vector<PlotPoint> p = new Vector<PlotPoint>();
-		int i = 0;
+		Vector<PlotPoint> p = new Vector<PlotPoint>(to - from);
 
 		double aXmin = leftMargin;
 		double aXmax = leftMargin + axisLength[X];
 		double aYmin = topMargin + axisLength[Y];
 		double aYmax = topMargin;
 
-		for (Enumeration e = data.elements(); e.hasMoreElements(); i++) {
-			PlotPoint pp = (PlotPoint) e.nextElement();
-
-			// pp.print();
-
-			x = toX(pp.getX());
-			y = toY(pp.getY());
-			left = toX(pp.getX() - pp.getXleft());
-			right = toX(pp.getX() + pp.getXright());
-			upper = toY(pp.getY() + pp.getYupper());
-			lower = toY(pp.getY() - pp.getYlower());
+		for (int i = from; i < to; i++) {
+			double px = xs[i], py = ys[i];
+			double el = value(xl, i), er = value(xr, i);
+			double eu = value(yu, i), elo = value(yl, i);
+
+			x = toX(px);
+			y = toY(py);
+			left = toX(px - el);
+			right = toX(px + er);
+			upper = toY(py + eu);
+			lower = toY(py - elo);
 			// naow, systematical bars
-			left_sys = toX(pp.getX() - pp.getXleft() - pp.getXleftSys());
-			right_sys = toX(pp.getX() + pp.getXright() + pp.getXrightSys());
-			upper_sys = toY(pp.getY() + pp.getYupper() + pp.getYupperSys());
-			lower_sys = toY(pp.getY() - pp.getYlower() - pp.getYlowerSys());
+			left_sys = toX(px - el - value(xls, i));
+			right_sys = toX(px + er + value(xrs, i));
+			upper_sys = toY(py + eu + value(yus, i));
+			lower_sys = toY(py - elo - value(yls, i));
 
 			// skip some points ouside in case of symbols
 			if (da.getGraphStyle() != LinePars.HISTO) {
@@ -1113,6 +1143,41 @@ public class GraphXY extends GraphGeneral {
 		return p;
 	}
 
+	// value of a column of errors, which is null if all errors are zero
+	private static double value(double[] column, int i) {
+		return column == null ? 0 : column[i];
+	}
+
+	/*
+	 * Same as getPoints(), but large arrays drawn as lines or symbols are
+	 * reduced to the points which can be seen at the current resolution. The
+	 * reduced points are kept until the data, the axes or the size of the
+	 * graph change.
+	 */
+	private Vector getVisiblePoints(DataArray da) {
+
+		if (!Decimation.applies(da, axisLength[X]))
+			return getPoints(da);
+
+		double[] key = { gs.getMinValue(X), gs.getMinValue(Y),
+				gs.useLogScale(X) ? 1 : 0, gs.useLogScale(Y) ? 1 : 0,
+				leftMargin, topMargin, axisLength[X], axisLength[Y], inv[X],
+				inv[Y], diff[X], diff[Y], scalingFrame, da.getSymbolSize(),
+				da.getPenWidth(), da.drawLine() ? 1 : 0, da.drawSymbol() ? 1 : 0 };
+		synchronized (this) {
+			if (decimated == null)
+				decimated = new WeakHashMap<DataArray, Decimation>();
+			Decimation d = decimated.get(da);
+			if (d != null && d.isValid(da, key))
+				return d.points;
+		}
+		Decimation d = Decimation.build(this, da, key);
+		synchronized (this) {
+			decimated.put(da, d);
+		}
+		return d.points;
+	}
+
 	// /**
 	// * Does the graph update for a stick- or bar-graph:
 	// */
@@ -1159,6 +1224,271 @@ public class GraphXY extends GraphGeneral {
 	// }
 	// }
 
+	/**
+	 * Sets incremental drawing. The background, the grid and the data are
+	 * then kept in one image, and the axes, the labels and the legend in
+	 * another one, so that repainting the panel only copies the images. They
+	 * are drawn again after {@link #show(Vector)} and when the size, the
+	 * margins, the axis ranges or the positions of the labels change. Points
+	 * added to the data arrays are drawn over the kept image by
+	 * {@link #refresh(Vector)}. Printing and export to vector formats always
+	 * draw the whole graph.
+	 * 
+	 * @param b
+	 *            true for incremental drawing
+	 */
+	public void setIncremental(boolean b) {
+		synchronized (this) {
+			incremental = b;
+			dataLayer = null;
+			frontLayer = null;
+			layerKey = null;
+		}
+		repaint();
+	}
+
+	/**
+	 * Checks whether the graph is drawn incrementally.
+	 * 
+	 * @return true for incremental drawing
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Returns the time taken by the last painting of the graph.
+	 * 
+	 * @return time in nanoseconds
+	 */
+	public long getFrameTime() {
+		return frameTime;
+	}
+
+	/**
+	 * Draws the graph on the graphics canvas of this panel, see
+	 * {@link GraphGeneral#show(Vector)}. The images kept by incremental
+	 * drawing are drawn again.
+	 * 
+	 * @param data
+	 *            vector of Data Array vectors with the data points
+	 */
+	public void show(Vector data) {
+		synchronized (this) {
+			layerKey = null;
+			shownState = state(data);
+		}
+		super.show(data);
+	}
+
+	/**
+	 * Checks whether data arrays were added, removed or changed since they
+	 * were shown.
+	 * 
+	 * @param data
+	 *            vector of Data Array vectors with the data points
+	 * @return true if the graph must be updated
+	 */
+	public boolean isChanged(Vector data) {
+		if (data == null)
+			return false;
+		synchronized (this) {
+			if (data != this.data || !appendedTo(shownState, data))
+				return true;
+			for (Object o : data)
+				if (((DataArray) o).size() != shownState.get(o)[0])
+					return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Shows the changes of the data arrays. If points were only added at the
+	 * end of the arrays and the axes do not change, the new points are drawn
+	 * over the image kept by incremental drawing and only the graph area is
+	 * repainted. Otherwise, this is the same as {@link #show(Vector)}.
+	 * 
+	 * @param data
+	 *            vector of Data Array vectors with the data points
+	 */
+	public void refresh(Vector data) {
+		if (data == null)
+			return;
+		synchronized (this) {
+			if (data == this.data && drawAdded()) {
+				repaint((int) leftMargin - 2, (int) topMargin - 2,
+						(int) axisLength[X] + 5, (int) axisLength[Y] + 5);
+				return;
+			}
+		}
+		show(data);
+	}
+
+	// draws the points added since the data layer was drawn, if possible
+	private boolean drawAdded() {
+
+		if (!incremental || dataLayer == null || layerKey == null
+				|| !appendedTo(layerState, data))
+			return false;
+		for (Object o : data) {
+			DataArray da = (DataArray) o;
+			if (da.size() > layerState.get(da)[0] && !drawsAdded(da))
+				return false;
+		}
+
+		// the axes must stay as they are
+		for (int k = 0; k < Na; k++)
+			if (!setMinMax(k, data))
+				return false;
+		if (!Arrays.equals(layerKey, layerKey()))
+			return false;
+
+		VectorGraphics g2 = VectorGraphics.create(dataLayer.createGraphics());
+		antiAlias(g2);
+		dashCounter1 = 0;
+		dashCounter2 = 0;
+		for (Object o : data) {
+			DataArray da = (DataArray) o;
+			int[] s = layerState.get(da);
+			int n = da.size();
+			if (n <= s[0])
+				continue;
+			// start the line at the last point drawn
+			Vector points = getPoints(da, Math.max(0, s[0] - 1), n);
+			PlotPoint start = null;
+			if (s[0] > 0)
+				start = (PlotPoint) points.remove(0);
+			drawDataArray(g2, da, points, start, s[0] + 1);
+			s[0] = n;
+		}
+		g2.dispose();
+		shownState = state(data);
+		return true;
+	}
+
+	// points added to a data array can be drawn over the old ones
+	private static boolean drawsAdded(DataArray da) {
+		int style = da.getGraphStyle();
+		if (style == LinePars.HISTO || style == LinePars.CONTOUR)
+			return false;
+		if (da.getErrorsFill() || da.getErrorsFillSys())
+			return false;
+		return !(da.drawLine() && da.getDashLength() > 0);
+	}
+
+	// number of points and of changes of each data array
+	private static Map<DataArray, int[]> state(Vector data) {
+		Map<DataArray, int[]> m = new IdentityHashMap<DataArray, int[]>();
+		if (data != null)
+			for (Object o : data) {
+				DataArray da = (DataArray) o;
+				m.put(da, new int[] { da.size(), da.getEditCount() });
+			}
+		return m;
+	}
+
+	// true if the data arrays are those of the state, with points only added
+	private static boolean appendedTo(Map<DataArray, int[]> m, Vector data) {
+		if (m == null || m.size() != data.size())
+			return false;
+		for (Object o : data) {
+			int[] s = m.get(o);
+			DataArray da = (DataArray) o;
+			if (s == null || s[1] != da.getEditCount() || da.size() < s[0])
+				return false;
+		}
+		return true;
+	}
+
+	// state of the graph which the layers depend on
+	private double[] layerKey() {
+		Vector<GraphLabel> labels = gs.getLabels();
+		double[] key = new double[14 + 2 * labels.size()];
+		key[0] = width;
+		key[1] = height;
+		key[2] = leftMargin;
+		key[3] = topMargin;
+		key[4] = axisLength[X];
+		key[5] = axisLength[Y];
+		key[6] = MinAxis[X];
+		key[7] = MaxAxis[X];
+		key[8] = MinAxis[Y];
+		key[9] = MaxAxis[Y];
+		key[10] = scalingFrame;
+		key[11] = gs.getLegendPosition(X);
+		key[12] = gs.getLegendPosition(Y);
+		key[13] = gs.useLegendPosition() ? 1 : 0;
+		int k = 14;
+		for (GraphLabel gl : labels) {
+			key[k++] = gl.getX();
+			key[k++] = gl.getY();
+		}
+		return key;
+	}
+
+	private void antiAlias(VectorGraphics g2) {
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				gs.getAntiAlias() ? RenderingHints.VALUE_ANTIALIAS_ON
+						: RenderingHints.VALUE_ANTIALIAS_OFF);
+	}
+
+	/*
+	 * Draws the graph, or copies the layers to the screen with incremental
+	 * drawing.
+	 */
+	void drawAllGraphics(Dimension size, VectorGraphics g2) {
+
+		long t0 = System.nanoTime();
+		if (incremental && !isPaintingForPrint()
+				&& g2.getClass() == PixelGraphics2D.class) {
+			synchronized (this) {
+				if (dataLayer == null || layerKey == null
+						|| width != size.width || height != size.height
+						|| !Arrays.equals(layerKey, layerKey()))
+					drawLayers(size);
+				g2.drawImage(dataLayer, 0, 0, null);
+				g2.drawImage(frontLayer, 0, 0, null);
+			}
+		} else
+			super.drawAllGraphics(size, g2);
+		frameTime = System.nanoTime() - t0;
+	}
+
+	// draws the graph into the images of the layers
+	private void drawLayers(Dimension size) {
+
+		int w = Math.max(1, size.width);
+		int h = Math.max(1, size.height);
+		if (dataLayer == null || dataLayer.getWidth() != w
+				|| dataLayer.getHeight() != h) {
+			dataLayer = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+			frontLayer = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		}
+
+		VectorGraphics screen = currentG;
+		try {
+			layer = BACK_LAYER;
+			currentG = VectorGraphics.create(dataLayer.createGraphics());
+			super.drawAllGraphics(size, currentG);
+			currentG.dispose();
+
+			layer = FRONT_LAYER;
+			Graphics2D g = frontLayer.createGraphics();
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, w, h);
+			g.setComposite(AlphaComposite.SrcOver);
+			currentG = VectorGraphics.create(g);
+			antiAlias(currentG);
+			updateGraph();
+			currentG.dispose();
+		} finally {
+			layer = ALL_LAYERS;
+			currentG = screen;
+		}
+		layerKey = layerKey();
+		layerState = state(data);
+	}
+
 	/**
 	 * This function builds the graph in a double-buffered image zone. Make sure
 	 * that the size of the graph (width x height) is set before calling this
@@ -1178,25 +1508,19 @@ public class GraphXY extends GraphGeneral {
 
 		// System.out.println("Call to updateGraph()");
 
-		double a = topMargin + axisLength[Y];
-		double zeroX = toX(0.0);
-		double zeroY = toY(0.0);
-		// determin min and max in terms of piksels
-		// double cXmin = toX(gs.getMinValue(0));
-		// double cXmax = toX(gs.getMaxValue(0));
-		// double cYmin = toY(gs.getMinValue(1));
-		// double cYmax = toY(gs.getMaxValue(1));
+		dashCounter1 = 0;
+		dashCounter2 = 0;
 
-		double cXmin = leftMargin;
-		double cXmax = leftMargin + axisLength[X];
-		double cYmin = topMargin + axisLength[Y];
-		double cYmax = topMargin;
-
-		double dashCounter1 = 0;
-		double dashCounter2 = 0;
+		if (layer != FRONT_LAYER)
+			drawData(g2);
+		if (layer != BACK_LAYER)
+			drawFront(g2);
+	}
 
-		// System.out.println(cXmin);
-		// System.out.println(cXmax);
+	/*
+	 * Draws the grid and the primitives behind the data, and the data.
+	 */
+	private void drawData(VectorGraphics g2) {
 
 		// draw the on the background, if this is what they want:
 		if (!gs.gridToFront())
@@ -1217,7 +1541,7 @@ public class GraphXY extends GraphGeneral {
 
 			// get a vector with valid points (i.e. all points which fall
 			// beyond the current domain are ignored):
-			Vector points = getPoints(da);
+			Vector points = getVisiblePoints(da);
 			if (points.size() == 0)
 				continue;
 
@@ -1232,534 +1556,558 @@ public class GraphXY extends GraphGeneral {
 				continue;
 			}
 
-			NtotPoly = points.size();
-			// for drawing of a polygone
-			if (da.getErrorsFill()) {
-				xpolUP = new int[NtotPoly];
-				ypolUP = new int[NtotPoly];
-				xpolDW = new int[NtotPoly];
-				ypolDW = new int[NtotPoly];
-			}
+			drawDataArray(g2, da, points, null, 1);
 
-			if (da.getErrorsFillSys()) {
-				xpolUPsys = new int[NtotPoly];
-				ypolUPsys = new int[NtotPoly];
-				xpolDWsys = new int[NtotPoly];
-				ypolDWsys = new int[NtotPoly];
-			}
+		} // end run over objects
+	}
 
-			// double histoWidth= toX( da.getWidthHisto() );
-
-			BasicStroke lineSolidStroke = new BasicStroke(da.getPenWidth()
-					* scalingFrame);
-			BasicStroke lineStroke = new BasicStroke(da.getPenWidth()
-					* scalingFrame);
-			if (da.getDashLength() > 0) {
-				float[] dashPattern = new float[2];
-				dashPattern[0] = da.getDashLength();
-				dashPattern[1] = 0.5f * da.getDashLength();
-				float dashPhase = 0.0f;
-				// Definition of a corresponding BasicStroke.
-				lineStroke = new BasicStroke(da.getPenWidth() * scalingFrame,
-						BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 2.0f,
-						dashPattern, dashPhase);
-			}
+	/*
+	 * Draws the points of a data array. @param start the point before the
+	 * first one, to which a line is drawn, or null @param first number of the
+	 * first point, counting from 1
+	 */
+	private void drawDataArray(VectorGraphics g2, DataArray da, Vector points,
+			PlotPoint start, int first) {
 
-			// set color and penwidth:
-			g2.setColor(da.getColor());
-			if (da.drawLine())
-				g2.setStroke(da.getStroke());
+		double zeroY = toY(0.0);
+		double cXmin = leftMargin;
+		double cXmax = leftMargin + axisLength[X];
+		double cYmin = topMargin + axisLength[Y];
+		double cYmax = topMargin;
 
-			PlotPoint prev = new PlotPoint(0.0, 0.0);
-			int i = 1;
+		NtotPoly = points.size();
+		// for drawing of a polygone
+		if (da.getErrorsFill()) {
+			xpolUP = new int[NtotPoly];
+			ypolUP = new int[NtotPoly];
+			xpolDW = new int[NtotPoly];
+			ypolDW = new int[NtotPoly];
+		}
 
-			// System.out.println(points.size());
+		if (da.getErrorsFillSys()) {
+			xpolUPsys = new int[NtotPoly];
+			ypolUPsys = new int[NtotPoly];
+			xpolDWsys = new int[NtotPoly];
+			ypolDWsys = new int[NtotPoly];
+		}
 
-			// SSSS
-			for (Enumeration e2 = points.elements(); e2.hasMoreElements(); i++) {
+		// double histoWidth= toX( da.getWidthHisto() );
+
+		BasicStroke lineSolidStroke = new BasicStroke(da.getPenWidth()
+				* scalingFrame);
+		BasicStroke lineStroke = new BasicStroke(da.getPenWidth()
+				* scalingFrame);
+		if (da.getDashLength() > 0) {
+			float[] dashPattern = new float[2];
+			dashPattern[0] = da.getDashLength();
+			dashPattern[1] = 0.5f * da.getDashLength();
+			float dashPhase = 0.0f;
+			// Definition of a corresponding BasicStroke.
+			lineStroke = new BasicStroke(da.getPenWidth() * scalingFrame,
+					BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 2.0f,
+					dashPattern, dashPhase);
+		}
 
-				PlotPoint pp = (PlotPoint) e2.nextElement();
+		// set color and penwidth:
+		g2.setColor(da.getColor());
+		if (da.drawLine())
+			g2.setStroke(da.getStroke());
 
-				histoWidth = pp.getXright() - pp.getXleft();
+		PlotPoint prev = (start == null) ? new PlotPoint(0.0, 0.0) : start;
+		int i = first;
 
-				// now show errors
-				int sl = (int) (da.getErrTicSize() * scalingFrame);
-				if (histoWidth / 2 < sl)
-					sl = 0; // when bins are too fine
-				float size = da.getSymbolSize() * scalingFrame;
+		// System.out.println(points.size());
 
-				// System.out.println(pp.getX());
+		// SSSS
+		for (Enumeration e2 = points.elements(); e2.hasMoreElements(); i++) {
 
-				// mak sure that small tics on the error bars do not cross the
-				// Min and Max
-				double XlowTic = pp.getX() - sl;
-				if (XlowTic <= cXmin)
-					XlowTic = pp.getX();
+			PlotPoint pp = (PlotPoint) e2.nextElement();
 
-				double XupTic = pp.getX() + sl;
-				if (XupTic >= cXmax)
-					XupTic = pp.getX();
+			histoWidth = pp.getXright() - pp.getXleft();
 
-				// errors should no go over the border
-				double Ylow = pp.getYlower();
-				if (Ylow > cYmin)
-					Ylow = cYmin - 1;
-				if (Ylow < cYmax)
-					Ylow = cYmax + 1;
+			// now show errors
+			int sl = (int) (da.getErrTicSize() * scalingFrame);
+			if (histoWidth / 2 < sl)
+				sl = 0; // when bins are too fine
+			float size = da.getSymbolSize() * scalingFrame;
 
-				double Yup = pp.getYupper();
-				if (Yup < cYmax)
-					Yup = cYmax + 1;
+			// System.out.println(pp.getX());
 
-				double YlowS = pp.getYlowerSys();
-				if (YlowS > cYmin)
-					YlowS = cYmin - 1;
+			// mak sure that small tics on the error bars do not cross the
+			// Min and Max
+			double XlowTic = pp.getX() - sl;
+			if (XlowTic <= cXmin)
+				XlowTic = pp.getX();
 
-				double YupS = pp.getYupperSys();
-				if (YupS < cYmax)
-					YupS = cYmax + 1;
+			double XupTic = pp.getX() + sl;
+			if (XupTic >= cXmax)
+				XupTic = pp.getX();
 
-				// x axis
-				double Xlow = pp.getXleft();
-				if (Xlow < cXmin)
-					Xlow = cXmin + 1;
+			// errors should no go over the border
+			double Ylow = pp.getYlower();
+			if (Ylow > cYmin)
+				Ylow = cYmin - 1;
+			if (Ylow < cYmax)
+				Ylow = cYmax + 1;
 
-				double Xup = pp.getXright();
-				if (Xup > cXmax)
-					Xup = cXmax - 1;
+			double Yup = pp.getYupper();
+			if (Yup < cYmax)
+				Yup = cYmax + 1;
 
-				double XlowS = pp.getXleftSys();
-				if (XlowS < cXmin)
-					XlowS = cXmin + 1;
+			double YlowS = pp.getYlowerSys();
+			if (YlowS > cYmin)
+				YlowS = cYmin - 1;
 
-				double XupS = pp.getXrightSys();
-				if (XupS > cXmax)
-					XupS = cXmax - 1;
+			double YupS = pp.getYupperSys();
+			if (YupS < cYmax)
+				YupS = cYmax + 1;
 
-				// pp.print();
+			// x axis
+			double Xlow = pp.getXleft();
+			if (Xlow < cXmin)
+				Xlow = cXmin + 1;
 
-				// draw a symbol at this point if asked for:
-				if (da.drawSymbol() && (i % da.getPointFrequency()) == 0) {
+			double Xup = pp.getXright();
+			if (Xup > cXmax)
+				Xup = cXmax - 1;
 
-					// System.out.println(
-					// "pp.getYlower()="+Double.toString(pp.getYlower())+ "
-					// cYmin"+cYmin );
+			double XlowS = pp.getXleftSys();
+			if (XlowS < cXmin)
+				XlowS = cXmin + 1;
 
-					g2.setStroke(lineSolidStroke);
+			double XupS = pp.getXrightSys();
+			if (XupS > cXmax)
+				XupS = cXmax - 1;
 
-					if (da.getErrorsY()) {
-						g2.setPaint(da.getColorErrorsY());
-						g2.setStroke(new BasicStroke(da.getPenWidthErr()
-								* scalingFrame));
+			// pp.print();
 
-						// take care symbol size, draw vertical erors
-						// low
-						g2.drawLine(pp.getX(), Ylow, pp.getX(), pp.getY() + 0.5
-								* size);
+			// draw a symbol at this point if asked for:
+			if (da.drawSymbol() && (i % da.getPointFrequency()) == 0) {
 
-						// build a polygon
-						if (da.getErrorsFill()) {
-							xpolDW[i - 1] = (int) pp.getX();
-							ypolDW[i - 1] = (int) Ylow;
-						}
+				// System.out.println(
+				// "pp.getYlower()="+Double.toString(pp.getYlower())+ "
+				// cYmin"+cYmin );
 
-						// up
-						g2.drawLine(pp.getX(), pp.getY() - 0.5 * size,
-								pp.getX(), Yup);
+				g2.setStroke(lineSolidStroke);
 
-						// upper for polygone
-						if (da.getErrorsFill()) {
-							xpolUP[i - 1] = (int) pp.getX();
-							ypolUP[i - 1] = (int) Yup;
-						}
+				if (da.getErrorsY()) {
+					g2.setPaint(da.getColorErrorsY());
+					g2.setStroke(new BasicStroke(da.getPenWidthErr()
+							* scalingFrame));
 
-						// small tic
-						g2.drawLine(XlowTic, Ylow, XupTic, Ylow);
+					// take care symbol size, draw vertical erors
+					// low
+					g2.drawLine(pp.getX(), Ylow, pp.getX(), pp.getY() + 0.5
+							* size);
 
-						g2.drawLine(XlowTic, Yup, XupTic, Yup);
+					// build a polygon
+					if (da.getErrorsFill()) {
+						xpolDW[i - 1] = (int) pp.getX();
+						ypolDW[i - 1] = (int) Ylow;
+					}
 
+					// up
+					g2.drawLine(pp.getX(), pp.getY() - 0.5 * size,
+							pp.getX(), Yup);
+
+					// upper for polygone
+					if (da.getErrorsFill()) {
+						xpolUP[i - 1] = (int) pp.getX();
+						ypolUP[i - 1] = (int) Yup;
 					}
 
-					// now draw systematical error
-					if (da.getErrorsSysY()) {
-						g2.setPaint(da.getColorErrorsSysY());
-						g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
-								* scalingFrame));
-
-						// lower
-						g2.drawLine(pp.getX(), YlowS, pp.getX(), Ylow);
-						if (da.getErrorsFillSys()) {
-							xpolDWsys[i - 1] = (int) pp.getX();
-							ypolDWsys[i - 1] = (int) YlowS;
-						}
+					// small tic
+					g2.drawLine(XlowTic, Ylow, XupTic, Ylow);
 
-						// upper
-						g2.drawLine(pp.getX(), Yup, pp.getX(), YupS);
-						if (da.getErrorsFillSys()) {
-							xpolUPsys[i - 1] = (int) pp.getX();
-							ypolUPsys[i - 1] = (int) YupS;
-						}
+					g2.drawLine(XlowTic, Yup, XupTic, Yup);
 
-					}
+				}
 
-					// now draw horisontal errors, take care symbol size
-					if (da.getErrorsX()) {
-						g2.setStroke(new BasicStroke(da.getPenWidthErr()
-								* scalingFrame));
-						g2.setPaint(da.getColorErrorsX());
+				// now draw systematical error
+				if (da.getErrorsSysY()) {
+					g2.setPaint(da.getColorErrorsSysY());
+					g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
+							* scalingFrame));
 
-						g2.drawLine(Xlow, pp.getY(), pp.getX() - 0.5 * size,
-								pp.getY());
+					// lower
+					g2.drawLine(pp.getX(), YlowS, pp.getX(), Ylow);
+					if (da.getErrorsFillSys()) {
+						xpolDWsys[i - 1] = (int) pp.getX();
+						ypolDWsys[i - 1] = (int) YlowS;
+					}
 
-						g2.drawLine(pp.getX() + 0.5 * size, pp.getY(), Xup,
-								pp.getY());
+					// upper
+					g2.drawLine(pp.getX(), Yup, pp.getX(), YupS);
+					if (da.getErrorsFillSys()) {
+						xpolUPsys[i - 1] = (int) pp.getX();
+						ypolUPsys[i - 1] = (int) YupS;
+					}
 
-						// small tic
+				}
 
-						g2.drawLine(Xlow, pp.getY() - sl, Xlow, pp.getY() + sl);
+				// now draw horisontal errors, take care symbol size
+				if (da.getErrorsX()) {
+					g2.setStroke(new BasicStroke(da.getPenWidthErr()
+							* scalingFrame));
+					g2.setPaint(da.getColorErrorsX());
 
-						g2.drawLine(Xup, pp.getY() - sl, Xup, pp.getY() + sl);
+					g2.drawLine(Xlow, pp.getY(), pp.getX() - 0.5 * size,
+							pp.getY());
 
-					}
+					g2.drawLine(pp.getX() + 0.5 * size, pp.getY(), Xup,
+							pp.getY());
 
-					// plot systematical errors
-					if (da.getErrorsSysX()) {
-						g2.setPaint(da.getColorErrorsSysX());
-						g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
-								* scalingFrame));
-						g2.drawLine(XlowS, pp.getY(), Xlow, pp.getY());
+					// small tic
 
-						g2.drawLine(Xup, pp.getY(), XupS, pp.getY());
+					g2.drawLine(Xlow, pp.getY() - sl, Xlow, pp.getY() + sl);
 
-					}
+					g2.drawLine(Xup, pp.getY() - sl, Xup, pp.getY() + sl);
+
+				}
 
-					// now draw the points
-					g2.setStroke(new BasicStroke(da.getPenWidth()
+				// plot systematical errors
+				if (da.getErrorsSysX()) {
+					g2.setPaint(da.getColorErrorsSysX());
+					g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
 							* scalingFrame));
-					g2.setPaint(da.getColor());
-					GPoints.drawPointType(da.getSymbol(), g2, pp.getX(),
-							pp.getY(), size);
-				} // end markers
+					g2.drawLine(XlowS, pp.getY(), Xlow, pp.getY());
 
-				g2.setStroke(lineSolidStroke);
-				if (da.getGraphStyle() == LinePars.STICKS) {
-					g2.drawLine(pp.getX(), pp.getY(), pp.getX(), zeroY);
+					g2.drawLine(Xup, pp.getY(), XupS, pp.getY());
 
 				}
 
-				else if (da.getGraphStyle() == LinePars.HISTO) {
+				// now draw the points
+				g2.setStroke(new BasicStroke(da.getPenWidth()
+						* scalingFrame));
+				g2.setPaint(da.getColor());
+				GPoints.drawPointType(da.getSymbol(), g2, pp.getX(),
+						pp.getY(), size);
+			} // end markers
 
-					// double xlow = pp.getX() - histoWidth / 2.0;
-					double xlow = pp.getXleft();
-					double xup = pp.getXright();
-					double hW = histoWidth;
+			g2.setStroke(lineSolidStroke);
+			if (da.getGraphStyle() == LinePars.STICKS) {
+				g2.drawLine(pp.getX(), pp.getY(), pp.getX(), zeroY);
 
-					// if lower than min x value
-					if (xlow < cXmin) {
-						double dd = cXmin - xlow;
-						xlow = cXmin;
-						hW = histoWidth - dd;
-					}
+			}
 
-					// if larger than max X value
-					// double xup = pp.getX() + histoWidth / 2.0;
-					if (xup > cXmax) {
-						double dd = xup - cXmax;
-						xup = cXmax;
-						hW = histoWidth - dd;
-					}
+			else if (da.getGraphStyle() == LinePars.HISTO) {
 
-					// if lower than min x value
-					// double xlow_prev = prev.getX() - histoWidth / 2.0;
-					double xlow_prev = prev.getXleft();
-					if (xlow_prev < cXmin) {
-						double dd = cXmin - xlow_prev;
-						xlow_prev = cXmin;
-						hW = histoWidth - dd;
-					}
+				// double xlow = pp.getX() - histoWidth / 2.0;
+				double xlow = pp.getXleft();
+				double xup = pp.getXright();
+				double hW = histoWidth;
 
-					// if larger than max X value
-					// double xup_prev = prev.getX() + histoWidth / 2.0;
-					double xup_prev = prev.getXright();
-					if (xup_prev > cXmax) {
-						double dd = xup_prev - cXmax;
-						xup_prev = cXmax;
-						hW = histoWidth - dd;
-					}
+				// if lower than min x value
+				if (xlow < cXmin) {
+					double dd = cXmin - xlow;
+					xlow = cXmin;
+					hW = histoWidth - dd;
+				}
 
-					g2.setStroke(lineSolidStroke);
+				// if larger than max X value
+				// double xup = pp.getX() + histoWidth / 2.0;
+				if (xup > cXmax) {
+					double dd = xup - cXmax;
+					xup = cXmax;
+					hW = histoWidth - dd;
+				}
 
-					// if dashed line
-					if (da.getDashLength() > 0) {
-						g2.setStroke(lineStroke);
-					}
+				// if lower than min x value
+				// double xlow_prev = prev.getX() - histoWidth / 2.0;
+				double xlow_prev = prev.getXleft();
+				if (xlow_prev < cXmin) {
+					double dd = cXmin - xlow_prev;
+					xlow_prev = cXmin;
+					hW = histoWidth - dd;
+				}
 
-					if (da.fill()) {
-						g2.setPaint(da.getFillColor());
+				// if larger than max X value
+				// double xup_prev = prev.getX() + histoWidth / 2.0;
+				double xup_prev = prev.getXright();
+				if (xup_prev > cXmax) {
+					double dd = xup_prev - cXmax;
+					xup_prev = cXmax;
+					hW = histoWidth - dd;
+				}
 
-						Composite c = AlphaComposite.getInstance(
-								AlphaComposite.SRC_OVER,
-								da.getFillColorTransparency());
-						g2.setComposite(c);
+				g2.setStroke(lineSolidStroke);
 
-						g2.fillRect(xlow, pp.getY(), histoWidth,
-								cYmin - pp.getY());
-						// rect.setRect(xlow, pp.getY(),histoWidth, pp.getY());
+				// if dashed line
+				if (da.getDashLength() > 0) {
+					g2.setStroke(lineStroke);
+				}
 
-						// g2.setPaint(Color.black);
+				if (da.fill()) {
+					g2.setPaint(da.getFillColor());
 
-						// g2.setPaint(da.getFillColor());
+					Composite c = AlphaComposite.getInstance(
+							AlphaComposite.SRC_OVER,
+							da.getFillColorTransparency());
+					g2.setComposite(c);
 
-						Composite c1 = AlphaComposite.getInstance(
-								AlphaComposite.SRC_OVER, 1.0f);
-						g2.setComposite(c1);
-					} // end filled
+					g2.fillRect(xlow, pp.getY(), histoWidth,
+							cYmin - pp.getY());
+					// rect.setRect(xlow, pp.getY(),histoWidth, pp.getY());
 
-					// draw a empty histogram with bars
-					if (da.isBarShown()) {
-						rect.setRect(xlow, pp.getY(), histoWidth,
-								cYmin - pp.getY());
-						g2.setStroke(lineSolidStroke);
-						g2.setColor(da.getColor());
-						g2.draw(rect);
-					}
+					// g2.setPaint(Color.black);
 
-					// this draws horisontal part of histograms
-					g2.setPaint(da.getColor());
-					g2.drawLine(xlow, pp.getY(), xup, pp.getY());
+					// g2.setPaint(da.getFillColor());
 
-					if (i > 1) {
-						g2.drawLine(xlow, prev.getY(), xlow, pp.getY());
-						// System.out.println("xlow="+Float.toString(xlow));
-						// System.out.println("="+Float.toString(xlow));
+					Composite c1 = AlphaComposite.getInstance(
+							AlphaComposite.SRC_OVER, 1.0f);
+					g2.setComposite(c1);
+				} // end filled
 
-						if ((xlow - xup_prev) > 0.05) {
-							// System.out.println("Fix me
-							// pp.getY()="+Double.toString(pp.getY()));
+				// draw a empty histogram with bars
+				if (da.isBarShown()) {
+					rect.setRect(xlow, pp.getY(), histoWidth,
+							cYmin - pp.getY());
+					g2.setStroke(lineSolidStroke);
+					g2.setColor(da.getColor());
+					g2.draw(rect);
+				}
 
-							g2.drawLine(xup_prev, prev.getY(), xup_prev, cYmin);
+				// this draws horisontal part of histograms
+				g2.setPaint(da.getColor());
+				g2.drawLine(xlow, pp.getY(), xup, pp.getY());
 
-							g2.drawLine(xlow, pp.getY(), xlow, cYmin);
+				if (i > 1) {
+					g2.drawLine(xlow, prev.getY(), xlow, pp.getY());
+					// System.out.println("xlow="+Float.toString(xlow));
+					// System.out.println("="+Float.toString(xlow));
 
-							// line.setLine( xlow, zeroY,
-							// xlow, pp.getY() );
-							// g2.draw(line);
-						}
+					if ((xlow - xup_prev) > 0.05) {
+						// System.out.println("Fix me
+						// pp.getY()="+Double.toString(pp.getY()));
 
-					}
+						g2.drawLine(xup_prev, prev.getY(), xup_prev, cYmin);
 
-					if (i == 1) {
-						g2.drawLine(xlow, cYmin, xlow, pp.getY());
+						g2.drawLine(xlow, pp.getY(), xlow, cYmin);
 
+						// line.setLine( xlow, zeroY,
+						// xlow, pp.getY() );
+						// g2.draw(line);
 					}
-					if (i == points.size()) {
-						g2.drawLine(xup, cYmin, xup, pp.getY());
 
-					}
+				}
 
-					// now show errors
-					if (da.getErrorsY()) {
-						g2.setPaint(da.getColorErrorsY());
-						// g2.setStroke(new BasicStroke(da.getPenWidthErr()));
+				if (i == 1) {
+					g2.drawLine(xlow, cYmin, xlow, pp.getY());
 
-						g2.drawLine(pp.getX(), Ylow, pp.getX(), Yup);
+				}
+				if (i == points.size()) {
+					g2.drawLine(xup, cYmin, xup, pp.getY());
 
-						if (da.getErrorsFill()) {
-							xpolDW[i - 1] = (int) pp.getX();
-							ypolDW[i - 1] = (int) Ylow;
-							xpolUP[i - 1] = (int) pp.getX();
-							ypolUP[i - 1] = (int) Yup;
-						}
+				}
 
-						g2.drawLine(XlowTic, Ylow, XupTic, Ylow);
+				// now show errors
+				if (da.getErrorsY()) {
+					g2.setPaint(da.getColorErrorsY());
+					// g2.setStroke(new BasicStroke(da.getPenWidthErr()));
 
-						g2.drawLine(XlowTic, Yup, XupTic, Yup);
+					g2.drawLine(pp.getX(), Ylow, pp.getX(), Yup);
 
+					if (da.getErrorsFill()) {
+						xpolDW[i - 1] = (int) pp.getX();
+						ypolDW[i - 1] = (int) Ylow;
+						xpolUP[i - 1] = (int) pp.getX();
+						ypolUP[i - 1] = (int) Yup;
 					}
 
-					// show systematical
-					if (da.getErrorsSysY()) {
-						g2.setPaint(da.getColorErrorsSysY());
-						g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
-								* scalingFrame));
+					g2.drawLine(XlowTic, Ylow, XupTic, Ylow);
 
-						g2.drawLine(pp.getX(), YlowS, pp.getX(), Ylow);
+					g2.drawLine(XlowTic, Yup, XupTic, Yup);
 
-						g2.drawLine(pp.getX(), Ylow, pp.getX(), YlowS);
+				}
 
-					} // end Y
+				// show systematical
+				if (da.getErrorsSysY()) {
+					g2.setPaint(da.getColorErrorsSysY());
+					g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
+							* scalingFrame));
 
-					// now draw horisontal errors
-					if (da.getErrorsX()) {
-						g2.setPaint(da.getColorErrorsX());
-						g2.setStroke(new BasicStroke(da.getPenWidthErr()
-								* scalingFrame));
+					g2.drawLine(pp.getX(), YlowS, pp.getX(), Ylow);
 
-						g2.drawLine(Xlow, pp.getY(), Xup, pp.getY());
+					g2.drawLine(pp.getX(), Ylow, pp.getX(), YlowS);
 
-						// show tics
+				} // end Y
 
-						g2.drawLine(Xlow, pp.getY() - sl, Xlow, pp.getY() + sl);
+				// now draw horisontal errors
+				if (da.getErrorsX()) {
+					g2.setPaint(da.getColorErrorsX());
+					g2.setStroke(new BasicStroke(da.getPenWidthErr()
+							* scalingFrame));
 
-						g2.drawLine(Xup, pp.getY() - sl, Xup, pp.getY() + sl);
+					g2.drawLine(Xlow, pp.getY(), Xup, pp.getY());
 
-					}
+					// show tics
 
-					// sys
-					if (da.getErrorsSysX()) {
-						g2.setPaint(da.getColorErrorsSysX());
-						g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
-								* scalingFrame));
+					g2.drawLine(Xlow, pp.getY() - sl, Xlow, pp.getY() + sl);
 
-						g2.drawLine(XlowS, pp.getY(), Xlow, pp.getY());
+					g2.drawLine(Xup, pp.getY() - sl, Xup, pp.getY() + sl);
 
-						g2.drawLine(Xup, pp.getY(), XupS, pp.getY());
+				}
 
-					}
+				// sys
+				if (da.getErrorsSysX()) {
+					g2.setPaint(da.getColorErrorsSysX());
+					g2.setStroke(new BasicStroke(da.getPenWidthErrSys()
+							* scalingFrame));
 
-				} // end histogram
+					g2.drawLine(XlowS, pp.getY(), Xlow, pp.getY());
 
-				// Draw a line if asked for. If dashes are used, calculate
-				// the minimum distance between two plotting points in order
-				// to display the dash correctly:
-				else if (i > 1 && da.drawLine() && !prev.liftPen()) {
+					g2.drawLine(Xup, pp.getY(), XupS, pp.getY());
 
-					g2.setStroke(lineStroke);
+				}
 
-					if (da.getDashLength() > 0
-							&& (da.getType() == LinePars.H1D || da.getType() == LinePars.F1D)) {
+			} // end histogram
 
-						double minDist = FastMath.sqrt((pp.getX() - prev.getX())
-								* (pp.getX() - prev.getX())
-								+ (pp.getY() - prev.getY())
-								* (pp.getY() - prev.getY()));
+			// Draw a line if asked for. If dashes are used, calculate
+			// the minimum distance between two plotting points in order
+			// to display the dash correctly:
+			else if (i > 1 && da.drawLine() && !prev.liftPen()) {
 
-						// System.out.println(da.getType());
+				g2.setStroke(lineStroke);
 
-						if (da.getType() == LinePars.H1D) {
-							if (minDist < da.getDashLength() * 2)
-								continue;
-							g2.drawLine(prev.getX(), prev.getY(), pp.getX(),
-									pp.getY());
+				if (da.getDashLength() > 0
+						&& (da.getType() == LinePars.H1D || da.getType() == LinePars.F1D)) {
 
-						}
+					double minDist = FastMath.sqrt((pp.getX() - prev.getX())
+							* (pp.getX() - prev.getX())
+							+ (pp.getY() - prev.getY())
+							* (pp.getY() - prev.getY()));
 
-						// only for functions
-						if (da.getType() == LinePars.F1D) {
-							dashCounter1 = dashCounter1 + minDist;
-							if (dashCounter1 > da.getDashLength() * 2) {
+					// System.out.println(da.getType());
 
-								g2.drawLine(prev.getX(), prev.getY(),
-										pp.getX(), pp.getY());
+					if (da.getType() == LinePars.H1D) {
+						if (minDist < da.getDashLength() * 2)
+							continue;
+						g2.drawLine(prev.getX(), prev.getY(), pp.getX(),
+								pp.getY());
 
-								dashCounter2 = dashCounter2 + minDist;
-								if (dashCounter2 > da.getDashLength() * 2) {
-									dashCounter1 = 0;
-									dashCounter2 = 0;
-									continue;
+					}
 
-								}
-							}
+					// only for functions
+					if (da.getType() == LinePars.F1D) {
+						dashCounter1 = dashCounter1 + minDist;
+						if (dashCounter1 > da.getDashLength() * 2) {
 
-						}
+							g2.drawLine(prev.getX(), prev.getY(),
+									pp.getX(), pp.getY());
 
-					} else { // no dashed
+							dashCounter2 = dashCounter2 + minDist;
+							if (dashCounter2 > da.getDashLength() * 2) {
+								dashCounter1 = 0;
+								dashCounter2 = 0;
+								continue;
+
+							}
+						}
 
-						g2.drawLine(prev.getX(), prev.getY(), pp.getX(),
-								pp.getY());
 					}
 
+				} else { // no dashed
+
+					g2.drawLine(prev.getX(), prev.getY(), pp.getX(),
+							pp.getY());
 				}
 
-				prev = pp;
 			}
 
-			// ---------------- fill area between error bars
-			// -------------------------
+			prev = pp;
+		}
 
-			final int NP = 2 * NtotPoly + 1;
+		// ---------------- fill area between error bars
+		// -------------------------
 
-			// fill area with systematical errors.
-			if (da.getErrorsFillSys()) {
+		final int NP = 2 * NtotPoly + 1;
 
-				// get old colors
-				Color cold = g2.getColor();
-				Composite com_old = g2.getComposite();
+		// fill area with systematical errors.
+		if (da.getErrorsFillSys()) {
 
-				// set new colors
-				g2.setColor(da.getColorErrorsFillSys());
-				Composite c = AlphaComposite.getInstance(
-						AlphaComposite.SRC_OVER,
-						da.getErrorFillColorTranspSys());
-				g2.setComposite(c);
+			// get old colors
+			Color cold = g2.getColor();
+			Composite com_old = g2.getComposite();
 
-				int xpol[] = new int[NP];
-				int ypol[] = new int[NP];
-				for (int m = 0; m < NtotPoly; m++) {
-					xpol[m] = xpolUPsys[m];
-					ypol[m] = ypolUPsys[m];
-				}
-				int mm = NtotPoly;
-				for (int m = NtotPoly - 1; m >= 0; m--) {
-					xpol[mm] = xpolDWsys[m];
-					ypol[mm] = ypolDWsys[m];
-					mm++;
-				}
-				xpol[NtotPoly * 2] = xpol[0];
-				ypol[NtotPoly * 2] = ypol[0];
+			// set new colors
+			g2.setColor(da.getColorErrorsFillSys());
+			Composite c = AlphaComposite.getInstance(
+					AlphaComposite.SRC_OVER,
+					da.getErrorFillColorTranspSys());
+			g2.setComposite(c);
 
-				for (int m = 1; m < NP; m++) {
-					// System.out.println(Double.toString(toUserX(xpol[m]))+
-					// "     "+Double.toString( toUserY(ypol[m])));
-				}
+			int xpol[] = new int[NP];
+			int ypol[] = new int[NP];
+			for (int m = 0; m < NtotPoly; m++) {
+				xpol[m] = xpolUPsys[m];
+				ypol[m] = ypolUPsys[m];
+			}
+			int mm = NtotPoly;
+			for (int m = NtotPoly - 1; m >= 0; m--) {
+				xpol[mm] = xpolDWsys[m];
+				ypol[mm] = ypolDWsys[m];
+				mm++;
+			}
+			xpol[NtotPoly * 2] = xpol[0];
+			ypol[NtotPoly * 2] = ypol[0];
 
-				g2.fillPolygon(xpol, ypol, NP);
+			for (int m = 1; m < NP; m++) {
+				// System.out.println(Double.toString(toUserX(xpol[m]))+
+				// "     "+Double.toString( toUserY(ypol[m])));
+			}
 
-				g2.setComposite(com_old);
-				g2.setColor(cold);
-			} // end fill area for errors
+			g2.fillPolygon(xpol, ypol, NP);
 
-			// fill statistical errors
+			g2.setComposite(com_old);
+			g2.setColor(cold);
+		} // end fill area for errors
 
-			if (da.getErrorsFill()) {
+		// fill statistical errors
 
-				// get old colors
-				Color cold = g2.getColor();
-				Composite com_old = g2.getComposite();
+		if (da.getErrorsFill()) {
 
-				// set new colors
-				g2.setColor(da.getColorErrorsFill());
-				Composite c = AlphaComposite.getInstance(
-						AlphaComposite.SRC_OVER, da.getErrorFillColorTransp());
-				g2.setComposite(c);
+			// get old colors
+			Color cold = g2.getColor();
+			Composite com_old = g2.getComposite();
 
-				int xpol[] = new int[NP];
-				int ypol[] = new int[NP];
-				for (int m = 0; m < NtotPoly; m++) {
-					xpol[m] = xpolUP[m];
-					ypol[m] = ypolUP[m];
-				}
-				int mm = NtotPoly;
-				for (int m = NtotPoly - 1; m >= 0; m--) {
-					xpol[mm] = xpolDW[m];
-					ypol[mm] = ypolDW[m];
-					mm++;
-				}
-				xpol[NtotPoly * 2] = xpol[0];
-				ypol[NtotPoly * 2] = ypol[0];
+			// set new colors
+			g2.setColor(da.getColorErrorsFill());
+			Composite c = AlphaComposite.getInstance(
+					AlphaComposite.SRC_OVER, da.getErrorFillColorTransp());
+			g2.setComposite(c);
 
-				for (int m = 1; m < NP; m++) {
-					// System.out.println(Double.toString(toUserX(xpol[m]))+
-					// "     "+Double.toString( toUserY(ypol[m])));
-				}
+			int xpol[] = new int[NP];
+			int ypol[] = new int[NP];
+			for (int m = 0; m < NtotPoly; m++) {
+				xpol[m] = xpolUP[m];
+				ypol[m] = ypolUP[m];
+			}
+			int mm = NtotPoly;
+			for (int m = NtotPoly - 1; m >= 0; m--) {
+				xpol[mm] = xpolDW[m];
+				ypol[mm] = ypolDW[m];
+				mm++;
+			}
+			xpol[NtotPoly * 2] = xpol[0];
+			ypol[NtotPoly * 2] = ypol[0];
 
-				g2.fillPolygon(xpol, ypol, NP);
+			for (int m = 1; m < NP; m++) {
+				// System.out.println(Double.toString(toUserX(xpol[m]))+
+				// "     "+Double.toString( toUserY(ypol[m])));
+			}
 
-				g2.setComposite(com_old);
-				g2.setColor(cold);
-			} // end fill area for errors
+			g2.fillPolygon(xpol, ypol, NP);
 
-		} // end run over objects
+			g2.setComposite(com_old);
+			g2.setColor(cold);
+		} // end fill area for errors
+	}
+
+	/*
+	 * Draws everything which is in front of the data: the margins, the axes,
+	 * the labels and the legend.
+	 */
+	private void drawFront(VectorGraphics g2) {
 
 		// draw the on the foreground, if this is what they want:
 		if (gs.gridToFront())
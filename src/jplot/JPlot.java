@@ -248,7 +248,8 @@ public class JPlot extends JPanel {
 	loaded = true;
       }
     };
-    t.start();
+    // the dialogs need a display
+    if (!GraphicsEnvironment.isHeadless()) t.start();
 
 
     // load script file if any present:
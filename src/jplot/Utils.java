@@ -123,20 +123,31 @@ public class Utils {
 	 * cache information.
 	 */
 	public static String formatNum(double num, int numfracdigits) {
-		if (numberFormat == null) {
+		NumberFormat f = formats.get();
+		f.setMinimumFractionDigits(numfracdigits);
+		f.setMaximumFractionDigits(numfracdigits);
+		return f.format(num);
+	}
+
+	/**
+	 * @deprecated not used by {@link #formatNum(double, int)}, which keeps
+	 *             one format per thread.
+	 */
+	@Deprecated
+	public static NumberFormat numberFormat = null;
+
+	// one format per thread, since it is changed for each number
+	private static final ThreadLocal<NumberFormat> formats = new ThreadLocal<NumberFormat>() {
+		protected NumberFormat initialValue() {
 			// Cache the number format so that we don't have to get
 			// info about local language etc. from the OS each time.
-			numberFormat = NumberFormat.getInstance();
+			NumberFormat f = NumberFormat.getInstance();
 			// force to not include commas because we want the strings
 			// to be parsable back into numeric values. - DRG
-			numberFormat.setGroupingUsed(false);
+			f.setGroupingUsed(false);
+			return f;
 		}
-		numberFormat.setMinimumFractionDigits(numfracdigits);
-		numberFormat.setMaximumFractionDigits(numfracdigits);
-		return numberFormat.format(num);
-	}
-
-	public static NumberFormat numberFormat = null;
+	};
 
 	/**
 	 * Format numbers as 10^##
@@ -0,0 +1,102 @@
+package test;
+
+import java.io.File;
+import java.util.Random;
+
+import jhplot.H1D;
+import jhplot.P1D;
+import jhplot.io.HFile;
+
+/**
+ * Compares the Java serialization with the compact binary codecs in HFile.
+ * The same histograms and data sets are written to an indexed file with and
+ * without setBinary(true) and read back by key, then the time per object,
+ * the file sizes and the largest difference of the values read back are
+ * printed.
+ * <p>
+ * Usage: java test.CodecBenchmark [number of objects] [points per P1D]
+ * [output directory]
+ */
+public class CodecBenchmark
+{
+
+   public static void main(String[] args)
+   {
+      int nobj = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+      int npoints = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+      File dir = new File(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir"));
+
+      H1D[] h = new H1D[nobj];
+      P1D[] p = new P1D[nobj];
+      for (int i = 0; i < nobj; i++) {
+         Random r = new Random(i);
+         h[i] = new H1D("h" + i, 100, -5, 5);
+         for (int k = 0; k < npoints; k++)
+            h[i].fill(r.nextGaussian());
+         p[i] = new P1D("p" + i);
+         for (int k = 0; k < npoints; k++)
+            p[i].add(k, r.nextDouble());
+      }
+
+      File serial = new File(dir, "codec-serial.jser");
+      File binary = new File(dir, "codec-binary.jser");
+
+      // warm up both formats
+      run(serial, h, p, false);
+      run(binary, h, p, true);
+
+      long[] ts = run(serial, h, p, false);
+      long[] tb = run(binary, h, p, true);
+
+      double diff = 0;
+      HFile f = new HFile(binary.getPath());
+      for (int i = 0; i < nobj; i++) {
+         H1D hb = (H1D) f.read("h" + i);
+         P1D pb = (P1D) f.read("p" + i);
+         for (int k = 0; k < 100; k++)
+            diff = Math.max(diff, Math.abs(hb.binHeight(k) - h[i].binHeight(k)));
+         for (int k = 0; k < npoints; k++)
+            diff = Math.max(diff, Math.abs(pb.getY(k) - p[i].getY(k)));
+      }
+      f.close();
+
+      System.out.println("Objects: " + 2 * nobj + ", points per P1D: " + npoints);
+      System.out.println("Serialization: write " + ts[0] / 1000.0 / (2 * nobj) + " us, read "
+            + ts[1] / 1000.0 / (2 * nobj) + " us per object, " + serial.length() + " bytes");
+      System.out.println("Binary codecs: write " + tb[0] / 1000.0 / (2 * nobj) + " us, read "
+            + tb[1] / 1000.0 / (2 * nobj) + " us per object, " + binary.length() + " bytes");
+      System.out.println("Max. difference of values read back: " + diff);
+
+      serial.delete();
+      binary.delete();
+      if (diff != 0)
+         System.exit(1);
+   }
+
+   /**
+    * Write all objects to a file, then read them back by key.
+    *
+    * @return nanoseconds spent writing and reading
+    */
+   private static long[] run(File file, H1D[] h, P1D[] p, boolean binary)
+   {
+      long t0 = System.nanoTime();
+      HFile f = new HFile(file.getPath(), "w", false);
+      f.setBinary(binary);
+      for (int i = 0; i < h.length; i++) {
+         f.write("h" + i, h[i]);
+         f.write("p" + i, p[i]);
+      }
+      f.close();
+      long t1 = System.nanoTime();
+
+      f = new HFile(file.getPath());
+      for (int i = 0; i < h.length; i++) {
+         f.read("h" + i);
+         f.read("p" + i);
+      }
+      f.close();
+      long t2 = System.nanoTime();
+      return new long[] {t1 - t0, t2 - t1};
+   }
+}
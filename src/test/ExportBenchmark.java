@@ -0,0 +1,93 @@
+package test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import jhplot.H1D;
+import jhplot.HPlot;
+import jhplot.io.images.CanvasExport;
+
+/**
+ * Measures how many plots per second are exported without a display. Canvases
+ * with a histogram are created and exported to PNG files, first on one thread
+ * and then on one thread per processor. The files written by several threads
+ * are checked to be the same as the ones written by one thread.
+ * <p>
+ * Usage: java test.ExportBenchmark [number of plots] [output directory]
+ */
+public class ExportBenchmark
+{
+
+   public static void main(String[] args) throws Exception
+   {
+      if (System.getProperty("java.awt.headless") == null)
+         System.setProperty("java.awt.headless", "true");
+
+      int nplots = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+      File dir = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"), "exportbenchmark");
+      dir.mkdirs();
+
+      int cores = Runtime.getRuntime().availableProcessors();
+      System.out.println("Plots: " + nplots + ", processors: " + cores + ", output: " + dir);
+
+      File single = new File(dir, "single");
+      File parallel = new File(dir, "parallel");
+      single.mkdirs();
+      parallel.mkdirs();
+
+      // warm up
+      run(Math.min(nplots, 20), 1, single);
+
+      double one = run(nplots, 1, single);
+      System.out.println("1 thread:   " + one + " plots/s");
+      int threads = Math.max(2, cores);
+      double all = run(nplots, threads, parallel);
+      System.out.println(threads + " threads: " + all + " plots/s");
+
+      int differ = 0;
+      for (int i = 0; i < nplots; i++)
+      {
+         String name = "plot" + i + ".png";
+         byte[] a = Files.readAllBytes(new File(single, name).toPath());
+         byte[] b = Files.readAllBytes(new File(parallel, name).toPath());
+         if (!Arrays.equals(a, b))
+         {
+            System.out.println("Differs: " + name);
+            differ++;
+         }
+      }
+      System.out.println(differ == 0 ? "Parallel output is identical" : "Different files: " + differ);
+      if (differ > 0)
+         System.exit(1);
+   }
+
+   // plots per second, including the drawing of the data on the canvases
+   private static double run(int nplots, int threads, File dir) throws Exception
+   {
+      HPlot[] c = new HPlot[nplots];
+      for (int i = 0; i < nplots; i++) {
+         H1D h = new H1D("h" + i, 100, -5, 5);
+         // the same data for each run
+         Random r = new Random(i);
+         double mean = 0.01 * (i % 100) - 0.5;
+         for (int k = 0; k < 10000; k++)
+            h.fill(mean + r.nextGaussian());
+         c[i] = new HPlot("plot", 600, 400);
+         c[i].setAutoRange();
+         c[i].draw(h);
+      }
+
+      long t0 = System.nanoTime();
+      CanvasExport queue = new CanvasExport(threads);
+      for (int i = 0; i < nplots; i++)
+         queue.add(c[i], new File(dir, "plot" + i + ".png").getPath());
+      int n = queue.finish();
+      long t1 = System.nanoTime();
+
+      if (n != nplots)
+         System.out.println("Failed: " + (nplots - n));
+      return n / ((t1 - t0) * 1e-9);
+   }
+}
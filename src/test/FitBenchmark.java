@@ -0,0 +1,81 @@
+package test;
+
+import hep.aida.IFitResult;
+import jhplot.H1D;
+import jhplot.HFitter;
+import jhplot.HFitterLM;
+import jhplot.fit.Gauss;
+
+/**
+ * Compares the AIDA fitter (HFitter) with the native Levenberg-Marquardt
+ * fitter (HFitterLM). Many histograms are filled with Gaussian numbers and
+ * fitted by both, then the time per fit and the largest differences of the
+ * parameters and errors are printed.
+ * <p>
+ * Usage: java test.FitBenchmark [number of histograms] [fit method]
+ */
+public class FitBenchmark
+{
+
+   public static void main(String[] args)
+   {
+      int nhist = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+      String method = args.length > 1 ? args[1] : "chi2";
+
+      H1D[] h = new H1D[nhist];
+      for (int i = 0; i < nhist; i++) {
+         h[i] = new H1D("h" + i, 50, -5, 5);
+         h[i].fillGauss(2000, 0.1 * (i % 10) - 0.5, 1 + 0.05 * (i % 7));
+      }
+      double[] startValues = {100, 0, 1};
+
+      // warm up both fitters
+      int warm = Math.min(nhist, 100);
+      HFitter aida = new HFitter(method);
+      HFitterLM lm = new HFitterLM(method);
+      Gauss f1 = new Gauss();
+      f1.setParameters(startValues);
+      aida.setFunc(f1);
+      Gauss f2 = new Gauss();
+      f2.setParameters(startValues);
+      lm.setFunc(f2);
+      for (int i = 0; i < warm; i++) {
+         aida.fit(h[i]);
+         lm.fit(h[i]);
+      }
+
+      double[][] pa = new double[nhist][];
+      double[][] ea = new double[nhist][];
+      long t0 = System.nanoTime();
+      for (int i = 0; i < nhist; i++) {
+         aida.fit(h[i]);
+         IFitResult r = aida.getResult();
+         pa[i] = r.fittedParameters();
+         ea[i] = r.errors();
+      }
+      long t1 = System.nanoTime();
+
+      double[][] pl = new double[nhist][];
+      double[][] el = new double[nhist][];
+      for (int i = 0; i < nhist; i++) {
+         HFitterLM.Result r = lm.fit(h[i]);
+         pl[i] = r.fittedParameters();
+         el[i] = r.errors();
+      }
+      long t2 = System.nanoTime();
+
+      double dp = 0, de = 0;
+      for (int i = 0; i < nhist; i++) {
+         for (int k = 0; k < pa[i].length; k++) {
+            dp = Math.max(dp, Math.abs(pa[i][k] - pl[i][k]) / ea[i][k]);
+            de = Math.max(de, Math.abs(ea[i][k] - el[i][k]) / ea[i][k]);
+         }
+      }
+
+      System.out.println("Method: " + method + ", histograms: " + nhist);
+      System.out.println("HFitter:   " + (t1 - t0) / 1000.0 / nhist + " us per fit");
+      System.out.println("HFitterLM: " + (t2 - t1) / 1000.0 / nhist + " us per fit");
+      System.out.println("Max. parameter difference / error: " + dp);
+      System.out.println("Max. relative error difference:    " + de);
+   }
+}